@@ -39,6 +39,7 @@ import com.metsci.glimpse.canvas.GlimpseCanvas;
 import com.metsci.glimpse.context.GlimpseBounds;
 import com.metsci.glimpse.context.GlimpseContext;
 import com.metsci.glimpse.context.GlimpseTarget;
+import com.metsci.glimpse.context.GlimpseTargetStack;
 import com.metsci.glimpse.support.settings.LookAndFeel;
 
 public class GLUtils
@@ -291,13 +292,21 @@ public class GLUtils
     }
 
     public static GlimpseBounds getClippedBounds( GlimpseContext context )
+    {
+        return getClippedBounds( context.getTargetStack( ) );
+    }
+
+    /**
+     * @return the intersection of all the bounds in the stack
+     */
+    public static GlimpseBounds getClippedBounds( GlimpseTargetStack stack )
     {
         int minX = Integer.MIN_VALUE;
         int maxX = Integer.MAX_VALUE;
         int minY = Integer.MIN_VALUE;
         int maxY = Integer.MAX_VALUE;
 
-        for ( GlimpseBounds parentBounds : context.getTargetStack( ).getBoundsList( ) )
+        for ( GlimpseBounds parentBounds : stack.getBoundsList( ) )
         {
             minX = Math.max( parentBounds.getX( ), minX );
             maxX = Math.min( parentBounds.getX( ) + parentBounds.getWidth( ), maxX );
@@ -0,0 +1,416 @@
+/*
+ * Copyright (c) 2016, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.painter.plot;
+
+import static java.lang.Math.floorDiv;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntToDoubleFunction;
+
+import com.metsci.glimpse.util.primitives.algorithms.ParallelRanges;
+
+/**
+ * Histogram counts which can be updated incrementally, for histograms of growing data streams.
+ * <p>
+ * Values are counted into base bins of a fixed width, in a primitive array that grows as
+ * needed. Adding a batch of values costs O(batch size), regardless of how many values have
+ * already been added. Large batches (e.g. an initial bulk load) are counted in parallel.
+ * <p>
+ * The histogram holds at most {@code maxBins} base bins, centered on the origin. Values
+ * outside that range (e.g. wild outliers), along with NaN and infinite values, are dropped
+ * and counted in {@link #getDroppedCount()}, so one bad value can't make the counts array
+ * grow without bound.
+ * <p>
+ * The bins that are displayed are a whole number of base bins wide (see {@link #setBinFactor(int)}),
+ * so the displayed bin size can be changed without rescanning the raw values.
+ * <p>
+ * Keeps track of which base bins have changed since the last call to {@link #clearDirty()},
+ * so that a painter can update only the corresponding bars.
+ * <p>
+ * Not thread-safe -- callers must synchronize.
+ */
+public class IncrementalHistogram
+{
+    public static final int PARALLEL_THRESHOLD = ParallelRanges.DEFAULT_GRAIN;
+
+    public static final int DEFAULT_MAX_BINS = 1 << 16;
+
+    // Returned by baseBin for values that are dropped
+    protected static final int NO_BIN = Integer.MIN_VALUE;
+
+    protected final double origin;
+    protected final double baseBinSize;
+
+    // Range of base bins that values may be counted into
+    protected final int minAllowedBin;
+    protected final int maxAllowedBin;
+
+    // counts[i] is the count for absolute base bin ( firstBin + i )
+    protected int[] counts;
+    protected int firstBin;
+
+    // Range of base bins that have ever been counted into
+    protected int minBin;
+    protected int maxBin;
+
+    protected long totalCount;
+    protected long droppedCount;
+    protected int binFactor;
+
+    protected int dirtyMinBin;
+    protected int dirtyMaxBin;
+
+    /**
+     * @param origin left edge of base bin 0
+     * @param baseBinSize the finest bin size that will be needed
+     */
+    public IncrementalHistogram( double origin, double baseBinSize )
+    {
+        this( origin, baseBinSize, DEFAULT_MAX_BINS );
+    }
+
+    /**
+     * @param origin left edge of base bin 0
+     * @param baseBinSize the finest bin size that will be needed
+     * @param maxBins the number of base bins, centered on the origin, that values may fall into
+     */
+    public IncrementalHistogram( double origin, double baseBinSize, int maxBins )
+    {
+        if ( maxBins < 1 ) throw new IllegalArgumentException( "Max bins must be positive: " + maxBins );
+
+        this.origin = origin;
+        this.baseBinSize = baseBinSize;
+        this.minAllowedBin = -( maxBins / 2 );
+        this.maxAllowedBin = this.minAllowedBin + maxBins - 1;
+
+        this.binFactor = 1;
+        this.clear( );
+    }
+
+    public void clear( )
+    {
+        this.counts = new int[0];
+        this.minBin = Integer.MAX_VALUE;
+        this.maxBin = Integer.MIN_VALUE;
+        this.totalCount = 0;
+        this.droppedCount = 0;
+        this.setAllDirty( );
+    }
+
+    public boolean isEmpty( )
+    {
+        return this.minBin > this.maxBin;
+    }
+
+    public long getTotalCount( )
+    {
+        return this.totalCount;
+    }
+
+    /**
+     * @return the number of values that were NaN, infinite, or outside the range of bins
+     */
+    public long getDroppedCount( )
+    {
+        return this.droppedCount;
+    }
+
+    public double getBaseBinSize( )
+    {
+        return this.baseBinSize;
+    }
+
+    /**
+     * Sets the number of base bins per displayed bin.
+     */
+    public void setBinFactor( int binFactor )
+    {
+        if ( binFactor < 1 ) throw new IllegalArgumentException( "Bin factor must be positive: " + binFactor );
+
+        if ( binFactor != this.binFactor )
+        {
+            this.binFactor = binFactor;
+            this.setAllDirty( );
+        }
+    }
+
+    public int getBinFactor( )
+    {
+        return this.binFactor;
+    }
+
+    public double getBinSize( )
+    {
+        return this.binFactor * this.baseBinSize;
+    }
+
+    /**
+     * @return the base bin for the value, or {@link #NO_BIN} if the value is NaN, infinite,
+     *         or outside the range of bins
+     */
+    protected int baseBin( double value )
+    {
+        double bin = Math.floor( ( value - this.origin ) / this.baseBinSize );
+        return ( bin >= this.minAllowedBin && bin <= this.maxAllowedBin ? ( int ) bin : NO_BIN );
+    }
+
+    public void add( double value )
+    {
+        int bin = this.baseBin( value );
+        if ( bin == NO_BIN )
+        {
+            this.droppedCount++;
+            return;
+        }
+
+        this.ensureBins( bin, bin );
+        this.counts[bin - this.firstBin]++;
+        this.totalCount++;
+        this.markDirty( bin, bin );
+    }
+
+    public void add( double[] values )
+    {
+        this.add( values, 0, values.length );
+    }
+
+    public void add( double[] values, int offset, int n )
+    {
+        this.addBatch( offset, n, ( i ) -> values[i] );
+    }
+
+    public void add( float[] values )
+    {
+        this.add( values, 0, values.length );
+    }
+
+    public void add( float[] values, int offset, int n )
+    {
+        this.addBatch( offset, n, ( i ) -> values[i] );
+    }
+
+    protected void addBatch( int offset, int n, IntToDoubleFunction valueFn )
+    {
+        if ( n <= 0 ) return;
+
+        // First pass: find the bin range, so the counts array only grows once
+        int lo = Integer.MAX_VALUE;
+        int hi = Integer.MIN_VALUE;
+        int dropped = 0;
+        for ( int i = offset; i < offset + n; i++ )
+        {
+            int bin = this.baseBin( valueFn.applyAsDouble( i ) );
+            if ( bin == NO_BIN )
+            {
+                dropped++;
+                continue;
+            }
+
+            lo = min( lo, bin );
+            hi = max( hi, bin );
+        }
+
+        this.droppedCount += dropped;
+        if ( lo > hi ) return;
+
+        this.ensureBins( lo, hi );
+
+        int[] counts = this.counts;
+        int countsFirstBin = this.firstBin;
+
+        // Split into about one range per worker, so there is about one partial array per worker,
+        // and count serially if merging a partial array would cost more than filling it
+        int parallelism = ForkJoinPool.getCommonPoolParallelism( );
+        int grain = max( PARALLEL_THRESHOLD, ( n + parallelism - 1 ) / parallelism );
+        int numBins = hi - lo + 1;
+        if ( n < PARALLEL_THRESHOLD || numBins > grain )
+        {
+            this.countRange( offset, offset + n, valueFn, counts, countsFirstBin );
+        }
+        else
+        {
+            // Count each range into its own array, and merge it as soon as the range is done
+            int batchMinBin = lo;
+            int shift = lo - countsFirstBin;
+            ParallelRanges.run( offset, offset + n, grain, ( i0, i1 ) ->
+            {
+                int[] partial = new int[numBins];
+                this.countRange( i0, i1, valueFn, partial, batchMinBin );
+
+                synchronized ( counts )
+                {
+                    for ( int b = 0; b < numBins; b++ )
+                    {
+                        counts[shift + b] += partial[b];
+                    }
+                }
+            } );
+        }
+
+        this.totalCount += n - dropped;
+        this.markDirty( lo, hi );
+    }
+
+    protected void countRange( int i0, int i1, IntToDoubleFunction valueFn, int[] counts, int countsFirstBin )
+    {
+        for ( int i = i0; i < i1; i++ )
+        {
+            int bin = this.baseBin( valueFn.applyAsDouble( i ) );
+            if ( bin != NO_BIN )
+            {
+                counts[bin - countsFirstBin]++;
+            }
+        }
+    }
+
+    protected void ensureBins( int lo, int hi )
+    {
+        int newMin = min( this.minBin, lo );
+        int newMax = max( this.maxBin, hi );
+
+        int len = this.counts.length;
+        if ( len == 0 || newMin < this.firstBin || newMax >= this.firstBin + len )
+        {
+            // Grow geometrically, with room on the side that needed it, so that a
+            // stream drifting in one direction doesn't reallocate on every batch --
+            // but no wider than the allowed range, which baseBin keeps values within
+            long needed = ( long ) newMax - newMin + 1;
+            long maxLen = ( long ) this.maxAllowedBin - this.minAllowedBin + 1;
+            long newLen = max( needed, min( max( 2L * len, 64 ), maxLen ) );
+
+            long slack = newLen - needed;
+            long first;
+            if ( len == 0 )
+                first = newMin - slack / 2;
+            else if ( newMin < this.firstBin )
+                first = newMin - slack;
+            else
+                first = newMin;
+
+            // Keep the whole array within the allowed range
+            first = max( first, this.minAllowedBin );
+            first = min( first, this.maxAllowedBin - newLen + 1 );
+            int newFirst = ( int ) first;
+
+            // Only the bins that have been counted into need to be copied -- the old
+            // array may have slack on a side that the new array doesn't extend to
+            int[] newCounts = new int[( int ) newLen];
+            if ( len > 0 && this.minBin <= this.maxBin )
+            {
+                System.arraycopy( this.counts, this.minBin - this.firstBin, newCounts, this.minBin - newFirst, this.maxBin - this.minBin + 1 );
+            }
+
+            this.counts = newCounts;
+            this.firstBin = newFirst;
+        }
+
+        this.minBin = newMin;
+        this.maxBin = newMax;
+    }
+
+    protected void markDirty( int lo, int hi )
+    {
+        this.dirtyMinBin = min( this.dirtyMinBin, lo );
+        this.dirtyMaxBin = max( this.dirtyMaxBin, hi );
+    }
+
+    protected void setAllDirty( )
+    {
+        this.dirtyMinBin = Integer.MIN_VALUE;
+        this.dirtyMaxBin = Integer.MAX_VALUE;
+    }
+
+    public void clearDirty( )
+    {
+        this.dirtyMinBin = Integer.MAX_VALUE;
+        this.dirtyMaxBin = Integer.MIN_VALUE;
+    }
+
+
+    // Displayed bins
+    //
+
+    public int getMinDisplayBin( )
+    {
+        return floorDiv( this.minBin, this.binFactor );
+    }
+
+    public int getMaxDisplayBin( )
+    {
+        return floorDiv( this.maxBin, this.binFactor );
+    }
+
+    /**
+     * @return the first displayed bin that has changed since the last {@link #clearDirty()}
+     */
+    public int getDirtyMinDisplayBin( )
+    {
+        return ( this.dirtyMinBin == Integer.MIN_VALUE ? Integer.MIN_VALUE : floorDiv( this.dirtyMinBin, this.binFactor ) );
+    }
+
+    /**
+     * @return the last displayed bin that has changed since the last {@link #clearDirty()}
+     */
+    public int getDirtyMaxDisplayBin( )
+    {
+        return ( this.dirtyMaxBin == Integer.MAX_VALUE ? Integer.MAX_VALUE : floorDiv( this.dirtyMaxBin, this.binFactor ) );
+    }
+
+    public double getDisplayBinStart( int displayBin )
+    {
+        return this.origin + ( ( double ) displayBin * this.binFactor ) * this.baseBinSize;
+    }
+
+    public int getDisplayCount( int displayBin )
+    {
+        long b0 = ( long ) displayBin * this.binFactor - this.firstBin;
+        long b1 = b0 + this.binFactor;
+
+        int count = 0;
+        for ( long b = max( 0, b0 ); b < min( this.counts.length, b1 ); b++ )
+        {
+            count += this.counts[( int ) b];
+        }
+        return count;
+    }
+
+    public int getMaxDisplayCount( )
+    {
+        int maxCount = 0;
+        if ( !this.isEmpty( ) )
+        {
+            for ( int k = this.getMinDisplayBin( ); k <= this.getMaxDisplayBin( ); k++ )
+            {
+                maxCount = max( maxCount, this.getDisplayCount( k ) );
+            }
+        }
+        return maxCount;
+    }
+
+}
@@ -0,0 +1,398 @@
+/*
+ * Copyright (c) 2016, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.painter.plot;
+
+import static com.metsci.glimpse.util.buffer.DirectBufferUtils.put2f;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static javax.media.opengl.GL.GL_DYNAMIC_DRAW;
+import static javax.media.opengl.GL.GL_TRIANGLES;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+import javax.media.opengl.GL3;
+
+import com.metsci.glimpse.axis.Axis2D;
+import com.metsci.glimpse.context.GlimpseContext;
+import com.metsci.glimpse.gl.GLEditableBuffer;
+import com.metsci.glimpse.gl.util.GLUtils;
+import com.metsci.glimpse.painter.base.GlimpsePainterBase;
+import com.metsci.glimpse.support.shader.triangle.FlatColorProgram;
+
+/**
+ * Plots a frequency histogram of a growing data set.
+ * <p>
+ * Unlike {@link HistogramPainter}, which re-bins all its data on every call to setData,
+ * this painter keeps its counts in an {@link IncrementalHistogram}. New values are added
+ * in batches with {@link #addData(double[], int, int)}, and only the bars whose counts
+ * changed are re-uploaded to the GPU. Empty bins have no bar at all, so a sparse histogram
+ * over a wide range costs no more to draw than a dense one with the same number of bars. The displayed bin size can be changed to any multiple
+ * of the base bin size with {@link #setBinFactor(int)}, without rescanning the data.
+ * <p>
+ * Bar heights are stored as raw counts, and normalization (frequency or density) is applied
+ * by the projection, so a change in the total count does not require touching every bar.
+ * Values too far from the bin origin to fit in the histogram, and NaN or infinite values,
+ * are dropped; see {@link #getDroppedCount()}.
+ */
+public class IncrementalHistogramPainter extends GlimpsePainterBase
+{
+    public static final int FLOATS_PER_BAR = HistogramPainter.FLOATS_PER_BAR;
+
+    protected float[] barColor = new float[] { 1.0f, 0.0f, 0.0f, 0.6f };
+
+    protected final boolean asDensity;
+    protected final IncrementalHistogram histogram;
+
+    // Displayed bin b has its bar in slot slotOfBin[ b - slotOrigin ] of the buffer, or no bar
+    // if that is -1. A bin gets a slot when its count first becomes nonzero, and counts only
+    // grow, so slots never need to be freed until the bars are rewritten
+    protected final GLEditableBuffer barVbo;
+    protected int[] slotOfBin;
+    protected int slotOrigin;
+
+    protected FlatColorProgram fillProg;
+
+    /**
+     * @param binStart left edge of one of the bins
+     * @param baseBinSize the finest bin size that will be displayed
+     * @param asDensity whether to scale as a density estimate instead of as a frequency histogram
+     */
+    public IncrementalHistogramPainter( double binStart, double baseBinSize, boolean asDensity )
+    {
+        this.asDensity = asDensity;
+        this.histogram = new IncrementalHistogram( binStart, baseBinSize );
+
+        this.barVbo = new GLEditableBuffer( GL_DYNAMIC_DRAW, 0 );
+        this.slotOfBin = new int[0];
+        this.slotOrigin = 0;
+
+        this.fillProg = new FlatColorProgram( );
+    }
+
+    public IncrementalHistogramPainter( double binStart, double baseBinSize )
+    {
+        this( binStart, baseBinSize, false );
+    }
+
+    public void setColor( float[] rgba )
+    {
+        this.barColor = rgba;
+    }
+
+    public void setColor( float r, float g, float b, float a )
+    {
+        this.barColor[0] = r;
+        this.barColor[1] = g;
+        this.barColor[2] = b;
+        this.barColor[3] = a;
+    }
+
+    public void addData( double[] data )
+    {
+        this.addData( data, 0, data.length );
+    }
+
+    public void addData( double[] data, int offset, int size )
+    {
+        this.painterLock.lock( );
+        try
+        {
+            this.histogram.add( data, offset, size );
+        }
+        finally
+        {
+            this.painterLock.unlock( );
+        }
+    }
+
+    public void addData( float[] data )
+    {
+        this.addData( data, 0, data.length );
+    }
+
+    public void addData( float[] data, int offset, int size )
+    {
+        this.painterLock.lock( );
+        try
+        {
+            this.histogram.add( data, offset, size );
+        }
+        finally
+        {
+            this.painterLock.unlock( );
+        }
+    }
+
+    public void clearData( )
+    {
+        this.painterLock.lock( );
+        try
+        {
+            this.histogram.clear( );
+        }
+        finally
+        {
+            this.painterLock.unlock( );
+        }
+    }
+
+    /**
+     * Sets the number of base bins per displayed bin.
+     */
+    public void setBinFactor( int binFactor )
+    {
+        this.painterLock.lock( );
+        try
+        {
+            this.histogram.setBinFactor( binFactor );
+        }
+        finally
+        {
+            this.painterLock.unlock( );
+        }
+    }
+
+    public int getBinFactor( )
+    {
+        this.painterLock.lock( );
+        try
+        {
+            return this.histogram.getBinFactor( );
+        }
+        finally
+        {
+            this.painterLock.unlock( );
+        }
+    }
+
+    public double getBinSize( )
+    {
+        this.painterLock.lock( );
+        try
+        {
+            return this.histogram.getBinSize( );
+        }
+        finally
+        {
+            this.painterLock.unlock( );
+        }
+    }
+
+    public long getTotalCount( )
+    {
+        this.painterLock.lock( );
+        try
+        {
+            return this.histogram.getTotalCount( );
+        }
+        finally
+        {
+            this.painterLock.unlock( );
+        }
+    }
+
+    public long getDroppedCount( )
+    {
+        this.painterLock.lock( );
+        try
+        {
+            return this.histogram.getDroppedCount( );
+        }
+        finally
+        {
+            this.painterLock.unlock( );
+        }
+    }
+
+    public void autoAdjustAxisBounds( Axis2D axis )
+    {
+        this.painterLock.lock( );
+        try
+        {
+            if ( this.histogram.isEmpty( ) ) return;
+
+            double denom = this.normalizationDenom( );
+            int minBin = this.histogram.getMinDisplayBin( );
+            int maxBin = this.histogram.getMaxDisplayBin( );
+
+            axis.getAxisX( ).setMin( this.histogram.getDisplayBinStart( minBin ) );
+            axis.getAxisX( ).setMax( this.histogram.getDisplayBinStart( maxBin + 1 ) );
+            axis.getAxisY( ).setMin( 0 );
+            axis.getAxisY( ).setMax( this.histogram.getMaxDisplayCount( ) / denom );
+        }
+        finally
+        {
+            this.painterLock.unlock( );
+        }
+    }
+
+    protected double normalizationDenom( )
+    {
+        long totalCount = this.histogram.getTotalCount( );
+        return ( this.asDensity ? this.histogram.getBinSize( ) * totalCount : totalCount );
+    }
+
+    /**
+     * Writes the bars whose counts have changed since the last call into the host-side
+     * buffer, which marks them dirty for the next upload. Bins with a count of zero are
+     * skipped.
+     */
+    protected void updateBars( )
+    {
+        IncrementalHistogram h = this.histogram;
+
+        if ( h.isEmpty( ) )
+        {
+            this.barVbo.clear( );
+            this.slotOfBin = new int[0];
+            h.clearDirty( );
+            return;
+        }
+
+        int minBin = h.getMinDisplayBin( );
+        int maxBin = h.getMaxDisplayBin( );
+        int dirtyMinBin = h.getDirtyMinDisplayBin( );
+        int dirtyMaxBin = h.getDirtyMaxDisplayBin( );
+
+        if ( dirtyMinBin == Integer.MIN_VALUE )
+        {
+            // The bin factor changed, or the data was cleared -- rewrite everything
+            this.barVbo.clear( );
+            this.slotOfBin = new int[0];
+        }
+
+        this.ensureSlots( minBin, maxBin );
+
+        for ( int bin = max( dirtyMinBin, minBin ); bin <= min( dirtyMaxBin, maxBin ); bin++ )
+        {
+            int i = bin - this.slotOrigin;
+            int slot = this.slotOfBin[i];
+            if ( slot >= 0 )
+            {
+                this.editBar( bin, slot );
+            }
+            else
+            {
+                int count = h.getDisplayCount( bin );
+                if ( count > 0 )
+                {
+                    this.slotOfBin[i] = this.barVbo.sizeFloats( ) / FLOATS_PER_BAR;
+                    this.growBar( bin, count );
+                }
+            }
+        }
+
+        h.clearDirty( );
+    }
+
+    protected void ensureSlots( int minBin, int maxBin )
+    {
+        int len = this.slotOfBin.length;
+        int oldOrigin = this.slotOrigin;
+        if ( len > 0 && minBin >= oldOrigin && maxBin < oldOrigin + len ) return;
+
+        // Grow geometrically, with room on the side that needed it, so that a histogram
+        // drifting in one direction doesn't reallocate on every batch
+        int lo = ( len > 0 ? min( minBin, oldOrigin ) : minBin );
+        int hi = ( len > 0 ? max( maxBin, oldOrigin + len - 1 ) : maxBin );
+        int newLen = max( hi - lo + 1, 2 * len );
+        int newOrigin = ( len > 0 && minBin < oldOrigin ? hi - newLen + 1 : lo );
+
+        int[] newSlots = new int[newLen];
+        Arrays.fill( newSlots, -1 );
+        if ( len > 0 )
+        {
+            System.arraycopy( this.slotOfBin, 0, newSlots, oldOrigin - newOrigin, len );
+        }
+
+        this.slotOfBin = newSlots;
+        this.slotOrigin = newOrigin;
+    }
+
+    protected void growBar( int bin, int count )
+    {
+        float left = ( float ) this.histogram.getDisplayBinStart( bin );
+        float right = ( float ) this.histogram.getDisplayBinStart( bin + 1 );
+        this.barVbo.growQuad2f( left, 0, right, count );
+    }
+
+    protected void editBar( int bin, int slot )
+    {
+        float left = ( float ) this.histogram.getDisplayBinStart( bin );
+        float right = ( float ) this.histogram.getDisplayBinStart( bin + 1 );
+        float count = this.histogram.getDisplayCount( bin );
+
+        FloatBuffer floats = this.barVbo.editFloats( slot * FLOATS_PER_BAR, FLOATS_PER_BAR );
+
+        put2f( floats, left, 0 );
+        put2f( floats, left, count );
+        put2f( floats, right, 0 );
+
+        put2f( floats, right, 0 );
+        put2f( floats, left, count );
+        put2f( floats, right, count );
+    }
+
+    @Override
+    public void doDispose( GlimpseContext context )
+    {
+        GL3 gl = context.getGL( ).getGL3( );
+        this.barVbo.dispose( gl );
+        this.fillProg.dispose( gl );
+    }
+
+    @Override
+    public void doPaintTo( GlimpseContext context )
+    {
+        Axis2D axis = requireAxis2D( context );
+        GL3 gl = context.getGL( ).getGL3( );
+
+        this.updateBars( );
+
+        int numBars = this.barVbo.sizeFloats( ) / FLOATS_PER_BAR;
+        if ( numBars == 0 ) return;
+
+        // Bars are in raw counts, so scale the y range by the normalization denominator
+        double denom = this.normalizationDenom( );
+
+        this.fillProg.begin( gl );
+        GLUtils.enableStandardBlending( gl );
+        try
+        {
+            this.fillProg.setOrtho( gl, ( float ) axis.getMinX( ), ( float ) axis.getMaxX( ), ( float ) ( axis.getMinY( ) * denom ), ( float ) ( axis.getMaxY( ) * denom ) );
+            this.fillProg.setColor( gl, this.barColor );
+
+            this.fillProg.draw( gl, GL_TRIANGLES, this.barVbo, 0, numBars * 6 );
+        }
+        finally
+        {
+            GLUtils.disableBlending( gl );
+            this.fillProg.end( gl );
+        }
+    }
+}
@@ -0,0 +1,336 @@
+/*
+ * Copyright (c) 2016, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.painter.plot;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+import java.nio.FloatBuffer;
+
+import com.metsci.glimpse.util.primitives.IntsArray;
+import com.metsci.glimpse.util.primitives.algorithms.ParallelRanges;
+
+/**
+ * A multi-level min/max envelope of an x-y line, for drawing a line with many more samples
+ * than pixels. Each level divides the samples into buckets of consecutive samples, and keeps
+ * just four samples per bucket: the first, the last, and the ones with the min and max y.
+ * Level {@code l} has buckets of {@code BASE_BUCKET_SIZE << l} samples, and each bucket covers
+ * two buckets of the level below -- so the min and max y over any range of samples can be
+ * found by looking at O(log n) buckets, plus at most two partial base buckets.
+ * <p>
+ * {@link #reducedIndices(FloatBuffer, int, double, double, int, IntsArray)} uses that to do the
+ * M4 reduction for the visible part of the line: for each pixel column, it keeps the first and
+ * last samples in the column, and the ones with min and max y. Drawing only those samples lights
+ * up the same pixels as drawing all of them: within a pixel column the line covers the same
+ * vertical extent, and enters and leaves the column at the same samples. The vertex count is
+ * proportional to the viewport width, and the cost is independent of the data size.
+ * <p>
+ * The envelope holds only bucket indices. The samples themselves are read from an interleaved
+ * x-y buffer owned by the caller, which must not change while the envelope is in use. Requires
+ * x values in non-decreasing order -- see {@link #build(FloatBuffer, int, int)}.
+ */
+public class XYLineEnvelope
+{
+    public static final int BASE_BUCKET_SIZE = 16;
+
+    // Levels with fewer buckets than this aren't worth keeping
+    public static final int MIN_BUCKETS = 16;
+
+    // Bucket summaries are built in parallel above this many buckets
+    protected static final int PARALLEL_GRAIN = ParallelRanges.DEFAULT_GRAIN / BASE_BUCKET_SIZE;
+
+    /**
+     * Returns the envelope of {@code n} samples, or null if the x values are not in
+     * non-decreasing order, or there are too few samples for an envelope to be useful.
+     * Sample {@code i} is the x-y pair at float index {@code 2*(first+i)} of {@code xys}.
+     */
+    public static XYLineEnvelope build( FloatBuffer xys, int first, int n )
+    {
+        if ( n < BASE_BUCKET_SIZE * MIN_BUCKETS ) return null;
+
+        for ( int i = 1; i < n; i++ )
+        {
+            if ( !( x( xys, first, i ) >= x( xys, first, i - 1 ) ) ) return null;
+        }
+
+        return new XYLineEnvelope( xys, first, n );
+    }
+
+    protected static float x( FloatBuffer xys, int first, int i )
+    {
+        return xys.get( 2 * ( first + i ) );
+    }
+
+    protected static float y( FloatBuffer xys, int first, int i )
+    {
+        return xys.get( 2 * ( first + i ) + 1 );
+    }
+
+
+    protected final int n;
+
+    // levels[l] has 4 ints per bucket: first index, min-y index, max-y index, last index
+    protected final int[][] levels;
+
+    protected XYLineEnvelope( FloatBuffer xys, int first, int n )
+    {
+        this.n = n;
+
+        int numLevels = 0;
+        for ( long bucketSize = BASE_BUCKET_SIZE; ( n + bucketSize - 1 ) / bucketSize >= MIN_BUCKETS; bucketSize *= 2 )
+        {
+            numLevels++;
+        }
+
+        this.levels = new int[numLevels][];
+        for ( int l = 0; l < numLevels; l++ )
+        {
+            this.levels[l] = ( l == 0 ? buildBaseLevel( xys, first, n ) : mergeLevel( xys, first, this.levels[l - 1] ) );
+        }
+    }
+
+    protected static int[] buildBaseLevel( FloatBuffer xys, int first, int n )
+    {
+        int numBuckets = ( n + BASE_BUCKET_SIZE - 1 ) / BASE_BUCKET_SIZE;
+        int[] level = new int[4 * numBuckets];
+
+        ParallelRanges.run( 0, numBuckets, PARALLEL_GRAIN, ( bFirst, bLast ) ->
+        {
+            for ( int b = bFirst; b < bLast; b++ )
+            {
+                int i0 = b * BASE_BUCKET_SIZE;
+                int i1 = min( n, i0 + BASE_BUCKET_SIZE );
+
+                int iMin = i0;
+                int iMax = i0;
+                float yMin = y( xys, first, i0 );
+                float yMax = yMin;
+                for ( int i = i0 + 1; i < i1; i++ )
+                {
+                    float y = y( xys, first, i );
+                    if ( y < yMin )
+                    {
+                        yMin = y;
+                        iMin = i;
+                    }
+                    if ( y > yMax )
+                    {
+                        yMax = y;
+                        iMax = i;
+                    }
+                }
+
+                level[4 * b + 0] = i0;
+                level[4 * b + 1] = iMin;
+                level[4 * b + 2] = iMax;
+                level[4 * b + 3] = i1 - 1;
+            }
+        } );
+
+        return level;
+    }
+
+    protected static int[] mergeLevel( FloatBuffer xys, int first, int[] finer )
+    {
+        int numFiner = finer.length / 4;
+        int numBuckets = ( numFiner + 1 ) / 2;
+        int[] level = new int[4 * numBuckets];
+
+        ParallelRanges.run( 0, numBuckets, PARALLEL_GRAIN, ( bFirst, bLast ) ->
+        {
+            for ( int b = bFirst; b < bLast; b++ )
+            {
+                int a = 4 * ( 2 * b );
+                if ( 2 * b + 1 < numFiner )
+                {
+                    int c = a + 4;
+                    level[4 * b + 0] = finer[a + 0];
+                    level[4 * b + 1] = ( y( xys, first, finer[c + 1] ) < y( xys, first, finer[a + 1] ) ? finer[c + 1] : finer[a + 1] );
+                    level[4 * b + 2] = ( y( xys, first, finer[c + 2] ) > y( xys, first, finer[a + 2] ) ? finer[c + 2] : finer[a + 2] );
+                    level[4 * b + 3] = finer[c + 3];
+                }
+                else
+                {
+                    System.arraycopy( finer, a, level, 4 * b, 4 );
+                }
+            }
+        } );
+
+        return level;
+    }
+
+    public int numSamples( )
+    {
+        return this.n;
+    }
+
+    public int numLevels( )
+    {
+        return this.levels.length;
+    }
+
+    public int bucketSize( int level )
+    {
+        return BASE_BUCKET_SIZE << level;
+    }
+
+    /**
+     * Returns the index of the first sample with x at or after {@code x}, or {@code n} if
+     * there is none.
+     */
+    public int firstIndexAtOrAfter( FloatBuffer xys, int first, double x )
+    {
+        return firstIndexAtOrAfter( xys, first, 0, this.n, x );
+    }
+
+    protected static int firstIndexAtOrAfter( FloatBuffer xys, int first, int lo, int hi, double x )
+    {
+        while ( lo < hi )
+        {
+            int mid = ( lo + hi ) >>> 1;
+            if ( x( xys, first, mid ) < x )
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * Appends the indices of the samples to draw, in increasing order, to {@code result}. The
+     * viewport starts at {@code xMin}, and is {@code numColumns} pixels of {@code pixelWidth}
+     * x units each. For each pixel column, keeps the first and last samples in the column and
+     * the ones with min and max y. Also keeps the nearest sample on each side of the viewport,
+     * so that the line runs off the edges.
+     * <p>
+     * The {@code xys} and {@code first} args must match the ones the envelope was built with.
+     */
+    public void reducedIndices( FloatBuffer xys, int first, double xMin, double pixelWidth, int numColumns, IntsArray result )
+    {
+        int[] minMax = new int[2];
+
+        int lo = firstIndexAtOrAfter( xys, first, xMin );
+        if ( lo > 0 )
+        {
+            appendIndex( result, lo - 1 );
+        }
+
+        for ( int c = 0; c < numColumns && lo < this.n; c++ )
+        {
+            int hi = firstIndexAtOrAfter( xys, first, lo, this.n, xMin + ( c + 1 ) * pixelWidth );
+            if ( hi > lo )
+            {
+                this.findMinMax( xys, first, lo, hi, minMax );
+                appendIndex( result, lo );
+                appendIndex( result, min( minMax[0], minMax[1] ) );
+                appendIndex( result, max( minMax[0], minMax[1] ) );
+                appendIndex( result, hi - 1 );
+            }
+            lo = hi;
+        }
+
+        if ( lo < this.n )
+        {
+            appendIndex( result, lo );
+        }
+    }
+
+    /**
+     * Finds the samples with min and max y in the range [lo,hi), and stores their indices in
+     * {@code minMax[0]} and {@code minMax[1]}.
+     */
+    protected void findMinMax( FloatBuffer xys, int first, int lo, int hi, int[] minMax )
+    {
+        minMax[0] = lo;
+        minMax[1] = lo;
+
+        // Base buckets that lie entirely within the range -- the last bucket may be short
+        int numBase = this.levels[0].length / 4;
+        int b0 = ( lo + BASE_BUCKET_SIZE - 1 ) / BASE_BUCKET_SIZE;
+        int b1 = ( hi == this.n ? numBase : hi / BASE_BUCKET_SIZE );
+        if ( b0 >= b1 )
+        {
+            for ( int i = lo; i < hi; i++ )
+            {
+                updateMinMax( xys, first, i, i, minMax );
+            }
+            return;
+        }
+
+        // Samples in the partial buckets at either end
+        for ( int i = lo; i < b0 * BASE_BUCKET_SIZE; i++ )
+        {
+            updateMinMax( xys, first, i, i, minMax );
+        }
+        for ( int i = b1 * BASE_BUCKET_SIZE; i < hi; i++ )
+        {
+            updateMinMax( xys, first, i, i, minMax );
+        }
+
+        // Whole buckets, taking the coarsest bucket that fits at each end
+        for ( int l = 0; b0 < b1; l++ )
+        {
+            int[] level = this.levels[l];
+            if ( l == this.levels.length - 1 )
+            {
+                for ( int b = b0; b < b1; b++ )
+                {
+                    updateMinMax( xys, first, level[4 * b + 1], level[4 * b + 2], minMax );
+                }
+                break;
+            }
+
+            if ( ( b0 & 1 ) != 0 )
+            {
+                updateMinMax( xys, first, level[4 * b0 + 1], level[4 * b0 + 2], minMax );
+                b0++;
+            }
+            if ( ( b1 & 1 ) != 0 )
+            {
+                b1--;
+                updateMinMax( xys, first, level[4 * b1 + 1], level[4 * b1 + 2], minMax );
+            }
+            b0 /= 2;
+            b1 /= 2;
+        }
+    }
+
+    protected static void updateMinMax( FloatBuffer xys, int first, int iMin, int iMax, int[] minMax )
+    {
+        if ( y( xys, first, iMin ) < y( xys, first, minMax[0] ) ) minMax[0] = iMin;
+        if ( y( xys, first, iMax ) > y( xys, first, minMax[1] ) ) minMax[1] = iMax;
+    }
+
+    protected static void appendIndex( IntsArray result, int i )
+    {
+        if ( result.n == 0 || result.a[result.n - 1] != i )
+        {
+            result.append( i );
+        }
+    }
+
+}
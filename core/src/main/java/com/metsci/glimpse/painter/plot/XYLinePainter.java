@@ -26,8 +26,11 @@
  */
 package com.metsci.glimpse.painter.plot;
 
+import java.nio.FloatBuffer;
+
 import javax.media.opengl.GL3;
 
+import com.metsci.glimpse.axis.Axis1D;
 import com.metsci.glimpse.axis.Axis2D;
 import com.metsci.glimpse.context.GlimpseBounds;
 import com.metsci.glimpse.context.GlimpseContext;
@@ -41,6 +44,7 @@ import com.metsci.glimpse.support.shader.line.LineJoinType;
 import com.metsci.glimpse.support.shader.line.LineStyle;
 import com.metsci.glimpse.support.shader.line.LineUtils;
 import com.metsci.glimpse.support.shader.point.PointArrayColorProgram;
+import com.metsci.glimpse.util.primitives.IntsArray;
 
 /**
  * Plots a simple x-y lineplot. Provides options for modifying line thickness and color.
@@ -63,6 +67,20 @@ public class XYLinePainter extends GlimpsePainterBase
     protected boolean showPoints = true;
     protected boolean showLines = true;
 
+    // Built from the data in path the first time a decimated path is needed
+    protected boolean decimate = true;
+    protected boolean envelopeValid;
+    protected XYLineEnvelope envelope;
+
+    // The visible part of the line, reduced to the pixel columns of the viewport it was built
+    // for -- rebuilt when the viewport's x range or width changes
+    protected ColorLinePath decimatedPath;
+    protected IntsArray decimatedIndices;
+    protected boolean decimatedPathValid;
+    protected double decimatedMinX;
+    protected double decimatedPixelWidth;
+    protected int decimatedNumColumns;
+
     public XYLinePainter( )
     {
         this.path = new ColorLinePath( );
@@ -72,6 +90,12 @@ public class XYLinePainter extends GlimpsePainterBase
         this.style.joinType = LineJoinType.JOIN_BEVEL;
         
         this.pointProg = new PointArrayColorProgram( );
+
+        this.envelopeValid = false;
+        this.envelope = null;
+        this.decimatedPath = null;
+        this.decimatedIndices = new IntsArray( );
+        this.decimatedPathValid = false;
     }
 
     public void setDataAndColor( double[] dataX, double[] dataY, double[] dataZ, ColorMap scale )
@@ -94,6 +118,8 @@ public class XYLinePainter extends GlimpsePainterBase
                 else
                     this.path.lineTo( ( float ) dataX[i], ( float ) dataY[i], rgba );
             }
+
+            this.invalidateEnvelope( );
         }
         finally
         {
@@ -121,6 +147,8 @@ public class XYLinePainter extends GlimpsePainterBase
                 else
                     this.path.lineTo( dataX[i], dataY[i], rgba );
             }
+
+            this.invalidateEnvelope( );
         }
         finally
         {
@@ -144,6 +172,8 @@ public class XYLinePainter extends GlimpsePainterBase
                 else
                     this.path.lineTo( dataX[i], dataY[i], rgba[i] );
             }
+
+            this.invalidateEnvelope( );
         }
         finally
         {
@@ -172,6 +202,36 @@ public class XYLinePainter extends GlimpsePainterBase
                 else
                     this.path.lineTo( dataX[i], dataY[i], color );
             }
+
+            this.invalidateEnvelope( );
+        }
+        finally
+        {
+            this.painterLock.unlock( );
+        }
+    }
+
+    /**
+     * If true (the default), and the data's x values are in non-decreasing order, only the
+     * visible part of the line is drawn, and where it has many samples per pixel it is reduced
+     * to the first, last, min-y and max-y samples of each pixel column, using a min/max envelope
+     * of the data (see {@link XYLineEnvelope}). The number of vertices drawn is proportional to
+     * the viewport width rather than the number of samples, and the line lights up the same
+     * pixels as it would with every sample drawn. The envelope is built from the painter's own
+     * copy of the data, the first time the line is drawn with decimation on. Points are always
+     * drawn in full.
+     */
+    public void setDecimate( boolean decimate )
+    {
+        this.painterLock.lock( );
+        try
+        {
+            this.decimate = decimate;
+
+            if ( !decimate )
+            {
+                this.invalidateEnvelope( );
+            }
         }
         finally
         {
@@ -179,6 +239,93 @@ public class XYLinePainter extends GlimpsePainterBase
         }
     }
 
+    protected void invalidateEnvelope( )
+    {
+        this.envelopeValid = false;
+        this.envelope = null;
+        this.decimatedPathValid = false;
+    }
+
+    /**
+     * Returns the path to draw lines with -- either the full path, or the visible part of the
+     * line, reduced to the pixel columns of the current viewport where it is dense.
+     */
+    protected ColorLinePath chooseLinePath( Axis2D axis )
+    {
+        if ( !this.decimate ) return this.path;
+
+        FloatBuffer xys = this.path.xyBuffer( );
+        if ( !this.envelopeValid )
+        {
+            // Sample i is path vertex i+1, after the strip's leading phantom vertex
+            int n = Math.max( 0, xys.remaining( ) / 2 - 1 );
+            this.envelope = XYLineEnvelope.build( xys, 1, n );
+            this.envelopeValid = true;
+        }
+
+        if ( this.envelope == null ) return this.path;
+
+        Axis1D axisX = axis.getAxisX( );
+        double xMin = axisX.getMin( );
+        double pixelWidth = 1.0 / axisX.getPixelsPerValue( );
+        int numColumns = axisX.getSizePixels( );
+        if ( !( pixelWidth > 0 && pixelWidth < Double.POSITIVE_INFINITY ) || numColumns <= 0 ) return this.path;
+
+        if ( !this.decimatedPathValid || xMin != this.decimatedMinX || pixelWidth != this.decimatedPixelWidth || numColumns != this.decimatedNumColumns )
+        {
+            XYLineEnvelope envelope = this.envelope;
+            IntsArray indices = this.decimatedIndices;
+            indices.clear( );
+
+            // Visible samples, plus one on each side so the line runs off the edges
+            int n = envelope.numSamples( );
+            int lo = Math.max( 0, envelope.firstIndexAtOrAfter( xys, 1, xMin ) - 1 );
+            int hi = Math.min( n, envelope.firstIndexAtOrAfter( xys, 1, xMin + numColumns * pixelWidth ) + 1 );
+
+            if ( hi - lo >= XYLineEnvelope.BASE_BUCKET_SIZE * numColumns )
+            {
+                envelope.reducedIndices( xys, 1, xMin, pixelWidth, numColumns, indices );
+            }
+            else
+            {
+                // Base buckets are wider than a pixel, so reducing wouldn't save much --
+                // draw the visible samples as they are
+                for ( int i = lo; i < hi; i++ )
+                {
+                    indices.append( i );
+                }
+            }
+
+            if ( this.decimatedPath == null ) this.decimatedPath = new ColorLinePath( );
+            this.decimatedPath.clear( );
+
+            FloatBuffer rgbas = this.path.rgbaBuffer( );
+            float[] rgba = new float[4];
+            for ( int k = 0; k < indices.n; k++ )
+            {
+                int v = indices.a[k] + 1;
+                float x = xys.get( 2 * v );
+                float y = xys.get( 2 * v + 1 );
+                for ( int c = 0; c < 4; c++ )
+                {
+                    rgba[c] = rgbas.get( 4 * v + c );
+                }
+
+                if ( k == 0 )
+                    this.decimatedPath.moveTo( x, y, rgba );
+                else
+                    this.decimatedPath.lineTo( x, y, rgba );
+            }
+
+            this.decimatedMinX = xMin;
+            this.decimatedPixelWidth = pixelWidth;
+            this.decimatedNumColumns = numColumns;
+            this.decimatedPathValid = true;
+        }
+
+        return this.decimatedPath;
+    }
+
     public void setLineStipple( boolean activate )
     {
         this.style.stippleEnable = activate;
@@ -225,6 +372,7 @@ public class XYLinePainter extends GlimpsePainterBase
     public void doDispose( GlimpseContext context )
     {
         this.path.dispose( context.getGL( ) );
+        if ( this.decimatedPath != null ) this.decimatedPath.dispose( context.getGL( ) );
         this.prog.dispose( context.getGL( ).getGL3( ) );
     }
 
@@ -247,7 +395,7 @@ public class XYLinePainter extends GlimpsePainterBase
                     this.prog.setAxisOrtho( gl, axis );
                     this.prog.setViewport( gl, bounds );
 
-                    this.prog.draw( gl, style, path, ppvAspectRatio );
+                    this.prog.draw( gl, style, this.chooseLinePath( axis ), ppvAspectRatio );
                 }
                 finally
                 {
@@ -264,7 +412,8 @@ public class XYLinePainter extends GlimpsePainterBase
                     this.pointProg.setPointSize( gl, this.pointSize );
                     this.pointProg.setFeatherThickness( gl, this.pointFeather );
 
-                    // skip the first and last phantom vertices
+                    // skip the first and last phantom vertices -- and always use the full
+                    // path, since a decimated path would drop points
                     this.pointProg.draw( gl, path.xyVbo( gl ), path.rgbaVbo( gl ), 1, path.numVertices( )-2 );
                 }
                 finally
@@ -45,14 +45,20 @@ import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Logger;
 
@@ -99,6 +105,9 @@ public class PolygonPainter extends GlimpsePainterBase
 
     protected static final double ppvAspectRatioThreshold = 1.0000000001;
 
+    // number of polygons tessellated by each task in addPolygons
+    protected static final int TESSELLATION_BATCH_SIZE = 256;
+
     //@formatter:off
     protected byte halftone[] = {
             (byte) 0xAA, (byte) 0xAA, (byte) 0xAA, (byte) 0xAA, (byte) 0x55,
@@ -279,6 +288,81 @@ public class PolygonPainter extends GlimpsePainterBase
         }
     }
 
+    /**
+     * @see #addPolygons(Collection, Executor, PolygonLoadListener)
+     */
+    public CompletableFuture<Void> addPolygons( Collection<? extends PolygonSpec> polygons )
+    {
+        return addPolygons( polygons, ForkJoinPool.commonPool( ), null );
+    }
+
+    /**
+     * Tessellates the given polygons on the executor and adds them to the painter as they
+     * complete. Polygons are tessellated in batches, each with its own PolygonTessellator,
+     * and each batch is added under a single acquisition of the update lock, so painting
+     * is never held up by tessellation.
+     * <p>
+     * Because batches complete in no particular order, polygons are not necessarily added
+     * in iteration order. The listener, if non-null, is notified on the worker thread after
+     * each batch is added.
+     *
+     * @return a future which completes once every polygon has been added
+     */
+    public CompletableFuture<Void> addPolygons( Collection<? extends PolygonSpec> polygons, Executor executor, PolygonLoadListener listener )
+    {
+        List<PolygonSpec> specs = new ArrayList<PolygonSpec>( polygons );
+        int total = specs.size( );
+        AtomicInteger loaded = new AtomicInteger( );
+
+        List<CompletableFuture<Void>> futures = new ArrayList<CompletableFuture<Void>>( );
+        for ( int from = 0; from < total; from += TESSELLATION_BATCH_SIZE )
+        {
+            List<PolygonSpec> batch = specs.subList( from, Math.min( total, from + TESSELLATION_BATCH_SIZE ) );
+            futures.add( CompletableFuture.runAsync( ( ) ->
+            {
+                IdPolygon[] tessellated = tessellate( batch );
+
+                this.updateLock.lock( );
+                try
+                {
+                    for ( IdPolygon polygon : tessellated )
+                    {
+                        addPolygon( polygon.groupId, polygon );
+                    }
+                }
+                finally
+                {
+                    this.updateLock.unlock( );
+                }
+
+                int nLoaded = loaded.addAndGet( tessellated.length );
+                if ( listener != null ) listener.polygonsLoaded( nLoaded, total );
+            }, executor ) );
+        }
+
+        return CompletableFuture.allOf( futures.toArray( new CompletableFuture<?>[futures.size( )] ) );
+    }
+
+    protected IdPolygon[] tessellate( List<PolygonSpec> specs )
+    {
+        PolygonTessellator tessellator = new PolygonTessellator( );
+        try
+        {
+            IdPolygon[] tessellated = new IdPolygon[specs.size( )];
+            for ( int i = 0; i < tessellated.length; i++ )
+            {
+                PolygonSpec spec = specs.get( i );
+                TessellatedPolygon geometry = new TessellatedPolygon( spec.buildPolygon( ), tessellator );
+                tessellated[i] = new IdPolygon( spec.groupId, spec.polygonId, spec.startTime, spec.endTime, geometry, spec.z );
+            }
+            return tessellated;
+        }
+        finally
+        {
+            tessellator.destroy( );
+        }
+    }
+
     public void displayTimeRange( Object groupId, double startTime, double endTime )
     {
         displayTimeRange( groupId, ( long ) Math.ceil( startTime ), ( long ) Math.floor( endTime ) );
@@ -1261,6 +1345,85 @@ public class PolygonPainter extends GlimpsePainterBase
         }
     }
 
+    /**
+     * Notified by {@link PolygonPainter#addPolygons(Collection, Executor, PolygonLoadListener)}
+     * as batches of polygons are added.
+     */
+    public static interface PolygonLoadListener
+    {
+        void polygonsLoaded( int nLoaded, int nTotal );
+    }
+
+    /**
+     * Describes a polygon to be added with {@link PolygonPainter#addPolygons(Collection)}. The
+     * geometry is converted to a Polygon and tessellated on a worker thread, so it must not be
+     * modified until the polygon has been added.
+     */
+    public static class PolygonSpec
+    {
+        protected final Object groupId;
+        protected final Object polygonId;
+        protected final long startTime;
+        protected final long endTime;
+        protected final float z;
+
+        protected final Polygon polygon;
+        protected final Shape shape;
+        protected final float[] dataX;
+        protected final float[] dataY;
+
+        protected PolygonSpec( Object groupId, Object polygonId, long startTime, long endTime, Polygon polygon, Shape shape, float[] dataX, float[] dataY, float z )
+        {
+            this.groupId = groupId;
+            this.polygonId = polygonId;
+            this.startTime = startTime;
+            this.endTime = endTime;
+            this.z = z;
+
+            this.polygon = polygon;
+            this.shape = shape;
+            this.dataX = dataX;
+            this.dataY = dataY;
+        }
+
+        public PolygonSpec( Object groupId, Object polygonId, float[] dataX, float[] dataY, float z )
+        {
+            this( groupId, polygonId, Long.MIN_VALUE, Long.MAX_VALUE, null, null, dataX, dataY, z );
+        }
+
+        public PolygonSpec( Object groupId, Object polygonId, Polygon geometry, float z )
+        {
+            this( groupId, polygonId, Long.MIN_VALUE, Long.MAX_VALUE, geometry, null, null, null, z );
+        }
+
+        public PolygonSpec( Object groupId, Object polygonId, Shape shape, float z )
+        {
+            this( groupId, polygonId, Long.MIN_VALUE, Long.MAX_VALUE, null, shape, null, null, z );
+        }
+
+        public PolygonSpec( Object groupId, Object polygonId, long startTime, long endTime, float[] dataX, float[] dataY, float z )
+        {
+            this( groupId, polygonId, startTime, endTime, null, null, dataX, dataY, z );
+        }
+
+        public PolygonSpec( Object groupId, Object polygonId, long startTime, long endTime, Polygon geometry, float z )
+        {
+            this( groupId, polygonId, startTime, endTime, geometry, null, null, null, z );
+        }
+
+        public PolygonSpec( Object groupId, Object polygonId, long startTime, long endTime, Shape shape, float z )
+        {
+            this( groupId, polygonId, startTime, endTime, null, shape, null, null, z );
+        }
+
+        protected Polygon buildPolygon( )
+        {
+            if ( polygon != null ) return polygon;
+            if ( shape != null ) return PolygonPainter.buildPolygon( shape );
+            return PolygonPainter.buildPolygon( dataX, dataY );
+        }
+    }
+
     /**
      * An internal data structure containing geometry information about a single polygon.
      *
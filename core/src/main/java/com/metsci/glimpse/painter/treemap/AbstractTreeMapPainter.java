@@ -41,6 +41,8 @@ import com.metsci.glimpse.context.GlimpseContext;
 import com.metsci.glimpse.painter.base.GlimpsePainterBase;
 
 import it.unimi.dsi.fastutil.ints.Int2ObjectAVLTreeMap;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import it.unimi.dsi.fastutil.ints.IntSet;
 
 /**
  * Draws a <a href="http://en.wikipedia.org/wiki/Treemapping">TreeMap</a>,
@@ -51,6 +53,10 @@ import it.unimi.dsi.fastutil.ints.Int2ObjectAVLTreeMap;
  * implemented in a way that allows switching on information within a TreeMap
  * node (see
  * {@link com.metsci.glimpse.painter.treemap.SimpleTreeMapPainter#getLeafColor(int, boolean)}).
+ * <p>
+ * Changes made to the {@link NestedTreeMap} after it has been set are picked up
+ * on the next paint. Only the subtrees under nodes whose children were added,
+ * removed or resized are laid out again.
  *
  * @author borkholder
  */
@@ -60,10 +66,18 @@ public abstract class AbstractTreeMapPainter extends GlimpsePainterBase
 
     protected TreeMapLayout treeLayout = new SquarifiedLayout( );
     protected LayoutCache layoutCache;
+    protected int layoutVersion;
 
     protected NestedTreeMap newTree;
     protected TreeMapLayout newTreeLayout;
 
+    // pixel box of the node being drawn, relative to the layout, which anything drawn
+    // for the node is clipped to
+    protected int nodeClipX;
+    protected int nodeClipY;
+    protected int nodeClipWidth;
+    protected int nodeClipHeight;
+
     public void setLayout( TreeMapLayout layout )
     {
         newTreeLayout = layout;
@@ -114,9 +128,14 @@ public abstract class AbstractTreeMapPainter extends GlimpsePainterBase
     {
         if ( newTree != null )
         {
+            // re-setting the same tree keeps the layout, which is updated incrementally
+            if ( newTree != tree )
+            {
+                flushLayoutCache( );
+            }
+
             tree = newTree;
             newTree = null;
-            flushLayoutCache( );
         }
 
         if ( newTreeLayout != null )
@@ -161,17 +180,82 @@ public abstract class AbstractTreeMapPainter extends GlimpsePainterBase
 
     protected void updateLayoutCache( Axis2D axis )
     {
-        if ( layoutCache == null || !layoutCache.isValid( axis ) )
+        if ( layoutCache == null || !layoutCache.isValid( axis ) || tree.isLayoutReset( ) )
         {
-            double width = axis.getAxisX( ).getAbsoluteMax( ) - axis.getAxisY( ).getAbsoluteMin( );
-            double height = axis.getAxisY( ).getAbsoluteMax( ) - axis.getAxisY( ).getAbsoluteMin( );
-            Rectangle2D boundary = new Rectangle2D.Double( 0, 0, width, height );
-
             layoutCache = new LayoutCache( axis );
-            populateLayout( tree.getRoot( ), boundary );
+            populateLayout( tree.getRoot( ), getRootBoundary( axis ) );
+        }
+        else if ( tree.getVersion( ) != layoutVersion )
+        {
+            updateDirtyLayout( axis );
+        }
+
+        tree.clearLayoutDirty( );
+        layoutVersion = tree.getVersion( );
+    }
+
+    protected Rectangle2D getRootBoundary( Axis2D axis )
+    {
+        double width = axis.getAxisX( ).getAbsoluteMax( ) - axis.getAxisY( ).getAbsoluteMin( );
+        double height = axis.getAxisY( ).getAbsoluteMax( ) - axis.getAxisY( ).getAbsoluteMin( );
+        return new Rectangle2D.Double( 0, 0, width, height );
+    }
+
+    /**
+     * Lays out again only the subtrees under nodes whose children changed since
+     * the last layout. Each such node is laid out within the boundary it already
+     * has in the cache, so the rest of the tree is untouched. Entries for nodes
+     * that have been removed are evicted.
+     */
+    protected void updateDirtyLayout( Axis2D axis )
+    {
+        // drop the entries for removed subtrees -- a removed id that has been added
+        // back is laid out again below, under its dirty parent
+        for ( IntIterator it = tree.getRemovedNodes( ).iterator( ); it.hasNext( ); )
+        {
+            layoutCache.remove( it.nextInt( ) );
+        }
+
+        IntSet dirty = tree.getLayoutDirtyNodes( );
+        for ( IntIterator it = dirty.iterator( ); it.hasNext( ); )
+        {
+            int nodeId = it.nextInt( );
+
+            // covered when the dirty ancestor is laid out
+            if ( hasDirtyAncestor( nodeId, dirty ) )
+            {
+                continue;
+            }
+
+            // a node which used to be a leaf has no cached boundary, so start from its nearest laid-out ancestor
+            int layoutId = nodeId;
+            while ( !layoutCache.containsKey( layoutId ) && layoutId != tree.getRoot( ) )
+            {
+                layoutId = tree.getParent( layoutId );
+            }
+
+            Rectangle2D[] rects = layoutCache.get( layoutId );
+            Rectangle2D boundary = ( rects == null ? getRootBoundary( axis ) : rects[rects.length - 1] );
+            populateLayout( layoutId, boundary );
         }
     }
 
+    protected boolean hasDirtyAncestor( int nodeId, IntSet dirty )
+    {
+        int root = tree.getRoot( );
+        int id = nodeId;
+        while ( id != root )
+        {
+            id = tree.getParent( id );
+            if ( dirty.contains( id ) )
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
     /**
      * Computes the layout of the entire treemap.
      * {@code #getLayout(Rectangle2D, int)} will then adjust each individual
@@ -202,6 +286,11 @@ public abstract class AbstractTreeMapPainter extends GlimpsePainterBase
                 populateLayout( children[i], rects[i] );
             }
         }
+        else
+        {
+            // drop the entry for a node whose children have all been removed
+            layoutCache.remove( nodeId );
+        }
     }
 
     /**
@@ -270,6 +359,10 @@ public abstract class AbstractTreeMapPainter extends GlimpsePainterBase
         int width = ( int ) ceil( nodeBounds.getWidth( ) * axis.getAxisX( ).getPixelsPerValue( ) );
         int height = ( int ) ceil( nodeBounds.getHeight( ) * axis.getAxisY( ).getPixelsPerValue( ) );
 
+        nodeClipX = pxX;
+        nodeClipY = pxY;
+        nodeClipWidth = width;
+        nodeClipHeight = height;
         gl.glScissor( pxX + layoutBounds.getX( ), pxY + layoutBounds.getY( ), width, height );
 
         if ( tree.isLeaf( nodeId ) )
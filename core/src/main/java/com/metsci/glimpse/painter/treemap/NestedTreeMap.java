@@ -31,10 +31,16 @@ import java.util.List;
 
 import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
 
 /**
  * The TreeMap datastructure for the {@link AbstractTreeMapPainter}. This
  * contains the structure, size information and text for each node.
+ * <p>
+ * Changes that affect the layout are tracked per node, so that a painter can
+ * lay out only the subtrees under nodes whose children were added, removed or
+ * resized, rather than the whole tree.
  *
  * @author borkholder
  */
@@ -45,6 +51,13 @@ public class NestedTreeMap
 
     private int versionId = 0;
 
+    // nodes whose children need to be laid out again
+    private IntSet layoutDirty = new IntOpenHashSet( );
+
+    // nodes removed since the layout was last updated, whose cached layouts must be evicted
+    private IntSet removedNodes = new IntOpenHashSet( );
+    private boolean layoutReset = true;
+
     public int getRoot( )
     {
         return root.id;
@@ -58,6 +71,9 @@ public class NestedTreeMap
         root = new Node( id );
         map = new Int2ObjectOpenHashMap<Node>( );
         map.put( id, root );
+        layoutDirty.clear( );
+        removedNodes.clear( );
+        layoutReset = true;
         versionId++;
     }
 
@@ -95,12 +111,18 @@ public class NestedTreeMap
         child.title = title;
         map.put( childId, child );
         getNode( parentId ).addChild( child );
+        layoutDirty.add( parentId );
         versionId++;
     }
 
     public void setSize( int id, double size )
     {
-        getNode( id ).size = size;
+        Node node = getNode( id );
+        node.size = size;
+        if ( node.parent != null )
+        {
+            layoutDirty.add( node.parent.id );
+        }
         versionId++;
     }
 
@@ -153,6 +175,7 @@ public class NestedTreeMap
     public void removeChild( int childId )
     {
         Node child = map.get( childId );
+        layoutDirty.add( child.parent.id );
         removeAllDescendants( child.parent, child );
         versionId++;
     }
@@ -162,9 +185,12 @@ public class NestedTreeMap
         if ( parent.removeChild( child ) )
         {
             map.remove( child.id );
+            layoutDirty.remove( child.id );
+            removedNodes.add( child.id );
             if ( child.children != null )
             {
-                for ( Node grandchild : child.children )
+                // copy, since removing a grandchild modifies the list
+                for ( Node grandchild : new ArrayList<Node>( child.children ) )
                 {
                     removeAllDescendants( child, grandchild );
                 }
@@ -233,6 +259,41 @@ public class NestedTreeMap
         return versionId;
     }
 
+    /**
+     * Returns the nodes whose children have been added, removed or resized since
+     * the last call to {@link #clearLayoutDirty()}.
+     */
+    IntSet getLayoutDirtyNodes( )
+    {
+        return layoutDirty;
+    }
+
+    /**
+     * Returns true if the whole tree has been replaced since the last call to
+     * {@link #clearLayoutDirty()}.
+     */
+    boolean isLayoutReset( )
+    {
+        return layoutReset;
+    }
+
+    /**
+     * Returns the nodes which have been removed, along with all their descendants,
+     * since the last call to {@link #clearLayoutDirty()}. Some of them may have
+     * been added back since.
+     */
+    IntSet getRemovedNodes( )
+    {
+        return removedNodes;
+    }
+
+    void clearLayoutDirty( )
+    {
+        layoutDirty.clear( );
+        removedNodes.clear( );
+        layoutReset = false;
+    }
+
     private static class Node
     {
         int id;
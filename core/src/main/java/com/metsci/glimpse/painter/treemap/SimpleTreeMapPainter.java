@@ -30,6 +30,10 @@ import static java.lang.Math.*;
 
 import java.awt.Font;
 import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import javax.media.opengl.GL;
 import javax.media.opengl.GL3;
@@ -39,17 +43,26 @@ import com.metsci.glimpse.com.jogamp.opengl.util.awt.TextRenderer;
 import com.metsci.glimpse.context.GlimpseBounds;
 import com.metsci.glimpse.context.GlimpseContext;
 import com.metsci.glimpse.gl.GLEditableBuffer;
+import com.metsci.glimpse.gl.util.GLUtils;
 import com.metsci.glimpse.support.color.GlimpseColor;
 import com.metsci.glimpse.support.font.FontUtils;
+import com.metsci.glimpse.support.shader.line.ColorLinePath;
+import com.metsci.glimpse.support.shader.line.ColorLineProgram;
 import com.metsci.glimpse.support.shader.line.LineJoinType;
-import com.metsci.glimpse.support.shader.line.LineProgram;
 import com.metsci.glimpse.support.shader.line.LineStyle;
-import com.metsci.glimpse.support.shader.line.StreamingLinePath;
-import com.metsci.glimpse.support.shader.triangle.FlatColorProgram;
+import com.metsci.glimpse.support.shader.triangle.ArrayColorProgram;
 
 /**
  * A simple implementation of {@code AbstractTreeMapPainter} that has default
  * colors for everything.
+ * <p>
+ * Rather than issuing draw calls node by node, the node rectangles, borders and
+ * labels are collected while walking the tree and drawn together at the end of
+ * the frame: one draw call for all filled rectangles, one per border style, and
+ * one text pass per font. Labels are culled without being measured when their
+ * rectangle is too small to fit any text, and measured text bounds are cached.
+ * Each label keeps the pixel box of its node, and the few labels which don't fit
+ * inside their node are drawn separately, clipped to it.
  *
  * @author borkholder
  */
@@ -73,25 +86,49 @@ public class SimpleTreeMapPainter extends AbstractTreeMapPainter
     protected Font titleFont = FontUtils.getDefaultBold( 14.0f );
     protected Font textFont = FontUtils.getDefaultItalic( 12.0f );
 
-    protected FlatColorProgram flatProg;
-    protected GLEditableBuffer flatPath;
+    protected static final int maxCachedTextBounds = 100_000;
+
+    protected Map<String, Rectangle2D> titleBoundsCache = new HashMap<>( );
+    protected Map<String, Rectangle2D> textBoundsCache = new HashMap<>( );
+
+    // per-frame batches, filled while walking the tree and drawn at the end of the frame
+    protected ArrayColorProgram fillProg;
+    protected GLEditableBuffer fillXy;
+    protected GLEditableBuffer fillRgba;
 
     protected LineStyle borderStyle;
-    protected LineProgram lineProg;
-    protected StreamingLinePath linePath;
+    protected LineStyle titleBorderStyle;
+    protected ColorLineProgram lineProg;
+    protected ColorLinePath borderPath;
+    protected ColorLinePath titleBorderPath;
+
+    protected List<Label> titleLabels;
+    protected List<Label> textLabels;
 
     public SimpleTreeMapPainter( )
     {
-        lineProg = new LineProgram( );
+        lineProg = new ColorLineProgram( );
         borderStyle = new LineStyle( );
         borderStyle.feather_PX = 0;
         borderStyle.joinType = LineJoinType.JOIN_MITER;
         borderStyle.stippleEnable = false;
         borderStyle.thickness_PX = 1;
-        linePath = new StreamingLinePath( 10_000 );
 
-        flatPath = new GLEditableBuffer( GL.GL_STATIC_DRAW, 1024 );
-        flatProg = new FlatColorProgram( );
+        titleBorderStyle = new LineStyle( );
+        titleBorderStyle.feather_PX = 0;
+        titleBorderStyle.joinType = LineJoinType.JOIN_MITER;
+        titleBorderStyle.stippleEnable = false;
+        titleBorderStyle.thickness_PX = 0.5f;
+
+        borderPath = new ColorLinePath( );
+        titleBorderPath = new ColorLinePath( );
+
+        fillXy = new GLEditableBuffer( GL.GL_DYNAMIC_DRAW, 1024 );
+        fillRgba = new GLEditableBuffer( GL.GL_DYNAMIC_DRAW, 2048 );
+        fillProg = new ArrayColorProgram( );
+
+        titleLabels = new ArrayList<>( );
+        textLabels = new ArrayList<>( );
     }
 
     public float[] getBorderColor( )
@@ -191,43 +228,166 @@ public class SimpleTreeMapPainter extends AbstractTreeMapPainter
         GlimpseBounds layoutBounds = getBounds( context );
         Axis2D axis = getAxis2D( context );
 
+        fillXy.clear( );
+        fillRgba.clear( );
+        borderPath.clear( );
+        titleBorderPath.clear( );
+        titleLabels.clear( );
+        textLabels.clear( );
+
+        /*
+         * When we don't draw really tiny boxes, this gives the illusion
+         * that something is being drawn when we zoom.
+         */
+        fillXy.growQuad2f( ( float ) axis.getMinX( ), ( float ) axis.getMinY( ), ( float ) axis.getMaxX( ), ( float ) axis.getMaxY( ) );
+        fillRgba.growQuadSolidColor( borderColor );
+
+        super.doPaintTo( context );
+
+        // the tree walk moves the scissor box around, so restore it before drawing the batches
+        GLUtils.setViewportAndScissor( context );
+        GLUtils.enableStandardBlending( gl );
+
+        fillProg.begin( gl );
+        try
+        {
+            fillProg.setAxisOrtho( gl, axis );
+            fillProg.draw( gl, GL.GL_TRIANGLES, fillXy, fillRgba, 0, fillXy.sizeFloats( ) / 2 );
+        }
+        finally
+        {
+            fillProg.end( gl );
+        }
+
         lineProg.begin( gl );
         try
         {
             lineProg.setAxisOrtho( gl, axis );
             lineProg.setViewport( gl, layoutBounds );
+
+            // leaf borders go on top of title borders, as when drawn node by node
+            if ( titleBorderPath.numVertices( ) > 0 )
+            {
+                lineProg.draw( gl, titleBorderStyle, titleBorderPath );
+            }
+
+            if ( borderPath.numVertices( ) > 0 )
+            {
+                lineProg.draw( gl, borderStyle, borderPath );
+            }
         }
         finally
         {
             lineProg.end( gl );
         }
 
-        flatProg.begin( gl );
+        drawLabels( context, titleRenderer, titleColor, titleLabels );
+        drawLabels( context, textRenderer, textColor, textLabels );
+    }
+
+    protected void drawLabels( GlimpseContext context, TextRenderer renderer, float[] color, List<Label> labels )
+    {
+        if ( renderer == null || labels.isEmpty( ) )
+        {
+            return;
+        }
+
+        GL gl = context.getGL( );
+        GlimpseBounds layoutBounds = getBounds( context );
+
+        renderer.beginRendering( layoutBounds.getWidth( ), layoutBounds.getHeight( ) );
         try
         {
-            /*
-             * When we don't draw really tiny boxes, this gives the illusion
-             * that something is being drawn when we zoom.
-             */
-            flatProg.setAxisOrtho( gl, axis );
-            flatProg.setColor( gl, borderColor );
-            flatPath.clear( );
-            flatPath.growQuad2f( ( float ) axis.getMinX( ), ( float ) axis.getMinY( ), ( float ) axis.getMaxX( ), ( float ) axis.getMaxY( ) );
-            flatProg.draw( gl, GL.GL_TRIANGLE_STRIP, flatPath, 0, 6 );
+            GlimpseColor.setColor( renderer, color );
+
+            // labels that fit inside their node need no clipping beyond the layout's
+            boolean anyUnfit = false;
+            for ( Label label : labels )
+            {
+                if ( label.fitsClip( ) )
+                {
+                    renderer.draw( label.text, label.x, label.y );
+                }
+                else
+                {
+                    anyUnfit = true;
+                }
+            }
+
+            // the rest are clipped to their nodes, as when drawn node by node
+            if ( anyUnfit )
+            {
+                renderer.flush( );
+
+                int[] scale = context.getSurfaceScale( );
+                GlimpseBounds clippedBounds = GLUtils.getClippedBounds( context );
+                for ( Label label : labels )
+                {
+                    if ( !label.fitsClip( ) )
+                    {
+                        int x0 = max( label.clipX + layoutBounds.getX( ), clippedBounds.getX( ) );
+                        int y0 = max( label.clipY + layoutBounds.getY( ), clippedBounds.getY( ) );
+                        int x1 = min( label.clipX + label.clipWidth + layoutBounds.getX( ), clippedBounds.getX( ) + clippedBounds.getWidth( ) );
+                        int y1 = min( label.clipY + label.clipHeight + layoutBounds.getY( ), clippedBounds.getY( ) + clippedBounds.getHeight( ) );
+                        if ( x1 <= x0 || y1 <= y0 )
+                        {
+                            continue;
+                        }
+
+                        gl.glScissor( x0 * scale[0], y0 * scale[1], ( x1 - x0 ) * scale[0], ( y1 - y0 ) * scale[1] );
+                        renderer.draw( label.text, label.x, label.y );
+                        renderer.flush( );
+                    }
+                }
+            }
         }
         finally
         {
-            flatProg.end( gl );
+            renderer.endRendering( );
+            GLUtils.setViewportAndScissor( context );
         }
+    }
 
-        super.doPaintTo( context );
+    /**
+     * Returns the bounds of the given text, caching them since measuring text is
+     * expensive relative to everything else done per node.
+     */
+    protected Rectangle2D getTextBounds( TextRenderer renderer, Map<String, Rectangle2D> cache, String text )
+    {
+        Rectangle2D bounds = cache.get( text );
+        if ( bounds == null )
+        {
+            if ( cache.size( ) >= maxCachedTextBounds )
+            {
+                cache.clear( );
+            }
+
+            bounds = renderer.getBounds( text );
+            cache.put( text, bounds );
+        }
+
+        return bounds;
+    }
+
+    /**
+     * Returns true if the rectangle is too small in either dimension to fit any
+     * text, without needing to measure the text.
+     */
+    protected boolean isTooSmallForText( Axis2D axis, Rectangle2D boundary )
+    {
+        return axis.getAxisY( ).getPixelsPerValue( ) * boundary.getHeight( ) < minPixelsBeforeHideText || axis.getAxisX( ).getPixelsPerValue( ) * boundary.getWidth( ) < minPixelsBeforeHideText;
     }
 
     @Override
     protected void doDispose( GlimpseContext context )
     {
-        lineProg.dispose( getGL3( context ) );
-        flatProg.dispose( getGL3( context ) );
+        GL3 gl = getGL3( context );
+        lineProg.dispose( gl );
+        fillProg.dispose( gl );
+        borderPath.dispose( gl );
+        titleBorderPath.dispose( gl );
+        fillXy.dispose( gl );
+        fillRgba.dispose( gl );
         if ( titleRenderer != null )
         {
             titleRenderer.dispose( );
@@ -257,55 +417,25 @@ public class SimpleTreeMapPainter extends AbstractTreeMapPainter
     @Override
     protected void drawBorder( GL3 gl, Axis2D axis, GlimpseBounds layoutBounds, Rectangle2D nodeBounds, int nodeId )
     {
-        linePath.map( gl, 7 );
-        linePath.moveTo( ( float ) nodeBounds.getMinX( ), ( float ) nodeBounds.getMinY( ) );
-        linePath.lineTo( ( float ) nodeBounds.getMinX( ), ( float ) nodeBounds.getMaxY( ) );
-        linePath.lineTo( ( float ) nodeBounds.getMaxX( ), ( float ) nodeBounds.getMaxY( ) );
-        linePath.lineTo( ( float ) nodeBounds.getMaxX( ), ( float ) nodeBounds.getMinY( ) );
-        linePath.closeLoop( );
-        linePath.seal( gl );
-
         float[] color = getBorderColor( nodeId, isSelected( axis, nodeBounds ) );
-        borderStyle.rgba = color;
-        borderStyle.thickness_PX = 1f;
-
-        lineProg.begin( gl );
-        try
-        {
-            lineProg.setStyle( gl, borderStyle );
-            lineProg.draw( gl, linePath );
-        }
-        finally
-        {
-            lineProg.end( gl );
-        }
+        borderPath.addRectangle( ( float ) nodeBounds.getMinX( ), ( float ) nodeBounds.getMinY( ), ( float ) nodeBounds.getMaxX( ), ( float ) nodeBounds.getMaxY( ), color );
     }
 
     @Override
     protected void drawLeafBackground( GL3 gl, Axis2D axis, GlimpseBounds layoutBounds, Rectangle2D nodeBounds, int leafId )
     {
-        flatProg.begin( gl );
-        try
-        {
-            boolean isLeafSelected = isSelected( axis, nodeBounds );
-            float[] color = getLeafColor( leafId, isLeafSelected );
-            flatProg.setColor( gl, color );
+        boolean isLeafSelected = isSelected( axis, nodeBounds );
+        float[] color = getLeafColor( leafId, isLeafSelected );
 
-            flatPath.clear( );
-            flatPath.growQuad2f( ( float ) nodeBounds.getMinX( ), ( float ) nodeBounds.getMinY( ), ( float ) nodeBounds.getMaxX( ), ( float ) nodeBounds.getMaxY( ) );
-            flatProg.draw( gl, GL.GL_TRIANGLE_STRIP, flatPath, 0, 6 );
-        }
-        finally
-        {
-            flatProg.end( gl );
-        }
+        fillXy.growQuad2f( ( float ) nodeBounds.getMinX( ), ( float ) nodeBounds.getMinY( ), ( float ) nodeBounds.getMaxX( ), ( float ) nodeBounds.getMaxY( ) );
+        fillRgba.growQuadSolidColor( color );
     }
 
     @Override
     protected Rectangle2D drawTitle( GL3 gl, Axis2D axis, GlimpseBounds layoutBounds, Rectangle2D boundary, int nodeId )
     {
         String title = tree.getTitle( nodeId );
-        if ( title == null || title.isEmpty( ) || axis.getAxisY( ).getPixelsPerValue( ) * boundary.getHeight( ) < minPixelsBeforeHideText )
+        if ( title == null || title.isEmpty( ) || isTooSmallForText( axis, boundary ) )
         {
             return boundary;
         }
@@ -317,7 +447,7 @@ public class SimpleTreeMapPainter extends AbstractTreeMapPainter
 
         boolean selected = isSelected( axis, boundary );
 
-        Rectangle2D rect = titleRenderer.getBounds( title );
+        Rectangle2D rect = getTextBounds( titleRenderer, titleBoundsCache, title );
 
         // draw title background
         int textBorderPx = 3;
@@ -330,60 +460,23 @@ public class SimpleTreeMapPainter extends AbstractTreeMapPainter
             return boundary;
         }
 
-        flatProg.begin( gl );
-        try
-        {
-            float[] color = getTitleBackgroundColor( nodeId, selected );
-            flatProg.setColor( gl, color );
-
-            flatPath.clear( );
-            flatPath.growQuad2f( ( float ) boundary.getMinX( ), ( float ) ( boundary.getMaxY( ) - borderHeight ), ( float ) boundary.getMaxX( ), ( float ) boundary.getMaxY( ) );
-            flatProg.draw( gl, GL.GL_TRIANGLE_STRIP, flatPath, 0, 6 );
-        }
-        finally
-        {
-            flatProg.end( gl );
-        }
+        float[] backgroundColor = getTitleBackgroundColor( nodeId, selected );
+        fillXy.growQuad2f( ( float ) boundary.getMinX( ), ( float ) ( boundary.getMaxY( ) - borderHeight ), ( float ) boundary.getMaxX( ), ( float ) boundary.getMaxY( ) );
+        fillRgba.growQuadSolidColor( backgroundColor );
 
         // draw title border
-        lineProg.begin( gl );
-        try
-        {
-            lineProg.setAxisOrtho( gl, axis );
-            lineProg.setViewport( gl, layoutBounds );
-
-            float[] color = getTitleBorderColor( nodeId, selected );
-            borderStyle.rgba = color;
-            borderStyle.thickness_PX = 0.5f;
-
-            linePath.map( gl, 7 );
-            linePath.moveTo( ( float ) boundary.getMinX( ), ( float ) boundary.getMaxY( ) );
-            linePath.lineTo( ( float ) boundary.getMinX( ), ( float ) ( boundary.getMaxY( ) - borderHeight ) );
-            linePath.lineTo( ( float ) boundary.getMaxX( ), ( float ) ( boundary.getMaxY( ) - borderHeight ) );
-            linePath.lineTo( ( float ) boundary.getMaxX( ), ( float ) boundary.getMaxY( ) );
-            linePath.closeLoop( );
-            linePath.seal( gl );
-            lineProg.draw( gl, borderStyle, linePath );
-        }
-        finally
-        {
-            lineProg.end( gl );
-        }
+        float[] titleBorderRgba = getTitleBorderColor( nodeId, selected );
+        titleBorderPath.moveTo( ( float ) boundary.getMinX( ), ( float ) boundary.getMaxY( ), titleBorderRgba );
+        titleBorderPath.lineTo( ( float ) boundary.getMinX( ), ( float ) ( boundary.getMaxY( ) - borderHeight ), titleBorderRgba );
+        titleBorderPath.lineTo( ( float ) boundary.getMaxX( ), ( float ) ( boundary.getMaxY( ) - borderHeight ), titleBorderRgba );
+        titleBorderPath.lineTo( ( float ) boundary.getMaxX( ), ( float ) boundary.getMaxY( ), titleBorderRgba );
+        titleBorderPath.closeLoop( );
 
         int textPosX = axis.getAxisX( ).valueToScreenPixel( boundary.getMinX( ) );
         int textPosY = axis.getAxisY( ).valueToScreenPixel( boundary.getMaxY( ) ) - ( int ) borderHeightPx;
 
         // draw title text
-        titleRenderer.beginRendering( layoutBounds.getWidth( ), layoutBounds.getHeight( ) );
-        try
-        {
-            GlimpseColor.setColor( titleRenderer, titleColor );
-            titleRenderer.draw( title, textPosX + textBorderPx, textPosY + textBorderPx );
-        }
-        finally
-        {
-            titleRenderer.endRendering( );
-        }
+        titleLabels.add( new Label( title, textPosX + textBorderPx, textPosY + textBorderPx, rect, nodeClipX, nodeClipY, nodeClipWidth, nodeClipHeight ) );
 
         Rectangle2D newBoundary = new Rectangle2D.Double( boundary.getMinX( ), boundary.getMinY( ), boundary.getWidth( ), boundary.getHeight( ) - borderHeight );
         return newBoundary;
@@ -393,7 +486,7 @@ public class SimpleTreeMapPainter extends AbstractTreeMapPainter
     protected void drawLeafInterior( GL3 gl, Axis2D axis, GlimpseBounds layoutBounds, Rectangle2D nodeBounds, int leafId )
     {
         String text = tree.getText( leafId );
-        if ( text == null || text.isEmpty( ) || axis.getAxisY( ).getPixelsPerValue( ) * nodeBounds.getHeight( ) < minPixelsBeforeHideText )
+        if ( text == null || text.isEmpty( ) || isTooSmallForText( axis, nodeBounds ) )
         {
             return;
         }
@@ -403,7 +496,7 @@ public class SimpleTreeMapPainter extends AbstractTreeMapPainter
             textRenderer = new TextRenderer( textFont );
         }
 
-        Rectangle2D rect = textRenderer.getBounds( text );
+        Rectangle2D rect = getTextBounds( textRenderer, textBoundsCache, text );
 
         int paddingTopPx = 10;
         int textPosX = axis.getAxisX( ).valueToScreenPixel( nodeBounds.getCenterX( ) ) - ( int ) ( rect.getWidth( ) / 2 );
@@ -417,16 +510,7 @@ public class SimpleTreeMapPainter extends AbstractTreeMapPainter
             return;
         }
 
-        try
-        {
-            textRenderer.beginRendering( layoutBounds.getWidth( ), layoutBounds.getHeight( ) );
-            GlimpseColor.setColor( textRenderer, textColor );
-            textRenderer.draw( text, textPosX, textPosY );
-        }
-        finally
-        {
-            textRenderer.endRendering( );
-        }
+        textLabels.add( new Label( text, textPosX, textPosY, rect, nodeClipX, nodeClipY, nodeClipWidth, nodeClipHeight ) );
     }
 
     /**
@@ -480,4 +564,40 @@ public class SimpleTreeMapPainter extends AbstractTreeMapPainter
     {
         return titleBorderColor;
     }
+
+    protected static class Label
+    {
+        public final String text;
+        public final int x;
+        public final int y;
+
+        // text bounds relative to the baseline at (x,y), with y down as in Java2D
+        public final Rectangle2D textBounds;
+
+        // pixel box of the label's node, relative to the layout
+        public final int clipX;
+        public final int clipY;
+        public final int clipWidth;
+        public final int clipHeight;
+
+        public Label( String text, int x, int y, Rectangle2D textBounds, int clipX, int clipY, int clipWidth, int clipHeight )
+        {
+            this.text = text;
+            this.x = x;
+            this.y = y;
+            this.textBounds = textBounds;
+            this.clipX = clipX;
+            this.clipY = clipY;
+            this.clipWidth = clipWidth;
+            this.clipHeight = clipHeight;
+        }
+
+        /**
+         * Returns true if the text lies entirely within the node's pixel box.
+         */
+        public boolean fitsClip( )
+        {
+            return x + textBounds.getMinX( ) >= clipX && x + textBounds.getMaxX( ) <= clipX + clipWidth && y - textBounds.getMaxY( ) >= clipY && y - textBounds.getMinY( ) <= clipY + clipHeight;
+        }
+    }
 }
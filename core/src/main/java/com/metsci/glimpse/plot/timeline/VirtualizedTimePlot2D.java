@@ -0,0 +1,628 @@
+/*
+ * Copyright (c) 2016, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.plot.timeline;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.metsci.glimpse.axis.Axis1D;
+import com.metsci.glimpse.axis.tagged.TaggedAxis1D;
+import com.metsci.glimpse.context.GlimpseBounds;
+import com.metsci.glimpse.context.GlimpseContext;
+import com.metsci.glimpse.context.GlimpseTargetStack;
+import com.metsci.glimpse.gl.util.GLUtils;
+import com.metsci.glimpse.layout.GlimpseLayout;
+import com.metsci.glimpse.layout.GlimpseVerticallyScrollableLayout;
+import com.metsci.glimpse.plot.timeline.data.Epoch;
+import com.metsci.glimpse.plot.timeline.event.Event;
+import com.metsci.glimpse.plot.timeline.event.EventPlotInfo;
+import com.metsci.glimpse.plot.timeline.layout.TimePlotInfo;
+import com.metsci.glimpse.support.atlas.TextureAtlas;
+
+/**
+ * A vertical {@link StackedTimePlot2D} for very large numbers of rows, intended to be
+ * placed inside a {@link GlimpseVerticallyScrollableLayout}.
+ * <p>
+ * Rows are added as lightweight models using {@link #addTimeRow(Object, int, String, RowBinder)}
+ * and {@link #addEventRow(Object, int, String)}. Only rows which intersect the visible region
+ * have a {@link TimePlotInfo} (with its layouts and painters). When a row scrolls out of view
+ * its plot is removed and its layouts are disposed on the next paint, and when it scrolls back
+ * into view a new plot is created from the model. Memory use and the cost of a scroll step
+ * therefore scale with the height of the screen rather than the number of rows.
+ * <p>
+ * The height needed to show every row is given by {@link #getContentHeight( )}, which should be
+ * passed to {@link GlimpseVerticallyScrollableLayout#setMinContentHeight(int)} whenever rows are
+ * added or removed. Plots created directly with {@link #createTimePlot(Object)} or
+ * {@link #createEventPlot(Object)} are not positioned by this class and should not be mixed
+ * with virtual rows.
+ */
+public class VirtualizedTimePlot2D extends StackedTimePlot2D
+{
+    /**
+     * Attaches painters and data to a row when its {@link TimePlotInfo} is created and detaches
+     * them when the row leaves the visible region. Painters still attached to the row after
+     * {@link #unbind(TimePlotInfo)} are disposed along with it.
+     */
+    public static interface RowBinder
+    {
+        public void bind( TimePlotInfo info );
+
+        public void unbind( TimePlotInfo info );
+    }
+
+    protected static class Row
+    {
+        protected final Object id;
+        protected final int size;
+        protected final String label;
+        protected final RowBinder binder;
+
+        // the events of an event row, kept here while the row is off screen (null for time rows)
+        protected final Map<Object, Event> events;
+
+        // the data axis bounds, saved when the row leaves the visible region
+        protected double axisMin = Double.NaN;
+        protected double axisMax = Double.NaN;
+
+        // non-null only while the row is in the visible window
+        protected TimePlotInfo info;
+
+        public Row( Object id, int size, String label, RowBinder binder, boolean isEventRow )
+        {
+            this.id = id;
+            this.size = size;
+            this.label = label;
+            this.binder = binder;
+            this.events = isEventRow ? new LinkedHashMap<Object, Event>( ) : null;
+        }
+    }
+
+    protected List<Row> rows = new ArrayList<Row>( );
+    protected Map<Object, Row> rowMap = new HashMap<Object, Row>( );
+
+    // offset of the top of each row from the top of the first row, null when rows have changed
+    protected int[] rowTops;
+
+    // the rows which currently have a TimePlotInfo (inclusive, empty if windowLast < windowFirst)
+    protected int windowFirst = 0;
+    protected int windowLast = -1;
+
+    // false when the positions of the visible rows must be recomputed before the next layout
+    protected boolean rowLayoutValid = false;
+
+    // layouts of rows which left the visible region, disposed on the next paint
+    protected List<GlimpseLayout> disposeQueue = new ArrayList<GlimpseLayout>( );
+
+    public VirtualizedTimePlot2D( )
+    {
+        this( Epoch.posixEpoch( ) );
+    }
+
+    public VirtualizedTimePlot2D( Epoch epoch )
+    {
+        this( epoch, new TextureAtlas( ) );
+    }
+
+    public VirtualizedTimePlot2D( Epoch epoch, TextureAtlas atlas )
+    {
+        this( epoch, atlas, null );
+    }
+
+    public VirtualizedTimePlot2D( Epoch epoch, TextureAtlas atlas, TaggedAxis1D commonAxis )
+    {
+        super( Orientation.VERTICAL, epoch, atlas, commonAxis );
+    }
+
+    /**
+     * Adds a row of fixed pixel height below the existing rows. The binder, which may be null,
+     * attaches data painters to the row's {@link TimePlotInfo} while it is visible.
+     */
+    public void addTimeRow( Object id, int size, String label, RowBinder binder )
+    {
+        addRow( new Row( id, size, label, binder, false ) );
+    }
+
+    /**
+     * Adds a row of fixed pixel height which displays the events added with
+     * {@link #addEvent(Object, Event)}.
+     */
+    public void addEventRow( Object id, int size, String label )
+    {
+        addEventRow( id, size, label, null );
+    }
+
+    public void addEventRow( Object id, int size, String label, RowBinder binder )
+    {
+        addRow( new Row( id, size, label, binder, true ) );
+    }
+
+    public void addEvent( Object rowId, Event event )
+    {
+        this.lock.lock( );
+        try
+        {
+            Row row = getEventRow( rowId );
+            row.events.put( event.getId( ), event );
+            if ( row.info != null ) ( ( EventPlotInfo ) row.info ).addEvent( event );
+        }
+        finally
+        {
+            this.lock.unlock( );
+        }
+    }
+
+    public void removeEvent( Object rowId, Event event )
+    {
+        this.lock.lock( );
+        try
+        {
+            Row row = getEventRow( rowId );
+            row.events.remove( event.getId( ) );
+            if ( row.info != null ) ( ( EventPlotInfo ) row.info ).removeEvent( event );
+        }
+        finally
+        {
+            this.lock.unlock( );
+        }
+    }
+
+    /**
+     * Returns the events of an event row, whether or not the row is currently visible.
+     */
+    public Collection<Event> getEvents( Object rowId )
+    {
+        this.lock.lock( );
+        try
+        {
+            Row row = getEventRow( rowId );
+            if ( row.info != null ) return new ArrayList<Event>( ( ( EventPlotInfo ) row.info ).getEvents( ) );
+            return new ArrayList<Event>( row.events.values( ) );
+        }
+        finally
+        {
+            this.lock.unlock( );
+        }
+    }
+
+    public void removeRow( Object id )
+    {
+        this.lock.lock( );
+        try
+        {
+            Row row = rowMap.remove( id );
+            if ( row == null ) return;
+
+            if ( row.info != null ) unbindRow( row );
+
+            // keep the window indices pointing at the same rows
+            int index = rows.indexOf( row );
+            if ( index < windowFirst ) windowFirst--;
+            if ( index <= windowLast ) windowLast--;
+
+            rows.remove( index );
+            rowTops = null;
+            invalidateLayout( );
+        }
+        finally
+        {
+            this.lock.unlock( );
+        }
+    }
+
+    public void removeAllRows( )
+    {
+        this.lock.lock( );
+        try
+        {
+            unbindWindow( );
+            rows.clear( );
+            rowMap.clear( );
+            rowTops = null;
+            invalidateLayout( );
+        }
+        finally
+        {
+            this.lock.unlock( );
+        }
+    }
+
+    public int getRowCount( )
+    {
+        this.lock.lock( );
+        try
+        {
+            return rows.size( );
+        }
+        finally
+        {
+            this.lock.unlock( );
+        }
+    }
+
+    /**
+     * Returns true if the row currently has a {@link TimePlotInfo}, which may then be
+     * retrieved with {@link #getTimePlot(Object)} or {@link #getEventPlot(Object)}.
+     */
+    public boolean isRowVisible( Object id )
+    {
+        this.lock.lock( );
+        try
+        {
+            Row row = rowMap.get( id );
+            return row != null && row.info != null;
+        }
+        finally
+        {
+            this.lock.unlock( );
+        }
+    }
+
+    /**
+     * Returns the height in pixels needed to display all rows and the timeline.
+     */
+    public int getContentHeight( )
+    {
+        this.lock.lock( );
+        try
+        {
+            int height = 2 * outerBorder + getRowsExtent( );
+
+            if ( isShowTimeline( ) && defaultTimelineInfo != null )
+            {
+                if ( !rows.isEmpty( ) ) height += plotSpacing;
+                height += defaultTimelineInfo.getSize( );
+            }
+
+            return height;
+        }
+        finally
+        {
+            this.lock.unlock( );
+        }
+    }
+
+    @Override
+    public void setPlotSpacing( int size )
+    {
+        this.lock.lock( );
+        try
+        {
+            super.setPlotSpacing( size );
+            rowTops = null;
+        }
+        finally
+        {
+            this.lock.unlock( );
+        }
+    }
+
+    @Override
+    public void invalidateLayout( )
+    {
+        this.lock.lock( );
+        try
+        {
+            super.invalidateLayout( );
+            rowLayoutValid = false;
+        }
+        finally
+        {
+            this.lock.unlock( );
+        }
+    }
+
+    @Override
+    public void paintTo( GlimpseContext context )
+    {
+        this.lock.lock( );
+        try
+        {
+            // add and remove row plots before the layout pass, rather than during it, so that
+            // the children being laid out never change underneath the layout manager
+            GlimpseTargetStack stack = context.getTargetStack( );
+            GlimpseBounds bounds = getTargetBounds( stack );
+            boolean windowChanged = updateWindow( GLUtils.getClippedBounds( stack ), bounds );
+
+            if ( windowChanged || !rowLayoutValid )
+            {
+                updateRowLayoutData( bounds.getHeight( ) );
+                updatePainterLayout( );
+                invalidateLayout( );
+                rowLayoutValid = true;
+            }
+
+            super.paintTo( context );
+            disposeQueued( context );
+        }
+        finally
+        {
+            this.lock.unlock( );
+        }
+    }
+
+    @Override
+    public void dispose( GlimpseContext context )
+    {
+        this.lock.lock( );
+        try
+        {
+            disposeQueued( context );
+            super.dispose( context );
+        }
+        finally
+        {
+            this.lock.unlock( );
+        }
+    }
+
+    //////////////////////////////////////
+    //              Internals           //
+    //////////////////////////////////////
+
+    protected void addRow( Row row )
+    {
+        if ( row.id == null )
+        {
+            throw new IllegalArgumentException( "Plot ID cannot be null." );
+        }
+
+        this.lock.lock( );
+        try
+        {
+            if ( rowMap.containsKey( row.id ) || stackedPlots.containsKey( row.id ) )
+            {
+                throw new IllegalArgumentException( "Plot ID: " + row.id + " already exists." );
+            }
+
+            rows.add( row );
+            rowMap.put( row.id, row );
+            rowTops = null;
+            invalidateLayout( );
+        }
+        finally
+        {
+            this.lock.unlock( );
+        }
+    }
+
+    protected Row getEventRow( Object rowId )
+    {
+        Row row = rowMap.get( rowId );
+
+        if ( row == null || row.events == null )
+        {
+            throw new IllegalArgumentException( "No event row with ID: " + rowId );
+        }
+
+        return row;
+    }
+
+    protected int[] getRowTops( )
+    {
+        if ( rowTops == null )
+        {
+            rowTops = new int[rows.size( )];
+
+            int top = 0;
+            for ( int i = 0; i < rowTops.length; i++ )
+            {
+                rowTops[i] = top;
+                top += rows.get( i ).size + plotSpacing;
+            }
+        }
+
+        return rowTops;
+    }
+
+    protected int getRowsExtent( )
+    {
+        int n = rows.size( );
+        if ( n == 0 ) return 0;
+
+        return getRowTops( )[n - 1] + rows.get( n - 1 ).size;
+    }
+
+    // returns the last row whose top is at or above the given offset (0 if there is none)
+    protected int findRow( int offset )
+    {
+        int[] tops = getRowTops( );
+
+        int index = Arrays.binarySearch( tops, offset );
+        if ( index < 0 ) index = -index - 2;
+
+        return Math.max( index, 0 );
+    }
+
+    // creates plots for rows which entered the visible region and removes plots for rows which
+    // left it, returning true if the set of visible rows changed
+    protected boolean updateWindow( GlimpseBounds visible, GlimpseBounds bounds )
+    {
+        int first = 0;
+        int last = -1;
+
+        if ( !rows.isEmpty( ) && visible.isValid( ) )
+        {
+            // offsets of the visible region from the top of the first row
+            int top = bounds.getY( ) + bounds.getHeight( ) - outerBorder;
+            int visibleMin = top - ( visible.getY( ) + visible.getHeight( ) );
+            int visibleMax = top - visible.getY( );
+
+            if ( visibleMax > 0 && visibleMin < getRowsExtent( ) )
+            {
+                first = findRow( Math.max( visibleMin, 0 ) );
+                if ( getRowTops( )[first] + rows.get( first ).size <= visibleMin ) first++;
+
+                last = findRow( visibleMax - 1 );
+            }
+        }
+
+        if ( first == windowFirst && last == windowLast ) return false;
+
+        boolean autoValidate = isAutoValidate( );
+        setAutoValidate( false );
+        try
+        {
+            for ( int i = windowFirst; i <= windowLast; i++ )
+            {
+                if ( i < first || i > last ) unbindRow( rows.get( i ) );
+            }
+
+            for ( int i = first; i <= last; i++ )
+            {
+                if ( i < windowFirst || i > windowLast ) bindRow( rows.get( i ) );
+            }
+        }
+        finally
+        {
+            setAutoValidate( autoValidate );
+        }
+
+        windowFirst = first;
+        windowLast = last;
+
+        return true;
+    }
+
+    protected void unbindWindow( )
+    {
+        for ( int i = windowFirst; i <= windowLast; i++ )
+        {
+            Row row = rows.get( i );
+            if ( row.info != null ) unbindRow( row );
+        }
+
+        windowFirst = 0;
+        windowLast = -1;
+    }
+
+    protected void bindRow( Row row )
+    {
+        TimePlotInfo info = row.events != null ? createEventPlot( row.id ) : createTimePlot( row.id );
+        info.setSize( row.size );
+        if ( row.label != null ) info.setLabelText( row.label );
+
+        if ( !Double.isNaN( row.axisMin ) )
+        {
+            Axis1D axis = info.getOrthogonalAxis( );
+            axis.setMin( row.axisMin );
+            axis.setMax( row.axisMax );
+            axis.validate( );
+        }
+
+        if ( row.events != null )
+        {
+            EventPlotInfo eventInfo = ( EventPlotInfo ) info;
+            for ( Event event : row.events.values( ) )
+            {
+                eventInfo.addEvent( event );
+            }
+        }
+
+        if ( row.binder != null ) row.binder.bind( info );
+
+        row.info = info;
+    }
+
+    protected void unbindRow( Row row )
+    {
+        TimePlotInfo info = row.info;
+        row.info = null;
+
+        if ( row.binder != null ) row.binder.unbind( info );
+
+        Axis1D axis = info.getOrthogonalAxis( );
+        row.axisMin = axis.getMin( );
+        row.axisMax = axis.getMax( );
+
+        if ( row.events != null )
+        {
+            // pick up events added or moved through the EventPlotInfo while the row was visible
+            EventPlotInfo eventInfo = ( EventPlotInfo ) info;
+            row.events.clear( );
+            for ( Event event : eventInfo.getEvents( ) )
+            {
+                row.events.put( event.getId( ), event );
+            }
+            eventInfo.removeAllEvents( );
+        }
+
+        if ( selectedLayout == info ) selectedLayout = null;
+
+        removePlot( row.id );
+
+        // unlink the row's time axis from the common axis so the row can be collected
+        info.getCommonAxis( ).setParent( null );
+
+        disposeQueue.add( info.getBaseLayout( ) );
+    }
+
+    // positions the visible rows and the timeline absolutely, in the same way DragManager
+    // positions dragged rows (pixel offsets from the bottom of this layout)
+    protected void updateRowLayoutData( int height )
+    {
+        int[] tops = getRowTops( );
+
+        for ( int i = windowFirst; i <= windowLast; i++ )
+        {
+            Row row = rows.get( i );
+
+            int top = height - outerBorder - tops[i];
+            int bottom = top - row.size;
+
+            row.info.setLayoutData( String.format( "pos container.x+%d %d container.x2-%d %d", outerBorder, bottom, outerBorder, top ) );
+        }
+
+        if ( defaultTimelineInfo != null )
+        {
+            int bottom = outerBorder;
+            int top = bottom + defaultTimelineInfo.getSize( );
+
+            defaultTimelineInfo.setLayoutData( String.format( "pos container.x+%d %d container.x2-%d %d", outerBorder, bottom, outerBorder, top ) );
+        }
+    }
+
+    protected void disposeQueued( GlimpseContext context )
+    {
+        for ( GlimpseLayout layout : disposeQueue )
+        {
+            layout.dispose( context );
+        }
+
+        disposeQueue.clear( );
+    }
+
+    @Override
+    public String toString( )
+    {
+        return VirtualizedTimePlot2D.class.getSimpleName( );
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2016, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.plot.timeline.data;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+/**
+ * A fixed-capacity ring buffer of time-value samples, for streaming data into a timeline
+ * plot. Times are in the units of the timeline axis, and must be appended in non-decreasing
+ * order. Once the buffer is full, each append overwrites the oldest sample.
+ * <p>
+ * Logical indices run from 0 (oldest sample) to {@code size - 1} (newest sample). Slots are
+ * the physical array positions -- {@link #append(double, float)} returns the slot it wrote,
+ * which lets a mirror of the buffer (e.g. on the GPU) be updated incrementally.
+ * <p>
+ * Keeps the min and max value of each block of {@link #BLOCK_SIZE} slots, so {@link #minMax(int, int, float[])}
+ * over a long range costs O(range / BLOCK_SIZE) instead of O(range).
+ * <p>
+ * Not thread-safe -- callers must synchronize.
+ */
+public class TimeSeriesRingBuffer
+{
+    public static final int BLOCK_SIZE = 64;
+
+    protected final int capacity;
+    protected final double[] times;
+    protected final float[] values;
+
+    protected final float[] blockMins;
+    protected final float[] blockMaxs;
+
+    protected int size;
+    protected int next;
+    protected long version;
+
+    /**
+     * @param minCapacity capacity is rounded up to a multiple of {@link #BLOCK_SIZE}
+     */
+    public TimeSeriesRingBuffer( int minCapacity )
+    {
+        int numBlocks = max( 1, ( minCapacity + BLOCK_SIZE - 1 ) / BLOCK_SIZE );
+
+        this.capacity = numBlocks * BLOCK_SIZE;
+        this.times = new double[this.capacity];
+        this.values = new float[this.capacity];
+
+        this.blockMins = new float[numBlocks];
+        this.blockMaxs = new float[numBlocks];
+
+        this.size = 0;
+        this.next = 0;
+        this.version = 0;
+    }
+
+    public int capacity( )
+    {
+        return this.capacity;
+    }
+
+    public int size( )
+    {
+        return this.size;
+    }
+
+    /**
+     * Incremented on every modification -- useful as a cache key.
+     */
+    public long version( )
+    {
+        return this.version;
+    }
+
+    /**
+     * @return the slot holding the sample at logical index {@code i}
+     */
+    public int slot( int i )
+    {
+        int s = this.oldestSlot( ) + i;
+        return ( s >= this.capacity ? s - this.capacity : s );
+    }
+
+    protected int oldestSlot( )
+    {
+        return ( this.size < this.capacity ? 0 : this.next );
+    }
+
+    public double time( int i )
+    {
+        return this.times[this.slot( i )];
+    }
+
+    public float value( int i )
+    {
+        return this.values[this.slot( i )];
+    }
+
+    public double firstTime( )
+    {
+        return this.time( 0 );
+    }
+
+    public double lastTime( )
+    {
+        return this.time( this.size - 1 );
+    }
+
+    /**
+     * Appends a sample, overwriting the oldest sample if the buffer is full.
+     *
+     * @return the slot that was written
+     * @throws IllegalArgumentException if {@code time} is earlier than the newest sample
+     */
+    public int append( double time, float value )
+    {
+        if ( this.size > 0 && time < this.lastTime( ) )
+        {
+            throw new IllegalArgumentException( "Times must be appended in non-decreasing order: time = " + time + ", newest time = " + this.lastTime( ) );
+        }
+
+        int s = this.next;
+        this.times[s] = time;
+        this.values[s] = value;
+
+        // Block summaries only cover slots written since the block was last started
+        int b = s / BLOCK_SIZE;
+        if ( s % BLOCK_SIZE == 0 )
+        {
+            this.blockMins[b] = value;
+            this.blockMaxs[b] = value;
+        }
+        else
+        {
+            this.blockMins[b] = min( this.blockMins[b], value );
+            this.blockMaxs[b] = max( this.blockMaxs[b], value );
+        }
+
+        this.next = ( s + 1 == this.capacity ? 0 : s + 1 );
+        this.size = min( this.size + 1, this.capacity );
+        this.version++;
+
+        return s;
+    }
+
+    public void clear( )
+    {
+        this.size = 0;
+        this.next = 0;
+        this.version++;
+    }
+
+    /**
+     * @return the logical index of the first sample with time greater than or equal to {@code time}
+     */
+    public int lowerBound( double time )
+    {
+        int lo = 0;
+        int hi = this.size;
+        while ( lo < hi )
+        {
+            int mid = ( lo + hi ) >>> 1;
+            if ( this.time( mid ) < time ) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * @return the logical index of the first sample with time strictly greater than {@code time}
+     */
+    public int upperBound( double time )
+    {
+        int lo = 0;
+        int hi = this.size;
+        while ( lo < hi )
+        {
+            int mid = ( lo + hi ) >>> 1;
+            if ( this.time( mid ) <= time ) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * Puts the min and max of the values at logical indices {@code [i0,i1)} into {@code result[0]}
+     * and {@code result[1]}.
+     *
+     * @return false if the range is empty
+     */
+    public boolean minMax( int i0, int i1, float[] result )
+    {
+        if ( i1 <= i0 ) return false;
+
+        // The block being written is the only one whose summary doesn't cover the whole block
+        int partialBlock = ( this.next % BLOCK_SIZE == 0 ? -1 : this.next / BLOCK_SIZE );
+
+        float vMin = Float.POSITIVE_INFINITY;
+        float vMax = Float.NEGATIVE_INFINITY;
+
+        int i = i0;
+        while ( i < i1 )
+        {
+            int s = this.slot( i );
+            int b = s / BLOCK_SIZE;
+            if ( s % BLOCK_SIZE == 0 && i + BLOCK_SIZE <= i1 && b != partialBlock )
+            {
+                vMin = min( vMin, this.blockMins[b] );
+                vMax = max( vMax, this.blockMaxs[b] );
+                i += BLOCK_SIZE;
+            }
+            else
+            {
+                float v = this.values[s];
+                vMin = min( vMin, v );
+                vMax = max( vMax, v );
+                i++;
+            }
+        }
+
+        result[0] = vMin;
+        result[1] = vMax;
+        return true;
+    }
+
+}
@@ -36,8 +36,10 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.WeakHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Logger;
 
@@ -115,6 +117,27 @@ public class EventPlotInfo extends TimePlotInfoWrapper implements TimePlotInfo
     protected int defaultIconSize = 0;
     protected boolean useDefaultIconSize = false;
 
+    // the default icon is loaded once per TextureAtlas, rather than once per EventPlotInfo
+    protected static final Map<TextureAtlas, Object> defaultIconIds = new WeakHashMap<TextureAtlas, Object>( );
+
+    protected static Object loadDefaultIcon( TextureAtlas atlas ) throws IOException
+    {
+        synchronized ( defaultIconIds )
+        {
+            Object iconId = defaultIconIds.get( atlas );
+
+            if ( iconId == null )
+            {
+                iconId = UUID.randomUUID( );
+                BufferedImage defaultImage = ImageIO.read( StreamOpener.fileThenResource.openForRead( "icons/timeline/dot.png" ) );
+                atlas.loadImage( iconId, defaultImage );
+                defaultIconIds.put( atlas, iconId );
+            }
+
+            return iconId;
+        }
+    }
+
     public EventPlotInfo( TimePlotInfo delegate )
     {
         this( delegate, new TextureAtlas( ) );
@@ -126,9 +149,7 @@ public class EventPlotInfo extends TimePlotInfoWrapper implements TimePlotInfo
 
         try
         {
-            defaultIconId = UUID.randomUUID( );
-            BufferedImage defaultImage = ImageIO.read( StreamOpener.fileThenResource.openForRead( "icons/timeline/dot.png" ) );
-            atlas.loadImage( defaultIconId, defaultImage );
+            defaultIconId = loadDefaultIcon( atlas );
         }
         catch ( IOException e )
         {
@@ -55,6 +55,7 @@ import com.metsci.glimpse.plot.timeline.event.listener.EventSelectionHandler;
 import com.metsci.glimpse.support.atlas.TextureAtlas;
 import com.metsci.glimpse.support.atlas.support.ImageData;
 import com.metsci.glimpse.support.color.GlimpseColor;
+import com.metsci.glimpse.support.font.TextBoundsCache;
 import com.metsci.glimpse.support.shader.line.LineJoinType;
 import com.metsci.glimpse.support.shader.line.LinePath;
 import com.metsci.glimpse.support.shader.line.LineProgram;
@@ -95,6 +96,8 @@ public class DefaultEventPainter implements EventPainter
 
     protected Matrix4 transformMatrix;
 
+    protected TextBoundsCache textBoundsCache;
+
     public DefaultEventPainter( )
     {
         this.lineProg = new LineProgram( );
@@ -503,7 +506,8 @@ public class DefaultEventPainter implements EventPainter
         if ( event.isShowLabel( ) && event.getLabel( ) != null )
         {
             TextRenderer textRenderer = info.getTextRenderer( );
-            Rectangle2D labelBounds = textRenderer.getBounds( event.getLabel( ) );
+            TextBoundsCache textBounds = getTextBoundsCache( textRenderer );
+            Rectangle2D labelBounds = textBounds.getBounds( event.getLabel( ) );
 
             boolean isTextOverfull = isTextOverfull( sizePerpPixels, buffer, remainingSpace, pixel, nextStartPixel, labelBounds, event.getOverlapRenderingMode( ) );
             boolean isTextIntersecting = isTextIntersecting( sizePerpPixels, buffer, remainingSpace, pixel, nextStartPixel, labelBounds, event.getOverlapRenderingMode( ) );
@@ -519,8 +523,8 @@ public class DefaultEventPainter implements EventPainter
 
                 if ( labelBounds.getWidth( ) > availableSpace && event.getTextRenderingMode( ) != TextRenderingMode.ShowAll )
                 {
-                    displayText = calculateDisplayText( textRenderer, displayText, availableSpace );
-                    displayBounds = textRenderer.getBounds( displayText );
+                    displayText = textBounds.fitText( displayText, availableSpace );
+                    displayBounds = textBounds.getBounds( displayText );
                 }
 
                 double value = timeAxis.screenPixelToValue( pixel );
@@ -586,6 +590,17 @@ public class DefaultEventPainter implements EventPainter
         }
     }
 
+    protected TextBoundsCache getTextBoundsCache( TextRenderer textRenderer )
+    {
+        // the text renderer is replaced when the font changes
+        if ( textBoundsCache == null || textBoundsCache.getTextRenderer( ) != textRenderer )
+        {
+            textBoundsCache = new TextBoundsCache( textRenderer );
+        }
+
+        return textBoundsCache;
+    }
+
     protected void setTextRendererColor( Event event, EventPlotInfo info, TextRenderer textRenderer )
     {
         // use this event's text color if it has been set
@@ -657,16 +672,26 @@ public class DefaultEventPainter implements EventPainter
         }
     }
 
+    /**
+     * Returns the longest prefix of fullText, followed by an ellipsis, which fits in availableSpace,
+     * using a binary search over candidate lengths. Painters which truncate labels every frame should
+     * prefer {@link TextBoundsCache#fitText(String, double)}, which avoids measuring strings entirely.
+     */
     public static String calculateDisplayText( TextRenderer textRenderer, String fullText, double availableSpace )
     {
-        for ( int endIndex = fullText.length( ); endIndex >= 0; endIndex-- )
+        // Find the largest endIndex whose truncated text fits
+        int lo = 0;
+        int hi = fullText.length( ) + 1;
+        while ( lo < hi )
         {
-            String subText = fullText.substring( 0, endIndex ) + "...";
-            Rectangle2D bounds = textRenderer.getBounds( subText );
-            if ( bounds.getWidth( ) < availableSpace ) return subText;
+            int mid = ( lo + hi ) >>> 1;
+            Rectangle2D bounds = textRenderer.getBounds( fullText.substring( 0, mid ) + "..." );
+            if ( bounds.getWidth( ) < availableSpace ) lo = mid + 1;
+            else hi = mid;
         }
 
-        return "";
+        int endIndex = lo - 1;
+        return ( endIndex < 0 ? "" : fullText.substring( 0, endIndex ) + "..." );
     }
 
     public static float[] getBackgroundColor( Event event, EventPlotInfo info, boolean isSelected )
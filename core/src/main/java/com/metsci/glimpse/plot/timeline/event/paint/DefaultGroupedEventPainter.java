@@ -55,6 +55,7 @@ import com.metsci.glimpse.plot.timeline.event.listener.EventSelectionHandler;
 import com.metsci.glimpse.support.atlas.TextureAtlas;
 import com.metsci.glimpse.support.atlas.support.ImageData;
 import com.metsci.glimpse.support.color.GlimpseColor;
+import com.metsci.glimpse.support.font.TextBoundsCache;
 import com.metsci.glimpse.support.shader.line.ColorLinePath;
 import com.metsci.glimpse.support.shader.line.ColorLineProgram;
 import com.metsci.glimpse.support.shader.line.LineJoinType;
@@ -78,6 +79,8 @@ public class DefaultGroupedEventPainter implements GroupedEventPainter
 
     protected Matrix4 transformMatrix;
 
+    protected TextBoundsCache textBoundsCache;
+
     public DefaultGroupedEventPainter( )
     {
         this.lineProg = new ColorLineProgram( );
@@ -150,6 +153,7 @@ public class DefaultGroupedEventPainter implements GroupedEventPainter
         Object defaultIconId = info.getDefaultIconId( );
         TextureAtlas atlas = info.getTextureAtlas( );
         TextRenderer textRenderer = info.getTextRenderer( );
+        TextBoundsCache textBounds = getTextBoundsCache( textRenderer );
         boolean horiz = plot.isTimeAxisHorizontal( );
 
         info.getEventManager( ).lock( );
@@ -213,13 +217,13 @@ public class DefaultGroupedEventPainter implements GroupedEventPainter
                     if ( event.isShowBackground( ) )
                     {
                         float[] color = getBackgroundColor( event, info, isSelected );
-                        addVerticesBox( horiz, color, ( float ) timeMin, ( float ) timeMax, posMin, posMax );
+                        addFillBox( horiz, color, ( float ) timeMin, ( float ) timeMax, posMin, posMax );
                     }
 
                     if ( event.isShowBorder( ) )
                     {
                         float[] color = getBorderColor( event, info, isSelected );
-                        addVerticesBox( horiz, color, ( float ) timeMin, ( float ) timeMax, posMin, posMax );
+                        addBorderBox( horiz, color, ( float ) timeMin, ( float ) timeMax, posMin, posMax );
                     }
                 }
                 else
@@ -227,13 +231,13 @@ public class DefaultGroupedEventPainter implements GroupedEventPainter
                     if ( event.isShowBackground( ) )
                     {
                         float[] color = getBackgroundColor( event, info, isSelected );
-                        addVerticesArrow( horiz, color, ( float ) timeMin, ( float ) timeMax, posMin, posMax, ( float ) arrowBaseMin, ( float ) arrowBaseMax, ( float ) sizePerpCenter );
+                        addFillArrow( horiz, color, ( float ) timeMin, ( float ) timeMax, posMin, posMax, ( float ) arrowBaseMin, ( float ) arrowBaseMax, ( float ) sizePerpCenter );
                     }
 
                     if ( event.isShowBorder( ) )
                     {
                         float[] color = getBorderColor( event, info, isSelected );
-                        addVerticesArrow( horiz, color, ( float ) timeMin, ( float ) timeMax, posMin, posMax, ( float ) arrowBaseMin, ( float ) arrowBaseMax, ( float ) sizePerpCenter );
+                        addBorderArrow( horiz, color, ( float ) timeMin, ( float ) timeMax, posMin, posMax, ( float ) arrowBaseMin, ( float ) arrowBaseMax, ( float ) sizePerpCenter );
                     }
                 }
 
@@ -377,7 +381,7 @@ public class DefaultGroupedEventPainter implements GroupedEventPainter
 
                 if ( event.isShowLabel( ) && event.getLabel( ) != null && !isBoxTooSmallForText )
                 {
-                    Rectangle2D labelBounds = textRenderer.getBounds( event.getLabel( ) );
+                    Rectangle2D labelBounds = textBounds.getBounds( event.getLabel( ) );
 
                     boolean isTextOverfull = isTextOverfull( sizePerpPixels, buffer, remainingSpace, pixel, nextStartPixel, labelBounds, event.getOverlapRenderingMode( ) );
                     boolean isTextIntersecting = isTextIntersecting( sizePerpPixels, buffer, remainingSpace, pixel, nextStartPixel, labelBounds, event.getOverlapRenderingMode( ) );
@@ -393,8 +397,8 @@ public class DefaultGroupedEventPainter implements GroupedEventPainter
 
                         if ( labelBounds.getWidth( ) > availableSpace && event.getTextRenderingMode( ) != TextRenderingMode.ShowAll )
                         {
-                            displayText = calculateDisplayText( textRenderer, displayText, availableSpace );
-                            displayBounds = textRenderer.getBounds( displayText );
+                            displayText = textBounds.fitText( displayText, availableSpace );
+                            displayBounds = textBounds.getBounds( displayText );
                         }
 
                         double value = timeAxis.screenPixelToValue( pixel );
@@ -551,23 +555,44 @@ public class DefaultGroupedEventPainter implements GroupedEventPainter
         }
     }
 
-    protected void addVerticesBox( boolean horiz, float[] color, float timeMin, float timeMax, float posMin, float posMax )
+    protected TextBoundsCache getTextBoundsCache( TextRenderer textRenderer )
+    {
+        // the text renderer is replaced when the font changes
+        if ( textBoundsCache == null || textBoundsCache.getTextRenderer( ) != textRenderer )
+        {
+            textBoundsCache = new TextBoundsCache( textRenderer );
+        }
+
+        return textBoundsCache;
+    }
+
+    protected void addFillBox( boolean horiz, float[] color, float timeMin, float timeMax, float posMin, float posMax )
     {
         if ( horiz )
         {
             this.fillPath.growQuad2f( timeMin, posMin, timeMax, posMax );
-            this.linePath.addRectangle( timeMin, posMin, timeMax, posMax, color );
         }
         else
         {
             this.fillPath.growQuad2f( posMin, timeMin, posMax, timeMax );
-            this.linePath.addRectangle( posMin, timeMin, posMax, timeMax, color );
         }
 
         this.fillColor.growQuadSolidColor( color );
     }
 
-    protected void addVerticesArrow( boolean horiz, float[] color, float timeMin, float timeMax, float posMin, float posMax, float arrowBaseMin, float arrowBaseMax, float sizePerpCenter )
+    protected void addBorderBox( boolean horiz, float[] color, float timeMin, float timeMax, float posMin, float posMax )
+    {
+        if ( horiz )
+        {
+            this.linePath.addRectangle( timeMin, posMin, timeMax, posMax, color );
+        }
+        else
+        {
+            this.linePath.addRectangle( posMin, timeMin, posMax, timeMax, color );
+        }
+    }
+
+    protected void addFillArrow( boolean horiz, float[] color, float timeMin, float timeMax, float posMin, float posMax, float arrowBaseMin, float arrowBaseMax, float sizePerpCenter )
     {
         if ( horiz )
         {
@@ -583,14 +608,6 @@ public class DefaultGroupedEventPainter implements GroupedEventPainter
             fillPath.grow2f( timeMax, sizePerpCenter );
             fillPath.grow2f( arrowBaseMax, posMin );
             fillPath.grow2f( arrowBaseMax, posMax );
-
-            linePath.moveTo( arrowBaseMin, posMax, color );
-            linePath.lineTo( arrowBaseMax, posMax, color );
-            linePath.lineTo( timeMax, sizePerpCenter, color );
-            linePath.lineTo( arrowBaseMax, posMin, color );
-            linePath.lineTo( arrowBaseMin, posMin, color );
-            linePath.lineTo( timeMin, sizePerpCenter, color );
-            linePath.closeLoop( );
         }
         else
         {
@@ -606,7 +623,28 @@ public class DefaultGroupedEventPainter implements GroupedEventPainter
             fillPath.grow2f( sizePerpCenter, timeMax );
             fillPath.grow2f( posMin, arrowBaseMax );
             fillPath.grow2f( posMax, arrowBaseMax );
+        }
 
+        for ( int i = 0; i < 12; i++ )
+        {
+            this.fillColor.growNfv( color, 0, 4 );
+        }
+    }
+
+    protected void addBorderArrow( boolean horiz, float[] color, float timeMin, float timeMax, float posMin, float posMax, float arrowBaseMin, float arrowBaseMax, float sizePerpCenter )
+    {
+        if ( horiz )
+        {
+            linePath.moveTo( arrowBaseMin, posMax, color );
+            linePath.lineTo( arrowBaseMax, posMax, color );
+            linePath.lineTo( timeMax, sizePerpCenter, color );
+            linePath.lineTo( arrowBaseMax, posMin, color );
+            linePath.lineTo( arrowBaseMin, posMin, color );
+            linePath.lineTo( timeMin, sizePerpCenter, color );
+            linePath.closeLoop( );
+        }
+        else
+        {
             linePath.moveTo( posMax, arrowBaseMin, color );
             linePath.lineTo( posMax, arrowBaseMax, color );
             linePath.lineTo( sizePerpCenter, timeMax, color );
@@ -615,10 +653,23 @@ public class DefaultGroupedEventPainter implements GroupedEventPainter
             linePath.lineTo( sizePerpCenter, timeMin, color );
             linePath.closeLoop( );
         }
+    }
 
-        for ( int i = 0; i < 12; i++ )
-        {
-            this.fillColor.growNfv( color, 0, 4 );
-        }
+    /**
+     * Adds both fill and border vertices for a box, in the same color.
+     */
+    protected void addVerticesBox( boolean horiz, float[] color, float timeMin, float timeMax, float posMin, float posMax )
+    {
+        addFillBox( horiz, color, timeMin, timeMax, posMin, posMax );
+        addBorderBox( horiz, color, timeMin, timeMax, posMin, posMax );
+    }
+
+    /**
+     * Adds both fill and border vertices for an arrow-ended box, in the same color.
+     */
+    protected void addVerticesArrow( boolean horiz, float[] color, float timeMin, float timeMax, float posMin, float posMax, float arrowBaseMin, float arrowBaseMax, float sizePerpCenter )
+    {
+        addFillArrow( horiz, color, timeMin, timeMax, posMin, posMax, arrowBaseMin, arrowBaseMax, sizePerpCenter );
+        addBorderArrow( horiz, color, timeMin, timeMax, posMin, posMax, arrowBaseMin, arrowBaseMax, sizePerpCenter );
     }
 }
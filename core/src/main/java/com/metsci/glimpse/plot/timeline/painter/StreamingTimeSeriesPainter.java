@@ -0,0 +1,520 @@
+/*
+ * Copyright (c) 2016, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.plot.timeline.painter;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static javax.media.opengl.GL.GL_DYNAMIC_DRAW;
+import static javax.media.opengl.GL.GL_LINE_STRIP;
+import static javax.media.opengl.GL.GL_TRIANGLE_STRIP;
+
+import java.nio.FloatBuffer;
+
+import javax.media.opengl.GL3;
+
+import com.metsci.glimpse.axis.Axis1D;
+import com.metsci.glimpse.axis.Axis2D;
+import com.metsci.glimpse.context.GlimpseBounds;
+import com.metsci.glimpse.context.GlimpseContext;
+import com.metsci.glimpse.gl.GLEditableBuffer;
+import com.metsci.glimpse.gl.util.GLUtils;
+import com.metsci.glimpse.painter.base.GlimpsePainterBase;
+import com.metsci.glimpse.plot.timeline.data.Epoch;
+import com.metsci.glimpse.plot.timeline.data.TimeSeriesRingBuffer;
+import com.metsci.glimpse.support.color.GlimpseColor;
+import com.metsci.glimpse.support.shader.triangle.FlatColorProgram;
+
+/**
+ * Plots a live time series in a row of a {@link com.metsci.glimpse.plot.timeline.StackedTimePlot2D}
+ * (add it with {@link com.metsci.glimpse.plot.timeline.layout.TimePlotInfo#addPainter}).
+ * <p>
+ * Samples are kept in a fixed-capacity {@link TimeSeriesRingBuffer}, so memory use doesn't
+ * grow with the length of the stream. The ring is mirrored in a GPU buffer, and each append
+ * writes only its own slot -- so only new samples are uploaded, instead of the whole series.
+ * <p>
+ * When zoomed in, only the visible samples are drawn, as a line strip. When there are many
+ * samples per pixel, the min and max value for each pixel along the time axis are drawn
+ * instead, as a filled band. The band's min/max values are cached in blocks of fixed time
+ * width, aligned to absolute times, so that scrolling only computes the blocks that come into
+ * view, and appends only recompute the blocks at the ends of the series.
+ * <p>
+ * Times are in axis units -- use {@link Epoch#fromTimeStamp(com.metsci.glimpse.util.units.time.TimeStamp)}
+ * to convert from absolute times. Appends may be made from any thread.
+ */
+public class StreamingTimeSeriesPainter extends GlimpsePainterBase
+{
+    protected final TimeSeriesRingBuffer data;
+
+    // GPU vertex times are relative to this, to keep float precision over long streams --
+    // moved forward as old samples are evicted (see append0)
+    protected double origin;
+
+    // Slot i holds the vertex for ring slot i, and slot capacity duplicates slot 0,
+    // so that a single line strip can cross the wrap point
+    protected final GLEditableBuffer xyVbo;
+
+    // Min and max value of each envelope block -- block k covers times [k*blockWidth,(k+1)*blockWidth),
+    // and array index 0 holds block blockFirst. Empty blocks have min > max
+    protected final float[] minMax;
+    protected double blockWidth;
+    protected long blockFirst;
+    protected int blockCount;
+    protected float[] blockMins;
+    protected float[] blockMaxs;
+
+    // State of the data when the blocks were last brought up to date -- blocksVersion is -1
+    // if the blocks don't reflect the data at all
+    protected long blocksVersion;
+    protected int blocksSize;
+    protected double blocksNewestTime;
+
+    protected final GLEditableBuffer envelopeVbo;
+    protected boolean envelopeVboValid;
+    protected double envelopeValueMin;
+    protected double envelopeValueMax;
+    protected int envelopeValuePixels;
+
+    protected FlatColorProgram prog;
+
+    protected float[] rgba;
+    protected boolean isTimeAxisHorizontal;
+    protected double maxSamplesPerPixel;
+
+    public StreamingTimeSeriesPainter( int capacity )
+    {
+        this.data = new TimeSeriesRingBuffer( capacity );
+        this.origin = Double.NaN;
+
+        this.xyVbo = new GLEditableBuffer( GL_DYNAMIC_DRAW, 0 );
+        this.xyVbo.ensureCapacityFloats( 2 * ( this.data.capacity( ) + 1 ) );
+
+        this.minMax = new float[2];
+        this.blockWidth = Double.NaN;
+        this.blockFirst = 0;
+        this.blockCount = 0;
+        this.blockMins = new float[0];
+        this.blockMaxs = new float[0];
+        this.blocksVersion = -1;
+
+        this.envelopeVbo = new GLEditableBuffer( GL_DYNAMIC_DRAW, 0 );
+        this.envelopeVboValid = false;
+
+        this.prog = new FlatColorProgram( );
+
+        this.rgba = GlimpseColor.getBlack( );
+        this.isTimeAxisHorizontal = true;
+        this.maxSamplesPerPixel = 2.0;
+    }
+
+    public void setColor( float[] rgba )
+    {
+        this.rgba = rgba;
+    }
+
+    /**
+     * Should match {@link com.metsci.glimpse.plot.timeline.StackedTimePlot2D#isTimeAxisHorizontal()}
+     * of the plot this painter is added to. Defaults to true.
+     */
+    public void setTimeAxisHorizontal( boolean isTimeAxisHorizontal )
+    {
+        this.painterLock.lock( );
+        try
+        {
+            if ( isTimeAxisHorizontal != this.isTimeAxisHorizontal )
+            {
+                this.isTimeAxisHorizontal = isTimeAxisHorizontal;
+
+                // Rewrite the vertices with swapped coords
+                this.rewriteVertices( );
+            }
+        }
+        finally
+        {
+            this.painterLock.unlock( );
+        }
+    }
+
+    /**
+     * Above this many visible samples per pixel, a min/max band is drawn instead of individual
+     * samples. Defaults to 2.
+     */
+    public void setMaxSamplesPerPixel( double maxSamplesPerPixel )
+    {
+        this.maxSamplesPerPixel = maxSamplesPerPixel;
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code time} is earlier than the newest sample
+     */
+    public void append( double time, float value )
+    {
+        this.painterLock.lock( );
+        try
+        {
+            this.append0( time, value );
+        }
+        finally
+        {
+            this.painterLock.unlock( );
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if the times are not in non-decreasing order
+     */
+    public void append( double[] times, float[] values, int offset, int count )
+    {
+        this.painterLock.lock( );
+        try
+        {
+            for ( int i = offset; i < offset + count; i++ )
+            {
+                this.append0( times[i], values[i] );
+            }
+        }
+        finally
+        {
+            this.painterLock.unlock( );
+        }
+    }
+
+    protected void append0( double time, float value )
+    {
+        if ( Double.isNaN( this.origin ) )
+        {
+            this.origin = time;
+        }
+
+        int slot = this.data.append( time, value );
+        this.putVertex( slot, time, value );
+
+        // Float precision of vertex times degrades as the retained samples drift away from the
+        // origin. Once the oldest sample is further from the origin than the newest is from the
+        // oldest, move the origin to the oldest sample -- with a full ring this happens about once
+        // per capacity appends, so the rewrite costs about one vertex per append
+        double oldest = this.data.time( 0 );
+        double newest = this.data.time( this.data.size( ) - 1 );
+        if ( oldest - this.origin > newest - oldest )
+        {
+            this.origin = oldest;
+            this.rewriteVertices( );
+        }
+    }
+
+    protected void rewriteVertices( )
+    {
+        for ( int i = 0; i < this.data.size( ); i++ )
+        {
+            int slot = this.data.slot( i );
+            this.putVertex( slot, this.data.time( i ), this.data.value( i ) );
+        }
+
+        // Block values don't depend on the origin or the orientation, but the vertices do
+        this.envelopeVboValid = false;
+    }
+
+    protected void putVertex( int slot, double time, float value )
+    {
+        float t = ( float ) ( time - this.origin );
+        float x = ( this.isTimeAxisHorizontal ? t : value );
+        float y = ( this.isTimeAxisHorizontal ? value : t );
+
+        this.xyVbo.editFloats( 2 * slot, 2 ).put( x ).put( y );
+
+        if ( slot == 0 )
+        {
+            this.xyVbo.editFloats( 2 * this.data.capacity( ), 2 ).put( x ).put( y );
+        }
+    }
+
+    public void clear( )
+    {
+        this.painterLock.lock( );
+        try
+        {
+            this.data.clear( );
+            this.origin = Double.NaN;
+            this.blocksVersion = -1;
+            this.envelopeVboValid = false;
+        }
+        finally
+        {
+            this.painterLock.unlock( );
+        }
+    }
+
+    public int getSize( )
+    {
+        this.painterLock.lock( );
+        try
+        {
+            return this.data.size( );
+        }
+        finally
+        {
+            this.painterLock.unlock( );
+        }
+    }
+
+    @Override
+    protected void doPaintTo( GlimpseContext context )
+    {
+        int n = this.data.size( );
+        if ( n < 2 ) return;
+
+        GL3 gl = context.getGL( ).getGL3( );
+        GlimpseBounds bounds = getBounds( context );
+        Axis2D axis = requireAxis2D( context );
+
+        Axis1D timeAxis = ( this.isTimeAxisHorizontal ? axis.getAxisX( ) : axis.getAxisY( ) );
+        Axis1D valueAxis = ( this.isTimeAxisHorizontal ? axis.getAxisY( ) : axis.getAxisX( ) );
+        int timePixels = ( this.isTimeAxisHorizontal ? bounds.getWidth( ) : bounds.getHeight( ) );
+        int valuePixels = ( this.isTimeAxisHorizontal ? bounds.getHeight( ) : bounds.getWidth( ) );
+        if ( timePixels <= 0 || valuePixels <= 0 ) return;
+
+        double timeMin = timeAxis.getMin( );
+        double timeMax = timeAxis.getMax( );
+
+        // Include one sample on each side of the visible range, so lines reach the edges
+        int i0 = max( 0, this.data.lowerBound( timeMin ) - 1 );
+        int i1 = min( n, this.data.upperBound( timeMax ) + 1 );
+        if ( i1 - i0 < 2 ) return;
+
+        GLUtils.enableStandardBlending( gl );
+        this.prog.begin( gl );
+        try
+        {
+            float tMin = ( float ) ( timeMin - this.origin );
+            float tMax = ( float ) ( timeMax - this.origin );
+            float vMin = ( float ) valueAxis.getMin( );
+            float vMax = ( float ) valueAxis.getMax( );
+            if ( this.isTimeAxisHorizontal )
+            {
+                this.prog.setOrtho( gl, tMin, tMax, vMin, vMax );
+            }
+            else
+            {
+                this.prog.setOrtho( gl, vMin, vMax, tMin, tMax );
+            }
+
+            this.prog.setColor( gl, this.rgba );
+
+            if ( i1 - i0 > this.maxSamplesPerPixel * timePixels )
+            {
+                this.updateEnvelope( timeMin, timeMax, timePixels, valueAxis.getMin( ), valueAxis.getMax( ), valuePixels );
+                this.prog.draw( gl, GL_TRIANGLE_STRIP, this.envelopeVbo, 0, this.envelopeVbo.sizeFloats( ) / 2 );
+            }
+            else
+            {
+                this.drawRange( gl, i0, i1 );
+            }
+        }
+        finally
+        {
+            this.prog.end( gl );
+            GLUtils.disableBlending( gl );
+        }
+    }
+
+    protected void drawRange( GL3 gl, int i0, int i1 )
+    {
+        int capacity = this.data.capacity( );
+        int first = this.data.slot( i0 );
+        int count = i1 - i0;
+
+        int vbo = this.xyVbo.deviceBuffer( gl );
+        if ( first + count <= capacity + 1 )
+        {
+            this.prog.draw( gl, GL_LINE_STRIP, vbo, first, count );
+        }
+        else
+        {
+            // Draw up to and including the duplicate of slot 0, then continue from slot 0
+            this.prog.draw( gl, GL_LINE_STRIP, vbo, first, capacity + 1 - first );
+            this.prog.draw( gl, GL_LINE_STRIP, vbo, 0, count - ( capacity - first ) );
+        }
+    }
+
+    protected void updateEnvelope( double timeMin, double timeMax, int timePixels, double valueMin, double valueMax, int valuePixels )
+    {
+        boolean blocksChanged = this.updateBlocks( timeMin, timeMax, timePixels );
+
+        if ( !blocksChanged && this.envelopeVboValid && this.envelopeValueMin == valueMin && this.envelopeValueMax == valueMax && this.envelopeValuePixels == valuePixels )
+        {
+            return;
+        }
+
+        this.envelopeVboValid = true;
+        this.envelopeValueMin = valueMin;
+        this.envelopeValueMax = valueMax;
+        this.envelopeValuePixels = valuePixels;
+
+        // Pad each block to at least one pixel tall, so flat stretches stay visible
+        float halfPixel = ( float ) ( 0.5 * ( valueMax - valueMin ) / valuePixels );
+
+        this.envelopeVbo.clear( );
+        FloatBuffer xys = this.envelopeVbo.growFloats( 4 * this.blockCount );
+
+        int numVertices = 0;
+        for ( int b = 0; b < this.blockCount; b++ )
+        {
+            float lo = this.blockMins[b];
+            float hi = this.blockMaxs[b];
+            if ( lo > hi ) continue;
+
+            float t = ( float ) ( ( this.blockFirst + b + 0.5 ) * this.blockWidth - this.origin );
+            if ( hi - lo < 2 * halfPixel )
+            {
+                float mid = 0.5f * ( lo + hi );
+                lo = mid - halfPixel;
+                hi = mid + halfPixel;
+            }
+
+            if ( this.isTimeAxisHorizontal )
+            {
+                xys.put( t ).put( lo ).put( t ).put( hi );
+            }
+            else
+            {
+                xys.put( lo ).put( t ).put( hi ).put( t );
+            }
+            numVertices += 2;
+        }
+
+        this.envelopeVbo.truncateFloats( 2 * numVertices );
+    }
+
+    /**
+     * Brings the block min/max values up to date for the visible time range, recomputing only
+     * blocks that are newly visible, or that samples have since been appended to or evicted from.
+     *
+     * @return true if any block values, or the range of blocks, changed
+     */
+    protected boolean updateBlocks( double timeMin, double timeMax, int timePixels )
+    {
+        // Snap the block width down to a power of two, so that it only changes when the zoom
+        // changes by a factor of two -- a block is then between half a pixel and a pixel wide
+        double blockWidth = Math.scalb( 1.0, Math.getExponent( ( timeMax - timeMin ) / timePixels ) );
+        long first = ( long ) Math.floor( timeMin / blockWidth );
+        int count = ( int ) ( ( long ) Math.floor( timeMax / blockWidth ) - first + 1 );
+
+        // Blocks at or after dirtyAfter, or at or before dirtyBefore, must be recomputed even if cached
+        long version = this.data.version( );
+        long dirtyAfter;
+        long dirtyBefore;
+        if ( this.blocksVersion < 0 || blockWidth != this.blockWidth )
+        {
+            dirtyAfter = Long.MIN_VALUE;
+            dirtyBefore = Long.MIN_VALUE;
+        }
+        else if ( version != this.blocksVersion )
+        {
+            // Appends never go back in time, so they only touch blocks from the previous newest
+            // sample on -- and evictions only touch blocks up to the current oldest sample
+            long appended = version - this.blocksVersion;
+            long evicted = this.blocksSize + appended - this.data.size( );
+            dirtyAfter = ( long ) Math.floor( this.blocksNewestTime / blockWidth );
+            dirtyBefore = ( evicted > 0 ? ( long ) Math.floor( this.data.firstTime( ) / blockWidth ) : Long.MIN_VALUE );
+        }
+        else if ( first == this.blockFirst && count == this.blockCount )
+        {
+            return false;
+        }
+        else
+        {
+            dirtyAfter = Long.MAX_VALUE;
+            dirtyBefore = Long.MIN_VALUE;
+        }
+
+        // Keep the cached blocks that are still in range, shifted to their new array indices
+        long keepFirst = Long.MAX_VALUE;
+        long keepLast = Long.MIN_VALUE;
+        if ( dirtyAfter != Long.MIN_VALUE )
+        {
+            keepFirst = max( first, this.blockFirst );
+            keepLast = min( first + count, this.blockFirst + this.blockCount ) - 1;
+        }
+
+        float[] mins = this.blockMins;
+        float[] maxs = this.blockMaxs;
+        if ( count > mins.length )
+        {
+            mins = new float[2 * count];
+            maxs = new float[2 * count];
+        }
+        if ( keepFirst <= keepLast )
+        {
+            int keepCount = ( int ) ( keepLast - keepFirst + 1 );
+            System.arraycopy( this.blockMins, ( int ) ( keepFirst - this.blockFirst ), mins, ( int ) ( keepFirst - first ), keepCount );
+            System.arraycopy( this.blockMaxs, ( int ) ( keepFirst - this.blockFirst ), maxs, ( int ) ( keepFirst - first ), keepCount );
+        }
+
+        // Consecutive recomputed blocks share a boundary, so each boundary is searched for once
+        long kPrev = Long.MIN_VALUE;
+        int iNext = 0;
+        for ( int b = 0; b < count; b++ )
+        {
+            long k = first + b;
+            boolean cached = ( keepFirst <= k && k <= keepLast && k < dirtyAfter && k > dirtyBefore );
+            if ( cached ) continue;
+
+            int i = ( k == kPrev + 1 ? iNext : this.data.lowerBound( k * blockWidth ) );
+            int j = this.data.lowerBound( ( k + 1 ) * blockWidth );
+            if ( this.data.minMax( i, j, this.minMax ) )
+            {
+                mins[b] = this.minMax[0];
+                maxs[b] = this.minMax[1];
+            }
+            else
+            {
+                mins[b] = Float.POSITIVE_INFINITY;
+                maxs[b] = Float.NEGATIVE_INFINITY;
+            }
+            kPrev = k;
+            iNext = j;
+        }
+
+        this.blockWidth = blockWidth;
+        this.blockFirst = first;
+        this.blockCount = count;
+        this.blockMins = mins;
+        this.blockMaxs = maxs;
+        this.blocksVersion = version;
+        this.blocksSize = this.data.size( );
+        this.blocksNewestTime = this.data.lastTime( );
+        return true;
+    }
+
+    @Override
+    protected void doDispose( GlimpseContext context )
+    {
+        GL3 gl = context.getGL( ).getGL3( );
+        this.xyVbo.dispose( gl );
+        this.envelopeVbo.dispose( gl );
+        this.prog.dispose( gl );
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2016, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.support.font;
+
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.metsci.glimpse.com.jogamp.opengl.util.awt.TextRenderer;
+
+/**
+ * Caches text measurements for a single {@link TextRenderer}, for painters which measure
+ * the same labels every frame. Glyph advances are cached per character, and string bounds
+ * are cached per string (the cache is simply cleared once it grows large).
+ * <p>
+ * A TextRenderer's font cannot change, so a cache stays valid for as long as its renderer
+ * is in use. Not thread-safe; intended to be used from the rendering thread.
+ */
+public class TextBoundsCache
+{
+    protected static final int MAX_CACHED_BOUNDS = 10000;
+
+    public static final String ELLIPSIS = "...";
+
+    protected final TextRenderer textRenderer;
+
+    protected final float[] latinAdvances;
+    protected final Map<Character, Float> otherAdvances;
+    protected final Map<String, Rectangle2D> bounds;
+
+    protected float[] prefixWidths;
+
+    public TextBoundsCache( TextRenderer textRenderer )
+    {
+        this.textRenderer = textRenderer;
+
+        this.latinAdvances = new float[256];
+        Arrays.fill( this.latinAdvances, Float.NaN );
+        this.otherAdvances = new HashMap<Character, Float>( );
+        this.bounds = new HashMap<String, Rectangle2D>( );
+
+        this.prefixWidths = new float[64];
+    }
+
+    public TextRenderer getTextRenderer( )
+    {
+        return this.textRenderer;
+    }
+
+    /**
+     * Like {@link TextRenderer#getBounds(String)}, but cached. The returned rectangle is
+     * shared, and must not be modified.
+     */
+    public Rectangle2D getBounds( String text )
+    {
+        Rectangle2D b = this.bounds.get( text );
+        if ( b == null )
+        {
+            if ( this.bounds.size( ) >= MAX_CACHED_BOUNDS ) this.bounds.clear( );
+
+            b = this.textRenderer.getBounds( text );
+            this.bounds.put( text, b );
+        }
+        return b;
+    }
+
+    /**
+     * Like {@link TextRenderer#getCharWidth(char)}, but cached.
+     */
+    public float getAdvance( char c )
+    {
+        if ( c < this.latinAdvances.length )
+        {
+            float advance = this.latinAdvances[c];
+            if ( Float.isNaN( advance ) )
+            {
+                advance = this.textRenderer.getCharWidth( c );
+                this.latinAdvances[c] = advance;
+            }
+            return advance;
+        }
+        else
+        {
+            Float advance = this.otherAdvances.get( c );
+            if ( advance == null )
+            {
+                advance = this.textRenderer.getCharWidth( c );
+                this.otherAdvances.put( c, advance );
+            }
+            return advance;
+        }
+    }
+
+    /**
+     * Returns the longest prefix of {@code fullText}, followed by an ellipsis, which fits in
+     * {@code availableSpace}, or an empty string if not even the ellipsis fits.
+     * <p>
+     * The width of a prefix is estimated as the sum of its glyph advances, plus the bounds of
+     * the ellipsis. So the cost is a pass of cached lookups and a binary search, rather than
+     * a {@link TextRenderer#getBounds(String)} call per candidate length (as in
+     * {@link com.metsci.glimpse.plot.timeline.event.paint.DefaultEventPainter#calculateDisplayText(TextRenderer, String, double)}).
+     * Kerning is ignored.
+     */
+    public String fitText( String fullText, double availableSpace )
+    {
+        double ellipsisWidth = getBounds( ELLIPSIS ).getWidth( );
+
+        int length = fullText.length( );
+        if ( this.prefixWidths.length < length + 1 ) this.prefixWidths = new float[Math.max( length + 1, 2 * this.prefixWidths.length )];
+
+        // prefixWidths[k] is the width of the first k chars
+        float[] widths = this.prefixWidths;
+        widths[0] = 0;
+        for ( int k = 0; k < length; k++ )
+        {
+            widths[k + 1] = widths[k] + getAdvance( fullText.charAt( k ) );
+        }
+
+        // Find the largest k such that the first k chars and the ellipsis fit
+        int lo = 0;
+        int hi = length + 1;
+        while ( lo < hi )
+        {
+            int mid = ( lo + hi ) >>> 1;
+            if ( widths[mid] + ellipsisWidth < availableSpace ) lo = mid + 1;
+            else hi = mid;
+        }
+
+        int endIndex = lo - 1;
+        return ( endIndex < 0 ? "" : fullText.substring( 0, endIndex ) + ELLIPSIS );
+    }
+
+}
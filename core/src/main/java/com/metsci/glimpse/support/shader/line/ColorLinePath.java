@@ -151,7 +151,19 @@ public class ColorLinePath
         return this.path.numVertices( );
     }
 
-    protected FloatBuffer rgbaBuffer( )
+    /**
+     * @see LinePath#xyBuffer()
+     */
+    public FloatBuffer xyBuffer( )
+    {
+        return this.path.xyBuffer( );
+    }
+
+    /**
+     * Returns the host-side vertex colors, 4 floats per vertex, parallel to {@link #xyBuffer()}.
+     * Valid until this path is next modified.
+     */
+    public FloatBuffer rgbaBuffer( )
     {
         return flipped( this.rgbaBuffer );
     }
@@ -161,6 +161,15 @@ public class LinePath
         return ( numVertices == 0 ? 0 : numVertices + 1 );
     }
 
+    /**
+     * Returns the host-side vertex coords, as interleaved x and y, including the phantom vertex
+     * at the start of each strip. Valid until this path is next modified.
+     */
+    public FloatBuffer xyBuffer( )
+    {
+        return this.data.xyBuffer( );
+    }
+
     public GLStreamingBuffer xyVbo( GL gl )
     {
         if ( this.xyDirty )
@@ -109,17 +109,7 @@ public class SwingEDTAnimator implements GLAnimatorControl
                         @Override
                         public void run( )
                         {
-                            for ( GLAutoDrawable target : targets )
-                            {
-                                try
-                                {
-                                    target.display( );
-                                }
-                                catch ( Throwable t )
-                                {
-                                    if ( handler != null ) handler.uncaughtException( SwingEDTAnimator.this, target, t );
-                                }
-                            }
+                            displayTargets( );
                         }
                     } );
                 }
@@ -132,6 +122,29 @@ public class SwingEDTAnimator implements GLAnimatorControl
         }, 0, ( int ) ( 1000.0 / fps ), TimeUnit.MILLISECONDS );
     }
 
+    /**
+     * Called on the Swing EDT once per animator tick.
+     */
+    protected void displayTargets( )
+    {
+        for ( GLAutoDrawable target : targets )
+        {
+            display( target );
+        }
+    }
+
+    protected void display( GLAutoDrawable target )
+    {
+        try
+        {
+            target.display( );
+        }
+        catch ( Throwable t )
+        {
+            if ( handler != null ) handler.uncaughtException( this, target, t );
+        }
+    }
+
     @Override
     public synchronized Thread getThread( )
     {
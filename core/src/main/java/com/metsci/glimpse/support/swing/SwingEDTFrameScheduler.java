@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2016, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.support.swing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+
+import javax.media.opengl.GLAutoDrawable;
+
+/**
+ * A {@link SwingEDTAnimator} which schedules each of its drawables individually, so that many
+ * drawables can share one animator without slowing each other down.
+ * <p>
+ * On each tick, a drawable is displayed only if:
+ * <ul>
+ * <li>it is showing, according to its showing function (e.g. not hidden behind a docking tab)
+ * <li>its own target rate allows it -- a drawable may run slower than the animator
+ * <li>it is continuous (the default), or has been marked dirty by {@link #requestDisplay(GLAutoDrawable)},
+ * or is due for an idle refresh (see {@link #setIdleFps(double)})
+ * </ul>
+ * Dirty drawables are displayed before continuous ones, and the displays for a single tick stop
+ * once the tick's time budget is used up. Drawables which didn't get displayed stay due, and
+ * are displayed first (round-robin) on the next tick. This spreads a large number of drawables
+ * across frames, instead of letting the slowest drawable set the frame rate for all of them.
+ */
+public class SwingEDTFrameScheduler extends SwingEDTAnimator
+{
+    protected static class TargetState
+    {
+        public volatile double fps = Double.NaN;
+        public volatile boolean isContinuous = true;
+        public volatile boolean isDirty = true;
+        public volatile BooleanSupplier isShowingFn = ( ) -> true;
+
+        // only accessed on the Swing EDT
+        public long lastDisplayNanos = 0;
+        public boolean hasDisplayed = false;
+    }
+
+    protected final Map<GLAutoDrawable,TargetState> states;
+
+    protected volatile double budgetFraction;
+    protected volatile double idleFps;
+
+    // only accessed on the Swing EDT
+    protected int nextIndex;
+
+    public SwingEDTFrameScheduler( double fps )
+    {
+        super( fps );
+
+        this.states = new ConcurrentHashMap<>( );
+        this.budgetFraction = 0.75;
+        this.idleFps = 2.0;
+        this.nextIndex = 0;
+    }
+
+    /**
+     * Sets the fraction of each animator tick which may be spent displaying drawables. At least
+     * one due drawable is displayed on every tick, regardless of the budget.
+     */
+    public void setBudgetFraction( double budgetFraction )
+    {
+        this.budgetFraction = budgetFraction;
+    }
+
+    /**
+     * Sets the rate at which non-continuous drawables are displayed even when nobody has
+     * requested it. This is a safety net for changes that don't call {@link #requestDisplay(GLAutoDrawable)},
+     * so that they still show up, if late. Zero or NaN turns idle refreshes off.
+     */
+    public void setIdleFps( double idleFps )
+    {
+        this.idleFps = idleFps;
+    }
+
+    /**
+     * Sets the maximum rate at which the given drawable is displayed. Rates above the rate
+     * of the animator itself have no effect. NaN means display at the rate of the animator.
+     */
+    public void setTargetFps( GLAutoDrawable drawable, double fps )
+    {
+        this.state( drawable ).fps = fps;
+    }
+
+    /**
+     * If false, the given drawable is only displayed after a call to {@link #requestDisplay(GLAutoDrawable)},
+     * or for an idle refresh.
+     */
+    public void setContinuous( GLAutoDrawable drawable, boolean continuous )
+    {
+        this.state( drawable ).isContinuous = continuous;
+    }
+
+    /**
+     * Sets the function which determines whether the given drawable is currently visible to the
+     * user. Called on the Swing EDT. Drawables are assumed to be showing by default.
+     */
+    public void setShowingFn( GLAutoDrawable drawable, BooleanSupplier isShowingFn )
+    {
+        this.state( drawable ).isShowingFn = isShowingFn;
+    }
+
+    /**
+     * Marks the given drawable dirty, so it will be displayed on an upcoming tick (subject to
+     * its target rate), ahead of drawables which are merely continuous. May be called from any
+     * thread. Ignored if the drawable hasn't been added, or has been removed.
+     */
+    public void requestDisplay( GLAutoDrawable drawable )
+    {
+        TargetState state = this.states.get( drawable );
+        if ( state != null )
+        {
+            state.isDirty = true;
+        }
+    }
+
+    protected TargetState state( GLAutoDrawable drawable )
+    {
+        return this.states.computeIfAbsent( drawable, ( k ) -> new TargetState( ) );
+    }
+
+    @Override
+    public void add( GLAutoDrawable drawable )
+    {
+        this.state( drawable );
+        super.add( drawable );
+    }
+
+    @Override
+    public void remove( GLAutoDrawable drawable )
+    {
+        super.remove( drawable );
+        this.states.remove( drawable );
+    }
+
+    @Override
+    protected void displayTargets( )
+    {
+        long passStart = System.nanoTime( );
+        double tickNanos = 1e9 / this.fps;
+        long budgetNanos = ( long ) ( this.budgetFraction * tickNanos );
+
+        // Find the drawables that are due, in round-robin order, with dirty ones first -- as
+        // indices into the snapshot, so the round-robin position is known without searching
+        List<GLAutoDrawable> snapshot = new ArrayList<>( this.targets );
+        int n = snapshot.size( );
+        int[] due = new int[n];
+        int numDirty = 0;
+        int[] lowPriority = new int[n];
+        int numLowPriority = 0;
+        for ( int i = 0; i < n; i++ )
+        {
+            int index = ( this.nextIndex + i ) % n;
+            TargetState state = this.states.get( snapshot.get( index ) );
+            if ( state == null || !this.isDue( state, passStart, tickNanos ) ) continue;
+
+            if ( state.isDirty )
+            {
+                due[numDirty++] = index;
+            }
+            else if ( state.isContinuous || this.isIdleDue( state, passStart, tickNanos ) )
+            {
+                lowPriority[numLowPriority++] = index;
+            }
+        }
+
+        int numDue = numDirty + numLowPriority;
+        System.arraycopy( lowPriority, 0, due, numDirty, numLowPriority );
+
+        boolean displayedAny = false;
+        for ( int k = 0; k < numDue; k++ )
+        {
+            long now = System.nanoTime( );
+            if ( displayedAny && now - passStart >= budgetNanos ) break;
+
+            int index = due[k];
+            GLAutoDrawable target = snapshot.get( index );
+            TargetState state = this.states.get( target );
+            if ( state == null ) continue;
+
+            // Clear before displaying, so that requests made during display aren't lost
+            state.isDirty = false;
+            state.lastDisplayNanos = now;
+            state.hasDisplayed = true;
+
+            this.display( target );
+            displayedAny = true;
+
+            this.nextIndex = ( index + 1 ) % n;
+        }
+    }
+
+    protected boolean isDue( TargetState state, long now, double tickNanos )
+    {
+        if ( !state.isShowingFn.getAsBoolean( ) ) return false;
+        if ( !state.hasDisplayed || Double.isNaN( state.fps ) ) return true;
+
+        // Allow half a tick of slack, so that a target rate that doesn't divide evenly
+        // into the animator rate rounds to the nearest tick instead of the next one
+        double intervalNanos = 1e9 / state.fps;
+        return ( now - state.lastDisplayNanos >= intervalNanos - 0.5 * tickNanos );
+    }
+
+    protected boolean isIdleDue( TargetState state, long now, double tickNanos )
+    {
+        double idleFps = this.idleFps;
+        if ( !( idleFps > 0 ) ) return false;
+
+        double intervalNanos = 1e9 / idleFps;
+        return ( now - state.lastDisplayNanos >= intervalNanos - 0.5 * tickNanos );
+    }
+
+}
@@ -26,28 +26,48 @@
  */
 package com.metsci.glimpse.charts.bathy;
 
-import java.io.BufferedReader;
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.util.Comparator;
-import java.util.NavigableSet;
-import java.util.TreeSet;
+import java.io.RandomAccessFile;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.util.Arrays;
 
 import com.metsci.glimpse.axis.Axis2D;
 import com.metsci.glimpse.support.projection.LatLonProjection;
 import com.metsci.glimpse.support.projection.Projection;
 import com.metsci.glimpse.support.texture.FloatTextureProjected2D;
+import com.metsci.glimpse.support.texture.FloatTextureProjected2D.MutatorFloat2D;
 import com.metsci.glimpse.util.geo.LatLonGeo;
 import com.metsci.glimpse.util.geo.projection.GeoProjection;
+import com.metsci.glimpse.util.primitives.FloatsArray;
 import com.metsci.glimpse.util.units.Angle;
 import com.metsci.glimpse.util.vector.Vector2d;
 
 /**
+ * Bathymetry on a regular lat/lon grid, read from an ASCII file of "lon lat depth" lines.<p>
+ *
+ * Depths are held in a single float grid, row-major with rows of constant latitude (the same layout
+ * as {@link FloatTextureProjected2D}). The grid can be written to a binary cache file with
+ * {@link #writeCache(File)}; {@link #load(File, File, GeoProjection)} memory-maps the cache on later
+ * loads instead of re-parsing the text.
+ *
  * @author ulman
  */
 public class BathymetryData
 {
+    protected static final int CACHE_MAGIC = 0x42415448; // "BATH"
+    protected static final int CACHE_VERSION = 1;
+    protected static final int CACHE_HEADER_BYTES = 4 + 4 + 4 + 4 + 8 * 4;
+
     protected double widthStep;
     protected double heightStep;
 
@@ -59,6 +79,14 @@ public class BathymetryData
 
     protected GeoProjection projection;
 
+    /**
+     * Depth at (x, y) is at index {@code y * imageWidth + x}. Either heap-backed or memory-mapped.
+     */
+    protected FloatBuffer grid;
+
+    /**
+     * Created lazily by {@link #getData( )}.
+     */
     protected double[][] data;
 
     public BathymetryData( InputStream in, GeoProjection projection ) throws IOException
@@ -68,127 +96,361 @@ public class BathymetryData
         read( in, projection );
     }
 
-    private static class Row
+    protected BathymetryData( GeoProjection projection )
+    {
+        this.projection = projection;
+    }
+
+    /**
+     * Loads the bathymetry in {@code textFile}, using {@code cacheFile} if it is at least as new as the
+     * text file, and otherwise parsing the text file and (re)writing the cache.
+     */
+    public static BathymetryData load( File textFile, File cacheFile, GeoProjection projection ) throws IOException
     {
-        public float centerLat;
-        public float centerLon;
-        public float depth;
+        if ( cacheFile.isFile( ) && cacheFile.lastModified( ) >= textFile.lastModified( ) )
+        {
+            try
+            {
+                return readCache( cacheFile, projection );
+            }
+            catch ( IOException e )
+            {
+                // Fall through and rebuild the cache
+            }
+        }
 
-        public Row( float centerLat, float centerLon, float depth )
+        BathymetryData bathy;
+        try ( InputStream in = new FileInputStream( textFile ) )
         {
-            this.centerLat = centerLat;
-            this.centerLon = centerLon;
-            this.depth = depth;
+            bathy = new BathymetryData( in, projection );
         }
+        bathy.writeCache( cacheFile );
+        return bathy;
     }
 
-    protected void read( InputStream in, GeoProjection tp ) throws IOException
+    public static BathymetryData readCache( File cacheFile, GeoProjection projection ) throws IOException
     {
-        BufferedReader reader = new BufferedReader( new InputStreamReader( in ) );
+        MappedByteBuffer mapped;
+        try ( RandomAccessFile raf = new RandomAccessFile( cacheFile, "r" ) )
+        {
+            mapped = raf.getChannel( ).map( READ_ONLY, 0, raf.length( ) );
+        }
 
-        // create a sorted set to store all the rows from the data input file of the form:
-        // latitude longitude depth
-        NavigableSet<Row> rows = new TreeSet<Row>( new Comparator<Row>( )
+        if ( mapped.limit( ) < CACHE_HEADER_BYTES || mapped.getInt( ) != CACHE_MAGIC || mapped.getInt( ) != CACHE_VERSION )
         {
-            @Override
-            public int compare( Row o1, Row o2 )
+            throw new IOException( "Not a bathymetry cache file: " + cacheFile );
+        }
+
+        BathymetryData bathy = new BathymetryData( projection );
+        bathy.imageWidth = mapped.getInt( );
+        bathy.imageHeight = mapped.getInt( );
+        bathy.startLon = mapped.getDouble( );
+        bathy.startLat = mapped.getDouble( );
+        bathy.widthStep = mapped.getDouble( );
+        bathy.heightStep = mapped.getDouble( );
+
+        if ( mapped.remaining( ) < 4L * bathy.imageWidth * bathy.imageHeight )
+        {
+            throw new IOException( "Truncated bathymetry cache file: " + cacheFile );
+        }
+
+        bathy.grid = mapped.slice( ).asFloatBuffer( );
+        return bathy;
+    }
+
+    public void writeCache( File cacheFile ) throws IOException
+    {
+        File tempFile = new File( cacheFile.getPath( ) + ".tmp" );
+        try ( DataOutputStream out = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( tempFile ), 1 << 16 ) ) )
+        {
+            out.writeInt( CACHE_MAGIC );
+            out.writeInt( CACHE_VERSION );
+            out.writeInt( imageWidth );
+            out.writeInt( imageHeight );
+            out.writeDouble( startLon );
+            out.writeDouble( startLat );
+            out.writeDouble( widthStep );
+            out.writeDouble( heightStep );
+
+            int n = imageWidth * imageHeight;
+            for ( int i = 0; i < n; i++ )
             {
-                int latComparison = Double.compare( o1.centerLat, o2.centerLat );
-                return ( latComparison != 0 ? latComparison : Double.compare( o1.centerLon, o2.centerLon ) );
+                out.writeFloat( grid.get( i ) );
             }
-        } );
+        }
 
-        // read lines from the input stream into the set
-        String line = null;
+        if ( !tempFile.renameTo( cacheFile ) )
+        {
+            cacheFile.delete( );
+            if ( !tempFile.renameTo( cacheFile ) ) throw new IOException( "Failed to write bathymetry cache file: " + cacheFile );
+        }
+    }
+
+    protected void read( InputStream in, GeoProjection tp ) throws IOException
+    {
+        // read "lon lat depth" triples straight into primitive arrays
+        FloatsArray lons = new FloatsArray( );
+        FloatsArray lats = new FloatsArray( );
+        FloatsArray depths = new FloatsArray( );
+
+        NumberScanner scanner = new NumberScanner( in );
+        while ( scanner.nextLine( ) )
+        {
+            float lon = ( float ) scanner.next( );
+            float lat = ( float ) scanner.next( );
+            float depth = ( float ) scanner.next( );
+
+            // ignore any further columns
+            scanner.skipLine( );
+
+            lons.append( lon );
+            lats.append( lat );
+            depths.append( depth );
+        }
+
+        int n = lons.n;
+
+        // retrieve the number of unique latitudes and longitudes
+        float[] sortedLons = Arrays.copyOf( lons.a, n );
+        float[] sortedLats = Arrays.copyOf( lats.a, n );
+        Arrays.parallelSort( sortedLons );
+        Arrays.parallelSort( sortedLats );
+
+        imageWidth = countDistinct( sortedLons );
+        imageHeight = countDistinct( sortedLats );
+
+        // calculate the average step size moving along latitude and longitude
+        widthStep = ( ( double ) sortedLons[n - 1] - sortedLons[0] ) / ( imageWidth - 1 );
+        heightStep = ( ( double ) sortedLats[n - 1] - sortedLats[0] ) / ( imageHeight - 1 );
 
-        while ( ( line = reader.readLine( ) ) != null )
+        // find the lat and lon of the starting corner
+        startLon = sortedLons[0] - 0.5 * widthStep;
+        startLat = sortedLats[0] - 0.5 * heightStep;
+
+        float[] gridArray = new float[imageWidth * imageHeight];
+
+        // iterate backwards so that, as before, the first sample for a cell wins
+        for ( int i = n - 1; i >= 0; i-- )
         {
-            if ( line.trim( ).isEmpty( ) ) continue;
+            int x = ( int ) Math.floor( ( lons.a[i] - startLon ) / widthStep );
+            int y = ( int ) Math.floor( ( lats.a[i] - startLat ) / heightStep );
 
-            String[] tokens = line.trim( ).split( "[ ]+" );
+            if ( x < 0 ) x = 0;
+            if ( x >= imageWidth ) x = imageWidth - 1;
 
-            float lon = Float.parseFloat( tokens[0] );
-            float lat = Float.parseFloat( tokens[1] );
-            float depth = Float.parseFloat( tokens[2] );
+            if ( y < 0 ) y = 0;
+            if ( y >= imageHeight ) y = imageHeight - 1;
 
-            rows.add( new Row( lat, lon, depth ) );
+            gridArray[y * imageWidth + x] = depths.a[i];
         }
 
-        // create a set with only unique latitudes (in sorted order)
-        NavigableSet<Row> uniqueLatitudes = new TreeSet<Row>( new Comparator<Row>( )
+        grid = FloatBuffer.wrap( gridArray );
+        data = null;
+
+        startLon = Angle.normalizeAngle180( startLon );
+    }
+
+    protected static int countDistinct( float[] sorted )
+    {
+        int count = ( sorted.length > 0 ? 1 : 0 );
+        for ( int i = 1; i < sorted.length; i++ )
         {
-            @Override
-            public int compare( Row o1, Row o2 )
-            {
-                return Double.compare( o1.centerLat, o2.centerLat );
-            }
-        } );
+            if ( sorted[i] != sorted[i - 1] ) count++;
+        }
+        return count;
+    }
 
-        // create a set with only unique longitudes (in sorted order)
-        NavigableSet<Row> uniqueLongitudes = new TreeSet<Row>( new Comparator<Row>( )
+    /**
+     * Scans lines of whitespace-separated decimal numbers from a byte stream, without creating Strings.
+     */
+    protected static class NumberScanner
+    {
+        protected static final double[] POWERS_OF_TEN = new double[23];
+        static
         {
-            @Override
-            public int compare( Row o1, Row o2 )
+            POWERS_OF_TEN[0] = 1;
+            for ( int i = 1; i < POWERS_OF_TEN.length; i++ )
             {
-                return Double.compare( o1.centerLon, o2.centerLon );
+                POWERS_OF_TEN[i] = 10 * POWERS_OF_TEN[i - 1];
             }
-        } );
+        }
 
-        uniqueLatitudes.addAll( rows );
-        uniqueLongitudes.addAll( rows );
+        protected final InputStream in;
+        protected final byte[] buffer;
+        protected int position;
+        protected int limit;
 
-        // retrieve the number of unique latitudes and longitudes from the sets
-        imageHeight = uniqueLatitudes.size( );
-        imageWidth = uniqueLongitudes.size( );
+        public NumberScanner( InputStream in )
+        {
+            this.in = in;
+            this.buffer = new byte[1 << 16];
+            this.position = 0;
+            this.limit = 0;
+        }
 
-        // calculate the average step size moving along latitude and longitude
-        widthStep = 0;
-        Row prevRow = null;
-        for ( Row row : uniqueLongitudes )
+        protected int read( ) throws IOException
         {
-            if ( prevRow != null )
+            if ( position == limit )
             {
-                widthStep += row.centerLon - prevRow.centerLon;
+                limit = in.read( buffer, 0, buffer.length );
+                position = 0;
+                if ( limit <= 0 )
+                {
+                    limit = 0;
+                    return -1;
+                }
             }
+            return buffer[position++] & 0xFF;
+        }
 
-            prevRow = row;
+        protected void unread( )
+        {
+            position--;
         }
-        widthStep = widthStep / ( uniqueLongitudes.size( ) - 1 );
 
-        heightStep = 0;
-        prevRow = null;
-        for ( Row row : uniqueLatitudes )
+        /**
+         * Skips blank lines, and returns false if the end of the stream has been reached.
+         */
+        public boolean nextLine( ) throws IOException
         {
-            if ( prevRow != null )
+            int c = read( );
+            while ( c == ' ' || c == '\t' || c == '\r' || c == '\n' || c == ',' )
             {
-                heightStep += row.centerLat - prevRow.centerLat;
+                c = read( );
             }
+            if ( c < 0 ) return false;
 
-            prevRow = row;
+            unread( );
+            return true;
         }
-        heightStep = heightStep / ( uniqueLatitudes.size( ) - 1 );
 
-        // find the lat and lon of the starting corner
-        startLon = uniqueLongitudes.first( ).centerLon - 0.5 * widthStep;
-        startLat = uniqueLatitudes.first( ).centerLat - 0.5 * heightStep;
-
-        data = new double[imageWidth][imageHeight];
+        /**
+         * Skips the rest of the current line, including the line terminator.
+         */
+        public void skipLine( ) throws IOException
+        {
+            int c = read( );
+            while ( c >= 0 && c != '\n' )
+            {
+                c = read( );
+            }
+        }
 
-        for ( Row row : rows )
+        /**
+         * Returns the next number on the current line, or throws EOFException if the line has no
+         * more numbers.
+         */
+        public double next( ) throws IOException
         {
-            int x = ( int ) Math.floor( ( row.centerLon - startLon ) / widthStep );
-            int y = ( int ) Math.floor( ( row.centerLat - startLat ) / heightStep );
+            int c = read( );
+            while ( c == ' ' || c == '\t' || c == '\r' || c == ',' )
+            {
+                c = read( );
+            }
+            if ( c < 0 || c == '\n' ) throw new EOFException( "Expected \"lon lat depth\" on each line of bathymetry data" );
 
-            if ( x < 0 ) x = 0;
-            if ( x >= imageWidth ) x = imageWidth - 1;
+            boolean negative = false;
+            if ( c == '-' || c == '+' )
+            {
+                negative = ( c == '-' );
+                c = read( );
+            }
 
-            if ( y < 0 ) y = 0;
-            if ( y >= imageHeight ) y = imageHeight - 1;
+            long mantissa = 0;
+            int mantissaDigits = 0;
+            int exponent = 0;
+            boolean anyDigits = false;
 
-            data[x][y] = row.depth;
+            while ( c >= '0' && c <= '9' )
+            {
+                anyDigits = true;
+                if ( mantissaDigits < 18 )
+                {
+                    mantissa = 10 * mantissa + ( c - '0' );
+                    if ( mantissa != 0 ) mantissaDigits++;
+                }
+                else
+                {
+                    exponent++;
+                }
+                c = read( );
+            }
+
+            if ( c == '.' )
+            {
+                c = read( );
+                while ( c >= '0' && c <= '9' )
+                {
+                    anyDigits = true;
+                    if ( mantissaDigits < 18 )
+                    {
+                        mantissa = 10 * mantissa + ( c - '0' );
+                        if ( mantissa != 0 ) mantissaDigits++;
+                        exponent--;
+                    }
+                    c = read( );
+                }
+            }
+
+            if ( !anyDigits ) throw new IOException( "Malformed number in bathymetry data" );
+
+            if ( c == 'e' || c == 'E' )
+            {
+                c = read( );
+                boolean negativeExponent = false;
+                if ( c == '-' || c == '+' )
+                {
+                    negativeExponent = ( c == '-' );
+                    c = read( );
+                }
+                int e = 0;
+                while ( c >= '0' && c <= '9' )
+                {
+                    e = 10 * e + ( c - '0' );
+                    c = read( );
+                }
+                exponent += ( negativeExponent ? -e : e );
+            }
+
+            if ( c >= 0 ) unread( );
+
+            double value;
+            if ( exponent == 0 )
+            {
+                value = mantissa;
+            }
+            else if ( exponent < 0 && -exponent < POWERS_OF_TEN.length )
+            {
+                value = mantissa / POWERS_OF_TEN[-exponent];
+            }
+            else if ( exponent > 0 && exponent < POWERS_OF_TEN.length )
+            {
+                value = mantissa * POWERS_OF_TEN[exponent];
+            }
+            else
+            {
+                value = mantissa * Math.pow( 10, exponent );
+            }
+
+            return ( negative ? -value : value );
         }
+    }
 
-        startLon = Angle.normalizeAngle180( startLon );
+    /**
+     * Depth at the given grid cell, where x increases with longitude and y with latitude.
+     */
+    public float getDepth( int x, int y )
+    {
+        return grid.get( y * imageWidth + x );
+    }
+
+    /**
+     * Returns the depth grid, row-major with rows of constant latitude. The buffer may be memory-mapped;
+     * callers must not modify it.
+     */
+    public FloatBuffer getGrid( )
+    {
+        return grid.duplicate( );
     }
 
     public FloatTextureProjected2D getTexture( )
@@ -199,7 +461,16 @@ public class BathymetryData
         Projection projection = getProjection( );
 
         texture.setProjection( projection );
-        texture.setData( data );
+        texture.mutate( new MutatorFloat2D( )
+        {
+            @Override
+            public void mutate( FloatBuffer buffer, int dataSizeX, int dataSizeY )
+            {
+                FloatBuffer source = grid.duplicate( );
+                source.rewind( ).limit( dataSizeX * dataSizeY );
+                buffer.put( source );
+            }
+        } );
 
         return texture;
     }
@@ -283,8 +554,24 @@ public class BathymetryData
         return Math.max( swCorner.getY( ), neCorner.getY( ) );
     }
 
+    /**
+     * Returns the depths as data[x][y]. This copies the grid into a new array the first time it is
+     * called; prefer {@link #getDepth(int, int)} or {@link #getGrid( )} for large grids.
+     */
     public double[][] getData( )
     {
+        if ( data == null )
+        {
+            double[][] data = new double[imageWidth][imageHeight];
+            for ( int y = 0; y < imageHeight; y++ )
+            {
+                for ( int x = 0; x < imageWidth; x++ )
+                {
+                    data[x][y] = grid.get( y * imageWidth + x );
+                }
+            }
+            this.data = data;
+        }
         return data;
     }
 }
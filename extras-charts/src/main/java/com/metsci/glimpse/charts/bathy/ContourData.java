@@ -26,18 +26,36 @@
  */
 package com.metsci.glimpse.charts.bathy;
 
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import com.metsci.glimpse.util.geo.projection.GeoProjection;
 
 /**
+ * Contour lines for a {@link BathymetryData} grid.<p>
+ *
+ * The grid is split into bands of columns which are contoured concurrently, each with its own
+ * {@link Conrec}. Adjacent bands share their boundary column, so no segments are lost at the seams.
+ *
  * @author ulman
  */
 public class ContourData
 {
+    protected static final int MIN_BAND_WIDTH = 16;
+
     private RecordVertices contours;
 
     public ContourData( BathymetryData bathymetryData, GeoProjection tp, double[] levels )
+    {
+        this( bathymetryData, tp, levels, ForkJoinPool.commonPool( ) );
+    }
+
+    public ContourData( BathymetryData bathymetryData, GeoProjection tp, double[] levels, ExecutorService exec )
     {
         // sort the levels array
         Arrays.sort( levels );
@@ -46,11 +64,29 @@ public class ContourData
 
         try
         {
-            Conrec contourCalculator = new Conrec( contours );
-            double[][] bathyData = bathymetryData.getData( );
-            int sizeX = bathyData.length;
-            int sizeY = bathyData[0].length;
-            contourCalculator.contour( bathyData, 0, sizeX - 1, 0, sizeY - 1, getLongitudes( bathymetryData ), getLatitudes( bathymetryData ), levels.length, levels );
+            double[] longitudes = getLongitudes( bathymetryData );
+            double[] latitudes = getLatitudes( bathymetryData );
+            FloatBuffer grid = bathymetryData.getGrid( );
+            int sizeX = bathymetryData.getImageWidth( );
+            int sizeY = bathymetryData.getImageHeight( );
+
+            // each band needs at least two columns
+            int bandCount = Math.max( 1, Math.min( 4 * Runtime.getRuntime( ).availableProcessors( ), ( sizeX - 1 ) / MIN_BAND_WIDTH ) );
+
+            List<Future<RecordVertices>> futures = new ArrayList<>( bandCount );
+            for ( int band = 0; band < bandCount; band++ )
+            {
+                int firstX = ( int ) ( ( long ) band * ( sizeX - 1 ) / bandCount );
+                int lastX = ( int ) ( ( long ) ( band + 1 ) * ( sizeX - 1 ) / bandCount );
+
+                futures.add( exec.submit( ( ) -> contourBand( grid, sizeX, sizeY, firstX, lastX, longitudes, latitudes, levels, tp ) ) );
+            }
+
+            // append in band order, so results do not depend on scheduling
+            for ( Future<RecordVertices> future : futures )
+            {
+                contours.append( future.get( ) );
+            }
         }
         catch ( Exception e1 )
         {
@@ -58,6 +94,28 @@ public class ContourData
         }
     }
 
+    protected static RecordVertices contourBand( FloatBuffer grid, int sizeX, int sizeY, int firstX, int lastX, double[] longitudes, double[] latitudes, double[] levels, GeoProjection tp ) throws Exception
+    {
+        int bandSizeX = lastX - firstX + 1;
+
+        double[][] bandData = new double[bandSizeX][sizeY];
+        for ( int y = 0; y < sizeY; y++ )
+        {
+            int rowStart = y * sizeX;
+            for ( int x = 0; x < bandSizeX; x++ )
+            {
+                bandData[x][y] = grid.get( rowStart + firstX + x );
+            }
+        }
+
+        double[] bandLongitudes = Arrays.copyOfRange( longitudes, firstX, lastX + 1 );
+
+        RecordVertices vertices = new RecordVertices( tp );
+        Conrec contourCalculator = new Conrec( vertices );
+        contourCalculator.contour( bandData, 0, bandSizeX - 1, 0, sizeY - 1, bandLongitudes, latitudes, levels.length, levels );
+        return vertices;
+    }
+
     public float[] getCoordsX( )
     {
         return contours.getCoordsX( );
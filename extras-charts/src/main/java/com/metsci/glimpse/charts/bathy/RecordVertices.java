@@ -26,11 +26,9 @@
  */
 package com.metsci.glimpse.charts.bathy;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import com.metsci.glimpse.util.geo.LatLonGeo;
 import com.metsci.glimpse.util.geo.projection.GeoProjection;
+import com.metsci.glimpse.util.primitives.FloatsArray;
 import com.metsci.glimpse.util.vector.Vector2d;
 
 /**
@@ -38,14 +36,14 @@ import com.metsci.glimpse.util.vector.Vector2d;
  */
 public class RecordVertices implements Render
 {
-    protected List<Float> coordsX;
-    protected List<Float> coordsY;
+    protected FloatsArray coordsX;
+    protected FloatsArray coordsY;
     protected GeoProjection projection;
 
     public RecordVertices( GeoProjection projection )
     {
-        this.coordsX = new ArrayList<Float>( );
-        this.coordsY = new ArrayList<Float>( );
+        this.coordsX = new FloatsArray( );
+        this.coordsY = new FloatsArray( );
         this.projection = projection;
     }
 
@@ -55,30 +53,34 @@ public class RecordVertices implements Render
         Vector2d startVertex = this.projection.project( LatLonGeo.fromDeg( startY, startX ) );
         Vector2d endVertex = this.projection.project( LatLonGeo.fromDeg( endY, endX ) );
 
-        coordsX.add( ( float ) startVertex.getX( ) );
-        coordsY.add( ( float ) startVertex.getY( ) );
+        coordsX.append( ( float ) startVertex.getX( ) );
+        coordsY.append( ( float ) startVertex.getY( ) );
+
+        coordsX.append( ( float ) endVertex.getX( ) );
+        coordsY.append( ( float ) endVertex.getY( ) );
+    }
 
-        coordsX.add( ( float ) endVertex.getX( ) );
-        coordsY.add( ( float ) endVertex.getY( ) );
+    /**
+     * Appends all the vertices recorded by {@code other} to this instance.
+     */
+    public void append( RecordVertices other )
+    {
+        coordsX.append( other.coordsX );
+        coordsY.append( other.coordsY );
+    }
+
+    public int getVertexCount( )
+    {
+        return coordsX.n;
     }
 
     public float[] getCoordsX( )
     {
-        float[] coordsArrayX = new float[coordsX.size( )];
-        for ( int i = 0; i < coordsX.size( ); i++ )
-        {
-            coordsArrayX[i] = coordsX.get( i );
-        }
-        return coordsArrayX;
+        return coordsX.copyOf( );
     }
 
     public float[] getCoordsY( )
     {
-        float[] coordsArrayY = new float[coordsY.size( )];
-        for ( int i = 0; i < coordsY.size( ); i++ )
-        {
-            coordsArrayY[i] = coordsY.get( i );
-        }
-        return coordsArrayY;
+        return coordsY.copyOf( );
     }
 }
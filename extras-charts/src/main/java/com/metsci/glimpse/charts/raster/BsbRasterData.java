@@ -70,6 +70,10 @@ import com.metsci.glimpse.util.vector.Vector2d;
  * Data structures and data IO utilities for displaying Electronic Navigation Chart
  * raster images available in the BSB Raster format.<p>
  *
+ * The whole image is decoded into memory, and uploaded as a single texture. For
+ * large charts, {@link BsbTiledRaster} and {@link BsbTilePainter} decode only the
+ * visible region, at a resolution appropriate to the current zoom.<p>
+ *
  * @author osborn
  * @see com.metsci.glimpse.examples.charts.rnc.RasterNavigationChartExample
  */
@@ -118,7 +122,7 @@ public final class BsbRasterData
         return _colorModel;
     }
 
-    private static String extractAsciiHeader( DataInputStream stream ) throws IOException
+    static String extractAsciiHeader( DataInputStream stream ) throws IOException
     {
         StringBuilder builder = new StringBuilder( );
 
@@ -160,7 +164,7 @@ public final class BsbRasterData
         return results;
     }
 
-    private static int[] extractDimension( String header )
+    static int[] extractDimension( String header )
     {
         Vector<Pair<String, String>> allTokenData = extractTokenData( header, "BSB" );
         String tokenData = allTokenData.get( 0 ).second( );
@@ -176,7 +180,7 @@ public final class BsbRasterData
         return new int[] { width_PIXELS, height_PIXELS };
     }
 
-    private static String extractImageName( String header )
+    static String extractImageName( String header )
     {
         Vector<Pair<String, String>> allTokenData = extractTokenData( header, "BSB" );
         String tokenData = allTokenData.get( 0 ).second( );
@@ -189,7 +193,7 @@ public final class BsbRasterData
         return imageName;
     }
 
-    private static Set<Pair<IntPoint2d, LatLonGeo>> extractRegistrationPoints( String header )
+    static Set<Pair<IntPoint2d, LatLonGeo>> extractRegistrationPoints( String header )
     {
         Set<Pair<IntPoint2d, LatLonGeo>> refPoints = new HashSet<Pair<IntPoint2d, LatLonGeo>>( );
 
@@ -211,7 +215,7 @@ public final class BsbRasterData
         return refPoints;
     }
 
-    private static IndexColorModel extractColorModel( String header )
+    static IndexColorModel extractColorModel( String header )
     {
         Vector<Pair<String, String>> allTokenData = extractTokenData( header, "DAY" );
 
@@ -279,7 +283,7 @@ public final class BsbRasterData
         }
     }
 
-    private static int readRowNumber( DataInputStream stream ) throws IOException
+    static int readRowNumber( DataInputStream stream ) throws IOException
     {
         int nextByte;
         int lineNumber = 0;
@@ -293,7 +297,7 @@ public final class BsbRasterData
         return lineNumber;
     }
 
-    private double distance( double x1, double y1, double x2, double y2 )
+    private static double distance( double x1, double y1, double x2, double y2 )
     {
         double dx = x1 - x2;
         double dy = y1 - y2;
@@ -354,13 +358,21 @@ public final class BsbRasterData
 
     public FlatProjection getProjection( MercatorProjection projection )
     {
-        if ( _registrationPoints == null || _registrationPoints.isEmpty( ) ) return null;
+        return getProjection( _registrationPoints, _width_PIXELS, _height_PIXELS, projection );
+    }
+
+    /**
+     * Estimates the extent of an image in the given projection, from two of its registration points.
+     */
+    static FlatProjection getProjection( Set<Pair<IntPoint2d, LatLonGeo>> registrationPoints, int width_PIXELS, int height_PIXELS, MercatorProjection projection )
+    {
+        if ( registrationPoints == null || registrationPoints.isEmpty( ) ) return null;
 
-        Pair<IntPoint2d, LatLonGeo> point1 = _registrationPoints.iterator( ).next( );
+        Pair<IntPoint2d, LatLonGeo> point1 = registrationPoints.iterator( ).next( );
         Pair<IntPoint2d, LatLonGeo> point2 = null;
         double maxDistance = Double.NEGATIVE_INFINITY;
 
-        for ( Pair<IntPoint2d, LatLonGeo> pair : _registrationPoints )
+        for ( Pair<IntPoint2d, LatLonGeo> pair : registrationPoints )
         {
             if ( pair.first( ).x != point1.first( ).x && pair.first( ).y != point1.first( ).y )
             {
@@ -397,9 +409,9 @@ public final class BsbRasterData
         double pixelToProjY = pixelDiffY / projDiffY;
 
         double minX = projected1.getX( ) - x1 / pixelToProjX;
-        double maxX = projected1.getX( ) + ( _width_PIXELS - x1 ) / pixelToProjX;
+        double maxX = projected1.getX( ) + ( width_PIXELS - x1 ) / pixelToProjX;
         double minY = projected1.getY( ) + y1 / pixelToProjY;
-        double maxY = projected1.getY( ) - ( _height_PIXELS - y1 ) / pixelToProjY;
+        double maxY = projected1.getY( ) - ( height_PIXELS - y1 ) / pixelToProjY;
 
         return new FlatProjection( minX, maxX, minY, maxY );
     }
@@ -441,6 +453,11 @@ public final class BsbRasterData
     }
 
     public final ColorTexture1D getColorTexture( )
+    {
+        return newColorTexture( _colorModel );
+    }
+
+    static ColorTexture1D newColorTexture( final IndexColorModel colorModel )
     {
         ColorTexture1D texture = new ColorTexture1D( 16 );
 
@@ -451,10 +468,10 @@ public final class BsbRasterData
             {
                 for ( int i = 0; i < dim; i++ )
                 {
-                    floatBuffer.put( _colorModel.getRed( i ) / 255.0f );
-                    floatBuffer.put( _colorModel.getGreen( i ) / 255.0f );
-                    floatBuffer.put( _colorModel.getBlue( i ) / 255.0f );
-                    floatBuffer.put( _colorModel.getAlpha( i ) / 255.0f );
+                    floatBuffer.put( colorModel.getRed( i ) / 255.0f );
+                    floatBuffer.put( colorModel.getGreen( i ) / 255.0f );
+                    floatBuffer.put( colorModel.getBlue( i ) / 255.0f );
+                    floatBuffer.put( colorModel.getAlpha( i ) / 255.0f );
                 }
             }
         } );
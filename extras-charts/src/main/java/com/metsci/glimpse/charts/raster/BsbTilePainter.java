@@ -0,0 +1,390 @@
+/*
+ * Copyright (c) 2016 Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.charts.raster;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.metsci.glimpse.axis.Axis2D;
+import com.metsci.glimpse.context.GlimpseContext;
+import com.metsci.glimpse.gl.texture.ColorTexture1D;
+import com.metsci.glimpse.gl.util.GLUtils;
+import com.metsci.glimpse.painter.base.GlimpsePainterBase;
+import com.metsci.glimpse.painter.texture.ShadedTexturePainter;
+import com.metsci.glimpse.support.projection.FlatProjection;
+import com.metsci.glimpse.support.texture.ByteTextureProjected2D;
+import com.metsci.glimpse.support.texture.ByteTextureProjected2D.MutatorByte2D;
+
+/**
+ * Paints a {@link BsbTiledRaster}, keeping only the tiles that cover the visible area,
+ * at the pyramid level that best matches the current zoom, resident on the GPU.<p>
+ *
+ * Tiles are decoded on the given executor. Tiles from a previous level stay on screen
+ * (underneath) until every visible tile of the new level has arrived, so zooming does
+ * not flash blank areas. The pyramid itself is built on the executor when the painter
+ * is created.<p>
+ *
+ * Each tile is a {@link ByteTextureProjected2D} of palette indices; the palette is a
+ * single {@link ColorTexture1D}, shared by all tiles, bound to texture unit 1. The
+ * program must be set by the caller, e.g. to a
+ * {@link com.metsci.glimpse.support.shader.colormap.ColorMapIntegerProgram}.
+ */
+public class BsbTilePainter extends ShadedTexturePainter
+{
+    private static final Logger logger = Logger.getLogger( BsbTilePainter.class.getName( ) );
+
+    protected final BsbTiledRaster raster;
+    protected final FlatProjection chartProjection;
+    protected final ExecutorService exec;
+    protected final ColorTexture1D colorTexture;
+
+    // Guarded by painterLock
+    protected final Map<TileKey, ByteTextureProjected2D> residentTiles;
+    protected final Set<TileKey> pendingTiles;
+    protected final List<ByteTextureProjected2D> evictedTiles;
+    protected int currentLevel;
+    protected int[] currentTileRange;
+
+    public BsbTilePainter( BsbTiledRaster raster, FlatProjection chartProjection, ExecutorService exec )
+    {
+        this.raster = raster;
+        this.chartProjection = chartProjection;
+        this.exec = exec;
+        this.colorTexture = raster.getColorTexture( );
+
+        this.residentTiles = new HashMap<>( );
+        this.pendingTiles = new HashSet<>( );
+        this.evictedTiles = new ArrayList<>( );
+        this.currentLevel = -1;
+        this.currentTileRange = null;
+
+        this.addNonDrawableTexture( colorTexture, DEFAULT_NONDRAWABLE_TEXTURE_UNIT );
+
+        exec.submit( new Runnable( )
+        {
+            @Override
+            public void run( )
+            {
+                try
+                {
+                    BsbTilePainter.this.raster.buildPyramid( );
+                }
+                catch ( Exception e )
+                {
+                    logger.log( Level.WARNING, "Exception while building BSB pyramid", e );
+                }
+            }
+        } );
+    }
+
+    public ColorTexture1D getColorTexture( )
+    {
+        return colorTexture;
+    }
+
+    @Override
+    public void doPaintTo( GlimpseContext context )
+    {
+        updateTiles( GlimpsePainterBase.getAxis2D( context ) );
+
+        for ( ByteTextureProjected2D texture : evictedTiles )
+        {
+            texture.dispose( context.getGLContext( ) );
+        }
+        evictedTiles.clear( );
+
+        // Coarser levels first, so that finer tiles draw on top of them
+        List<Entry<TileKey, ByteTextureProjected2D>> tiles = new ArrayList<>( residentTiles.entrySet( ) );
+        Collections.sort( tiles, coarsestFirst );
+
+        GLUtils.enableStandardBlending( context.getGL( ) );
+        try
+        {
+            for ( Entry<TileKey, ByteTextureProjected2D> tile : tiles )
+            {
+                tile.getValue( ).draw( context, program, DEFAULT_DRAWABLE_TEXTURE_UNIT, nonDrawableTextures );
+            }
+        }
+        finally
+        {
+            GLUtils.disableBlending( context.getGL( ) );
+        }
+    }
+
+    protected static final Comparator<Entry<TileKey, ByteTextureProjected2D>> coarsestFirst = new Comparator<Entry<TileKey, ByteTextureProjected2D>>( )
+    {
+        @Override
+        public int compare( Entry<TileKey, ByteTextureProjected2D> a, Entry<TileKey, ByteTextureProjected2D> b )
+        {
+            return Integer.compare( b.getKey( ).level, a.getKey( ).level );
+        }
+    };
+
+    protected void updateTiles( Axis2D axis )
+    {
+        int xPix = axis.getAxisX( ).getSizePixels( );
+        if ( !isVisible( ) || xPix <= 0 )
+        {
+            return;
+        }
+
+        double chartMinX = chartProjection.getMinX( );
+        double chartMaxX = chartProjection.getMaxX( );
+        double chartMinY = chartProjection.getMinY( );
+        double chartMaxY = chartProjection.getMaxY( );
+
+        // Pick the coarsest level that still has at least one image pixel per screen pixel
+        double imagePixelsPerScreenPixel = ( axis.getMaxX( ) - axis.getMinX( ) ) / Math.abs( chartMaxX - chartMinX ) * raster.getWidth( ) / xPix;
+        int level = ( int ) Math.floor( Math.log( imagePixelsPerScreenPixel ) / Math.log( 2 ) );
+        level = Math.max( 0, Math.min( raster.getLevelCount( ) - 1, level ) );
+
+        // Visible range in full-resolution image pixels; image rows increase from chartMinY toward chartMaxY
+        double colA = ( axis.getMinX( ) - chartMinX ) / ( chartMaxX - chartMinX ) * raster.getWidth( );
+        double colB = ( axis.getMaxX( ) - chartMinX ) / ( chartMaxX - chartMinX ) * raster.getWidth( );
+        double rowA = ( axis.getMinY( ) - chartMinY ) / ( chartMaxY - chartMinY ) * raster.getHeight( );
+        double rowB = ( axis.getMaxY( ) - chartMinY ) / ( chartMaxY - chartMinY ) * raster.getHeight( );
+
+        double levelTileSize = ( double ) raster.getTileSize( ) * ( 1 << level );
+        int tileXmin = Math.max( 0, ( int ) Math.floor( Math.min( colA, colB ) / levelTileSize ) );
+        int tileXmax = Math.min( raster.tileCountX( level ), ( int ) Math.ceil( Math.max( colA, colB ) / levelTileSize ) );
+        int tileYmin = Math.max( 0, ( int ) Math.floor( Math.min( rowA, rowB ) / levelTileSize ) );
+        int tileYmax = Math.min( raster.tileCountY( level ), ( int ) Math.ceil( Math.max( rowA, rowB ) / levelTileSize ) );
+        int[] tileRange = new int[] { tileXmin, tileXmax, tileYmin, tileYmax };
+
+        painterLock.lock( );
+        try
+        {
+            this.currentLevel = level;
+            this.currentTileRange = tileRange;
+
+            boolean allResident = true;
+            for ( int y = tileYmin; y < tileYmax; y++ )
+            {
+                for ( int x = tileXmin; x < tileXmax; x++ )
+                {
+                    TileKey key = new TileKey( level, x, y );
+                    if ( residentTiles.containsKey( key ) ) continue;
+
+                    allResident = false;
+                    if ( pendingTiles.add( key ) )
+                    {
+                        exec.submit( new FetchTile( key ) );
+                    }
+                }
+            }
+
+            // Drop tiles that are off screen; drop other levels once the current level is complete
+            Iterator<Entry<TileKey, ByteTextureProjected2D>> itr = residentTiles.entrySet( ).iterator( );
+            while ( itr.hasNext( ) )
+            {
+                Entry<TileKey, ByteTextureProjected2D> entry = itr.next( );
+                TileKey key = entry.getKey( );
+                if ( !isInView( key ) || ( allResident && key.level != level ) )
+                {
+                    itr.remove( );
+                    evictedTiles.add( entry.getValue( ) );
+                }
+            }
+        }
+        finally
+        {
+            painterLock.unlock( );
+        }
+    }
+
+    /**
+     * Whether any part of the tile is within the current visible range. Must be called with painterLock held.
+     */
+    protected boolean isInView( TileKey key )
+    {
+        if ( currentTileRange == null ) return false;
+
+        double scale = Math.pow( 2, key.level - currentLevel );
+        int[] r = currentTileRange;
+        return ( key.x + 1 ) * scale > r[0] && key.x * scale < r[1] && ( key.y + 1 ) * scale > r[2] && key.y * scale < r[3];
+    }
+
+    protected ByteTextureProjected2D newTileTexture( TileKey key, final byte[] pixels )
+    {
+        final int tileWidth = raster.tileWidth( key.level, key.x );
+        final int tileHeight = raster.tileHeight( key.level, key.y );
+
+        ByteTextureProjected2D texture = new ByteTextureProjected2D( tileWidth, tileHeight );
+        texture.mutate( new MutatorByte2D( )
+        {
+            @Override
+            public void mutate( ByteBuffer data, int dataSizeX, int dataSizeY )
+            {
+                data.put( pixels, 0, dataSizeX * dataSizeY );
+            }
+        } );
+
+        // Tile extent in full-resolution pixels, then in chart coordinates
+        int levelScale = 1 << key.level;
+        double colFirst = key.x * raster.getTileSize( ) * levelScale;
+        double colEnd = Math.min( raster.getWidth( ), colFirst + tileWidth * levelScale );
+        double rowFirst = key.y * raster.getTileSize( ) * levelScale;
+        double rowEnd = Math.min( raster.getHeight( ), rowFirst + tileHeight * levelScale );
+
+        double chartMinX = chartProjection.getMinX( );
+        double chartSizeX = chartProjection.getMaxX( ) - chartMinX;
+        double chartMinY = chartProjection.getMinY( );
+        double chartSizeY = chartProjection.getMaxY( ) - chartMinY;
+
+        texture.setProjection( new FlatProjection( chartMinX + chartSizeX * colFirst / raster.getWidth( ),
+                                                   chartMinX + chartSizeX * colEnd / raster.getWidth( ),
+                                                   chartMinY + chartSizeY * rowFirst / raster.getHeight( ),
+                                                   chartMinY + chartSizeY * rowEnd / raster.getHeight( ) ) );
+
+        return texture;
+    }
+
+    @Override
+    public void doDispose( GlimpseContext context )
+    {
+        for ( ByteTextureProjected2D texture : residentTiles.values( ) )
+        {
+            texture.dispose( context.getGLContext( ) );
+        }
+        residentTiles.clear( );
+
+        for ( ByteTextureProjected2D texture : evictedTiles )
+        {
+            texture.dispose( context.getGLContext( ) );
+        }
+        evictedTiles.clear( );
+
+        colorTexture.dispose( context.getGLContext( ) );
+
+        super.doDispose( context );
+    }
+
+    protected static class TileKey
+    {
+        public final int level;
+        public final int x;
+        public final int y;
+
+        public TileKey( int level, int x, int y )
+        {
+            this.level = level;
+            this.x = x;
+            this.y = y;
+        }
+
+        @Override
+        public int hashCode( )
+        {
+            return Objects.hash( level, x, y );
+        }
+
+        @Override
+        public boolean equals( Object o )
+        {
+            if ( o == this ) return true;
+            if ( o == null || o.getClass( ) != getClass( ) ) return false;
+
+            TileKey other = ( TileKey ) o;
+            return ( other.level == level && other.x == x && other.y == y );
+        }
+    }
+
+    protected class FetchTile implements Runnable
+    {
+        protected final TileKey key;
+
+        public FetchTile( TileKey key )
+        {
+            this.key = key;
+        }
+
+        @Override
+        public void run( )
+        {
+            try
+            {
+                // Skip the decode if the view has moved on since this was queued
+                painterLock.lock( );
+                try
+                {
+                    if ( key.level != currentLevel || !isInView( key ) )
+                    {
+                        pendingTiles.remove( key );
+                        return;
+                    }
+                }
+                finally
+                {
+                    painterLock.unlock( );
+                }
+
+                ByteTextureProjected2D texture = newTileTexture( key, raster.readTile( key.level, key.x, key.y ) );
+
+                painterLock.lock( );
+                try
+                {
+                    pendingTiles.remove( key );
+                    if ( key.level == currentLevel && isInView( key ) )
+                    {
+                        residentTiles.put( key, texture );
+                    }
+                }
+                finally
+                {
+                    painterLock.unlock( );
+                }
+            }
+            catch ( Exception e )
+            {
+                logger.log( Level.WARNING, "Exception in BSB tile decoding thread", e );
+
+                painterLock.lock( );
+                try
+                {
+                    pendingTiles.remove( key );
+                }
+                finally
+                {
+                    painterLock.unlock( );
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,441 @@
+/*
+ * Copyright (c) 2016 Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.charts.raster;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+
+import java.awt.image.IndexColorModel;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.logging.Logger;
+
+import com.metsci.glimpse.gl.texture.ColorTexture1D;
+import com.metsci.glimpse.support.projection.FlatProjection;
+import com.metsci.glimpse.util.Pair;
+import com.metsci.glimpse.util.geo.LatLonGeo;
+import com.metsci.glimpse.util.geo.projection.MercatorProjection;
+
+/**
+ * Random-access reader for a BSB/KAP raster chart, which decodes rectangular tiles on demand
+ * instead of decoding the whole image up front.<p>
+ *
+ * The file is memory-mapped, and the byte offset of each image row is indexed when the
+ * raster is opened -- from the row index table at the end of the file if it is present
+ * and valid, otherwise by scanning the RLE data once. Decoding a tile then touches only
+ * the rows it covers.<p>
+ *
+ * Level 0 is the full-resolution image. Level N is subsampled by a factor of 2^N in each
+ * direction. Pixels are palette indices, so they are subsampled by picking (not averaging)
+ * pixels. Levels 1 and up can be precomputed into memory by {@link #buildPyramid( )},
+ * typically on a background thread; until a level is built, its tiles are decoded from the
+ * file like level 0 tiles. The pyramid takes about a third as much memory as the full image.<p>
+ *
+ * Instances are safe to use from multiple threads.
+ *
+ * @see BsbTilePainter
+ */
+public class BsbTiledRaster
+{
+    private static final Logger logger = Logger.getLogger( BsbTiledRaster.class.getName( ) );
+
+    protected final String imageName;
+    protected final String header;
+    protected final IndexColorModel colorModel;
+    protected final Set<Pair<IntPoint2d, LatLonGeo>> registrationPoints;
+
+    protected final int width_PIXELS;
+    protected final int height_PIXELS;
+    protected final int colorDepth;
+
+    protected final MappedByteBuffer mapped;
+    protected final int[] rowOffsets;
+
+    protected final int tileSize;
+    protected final int levelCount;
+    protected final AtomicReferenceArray<byte[]> pyramid;
+
+    protected BsbTiledRaster( File file, int tileSize ) throws IOException
+    {
+        RandomAccessFile raf = null;
+        try
+        {
+            raf = new RandomAccessFile( file, "r" );
+            if ( raf.length( ) > Integer.MAX_VALUE ) throw new IOException( "BSB file is too large: " + file );
+            this.mapped = raf.getChannel( ).map( READ_ONLY, 0, raf.length( ) );
+        }
+        finally
+        {
+            if ( raf != null ) raf.close( );
+        }
+
+        // The header is small, so parse it with the same code as BsbRasterData
+        DataInputStream headerStream = new DataInputStream( new ByteArrayInputStream( headerBytes( mapped ) ) );
+        this.header = BsbRasterData.extractAsciiHeader( headerStream );
+        int[] dim = BsbRasterData.extractDimension( header );
+
+        this.imageName = BsbRasterData.extractImageName( header );
+        this.colorModel = BsbRasterData.extractColorModel( header );
+        this.registrationPoints = BsbRasterData.extractRegistrationPoints( header );
+        this.width_PIXELS = dim[0];
+        this.height_PIXELS = dim[1];
+
+        int colorDepthOffset = header.length( );
+        this.colorDepth = mapped.get( colorDepthOffset );
+        this.rowOffsets = indexRows( mapped, colorDepthOffset + 1, height_PIXELS );
+
+        this.tileSize = tileSize;
+        this.levelCount = levelCount( width_PIXELS, height_PIXELS, tileSize );
+        this.pyramid = new AtomicReferenceArray<>( levelCount );
+    }
+
+    /**
+     * Opens and indexes the given BSB/KAP file. The image data itself is not decoded.
+     */
+    public static BsbTiledRaster open( File file, int tileSize ) throws IOException
+    {
+        return new BsbTiledRaster( file, tileSize );
+    }
+
+    public static BsbTiledRaster open( File file ) throws IOException
+    {
+        return open( file, 512 );
+    }
+
+    protected static byte[] headerBytes( MappedByteBuffer mapped ) throws IOException
+    {
+        for ( int i = 1; i < mapped.limit( ); i++ )
+        {
+            if ( mapped.get( i - 1 ) == 26 && mapped.get( i ) == 0 )
+            {
+                byte[] bytes = new byte[i + 1];
+                for ( int j = 0; j <= i; j++ )
+                {
+                    bytes[j] = mapped.get( j );
+                }
+                return bytes;
+            }
+        }
+
+        throw new IOException( "BSB header terminator not found" );
+    }
+
+    protected static int levelCount( int width, int height, int tileSize )
+    {
+        int levelCount = 1;
+        while ( ( Math.max( width, height ) >> ( levelCount - 1 ) ) > tileSize )
+        {
+            levelCount++;
+        }
+        return levelCount;
+    }
+
+    /**
+     * Returns the byte offset of each row's record (starting with its row number), using the
+     * index table at the end of the file if it is usable, and scanning the data otherwise.
+     */
+    protected static int[] indexRows( MappedByteBuffer mapped, int dataStart, int rowCount ) throws IOException
+    {
+        int[] offsets = readRowIndexTable( mapped, dataStart, rowCount );
+        if ( offsets != null ) return offsets;
+
+        logger.fine( "BSB row index table missing or invalid; scanning image data" );
+
+        offsets = new int[rowCount];
+        int p = dataStart;
+        for ( int row = 0; row < rowCount; row++ )
+        {
+            offsets[row] = p;
+
+            // Skip the row number
+            while ( ( mapped.get( p++ ) & 0x80 ) != 0 );
+
+            // Skip runs until the zero terminator -- continuation bytes may be zero, so parse each run
+            int b;
+            while ( ( b = mapped.get( p++ ) ) != 0 )
+            {
+                while ( ( b & 0x80 ) != 0 )
+                {
+                    b = mapped.get( p++ );
+                }
+            }
+        }
+        return offsets;
+    }
+
+    protected static int[] readRowIndexTable( MappedByteBuffer mapped, int dataStart, int rowCount )
+    {
+        int size = mapped.limit( );
+        if ( size < dataStart + 4 * ( rowCount + 1 ) ) return null;
+
+        // Table is big-endian, and its own offset is stored in the last 4 bytes of the file
+        mapped.order( ByteOrder.BIG_ENDIAN );
+        int tableOffset = mapped.getInt( size - 4 );
+        if ( tableOffset < dataStart || tableOffset + 4 * rowCount > size - 4 ) return null;
+
+        int[] offsets = new int[rowCount];
+        int prev = dataStart - 1;
+        for ( int row = 0; row < rowCount; row++ )
+        {
+            int offset = mapped.getInt( tableOffset + 4 * row );
+            if ( offset <= prev || offset >= tableOffset ) return null;
+            offsets[row] = offset;
+            prev = offset;
+        }
+
+        // Row numbers are 1-based in the files seen in practice, but accept 0-based too
+        int firstRowNumber = readRowNumber( mapped, offsets[0] );
+        if ( firstRowNumber != 0 && firstRowNumber != 1 ) return null;
+
+        return offsets;
+    }
+
+    protected static int readRowNumber( MappedByteBuffer mapped, int p )
+    {
+        int b;
+        int rowNumber = 0;
+        do
+        {
+            b = mapped.get( p++ ) & 0xff;
+            rowNumber = rowNumber * 128 + ( b & 0x7f );
+        }
+        while ( ( b & 0x80 ) != 0 );
+        return rowNumber;
+    }
+
+    /**
+     * Decodes one full-resolution row, writing every {@code colStride}-th pixel in
+     * [colFirst, colFirst + colCount * colStride) to {@code out}, starting at {@code outFirst}.
+     * Stops reading RLE data as soon as the requested span has been covered.
+     */
+    protected void decodeRow( int row, int colFirst, int colCount, int colStride, byte[] out, int outFirst )
+    {
+        int colorShift = 7 - colorDepth;
+        int colorMask = ( ( 1 << colorDepth ) - 1 ) << colorShift;
+        int countMask = ( 1 << colorShift ) - 1;
+
+        int colEnd = colFirst + colCount * colStride;
+        int nextCol = colFirst;
+        int outIndex = outFirst;
+
+        int p = rowOffsets[row];
+        while ( ( mapped.get( p++ ) & 0x80 ) != 0 );
+
+        int runFirst = 0;
+        int b;
+        while ( nextCol < colEnd && ( b = mapped.get( p++ ) & 0xff ) != 0 )
+        {
+            byte colorValue = ( byte ) ( ( b & colorMask ) >> colorShift );
+            int runLength = ( b & countMask );
+            while ( ( b & 0x80 ) != 0 )
+            {
+                b = mapped.get( p++ ) & 0xff;
+                runLength = runLength * 128 + ( b & 0x7f );
+            }
+
+            int runEnd = Math.min( runFirst + runLength + 1, width_PIXELS );
+            while ( nextCol < colEnd && nextCol < runEnd )
+            {
+                out[outIndex++] = colorValue;
+                nextCol += colStride;
+            }
+            runFirst = runEnd;
+        }
+    }
+
+    /**
+     * Decodes every pyramid level above level 0 into memory, in one sequential pass over the
+     * file. Tiles requested while this runs are decoded from the file. Calling this more than
+     * once has no further effect.
+     */
+    public void buildPyramid( )
+    {
+        if ( levelCount < 2 || pyramid.get( levelCount - 1 ) != null ) return;
+
+        int width1 = levelWidth( 1 );
+        int height1 = levelHeight( 1 );
+        byte[] level1 = new byte[width1 * height1];
+        for ( int y = 0; y < height1; y++ )
+        {
+            decodeRow( 2 * y, 0, width1, 2, level1, y * width1 );
+        }
+        pyramid.set( 1, level1 );
+
+        for ( int level = 2; level < levelCount; level++ )
+        {
+            byte[] finer = pyramid.get( level - 1 );
+            int finerWidth = levelWidth( level - 1 );
+
+            int width = levelWidth( level );
+            int height = levelHeight( level );
+            byte[] coarser = new byte[width * height];
+            for ( int y = 0; y < height; y++ )
+            {
+                int finerRowFirst = 2 * y * finerWidth;
+                for ( int x = 0; x < width; x++ )
+                {
+                    coarser[y * width + x] = finer[finerRowFirst + 2 * x];
+                }
+            }
+            pyramid.set( level, coarser );
+        }
+    }
+
+    public boolean isPyramidBuilt( )
+    {
+        return levelCount < 2 || pyramid.get( levelCount - 1 ) != null;
+    }
+
+    /**
+     * Returns the pixels of the given tile, row-major, with row 0 at the top of the image.
+     * Tiles on the right and bottom edges are narrower or shorter than {@link #getTileSize( )};
+     * use {@link #tileWidth(int, int)} and {@link #tileHeight(int, int)} for their dimensions.
+     */
+    public byte[] readTile( int level, int tileX, int tileY )
+    {
+        int colFirst = tileX * tileSize;
+        int rowFirst = tileY * tileSize;
+        int tileWidth = tileWidth( level, tileX );
+        int tileHeight = tileHeight( level, tileY );
+
+        byte[] tile = new byte[tileWidth * tileHeight];
+
+        byte[] levelData = pyramid.get( level );
+        if ( levelData != null )
+        {
+            int levelWidth = levelWidth( level );
+            for ( int y = 0; y < tileHeight; y++ )
+            {
+                System.arraycopy( levelData, ( rowFirst + y ) * levelWidth + colFirst, tile, y * tileWidth, tileWidth );
+            }
+        }
+        else
+        {
+            int stride = 1 << level;
+            for ( int y = 0; y < tileHeight; y++ )
+            {
+                decodeRow( ( rowFirst + y ) * stride, colFirst * stride, tileWidth, stride, tile, y * tileWidth );
+            }
+        }
+
+        return tile;
+    }
+
+    public int levelWidth( int level )
+    {
+        return ceilDiv( width_PIXELS, 1 << level );
+    }
+
+    public int levelHeight( int level )
+    {
+        return ceilDiv( height_PIXELS, 1 << level );
+    }
+
+    public int tileCountX( int level )
+    {
+        return ceilDiv( levelWidth( level ), tileSize );
+    }
+
+    public int tileCountY( int level )
+    {
+        return ceilDiv( levelHeight( level ), tileSize );
+    }
+
+    public int tileWidth( int level, int tileX )
+    {
+        return Math.min( tileSize, levelWidth( level ) - tileX * tileSize );
+    }
+
+    public int tileHeight( int level, int tileY )
+    {
+        return Math.min( tileSize, levelHeight( level ) - tileY * tileSize );
+    }
+
+    protected static int ceilDiv( int a, int b )
+    {
+        return ( a + b - 1 ) / b;
+    }
+
+    public FlatProjection getProjection( MercatorProjection projection )
+    {
+        return BsbRasterData.getProjection( registrationPoints, width_PIXELS, height_PIXELS, projection );
+    }
+
+    /**
+     * The palette is shared by all tiles at all levels.
+     */
+    public ColorTexture1D getColorTexture( )
+    {
+        return BsbRasterData.newColorTexture( colorModel );
+    }
+
+    public IndexColorModel getColorModel( )
+    {
+        return colorModel;
+    }
+
+    public String getName( )
+    {
+        return imageName;
+    }
+
+    public String getHeader( )
+    {
+        return header;
+    }
+
+    public Set<Pair<IntPoint2d, LatLonGeo>> getRegistrationPoints( )
+    {
+        return registrationPoints;
+    }
+
+    public int getWidth( )
+    {
+        return width_PIXELS;
+    }
+
+    public int getHeight( )
+    {
+        return height_PIXELS;
+    }
+
+    public int getTileSize( )
+    {
+        return tileSize;
+    }
+
+    public int getLevelCount( )
+    {
+        return levelCount;
+    }
+}
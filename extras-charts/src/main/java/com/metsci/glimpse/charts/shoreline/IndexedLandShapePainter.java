@@ -0,0 +1,310 @@
+/*
+ * Copyright (c) 2016 Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.charts.shoreline;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.metsci.glimpse.axis.Axis2D;
+import com.metsci.glimpse.context.GlimpseContext;
+import com.metsci.glimpse.support.polygon.Polygon;
+import com.metsci.glimpse.support.polygon.Polygon.Interior;
+import com.metsci.glimpse.support.polygon.Polygon.Loop.LoopBuilder;
+import com.metsci.glimpse.util.geo.LatLonGeo;
+import com.metsci.glimpse.util.geo.projection.GeoProjection;
+
+/**
+ * Paints the polygons of a {@link ShorelineStore} that intersect the view, at the simplification
+ * level matching the current zoom. Polygons are loaded, projected, and tessellated on the given
+ * executor as the view changes, and unloaded when they leave the view. When the level changes, the
+ * polygons at the new level are added before those at the old level are removed, so the coastline
+ * never blinks out.<p>
+ *
+ * By default only land (GSHHS level 1) polygons are painted; see {@link #setMaxPolygonLevel(int)}.
+ */
+public class IndexedLandShapePainter extends LandShapePainter
+{
+    private static final Logger logger = Logger.getLogger( IndexedLandShapePainter.class.getName( ) );
+
+    protected final ShorelineStore store;
+    protected final GeoProjection geoProjection;
+    protected final ExecutorService exec;
+
+    protected volatile int maxPolygonLevel = 1;
+
+    protected final AtomicReference<double[]> pendingView;
+    protected final AtomicBoolean updateScheduled;
+    protected double[] lastView;
+
+    // Guarded by itself; the update task never runs concurrently with itself
+    protected final Set<StorePolygonKey> loaded;
+
+    public IndexedLandShapePainter( ShorelineStore store, GeoProjection geoProjection, ExecutorService exec )
+    {
+        this.store = store;
+        this.geoProjection = geoProjection;
+        this.exec = exec;
+
+        this.pendingView = new AtomicReference<>( );
+        this.updateScheduled = new AtomicBoolean( false );
+        this.lastView = null;
+        this.loaded = new HashSet<>( );
+    }
+
+    /**
+     * Sets the highest GSHHS level to paint: 1 for land only, 2 to include lakes, etc.
+     */
+    public void setMaxPolygonLevel( int maxPolygonLevel )
+    {
+        this.maxPolygonLevel = maxPolygonLevel;
+        this.lastView = null;
+    }
+
+    @Override
+    public void deleteAll( )
+    {
+        synchronized ( loaded )
+        {
+            super.deleteAll( );
+            loaded.clear( );
+            lastView = null;
+        }
+    }
+
+    @Override
+    public void doPaintTo( GlimpseContext context )
+    {
+        Axis2D axis = getAxis2D( context );
+        double[] view = new double[] { axis.getMinX( ), axis.getMaxX( ), axis.getMinY( ), axis.getMaxY( ), axis.getAxisX( ).getSizePixels( ), maxPolygonLevel };
+        if ( !Arrays.equals( view, lastView ) && view[4] > 0 )
+        {
+            this.lastView = view;
+            pendingView.set( view );
+            if ( updateScheduled.compareAndSet( false, true ) )
+            {
+                exec.submit( new UpdateTask( ) );
+            }
+        }
+
+        super.doPaintTo( context );
+    }
+
+    protected class UpdateTask implements Runnable
+    {
+        @Override
+        public void run( )
+        {
+            while ( true )
+            {
+                // Only the most recent view matters; intermediate views are skipped
+                double[] view = pendingView.getAndSet( null );
+                if ( view == null )
+                {
+                    updateScheduled.set( false );
+
+                    // A view may have arrived after the getAndSet, but before the flag was cleared
+                    if ( pendingView.get( ) != null && updateScheduled.compareAndSet( false, true ) ) continue;
+                    return;
+                }
+
+                try
+                {
+                    updatePolygons( view );
+                }
+                catch ( Exception e )
+                {
+                    logger.log( Level.WARNING, "Exception while updating shoreline polygons", e );
+                }
+            }
+        }
+    }
+
+    protected void updatePolygons( double[] view )
+    {
+        synchronized ( loaded )
+        {
+            updatePolygons0( view );
+        }
+    }
+
+    protected void updatePolygons0( double[] view )
+    {
+        double minX = view[0], maxX = view[1], minY = view[2], maxY = view[3];
+        double pixelsX = view[4];
+        int maxPolygonLevel = ( int ) view[5];
+
+        // Lat/lon extent of the view, sampled on a grid since the projection may be curved. Lons are
+        // unwrapped relative to the view center, so a view across the antimeridian gets a narrow range
+        // that extends past 180 (or -180), rather than one that spans the whole world.
+        int samples = 5;
+        double centerLon = geoProjection.unproject( 0.5 * ( minX + maxX ), 0.5 * ( minY + maxY ) ).getLonDeg( );
+        double south = Double.POSITIVE_INFINITY, north = Double.NEGATIVE_INFINITY;
+        double west = Double.POSITIVE_INFINITY, east = Double.NEGATIVE_INFINITY;
+        for ( int i = 0; i < samples; i++ )
+        {
+            for ( int j = 0; j < samples; j++ )
+            {
+                double x = minX + ( maxX - minX ) * i / ( samples - 1 );
+                double y = minY + ( maxY - minY ) * j / ( samples - 1 );
+                LatLonGeo latLon = geoProjection.unproject( x, y );
+                double lon = centerLon + normalizeLonDelta( latLon.getLonDeg( ) - centerLon );
+                south = Math.min( south, latLon.getLatDeg( ) );
+                north = Math.max( north, latLon.getLatDeg( ) );
+                west = Math.min( west, lon );
+                east = Math.max( east, lon );
+            }
+        }
+
+        int level = store.chooseLevel( ( east - west ) / pixelsX );
+
+        // Split the view at the antimeridian
+        double[][] lonRanges;
+        if ( east - west >= 360 )
+        {
+            lonRanges = new double[][] { { -180, 180 } };
+        }
+        else if ( east > 180 )
+        {
+            lonRanges = new double[][] { { west, 180 }, { -180, east - 360 } };
+        }
+        else if ( west < -180 )
+        {
+            lonRanges = new double[][] { { west + 360, 180 }, { -180, east } };
+        }
+        else
+        {
+            lonRanges = new double[][] { { west, east } };
+        }
+
+        // Stored lons are unnormalized (e.g. shifted by -360 to keep a polygon contiguous), so query wrapped copies of the view too
+        Set<StorePolygonKey> wanted = new HashSet<>( );
+        for ( double[] lonRange : lonRanges )
+        {
+            for ( double shift = -360; shift <= 360; shift += 360 )
+            {
+                List<Integer> polygons = store.query( south, north, lonRange[0] + shift, lonRange[1] + shift, level, maxPolygonLevel );
+                for ( int polygon : polygons )
+                {
+                    wanted.add( new StorePolygonKey( polygon, level ) );
+                }
+            }
+        }
+
+        // Load the new polygons first, so nothing disappears while they are being built
+        float[] latLon = new float[0];
+        double[] lat = new double[0];
+        double[] lon = new double[0];
+        double[] xy = new double[0];
+        for ( StorePolygonKey key : wanted )
+        {
+            if ( loaded.contains( key ) ) continue;
+
+            int vertexCount = store.getVertexCount( key.polygon, key.level );
+            if ( latLon.length < 2 * vertexCount )
+            {
+                latLon = new float[2 * vertexCount];
+                lat = new double[vertexCount];
+                lon = new double[vertexCount];
+                xy = new double[2 * vertexCount];
+            }
+            store.getVertices( key.polygon, key.level, latLon );
+
+            for ( int v = 0; v < vertexCount; v++ )
+            {
+                lat[v] = latLon[2 * v];
+                lon[v] = latLon[2 * v + 1];
+            }
+            geoProjection.project( lat, lon, 0, xy, 0, vertexCount );
+
+            LoopBuilder b = new LoopBuilder( );
+            b.addVertices( xy, vertexCount );
+            Polygon p = new Polygon( );
+            p.add( b.complete( Interior.onRight ) );
+
+            polygonPainter.addPolygon( LAND_GROUP_ID, key, Long.MIN_VALUE, Long.MAX_VALUE, p, 0.0f );
+            loaded.add( key );
+        }
+
+        // Then unload polygons that left the view, or were loaded at a different level
+        Iterator<StorePolygonKey> itr = loaded.iterator( );
+        while ( itr.hasNext( ) )
+        {
+            StorePolygonKey key = itr.next( );
+            if ( !wanted.contains( key ) )
+            {
+                polygonPainter.deletePolygon( LAND_GROUP_ID, key );
+                itr.remove( );
+            }
+        }
+    }
+
+    /**
+     * Wraps a lon difference into [-180,180).
+     */
+    protected static double normalizeLonDelta( double deltaDeg )
+    {
+        return deltaDeg - 360 * Math.floor( ( deltaDeg + 180 ) / 360 );
+    }
+
+    /**
+     * Distinguishes store polygons from polygons added through the {@link LandShapePainter} load methods.
+     */
+    protected static class StorePolygonKey
+    {
+        public final int polygon;
+        public final int level;
+
+        public StorePolygonKey( int polygon, int level )
+        {
+            this.polygon = polygon;
+            this.level = level;
+        }
+
+        @Override
+        public int hashCode( )
+        {
+            return 31 * polygon + level;
+        }
+
+        @Override
+        public boolean equals( Object o )
+        {
+            if ( o == this ) return true;
+            if ( o == null || o.getClass( ) != getClass( ) ) return false;
+            StorePolygonKey other = ( StorePolygonKey ) o;
+            return other.polygon == polygon && other.level == level;
+        }
+    }
+}
@@ -0,0 +1,629 @@
+/*
+ * Copyright (c) 2016 Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.charts.shoreline;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.metsci.glimpse.charts.shoreline.gshhs.GshhsPolygonHeader;
+import com.metsci.glimpse.charts.shoreline.gshhs.GshhsReader;
+import com.metsci.glimpse.util.Pair;
+
+/**
+ * A memory-mapped, indexed store of shoreline polygons, generated once from the output of
+ * {@link GshhsReader} or from a {@link LandShape} (e.g. from an NGDC file), so that a painter
+ * can load just the polygons intersecting the view, at a resolution matching the zoom.<p>
+ *
+ * Each polygon is stored with its lat/lon bounding box, its GSHHS level (1 for land, 2 for lakes,
+ * etc.; 1 for non-GSHHS sources), and a vertex range for each simplification level. Level 0 is
+ * the original polygon; level N is simplified (Douglas-Peucker, in degrees) to within
+ * {@link #getTolerance(int)}. At coarse levels, polygons smaller than the tolerance, or that
+ * simplify to fewer than 3 vertices, have no vertices at all.<p>
+ *
+ * The store also holds a coarse lat/lon grid, listing for each cell the polygons whose bounding
+ * boxes touch it, so that a query only looks at polygons near the query box.<p>
+ *
+ * File layout (big-endian):
+ * <pre>
+ *   int magic, int version, int polygonCount, int levelCount
+ *   double[levelCount] tolerances_DEG
+ *   polygonCount x { float south, north, west, east; int level; levelCount x { int vertexFirst, int vertexCount } }
+ *   double gridSouth, double gridWest, double gridCellSize, int gridRows, int gridCols
+ *   int[gridRows * gridCols + 1] cellStarts, int cellPolygonCount, int[cellPolygonCount] cellPolygons
+ *   vertices: { float lat, float lon } ...
+ * </pre>
+ */
+public class ShorelineStore
+{
+    public static final int MAGIC = 0x53484F52; // "SHOR"
+    public static final int VERSION = 2;
+
+    public static final double[] DEFAULT_TOLERANCES_DEG = { 0, 0.0005, 0.002, 0.008, 0.032, 0.128 };
+
+    // Upper bound on the number of grid cells, which is otherwise about one per polygon
+    public static final int MAX_GRID_CELLS = 1 << 16;
+
+    protected final int polygonCount;
+    protected final double[] tolerances_DEG;
+
+    // Bounding boxes and levels are small, so they are copied out of the file for fast queries
+    protected final float[] south;
+    protected final float[] north;
+    protected final float[] west;
+    protected final float[] east;
+    protected final int[] polygonLevels;
+
+    protected final int[] vertexFirsts;
+    protected final int[] vertexCounts;
+    protected final FloatBuffer vertices;
+
+    // The polygons whose boxes touch grid cell ( row * gridCols + col ) are
+    // cellPolygons[ cellStarts[cell] ] through cellPolygons[ cellStarts[cell + 1] - 1 ]
+    protected final double gridSouth;
+    protected final double gridWest;
+    protected final double gridCellSize;
+    protected final int gridRows;
+    protected final int gridCols;
+    protected final int[] cellStarts;
+    protected final int[] cellPolygons;
+
+    protected ShorelineStore( File file ) throws IOException
+    {
+        MappedByteBuffer mapped;
+        try ( RandomAccessFile raf = new RandomAccessFile( file, "r" ) )
+        {
+            mapped = raf.getChannel( ).map( READ_ONLY, 0, raf.length( ) );
+        }
+
+        if ( mapped.getInt( ) != MAGIC ) throw new IOException( "Not a shoreline store: " + file );
+        int version = mapped.getInt( );
+        if ( version != VERSION ) throw new IOException( "Unsupported shoreline store version: " + version );
+
+        this.polygonCount = mapped.getInt( );
+        int levelCount = mapped.getInt( );
+
+        this.tolerances_DEG = new double[levelCount];
+        for ( int level = 0; level < levelCount; level++ )
+        {
+            tolerances_DEG[level] = mapped.getDouble( );
+        }
+
+        this.south = new float[polygonCount];
+        this.north = new float[polygonCount];
+        this.west = new float[polygonCount];
+        this.east = new float[polygonCount];
+        this.polygonLevels = new int[polygonCount];
+        this.vertexFirsts = new int[polygonCount * levelCount];
+        this.vertexCounts = new int[polygonCount * levelCount];
+        for ( int p = 0; p < polygonCount; p++ )
+        {
+            south[p] = mapped.getFloat( );
+            north[p] = mapped.getFloat( );
+            west[p] = mapped.getFloat( );
+            east[p] = mapped.getFloat( );
+            polygonLevels[p] = mapped.getInt( );
+            for ( int level = 0; level < levelCount; level++ )
+            {
+                vertexFirsts[p * levelCount + level] = mapped.getInt( );
+                vertexCounts[p * levelCount + level] = mapped.getInt( );
+            }
+        }
+
+        this.gridSouth = mapped.getDouble( );
+        this.gridWest = mapped.getDouble( );
+        this.gridCellSize = mapped.getDouble( );
+        this.gridRows = mapped.getInt( );
+        this.gridCols = mapped.getInt( );
+        this.cellStarts = new int[gridRows * gridCols + 1];
+        mapped.asIntBuffer( ).get( cellStarts );
+        mapped.position( mapped.position( ) + 4 * cellStarts.length );
+        this.cellPolygons = new int[mapped.getInt( )];
+        mapped.asIntBuffer( ).get( cellPolygons );
+        mapped.position( mapped.position( ) + 4 * cellPolygons.length );
+
+        this.vertices = mapped.slice( ).asFloatBuffer( );
+    }
+
+    public static ShorelineStore open( File file ) throws IOException
+    {
+        return new ShorelineStore( file );
+    }
+
+    public int getPolygonCount( )
+    {
+        return polygonCount;
+    }
+
+    public int getLevelCount( )
+    {
+        return tolerances_DEG.length;
+    }
+
+    public double getTolerance( int level )
+    {
+        return tolerances_DEG[level];
+    }
+
+    /**
+     * Returns the coarsest level whose tolerance is no larger than the given size, e.g. the size of a screen pixel in degrees.
+     */
+    public int chooseLevel( double maxTolerance_DEG )
+    {
+        int chosen = 0;
+        for ( int level = 1; level < tolerances_DEG.length; level++ )
+        {
+            if ( tolerances_DEG[level] <= maxTolerance_DEG ) chosen = level;
+        }
+        return chosen;
+    }
+
+    /**
+     * Returns the indices of polygons whose bounding boxes intersect the given box, which have
+     * vertices at the given simplification level, and whose GSHHS level is at most {@code maxPolygonLevel}.
+     */
+    public List<Integer> query( double south_DEG, double north_DEG, double west_DEG, double east_DEG, int level, int maxPolygonLevel )
+    {
+        int levelCount = tolerances_DEG.length;
+        int row0 = gridIndex( south_DEG, gridSouth, gridCellSize, gridRows );
+        int row1 = gridIndex( north_DEG, gridSouth, gridCellSize, gridRows );
+        int col0 = gridIndex( west_DEG, gridWest, gridCellSize, gridCols );
+        int col1 = gridIndex( east_DEG, gridWest, gridCellSize, gridCols );
+
+        List<Integer> results = new ArrayList<>( );
+        for ( int row = row0; row <= row1; row++ )
+        {
+            for ( int col = col0; col <= col1; col++ )
+            {
+                int cell = row * gridCols + col;
+                for ( int k = cellStarts[cell]; k < cellStarts[cell + 1]; k++ )
+                {
+                    int p = cellPolygons[k];
+                    if ( north[p] < south_DEG || south[p] > north_DEG || east[p] < west_DEG || west[p] > east_DEG ) continue;
+                    if ( polygonLevels[p] > maxPolygonLevel ) continue;
+                    if ( vertexCounts[p * levelCount + level] < 3 ) continue;
+
+                    // A polygon is listed in every cell its box touches, so report it only from
+                    // the first of those cells that this query visits
+                    if ( row != Math.max( row0, gridIndex( south[p], gridSouth, gridCellSize, gridRows ) ) ) continue;
+                    if ( col != Math.max( col0, gridIndex( west[p], gridWest, gridCellSize, gridCols ) ) ) continue;
+
+                    results.add( p );
+                }
+            }
+        }
+
+        Collections.sort( results );
+        return results;
+    }
+
+    protected static int gridIndex( double value_DEG, double origin_DEG, double cellSize_DEG, int count )
+    {
+        double index = Math.floor( ( value_DEG - origin_DEG ) / cellSize_DEG );
+        return ( int ) Math.max( 0, Math.min( count - 1, index ) );
+    }
+
+    public int getPolygonLevel( int polygon )
+    {
+        return polygonLevels[polygon];
+    }
+
+    public int getVertexCount( int polygon, int level )
+    {
+        return vertexCounts[polygon * tolerances_DEG.length + level];
+    }
+
+    /**
+     * Copies the polygon's vertices at the given level into {@code latLon_DEG}, as lat/lon pairs, and returns the vertex count.
+     */
+    public int getVertices( int polygon, int level, float[] latLon_DEG )
+    {
+        int i = polygon * tolerances_DEG.length + level;
+        int vertexCount = vertexCounts[i];
+
+        FloatBuffer buffer = vertices.duplicate( );
+        buffer.position( 2 * vertexFirsts[i] );
+        buffer.get( latLon_DEG, 0, 2 * vertexCount );
+
+        return vertexCount;
+    }
+
+    public float[] getVertices( int polygon, int level )
+    {
+        float[] latLon_DEG = new float[2 * getVertexCount( polygon, level )];
+        getVertices( polygon, level, latLon_DEG );
+        return latLon_DEG;
+    }
+
+    public float[] getBounds( int polygon )
+    {
+        return new float[] { south[polygon], north[polygon], west[polygon], east[polygon] };
+    }
+
+
+    //
+    // Generation
+    //
+
+    /**
+     * Generates a store from a GSHHS file, using {@link GshhsReader}.
+     */
+    public static void writeGshhs( File gshhsFile, File storeFile ) throws IOException
+    {
+        Pair<List<List<LandVertex>>, List<GshhsPolygonHeader>> gshhs = GshhsReader.readSegments( gshhsFile );
+        List<List<LandVertex>> polygons = gshhs.first( );
+
+        int[] polygonLevels = new int[polygons.size( )];
+        for ( int p = 0; p < polygonLevels.length; p++ )
+        {
+            polygonLevels[p] = gshhs.second( ).get( p ).type.level;
+        }
+
+        write( storeFile, polygons, polygonLevels, DEFAULT_TOLERANCES_DEG );
+    }
+
+    /**
+     * Generates a store from the fillable segments of a shape, e.g. from {@link com.metsci.glimpse.charts.shoreline.ndgc.NgdcFile2#toShape( )}.
+     * Ghost vertices (which close segments along the edge of the shape's box) are included.
+     */
+    public static void write( File storeFile, LandShape shape ) throws IOException
+    {
+        List<List<LandVertex>> polygons = new ArrayList<>( );
+        for ( LandSegment segment : shape.getSegments( ) )
+        {
+            if ( !segment.isFillable ) continue;
+
+            List<LandVertex> polygon = new ArrayList<>( segment.vertices );
+            polygon.addAll( segment.ghostVertices );
+            polygons.add( polygon );
+        }
+
+        int[] polygonLevels = new int[polygons.size( )];
+        Arrays.fill( polygonLevels, 1 );
+
+        write( storeFile, polygons, polygonLevels, DEFAULT_TOLERANCES_DEG );
+    }
+
+    public static void write( File storeFile, List<List<LandVertex>> polygons, int[] polygonLevels, double[] tolerances_DEG ) throws IOException
+    {
+        int polygonCount = polygons.size( );
+        int levelCount = tolerances_DEG.length;
+
+        float[] boxes = new float[4 * polygonCount];
+        int[] vertexFirsts = new int[polygonCount * levelCount];
+        int[] vertexCounts = new int[polygonCount * levelCount];
+
+        // Vertices go to a temp file first, since the table in front of them isn't known until the end
+        File verticesFile = new File( storeFile.getPath( ) + ".vertices" );
+        try ( DataOutputStream out = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( verticesFile ) ) ) )
+        {
+            int vertexNext = 0;
+            for ( int p = 0; p < polygonCount; p++ )
+            {
+                List<LandVertex> polygon = polygons.get( p );
+
+                double[] lat = new double[polygon.size( )];
+                double[] lon = new double[polygon.size( )];
+                float s = Float.POSITIVE_INFINITY, n = Float.NEGATIVE_INFINITY, w = Float.POSITIVE_INFINITY, e = Float.NEGATIVE_INFINITY;
+                for ( int v = 0; v < lat.length; v++ )
+                {
+                    lat[v] = polygon.get( v ).lat;
+                    lon[v] = polygon.get( v ).lon;
+                    s = Math.min( s, ( float ) lat[v] );
+                    n = Math.max( n, ( float ) lat[v] );
+                    w = Math.min( w, ( float ) lon[v] );
+                    e = Math.max( e, ( float ) lon[v] );
+                }
+                boxes[4 * p + 0] = s;
+                boxes[4 * p + 1] = n;
+                boxes[4 * p + 2] = w;
+                boxes[4 * p + 3] = e;
+
+                for ( int level = 0; level < levelCount; level++ )
+                {
+                    double tolerance = tolerances_DEG[level];
+
+                    int[] kept;
+                    if ( level > 0 && Math.max( n - s, e - w ) < tolerance )
+                    {
+                        kept = new int[0];
+                    }
+                    else
+                    {
+                        kept = simplifyRing( lat, lon, tolerance );
+                        if ( kept.length < 3 ) kept = new int[0];
+                    }
+
+                    vertexFirsts[p * levelCount + level] = vertexNext;
+                    vertexCounts[p * levelCount + level] = kept.length;
+                    for ( int k : kept )
+                    {
+                        out.writeFloat( ( float ) lat[k] );
+                        out.writeFloat( ( float ) lon[k] );
+                    }
+                    vertexNext += kept.length;
+                }
+            }
+        }
+
+        // Coarse grid over the polygons' boxes, with about one cell per polygon
+        double gridSouth = Double.POSITIVE_INFINITY, gridNorth = Double.NEGATIVE_INFINITY;
+        double gridWest = Double.POSITIVE_INFINITY, gridEast = Double.NEGATIVE_INFINITY;
+        for ( int p = 0; p < polygonCount; p++ )
+        {
+            if ( boxes[4 * p + 0] > boxes[4 * p + 1] ) continue;
+
+            gridSouth = Math.min( gridSouth, boxes[4 * p + 0] );
+            gridNorth = Math.max( gridNorth, boxes[4 * p + 1] );
+            gridWest = Math.min( gridWest, boxes[4 * p + 2] );
+            gridEast = Math.max( gridEast, boxes[4 * p + 3] );
+        }
+
+        double gridCellSize = 1;
+        int gridRows = 1;
+        int gridCols = 1;
+        if ( gridSouth <= gridNorth )
+        {
+            double latExtent = gridNorth - gridSouth;
+            double lonExtent = gridEast - gridWest;
+            int targetCells = Math.max( 1, Math.min( polygonCount, MAX_GRID_CELLS ) );
+
+            // Cells are square, but no smaller than the longer side divided by the target count,
+            // so that a long thin extent doesn't get too many cells
+            gridCellSize = Math.max( Math.sqrt( latExtent * lonExtent / targetCells ), Math.max( latExtent, lonExtent ) / targetCells );
+            if ( gridCellSize > 0 )
+            {
+                gridRows = Math.max( 1, ( int ) Math.ceil( latExtent / gridCellSize ) );
+                gridCols = Math.max( 1, ( int ) Math.ceil( lonExtent / gridCellSize ) );
+            }
+            else
+            {
+                gridCellSize = 1;
+            }
+        }
+        else
+        {
+            gridSouth = 0;
+            gridWest = 0;
+        }
+
+        // The cells touched by each polygon's box, as { row0, row1, col0, col1 }, or row0 > row1 if none
+        int[] cellRanges = new int[4 * polygonCount];
+        int[] cellStarts = new int[gridRows * gridCols + 1];
+        for ( int p = 0; p < polygonCount; p++ )
+        {
+            if ( boxes[4 * p + 0] > boxes[4 * p + 1] )
+            {
+                cellRanges[4 * p + 0] = 1;
+                continue;
+            }
+
+            int row0 = cellRanges[4 * p + 0] = gridIndex( boxes[4 * p + 0], gridSouth, gridCellSize, gridRows );
+            int row1 = cellRanges[4 * p + 1] = gridIndex( boxes[4 * p + 1], gridSouth, gridCellSize, gridRows );
+            int col0 = cellRanges[4 * p + 2] = gridIndex( boxes[4 * p + 2], gridWest, gridCellSize, gridCols );
+            int col1 = cellRanges[4 * p + 3] = gridIndex( boxes[4 * p + 3], gridWest, gridCellSize, gridCols );
+            for ( int row = row0; row <= row1; row++ )
+            {
+                for ( int col = col0; col <= col1; col++ )
+                {
+                    cellStarts[row * gridCols + col + 1]++;
+                }
+            }
+        }
+
+        for ( int cell = 0; cell < gridRows * gridCols; cell++ )
+        {
+            cellStarts[cell + 1] += cellStarts[cell];
+        }
+
+        int[] cellPolygons = new int[cellStarts[gridRows * gridCols]];
+        int[] cellNext = Arrays.copyOf( cellStarts, gridRows * gridCols );
+        for ( int p = 0; p < polygonCount; p++ )
+        {
+            for ( int row = cellRanges[4 * p + 0]; row <= cellRanges[4 * p + 1]; row++ )
+            {
+                for ( int col = cellRanges[4 * p + 2]; col <= cellRanges[4 * p + 3]; col++ )
+                {
+                    cellPolygons[cellNext[row * gridCols + col]++] = p;
+                }
+            }
+        }
+
+        try ( FileOutputStream fileOut = new FileOutputStream( storeFile ) )
+        {
+            DataOutputStream out = new DataOutputStream( new BufferedOutputStream( fileOut ) );
+            out.writeInt( MAGIC );
+            out.writeInt( VERSION );
+            out.writeInt( polygonCount );
+            out.writeInt( levelCount );
+            for ( double tolerance : tolerances_DEG )
+            {
+                out.writeDouble( tolerance );
+            }
+            for ( int p = 0; p < polygonCount; p++ )
+            {
+                for ( int k = 0; k < 4; k++ )
+                {
+                    out.writeFloat( boxes[4 * p + k] );
+                }
+                out.writeInt( polygonLevels[p] );
+                for ( int level = 0; level < levelCount; level++ )
+                {
+                    out.writeInt( vertexFirsts[p * levelCount + level] );
+                    out.writeInt( vertexCounts[p * levelCount + level] );
+                }
+            }
+            out.writeDouble( gridSouth );
+            out.writeDouble( gridWest );
+            out.writeDouble( gridCellSize );
+            out.writeInt( gridRows );
+            out.writeInt( gridCols );
+            for ( int cellStart : cellStarts )
+            {
+                out.writeInt( cellStart );
+            }
+            out.writeInt( cellPolygons.length );
+            for ( int cellPolygon : cellPolygons )
+            {
+                out.writeInt( cellPolygon );
+            }
+            out.flush( );
+
+            try ( FileChannel verticesChannel = FileChannel.open( verticesFile.toPath( ) ) )
+            {
+                long position = 0;
+                long size = verticesChannel.size( );
+                while ( position < size )
+                {
+                    position += verticesChannel.transferTo( position, size - position, fileOut.getChannel( ) );
+                }
+            }
+        }
+        finally
+        {
+            verticesFile.delete( );
+        }
+    }
+
+    /**
+     * Douglas-Peucker simplification of a closed ring. The ring is split at vertex 0 and at the vertex
+     * farthest from it, and each half is simplified separately. Returns the indices of the kept vertices,
+     * in order. With a tolerance of zero, all vertices are kept.
+     */
+    protected static int[] simplifyRing( double[] lat, double[] lon, double tolerance )
+    {
+        int n = lat.length;
+
+        // Drop the closing vertex, if the ring repeats its first vertex
+        if ( n > 1 && lat[n - 1] == lat[0] && lon[n - 1] == lon[0] ) n--;
+
+        if ( tolerance <= 0 || n <= 3 )
+        {
+            int[] all = new int[n];
+            for ( int i = 0; i < n; i++ ) all[i] = i;
+            return all;
+        }
+
+        int far = 0;
+        double farDist = -1;
+        for ( int i = 1; i < n; i++ )
+        {
+            double d = ( lat[i] - lat[0] ) * ( lat[i] - lat[0] ) + ( lon[i] - lon[0] ) * ( lon[i] - lon[0] );
+            if ( d > farDist )
+            {
+                far = i;
+                farDist = d;
+            }
+        }
+
+        boolean[] keep = new boolean[n];
+        keep[0] = true;
+        keep[far] = true;
+        simplifyChain( lat, lon, n, 0, far, tolerance * tolerance, keep );
+        simplifyChain( lat, lon, n, far, n, tolerance * tolerance, keep );
+
+        int count = 0;
+        for ( boolean k : keep ) if ( k ) count++;
+
+        int[] kept = new int[count];
+        for ( int i = 0, j = 0; i < n; i++ )
+        {
+            if ( keep[i] ) kept[j++] = i;
+        }
+        return kept;
+    }
+
+    /**
+     * Simplifies the chain from vertex {@code a} to vertex {@code b} (exclusive endpoints; index {@code n} means vertex 0).
+     * Iterative, since coastlines can have millions of vertices.
+     */
+    protected static void simplifyChain( double[] lat, double[] lon, int n, int a0, int b0, double toleranceSquared, boolean[] keep )
+    {
+        int[] stack = new int[64];
+        int top = 0;
+        stack[top++] = a0;
+        stack[top++] = b0;
+
+        while ( top > 0 )
+        {
+            int b = stack[--top];
+            int a = stack[--top];
+            if ( b - a < 2 ) continue;
+
+            double ax = lon[a], ay = lat[a];
+            double bx = lon[b % n], by = lat[b % n];
+            double dx = bx - ax, dy = by - ay;
+            double len2 = dx * dx + dy * dy;
+
+            int worst = -1;
+            double worstDist = toleranceSquared;
+            for ( int i = a + 1; i < b; i++ )
+            {
+                double px = lon[i] - ax, py = lat[i] - ay;
+                double d;
+                if ( len2 == 0 )
+                {
+                    d = px * px + py * py;
+                }
+                else
+                {
+                    double t = Math.max( 0, Math.min( 1, ( px * dx + py * dy ) / len2 ) );
+                    double ex = px - t * dx, ey = py - t * dy;
+                    d = ex * ex + ey * ey;
+                }
+
+                if ( d > worstDist )
+                {
+                    worst = i;
+                    worstDist = d;
+                }
+            }
+
+            if ( worst >= 0 )
+            {
+                keep[worst] = true;
+                if ( top + 4 > stack.length ) stack = Arrays.copyOf( stack, 2 * stack.length );
+                stack[top++] = a;
+                stack[top++] = worst;
+                stack[top++] = worst;
+                stack[top++] = b;
+            }
+        }
+    }
+}
@@ -43,6 +43,7 @@ import javax.imageio.ImageIO;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.cache.Weigher;
 import com.metsci.glimpse.support.projection.LatLonProjection;
 import com.metsci.glimpse.support.projection.Projection;
 import com.metsci.glimpse.support.texture.RGBTextureProjected2D;
@@ -50,9 +51,13 @@ import com.metsci.glimpse.util.geo.LatLonGeo;
 import com.metsci.glimpse.util.geo.projection.GeoProjection;
 
 /**
- * An in-memory cache that uses soft references.
- * If a path is given the images are checked for locally before fetching them from the web. Multiple URLs may be given,
- * but only one thread will pull from each URL at a given time.
+ * A two-tier tile cache: an in-memory LRU of decoded textures, bounded by total texture bytes, backed
+ * by an optional {@link SlippyDiskStore}. If a path is given the images are checked for locally before
+ * fetching them from the web. Multiple URLs may be given, but only one thread will pull from each URL
+ * at a given time.<p>
+ *
+ * If no URLs are given, the cache is offline: tiles come only from the disk store, and tiles missing
+ * from its index are reported as absent without any network or filesystem access.
  * @author oren
  *
  */
@@ -66,15 +71,25 @@ public class SlippyCache
      */
     private static final String KEY_PATTERN = "%d/%d/%d.png";
 
+    /*
+     * Default bound on the total size of decoded textures held in memory.
+     */
+    public static final long DEFAULT_MAX_MEMORY_BYTES = 256L * 1024 * 1024;
+
     /*
      * Queue of URL prefixes for the tile server. You should only fetch from a single server at a time.
      */
     private final BlockingDeque<String> prefixQueue;
 
     /*
-     * Where to store tiles on disk. Set to null to disable disk caching.
+     * True if no tile servers were given, in which case tiles come only from disk.
+     */
+    private final boolean offline;
+
+    /*
+     * Where to store tiles on disk. Null if disk caching is disabled.
      */
-    private final Path cacheDir;
+    private final SlippyDiskStore diskStore;
 
     /*
      * The in memory cache of textures.
@@ -107,12 +122,34 @@ public class SlippyCache
     }
 
     public SlippyCache( GeoProjection geoProj, List<String> urlPrefixes, Path cacheDir )
+    {
+        this( geoProj, urlPrefixes, cacheDir, DEFAULT_MAX_MEMORY_BYTES );
+    }
+
+    /**
+     * Creates a cache that reads only from a pre-seeded tile dir, and never touches the network.
+     */
+    public static SlippyCache offline( GeoProjection geoProj, Path cacheDir )
+    {
+        if ( cacheDir == null || !Files.isDirectory( cacheDir ) )
+        {
+            throw new IllegalArgumentException( "offline slippy cache requires an existing tile directory: " + cacheDir );
+        }
+        return new SlippyCache( geoProj, Collections.<String> emptyList( ), cacheDir );
+    }
+
+    /**
+     * @param urlPrefixes tile servers; if empty, the cache is offline and reads only from {@code cacheDir}
+     * @param maxMemoryBytes bound on the total size of decoded textures held in memory
+     */
+    public SlippyCache( GeoProjection geoProj, List<String> urlPrefixes, Path cacheDir, long maxMemoryBytes )
     {
         this.geoProj = geoProj;
-        this.prefixQueue = new LinkedBlockingDeque<>( urlPrefixes.size( ) );
-        if ( urlPrefixes.isEmpty( ) )
+        this.prefixQueue = new LinkedBlockingDeque<>( Math.max( 1, urlPrefixes.size( ) ) );
+        this.offline = urlPrefixes.isEmpty( );
+        if ( urlPrefixes.isEmpty( ) && cacheDir == null )
         {
-            throw new IllegalArgumentException( "must supply at least one slippy server" );
+            throw new IllegalArgumentException( "must supply at least one slippy server, or a cache directory" );
         }
         else
         {
@@ -134,7 +171,7 @@ public class SlippyCache
         {
             if ( Files.isDirectory( cacheDir ) )
             {
-                this.cacheDir = cacheDir;
+                this.diskStore = new SlippyDiskStore( cacheDir );
             }
             else if ( !Files.exists( cacheDir ) )
             {
@@ -149,11 +186,11 @@ public class SlippyCache
                 }
                 if ( Files.isDirectory( cacheDir ) )
                 {
-                    this.cacheDir = cacheDir;
+                    this.diskStore = new SlippyDiskStore( cacheDir );
                 }
                 else
                 {
-                    this.cacheDir = null;
+                    this.diskStore = null;
                 }
             }
             else
@@ -163,7 +200,7 @@ public class SlippyCache
         }
         else
         {
-            this.cacheDir = null;
+            this.diskStore = null;
         }
 
         for ( int zoom = 0; zoom < slippyProj.length; zoom++ )
@@ -172,13 +209,40 @@ public class SlippyCache
         }
 
         this.cache = CacheBuilder.newBuilder( )
-                .concurrencyLevel( urlPrefixes.size( ) )
-                .softValues( )
+                .concurrencyLevel( Math.max( 1, urlPrefixes.size( ) ) )
+                .maximumWeight( maxMemoryBytes )
+                .weigher( new Weigher<String, RGBTextureProjected2D>( )
+                {
+                    @Override
+                    public int weigh( String key, RGBTextureProjected2D tex )
+                    {
+                        return RGBTextureProjected2D.BYTES_PER_PIXEL * tex.getDimensionSize( 0 ) * tex.getDimensionSize( 1 );
+                    }
+                } )
                 .build( new SlippyLoader( ) );
     }
 
+    public boolean isOffline( )
+    {
+        return offline;
+    }
+
+    /**
+     * Whether the tile could be loaded without going to the network.
+     */
+    public boolean isLocal( int zoom, int x, int y )
+    {
+        return getTextureIfPresent( zoom, x, y ) != null || ( diskStore != null && diskStore.contains( zoom, x, y ) );
+    }
+
     public RGBTextureProjected2D getTexture( int zoom, int x, int y )
     {
+        // Offline tiles that aren't on disk are simply absent -- not worth a warning
+        if ( isOffline( ) && !isLocal( zoom, x, y ) )
+        {
+            return null;
+        }
+
         String key = String.format( KEY_PATTERN, zoom, x, y );
         RGBTextureProjected2D tex = null;
         try
@@ -212,13 +276,26 @@ public class SlippyCache
         @Override
         public RGBTextureProjected2D load( String key ) throws Exception
         {
-            BufferedImage img = fetchFromDisk( key );
+            int[] zxy = parseKey( key );
+            BufferedImage img = ( diskStore == null ? null : diskStore.read( zxy[0], zxy[1], zxy[2] ) );
             //if we were able to get the image from disk, return it
-            if ( img == null )
+            if ( img == null && !offline )
             {
                 img = fetchFromWeb( key );
+                //If we got an image, try to cache it to disk
+                if ( img != null && diskStore != null )
+                {
+                    try
+                    {
+                        diskStore.write( zxy[0], zxy[1], zxy[2], img );
+                    }
+                    catch ( IOException e )
+                    {
+                        logger.log( Level.WARNING, "Exception saving tile to disk", e );
+                    }
+                }
             }
-            return makeTex( key, img );
+            return makeTex( zxy, img );
         }
 
         private BufferedImage fetchFromWeb( String key )
@@ -238,15 +315,6 @@ public class SlippyCache
                 {
                     logger.log( Level.WARNING, "Exception fetching tile from the web", e );
                 }
-                //If we got an image, try to cache it to disk
-                try
-                {
-                    saveToDisk( key, img );
-                }
-                catch ( IOException e )
-                {
-                    logger.log( Level.WARNING, "Exception saving tile to disk", e );
-                }
             }
             catch ( InterruptedException e )
             {
@@ -268,61 +336,22 @@ public class SlippyCache
             }
             return img;
         }
+    }
 
-        private void saveToDisk( String key, BufferedImage img ) throws IOException
-        {
-            if ( img != null && cacheDir != null )
-            {
-                Path imgPath = cacheDir.resolve( key );
-                if ( !Files.exists( imgPath.getParent( ) ) )
-                {
-                    try
-                    {
-                        Files.createDirectories( imgPath.getParent( ) );
-                    }
-                    catch ( Exception e )
-                    {
-                        //the img write should fail anyway
-                    }
-                }
-                ImageIO.write( img, "PNG", imgPath.toFile( ) );
-            }
-        }
-
-        private BufferedImage fetchFromDisk( String key )
-        {
-            BufferedImage img = null;
-            if ( cacheDir != null )
-            {
-                Path imgPath = cacheDir.resolve( key );
-                if ( Files.exists( imgPath ) )
-                {
-                    try
-                    {
-                        img = ImageIO.read( imgPath.toFile( ) );
-                    }
-                    catch ( Exception e )
-                    {
-                        logger.log( Level.WARNING, "Exception while attempting to read the tile from disk", e );
-                    }
-                }
-            }
-            return img;
-        }
+    private static int[] parseKey( String key )
+    {
+        String[] parts = key.substring( 0, key.length( ) - 4 ).split( "/" );
+        return new int[] { Integer.parseInt( parts[0] ), Integer.parseInt( parts[1] ), Integer.parseInt( parts[2] ) };
     }
 
-    private RGBTextureProjected2D makeTex( String key, BufferedImage img )
+    private RGBTextureProjected2D makeTex( int[] zxy, BufferedImage img )
     {
         if ( img == null )
         {
             return null;
         }
         RGBTextureProjected2D tex = new RGBTextureProjected2D( img );
-        String[] parts = key.substring( 0, key.length( ) - 4 ).split( "/" );
-        int zoom = Integer.parseInt( parts[0] );
-        int x = Integer.parseInt( parts[1] );
-        int y = Integer.parseInt( parts[2] );
-        tex.setProjection( getProjection( zoom, x, y ) );
+        tex.setProjection( getProjection( zxy[0], zxy[1], zxy[2] ) );
         return tex;
     }
 
@@ -0,0 +1,284 @@
+/*
+ * Copyright (c) 2016 Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.charts.slippy;
+
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.imageio.ImageIO;
+
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+
+/**
+ * On-disk tile store, laid out as {@code zoom/x/y.png} under a root dir, so that a dir seeded
+ * by other tools (or copied from another machine) can be used as-is.<p>
+ *
+ * Which tiles are present is tracked in a compact index file ({@code tiles.idx}: one packed
+ * 8-byte key per tile, appended as tiles are saved), so that lookups for missing tiles don't
+ * touch the filesystem. If the index file is missing, or if any {@code zoom/x} dir has been
+ * modified more recently than the index (e.g. tiles were copied in by another tool), the index is
+ * rebuilt by walking the dir once.
+ */
+public class SlippyDiskStore
+{
+    private static final Logger logger = Logger.getLogger( SlippyDiskStore.class.getName( ) );
+
+    public static final String INDEX_FILENAME = "tiles.idx";
+
+    private final Path rootDir;
+    private final Path indexFile;
+    /**
+     * Guarded by itself.
+     */
+    private final LongOpenHashSet index;
+
+    public SlippyDiskStore( Path rootDir )
+    {
+        this.rootDir = rootDir;
+        this.indexFile = rootDir.resolve( INDEX_FILENAME );
+        this.index = new LongOpenHashSet( );
+
+        try
+        {
+            if ( Files.exists( indexFile ) && !isIndexStale( ) )
+            {
+                readIndex( );
+            }
+            else
+            {
+                rebuildIndex( );
+            }
+        }
+        catch ( IOException e )
+        {
+            logger.log( Level.WARNING, "Failed to load slippy tile index: " + indexFile, e );
+        }
+    }
+
+    /**
+     * Packs a tile address into a single long: 6 bits of zoom, then 29 bits each of x and y.
+     */
+    public static long tileKey( int zoom, int x, int y )
+    {
+        return ( ( long ) zoom << 58 ) | ( ( long ) x << 29 ) | y;
+    }
+
+    public boolean contains( int zoom, int x, int y )
+    {
+        long key = tileKey( zoom, x, y );
+        synchronized ( index )
+        {
+            return index.contains( key );
+        }
+    }
+
+    public int size( )
+    {
+        synchronized ( index )
+        {
+            return index.size( );
+        }
+    }
+
+    public BufferedImage read( int zoom, int x, int y )
+    {
+        if ( !contains( zoom, x, y ) )
+        {
+            return null;
+        }
+
+        Path imgPath = tilePath( zoom, x, y );
+        try
+        {
+            BufferedImage img = ImageIO.read( imgPath.toFile( ) );
+            if ( img != null )
+            {
+                return img;
+            }
+        }
+        catch ( Exception e )
+        {
+            logger.log( Level.WARNING, "Exception while attempting to read the tile from disk", e );
+        }
+
+        // Stale index entry -- forget it, so we don't keep retrying
+        synchronized ( index )
+        {
+            index.remove( tileKey( zoom, x, y ) );
+        }
+        return null;
+    }
+
+    public void write( int zoom, int x, int y, BufferedImage img ) throws IOException
+    {
+        Path imgPath = tilePath( zoom, x, y );
+        Files.createDirectories( imgPath.getParent( ) );
+        ImageIO.write( img, "PNG", imgPath.toFile( ) );
+
+        long key = tileKey( zoom, x, y );
+        boolean added;
+        synchronized ( index )
+        {
+            added = index.add( key );
+        }
+        if ( added )
+        {
+            appendToIndex( key );
+        }
+    }
+
+    private Path tilePath( int zoom, int x, int y )
+    {
+        return rootDir.resolve( Integer.toString( zoom ) ).resolve( Integer.toString( x ) ).resolve( y + ".png" );
+    }
+
+    private void readIndex( ) throws IOException
+    {
+        ByteBuffer bytes = ByteBuffer.wrap( Files.readAllBytes( indexFile ) );
+        while ( bytes.remaining( ) >= 8 )
+        {
+            index.add( bytes.getLong( ) );
+        }
+    }
+
+    /**
+     * Tiles are written before their keys are appended to the index, so a {@code zoom/x} dir newer
+     * than the index means tiles were added by something other than this class.
+     */
+    private boolean isIndexStale( ) throws IOException
+    {
+        FileTime indexTime = Files.getLastModifiedTime( indexFile );
+        try ( DirectoryStream<Path> zoomDirs = Files.newDirectoryStream( rootDir ) )
+        {
+            for ( Path zoomDir : zoomDirs )
+            {
+                if ( parseInt( zoomDir.getFileName( ).toString( ) ) == null || !Files.isDirectory( zoomDir ) ) continue;
+                if ( Files.getLastModifiedTime( zoomDir ).compareTo( indexTime ) > 0 ) return true;
+
+                try ( DirectoryStream<Path> xDirs = Files.newDirectoryStream( zoomDir ) )
+                {
+                    for ( Path xDir : xDirs )
+                    {
+                        if ( parseInt( xDir.getFileName( ).toString( ) ) == null || !Files.isDirectory( xDir ) ) continue;
+                        if ( Files.getLastModifiedTime( xDir ).compareTo( indexTime ) > 0 ) return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private void rebuildIndex( ) throws IOException
+    {
+        if ( Files.isDirectory( rootDir ) )
+        {
+            try ( DirectoryStream<Path> zoomDirs = Files.newDirectoryStream( rootDir ) )
+            {
+                for ( Path zoomDir : zoomDirs )
+                {
+                    Integer zoom = parseInt( zoomDir.getFileName( ).toString( ) );
+                    if ( zoom == null || !Files.isDirectory( zoomDir ) ) continue;
+
+                    try ( DirectoryStream<Path> xDirs = Files.newDirectoryStream( zoomDir ) )
+                    {
+                        for ( Path xDir : xDirs )
+                        {
+                            Integer x = parseInt( xDir.getFileName( ).toString( ) );
+                            if ( x == null || !Files.isDirectory( xDir ) ) continue;
+
+                            try ( DirectoryStream<Path> tiles = Files.newDirectoryStream( xDir, "*.png" ) )
+                            {
+                                for ( Path tile : tiles )
+                                {
+                                    String name = tile.getFileName( ).toString( );
+                                    Integer y = parseInt( name.substring( 0, name.length( ) - 4 ) );
+                                    if ( y != null ) index.add( tileKey( zoom, x, y ) );
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        ByteBuffer bytes = ByteBuffer.allocate( 8 * index.size( ) );
+        for ( LongIterator it = index.iterator( ); it.hasNext( ); )
+        {
+            bytes.putLong( it.nextLong( ) );
+        }
+        bytes.flip( );
+        try ( FileChannel channel = FileChannel.open( indexFile, WRITE, CREATE ) )
+        {
+            channel.truncate( 0 );
+            while ( bytes.hasRemaining( ) )
+            {
+                channel.write( bytes );
+            }
+        }
+
+        logger.fine( "Rebuilt slippy tile index: " + index.size( ) + " tiles in " + rootDir );
+    }
+
+    private synchronized void appendToIndex( long key )
+    {
+        ByteBuffer bytes = ByteBuffer.allocate( 8 );
+        bytes.putLong( key ).flip( );
+        try ( FileChannel channel = FileChannel.open( indexFile, WRITE, CREATE, APPEND ) )
+        {
+            channel.write( bytes );
+        }
+        catch ( IOException e )
+        {
+            logger.log( Level.WARNING, "Failed to append to slippy tile index: " + indexFile, e );
+        }
+    }
+
+    private static Integer parseInt( String s )
+    {
+        try
+        {
+            return Integer.valueOf( s );
+        }
+        catch ( NumberFormatException e )
+        {
+            return null;
+        }
+    }
+}
@@ -27,16 +27,20 @@
 package com.metsci.glimpse.charts.slippy;
 
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.metsci.glimpse.axis.Axis2D;
 import com.metsci.glimpse.context.GlimpseContext;
 import com.metsci.glimpse.gl.texture.DrawableTexture;
@@ -53,7 +57,12 @@ import com.metsci.glimpse.util.geo.projection.GeoProjection;
 import com.metsci.glimpse.util.vector.Vector2d;
 
 /**
- * Paints the slippy tiles. New tiles are fetched dynamically as the user zooms/pans and stale textures are removed.
+ * Paints the slippy tiles. New tiles are fetched dynamically as the user zooms/pans and stale textures are removed.<p>
+ *
+ * Tiles around the view are prefetched into the cache at lower priority: the ring of neighbors at the
+ * current zoom, plus the tiles covering the view at the next and previous zoom levels, nearest to the
+ * view center first. Prefetches run on their own executor, so they never queue ahead of fetches for
+ * visible tiles. Prefetches queued for a view that has since changed are dropped.
  * @author oren
  */
 public class SlippyMapTilePainter extends ShadedTexturePainter
@@ -65,6 +74,7 @@ public class SlippyMapTilePainter extends ShadedTexturePainter
     private final int maxZoom;
     private final SlippyProjection[] slippyProj;
     private final ExecutorService exec;
+    private final ExecutorService prefetchExec;
     private final SlippyCache cache;
 
     /**
@@ -74,6 +84,14 @@ public class SlippyMapTilePainter extends ShadedTexturePainter
     private final AtomicReference<double[]> lastBounds = new AtomicReference<>( );
     private final AtomicInteger lastZoom = new AtomicInteger( );
 
+    /**
+     * Incremented each time the view changes, so that stale prefetches can be skipped.
+     */
+    private final AtomicInteger prefetchGeneration = new AtomicInteger( );
+
+    private volatile int prefetchMargin = 1;
+    private volatile int maxPrefetchTiles = 64;
+
     /**
      * We need to know what zoom level each texture lives at so we can remove stale textures
      * when the zoom level changes.
@@ -81,9 +99,23 @@ public class SlippyMapTilePainter extends ShadedTexturePainter
     private final ConcurrentHashMap<RGBTextureProjected2D, Integer> texZoomMap = new ConcurrentHashMap<>( );
 
     public SlippyMapTilePainter( GeoProjection geoProj, List<String> prefixes, ExecutorService exec, Path cacheDir, int maxZoom )
+    {
+        this( geoProj, new SlippyCache( geoProj, prefixes, cacheDir ), exec, maxZoom );
+    }
+
+    public SlippyMapTilePainter( GeoProjection geoProj, SlippyCache cache, ExecutorService exec, int maxZoom )
+    {
+        this( geoProj, cache, exec, DefaultPrefetchExec.INSTANCE, maxZoom );
+    }
+
+    /**
+     * @param exec fetches tiles in the view
+     * @param prefetchExec fetches tiles around the view; should not be the same as {@code exec}
+     */
+    public SlippyMapTilePainter( GeoProjection geoProj, SlippyCache cache, ExecutorService exec, ExecutorService prefetchExec, int maxZoom )
     {
         this.geoProj = geoProj;
-        this.cache = new SlippyCache( geoProj, prefixes, cacheDir );
+        this.cache = cache;
         this.maxZoom = maxZoom;
         this.slippyProj = new SlippyProjection[maxZoom + 1];
         for ( int zoom = 0; zoom <= maxZoom; zoom++ )
@@ -91,8 +123,25 @@ public class SlippyMapTilePainter extends ShadedTexturePainter
             this.slippyProj[zoom] = new SlippyProjection( zoom );
         }
         this.exec = exec;
+        this.prefetchExec = prefetchExec;
         this.setProgram( new ColorTexture2DProgram( ) );
     }
+
+    /**
+     * Sets how many tiles beyond the edges of the view to prefetch at the current zoom level.
+     */
+    public void setPrefetchMargin( int prefetchMargin )
+    {
+        this.prefetchMargin = prefetchMargin;
+    }
+
+    /**
+     * Sets the maximum number of tiles to queue for prefetch per view change. Zero disables prefetching.
+     */
+    public void setMaxPrefetchTiles( int maxPrefetchTiles )
+    {
+        this.maxPrefetchTiles = maxPrefetchTiles;
+    }
     
     @Override
     public void doPaintTo( GlimpseContext context )
@@ -149,8 +198,14 @@ public class SlippyMapTilePainter extends ShadedTexturePainter
                 for ( int x = tileXmin; x < tileXmax; x++ )
                 {
                     RGBTextureProjected2D tex = cache.getTextureIfPresent( zoom, x, y );
-                    if ( tex != null && drawableTextures.containsKey( new TextureUnit<DrawableTexture>( tex ) ) )
+                    if ( tex != null )
                     {
+                        // Already in memory (e.g. prefetched) -- show it now rather than waiting on the executor
+                        if ( !drawableTextures.containsKey( new TextureUnit<DrawableTexture>( tex ) ) )
+                        {
+                            addDrawableTexture( tex );
+                            texZoomMap.put( tex, zoom );
+                        }
                         continue;
                     }
                     exec.submit( new FetchTexture( zoom, x, y ) );
@@ -175,6 +230,133 @@ public class SlippyMapTilePainter extends ShadedTexturePainter
         {
             painterLock.unlock( );
         }
+
+        prefetch( zoom, tileXmin, tileXmax, tileYmin, tileYmax );
+    }
+
+    protected void prefetch( int zoom, int tileXmin, int tileXmax, int tileYmin, int tileYmax )
+    {
+        final int generation = prefetchGeneration.incrementAndGet( );
+
+        int maxTiles = maxPrefetchTiles;
+        if ( maxTiles <= 0 )
+        {
+            return;
+        }
+
+        // View center, in tile units at the current zoom
+        double centerX = 0.5 * ( tileXmin + tileXmax );
+        double centerY = 0.5 * ( tileYmin + tileYmax );
+
+        List<PrefetchTile> candidates = new ArrayList<>( );
+
+        // Neighbors at the current zoom
+        int margin = prefetchMargin;
+        for ( int y = tileYmin - margin; y < tileYmax + margin; y++ )
+        {
+            for ( int x = tileXmin - margin; x < tileXmax + margin; x++ )
+            {
+                boolean inView = ( tileXmin <= x && x < tileXmax && tileYmin <= y && y < tileYmax );
+                if ( !inView ) addCandidate( candidates, zoom, x, y, centerX, centerY, zoom );
+            }
+        }
+
+        // The view at the next zoom in
+        if ( zoom + 1 <= maxZoom )
+        {
+            for ( int y = 2 * tileYmin; y < 2 * tileYmax; y++ )
+            {
+                for ( int x = 2 * tileXmin; x < 2 * tileXmax; x++ )
+                {
+                    addCandidate( candidates, zoom + 1, x, y, centerX, centerY, zoom );
+                }
+            }
+        }
+
+        // The view at the next zoom out
+        if ( zoom - 1 >= 0 )
+        {
+            for ( int y = Math.floorDiv( tileYmin, 2 ); y < ( tileYmax + 1 ) / 2; y++ )
+            {
+                for ( int x = Math.floorDiv( tileXmin, 2 ); x < ( tileXmax + 1 ) / 2; x++ )
+                {
+                    addCandidate( candidates, zoom - 1, x, y, centerX, centerY, zoom );
+                }
+            }
+        }
+
+        Collections.sort( candidates );
+
+        for ( int i = 0; i < Math.min( maxTiles, candidates.size( ) ); i++ )
+        {
+            final PrefetchTile tile = candidates.get( i );
+            prefetchExec.submit( new Runnable( )
+            {
+                @Override
+                public void run( )
+                {
+                    if ( prefetchGeneration.get( ) != generation || cache.getTextureIfPresent( tile.zoom, tile.x, tile.y ) != null )
+                    {
+                        return;
+                    }
+
+                    try
+                    {
+                        cache.getTexture( tile.zoom, tile.x, tile.y );
+                    }
+                    catch ( Exception e )
+                    {
+                        logger.log( Level.FINE, "Exception in tile prefetching thread", e );
+                    }
+                }
+            } );
+        }
+    }
+
+    private void addCandidate( List<PrefetchTile> candidates, int zoom, int x, int y, double centerX, double centerY, int centerZoom )
+    {
+        int tileCount = 1 << zoom;
+        if ( x < 0 || x >= tileCount || y < 0 || y >= tileCount || cache.getTextureIfPresent( zoom, x, y ) != null )
+        {
+            return;
+        }
+
+        // Distance from the view center, in tile units at the view's zoom
+        double scale = Math.pow( 2, centerZoom - zoom );
+        double dx = ( x + 0.5 ) * scale - centerX;
+        double dy = ( y + 0.5 ) * scale - centerY;
+        candidates.add( new PrefetchTile( zoom, x, y, Math.sqrt( dx * dx + dy * dy ) ) );
+    }
+
+    /**
+     * Shared by painters that aren't given their own prefetch executor. A single low-priority thread,
+     * created on first use.
+     */
+    private static final class DefaultPrefetchExec
+    {
+        static final ExecutorService INSTANCE = Executors.newSingleThreadExecutor( new ThreadFactoryBuilder( ).setDaemon( true ).setPriority( Thread.MIN_PRIORITY ).setNameFormat( "slippy-tile-prefetcher-%d" ).build( ) );
+    }
+
+    private static final class PrefetchTile implements Comparable<PrefetchTile>
+    {
+        private final int zoom;
+        private final int x;
+        private final int y;
+        private final double distance;
+
+        private PrefetchTile( int zoom, int x, int y, double distance )
+        {
+            this.zoom = zoom;
+            this.x = x;
+            this.y = y;
+            this.distance = distance;
+        }
+
+        @Override
+        public int compareTo( PrefetchTile o )
+        {
+            return Double.compare( distance, o.distance );
+        }
     }
 
     private double[] getBounds( final Projection proj )
@@ -29,6 +29,7 @@ package com.metsci.glimpse.charts.slippy;
 import com.metsci.glimpse.util.geo.LatLonGeo;
 import com.metsci.glimpse.util.geo.projection.GeoProjection;
 import com.metsci.glimpse.util.geo.projection.KinematicVector2d;
+import com.metsci.glimpse.util.units.Angle;
 import com.metsci.glimpse.util.vector.Vector2d;
 
 import static java.lang.Math.PI;
@@ -69,6 +70,31 @@ public class SlippyProjection implements GeoProjection
         return LatLonGeo.fromDeg( lat, lon );
     }
 
+    @Override
+    public void project( double[] latDeg, double[] lonDeg, int offset, double[] xyOut, int xyOffset, int n )
+    {
+        for ( int i = 0; i < n; i++ )
+        {
+            double lonNorm = Angle.radiansToDegrees( LatLonGeo.normalizeLon( Angle.degreesToRadians( lonDeg[offset + i] ) ) );
+            double latRad = LatLonGeo.normalizeLat( Angle.degreesToRadians( latDeg[offset + i] ) );
+            xyOut[xyOffset + 2 * i] = ( lonNorm + 180 ) / 360 * zoomFac;
+            xyOut[xyOffset + 2 * i + 1] = ( 1 - Math.log( Math.tan( latRad ) + 1 / Math.cos( latRad ) ) / PI ) / 2 * zoomFac;
+        }
+    }
+
+    @Override
+    public void unproject( double[] xy, int xyOffset, double[] latDegOut, double[] lonDegOut, int offset, int n )
+    {
+        for ( int i = 0; i < n; i++ )
+        {
+            double lon = xy[xyOffset + 2 * i] / zoomFac * 360.0 - 180;
+            double nRad = PI - ( 2.0 * PI * xy[xyOffset + 2 * i + 1] ) / zoomFac;
+            double latRad = Math.atan( Math.sinh( nRad ) );
+            latDegOut[offset + i] = Angle.radiansToDegrees( LatLonGeo.normalizeLat( latRad ) );
+            lonDegOut[offset + i] = Angle.radiansToDegrees( LatLonGeo.normalizeLon( Angle.degreesToRadians( lon ) ) );
+        }
+    }
+
     @Override
     public Vector2d reprojectFrom( double x, double y, GeoProjection fromProjection )
     {
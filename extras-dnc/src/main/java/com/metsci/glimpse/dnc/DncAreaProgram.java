@@ -43,9 +43,13 @@ public class DncAreaProgram
         public final int program;
 
         public final int AXIS_RECT;
-        public final int RGBA;
         public final int HIGHLIGHT_SET;
 
+        public final int STYLE_TABLE;
+        public final int SECTION_TABLE;
+        public final int SECTION_COUNT;
+        public final int COORD_OFFSET;
+
         public final int inAreaVertex;
 
         public DncAreaProgramHandles( GL2ES2 gl )
@@ -54,10 +58,13 @@ public class DncAreaProgram
 
             this.AXIS_RECT = gl.glGetUniformLocation( program, "AXIS_RECT" );
 
-            this.RGBA = gl.glGetUniformLocation( program, "RGBA" );
-
             this.HIGHLIGHT_SET = gl.glGetUniformLocation( program, "HIGHLIGHT_SET" );
 
+            this.STYLE_TABLE = gl.glGetUniformLocation( program, "STYLE_TABLE" );
+            this.SECTION_TABLE = gl.glGetUniformLocation( program, "SECTION_TABLE" );
+            this.SECTION_COUNT = gl.glGetUniformLocation( program, "SECTION_COUNT" );
+            this.COORD_OFFSET = gl.glGetUniformLocation( program, "COORD_OFFSET" );
+
             this.inAreaVertex = gl.glGetAttribLocation( program, "inAreaVertex" );
         }
     }
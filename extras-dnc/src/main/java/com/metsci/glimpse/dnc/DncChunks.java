@@ -28,22 +28,43 @@ package com.metsci.glimpse.dnc;
 
 import static com.google.common.base.Objects.equal;
 import static com.jogamp.common.nio.Buffers.SIZEOF_FLOAT;
+import static com.jogamp.common.nio.Buffers.newDirectIntBuffer;
+import static com.metsci.glimpse.dnc.util.DncMiscUtils.nextPowerOfTwo;
 import static com.metsci.glimpse.gl.util.GLUtils.genBuffer;
+import static com.metsci.glimpse.gl.util.GLUtils.genTexture;
 import static com.metsci.glimpse.util.GeneralUtils.ints;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
 import static java.util.Collections.unmodifiableCollection;
 import static javax.media.opengl.GL.GL_ARRAY_BUFFER;
+import static javax.media.opengl.GL.GL_CLAMP_TO_EDGE;
+import static javax.media.opengl.GL.GL_FLOAT;
+import static javax.media.opengl.GL.GL_NEAREST;
 import static javax.media.opengl.GL.GL_STATIC_DRAW;
+import static javax.media.opengl.GL.GL_TEXTURE_2D;
+import static javax.media.opengl.GL.GL_TEXTURE_MAG_FILTER;
+import static javax.media.opengl.GL.GL_TEXTURE_MIN_FILTER;
+import static javax.media.opengl.GL.GL_TEXTURE_WRAP_S;
+import static javax.media.opengl.GL.GL_TEXTURE_WRAP_T;
+import static javax.media.opengl.GL.GL_UNPACK_ALIGNMENT;
+import static javax.media.opengl.GL3.GL_INT;
+import static javax.media.opengl.GL3.GL_RG32I;
+import static javax.media.opengl.GL3.GL_RG_INTEGER;
 
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 import javax.media.opengl.GL;
+import javax.media.opengl.GL3;
 
 import com.google.common.base.Objects;
 import com.metsci.glimpse.dnc.geosym.DncGeosymAssignment;
 
+import it.unimi.dsi.fastutil.ints.Int2IntMap;
+import it.unimi.dsi.fastutil.ints.Int2IntRBTreeMap;
 import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
 
 public class DncChunks
@@ -98,12 +119,132 @@ public class DncChunks
     }
 
 
-    public static DncDeviceChunk xferChunkToDevice( DncHostChunk hChunk, GL gl )
+    public static DncDeviceChunk xferChunkToDevice( DncHostChunk hChunk, GL gl, int textureMaxRowLength )
     {
         int verticesHandle = genBuffer( gl );
         gl.glBindBuffer( GL_ARRAY_BUFFER, verticesHandle );
         gl.glBufferData( GL_ARRAY_BUFFER, hChunk.verticesBuf.remaining( ) * SIZEOF_FLOAT, hChunk.verticesBuf, GL_STATIC_DRAW );
-        return new DncDeviceChunk( hChunk.chunkKey, hChunk.featureCount, hChunk.groups, verticesHandle );
+
+        // Map each non-empty triangles or lines section to its group's geosym-assignment id, so
+        // that shaders can look up per-group styles, and groups can be batched into multi-draws
+        Int2IntMap sections = new Int2IntRBTreeMap( );
+        for ( DncGroup group : hChunk.groups )
+        {
+            if ( group.trianglesCoordCount > 0 ) sections.put( group.trianglesCoordFirst, group.geosymAssignment.id );
+            if ( group.linesCoordCount > 0 ) sections.put( group.linesCoordFirst, group.geosymAssignment.id );
+        }
+
+        int sectionCount = sections.size( );
+        int sectionRowLength = min( textureMaxRowLength, nextPowerOfTwo( max( 1, sectionCount ) ) );
+        int sectionRowCount = ( max( 1, sectionCount ) + sectionRowLength - 1 ) / sectionRowLength;
+        IntBuffer sectionsBuf = newDirectIntBuffer( 2 * sectionRowLength * sectionRowCount );
+        for ( Int2IntMap.Entry en : sections.int2IntEntrySet( ) )
+        {
+            sectionsBuf.put( en.getIntKey( ) );
+            sectionsBuf.put( en.getIntValue( ) );
+        }
+        sectionsBuf.rewind( );
+
+        int sectionsTextureHandle = genTexture( gl );
+        gl.glBindTexture( GL_TEXTURE_2D, sectionsTextureHandle );
+        gl.glTexParameteri( GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_NEAREST );
+        gl.glTexParameteri( GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_NEAREST );
+        gl.glTexParameteri( GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_CLAMP_TO_EDGE );
+        gl.glTexParameteri( GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_CLAMP_TO_EDGE );
+        gl.glPixelStorei( GL_UNPACK_ALIGNMENT, 4 );
+        gl.glTexImage2D( GL_TEXTURE_2D, 0, GL_RG32I, sectionRowLength, sectionRowCount, 0, GL_RG_INTEGER, GL_INT, sectionsBuf );
+
+        return new DncDeviceChunk( hChunk.chunkKey, hChunk.featureCount, hChunk.groups, verticesHandle, sectionsTextureHandle, sectionCount );
+    }
+
+
+    /**
+     * Batches group sections that share a vertex stride into a single multi-draw. Sections
+     * whose first coord has the same remainder (modulo the stride) can share an attrib pointer,
+     * and are drawn with one {@code glMultiDrawArrays} call per remainder.
+     */
+    public static class DncMultiDraw
+    {
+        public final int coordsPerVertex;
+        public final List<IntBuffer> firsts;
+        public final List<IntBuffer> counts;
+
+        public DncMultiDraw( int coordsPerVertex, int maxSectionCount )
+        {
+            this.coordsPerVertex = coordsPerVertex;
+            this.firsts = new ArrayList<>( );
+            this.counts = new ArrayList<>( );
+            for ( int coordOffset = 0; coordOffset < coordsPerVertex; coordOffset++ )
+            {
+                this.firsts.add( IntBuffer.allocate( maxSectionCount ) );
+                this.counts.add( IntBuffer.allocate( maxSectionCount ) );
+            }
+        }
+
+        public void add( int coordFirst, int coordCount )
+        {
+            int coordOffset = coordFirst % coordsPerVertex;
+            firsts.get( coordOffset ).put( coordFirst / coordsPerVertex );
+            counts.get( coordOffset ).put( coordCount / coordsPerVertex );
+        }
+
+        /**
+         * Discards any accumulated draws, and makes room for at least {@code maxSectionCount}
+         * sections, so that one instance can be reused across chunks and frames.
+         */
+        public void reset( int maxSectionCount )
+        {
+            for ( int coordOffset = 0; coordOffset < coordsPerVertex; coordOffset++ )
+            {
+                int capacity = firsts.get( coordOffset ).capacity( );
+                if ( capacity < maxSectionCount )
+                {
+                    int newCapacity = max( maxSectionCount, 2 * capacity );
+                    firsts.set( coordOffset, IntBuffer.allocate( newCapacity ) );
+                    counts.set( coordOffset, IntBuffer.allocate( newCapacity ) );
+                }
+                else
+                {
+                    firsts.get( coordOffset ).clear( );
+                    counts.get( coordOffset ).clear( );
+                }
+            }
+        }
+
+        public boolean isEmpty( )
+        {
+            for ( IntBuffer buf : firsts )
+            {
+                if ( buf.position( ) > 0 ) return false;
+            }
+            return true;
+        }
+
+        /**
+         * Issues the accumulated draws, then clears them. Expects the vertices buffer to be bound
+         * already, and the vertex attrib array to be enabled.
+         */
+        public void draw( GL3 gl, int mode, int inVertex, int coordOffsetLocation )
+        {
+            for ( int coordOffset = 0; coordOffset < coordsPerVertex; coordOffset++ )
+            {
+                IntBuffer first = firsts.get( coordOffset );
+                IntBuffer count = counts.get( coordOffset );
+                first.flip( );
+                count.flip( );
+
+                int drawCount = first.remaining( );
+                if ( drawCount > 0 )
+                {
+                    gl.glUniform1i( coordOffsetLocation, coordOffset );
+                    gl.glVertexAttribPointer( inVertex, coordsPerVertex, GL_FLOAT, false, coordsPerVertex * SIZEOF_FLOAT, coordOffset * SIZEOF_FLOAT );
+                    gl.glMultiDrawArrays( mode, first, count, drawCount );
+                }
+
+                first.clear( );
+                count.clear( );
+            }
+        }
     }
 
 
@@ -130,18 +271,23 @@ public class DncChunks
         public final int featureCount;
         public final Collection<DncGroup> groups;
         public final int verticesHandle;
+        public final int sectionsTextureHandle;
+        public final int sectionCount;
 
-        public DncDeviceChunk( DncChunkKey chunkKey, int featureCount, Collection<DncGroup> groups, int verticesHandle )
+        public DncDeviceChunk( DncChunkKey chunkKey, int featureCount, Collection<DncGroup> groups, int verticesHandle, int sectionsTextureHandle, int sectionCount )
         {
             this.chunkKey = chunkKey;
             this.featureCount = featureCount;
             this.groups = unmodifiableCollection( groups );
             this.verticesHandle = verticesHandle;
+            this.sectionsTextureHandle = sectionsTextureHandle;
+            this.sectionCount = sectionCount;
         }
 
         public void dispose( GL gl )
         {
             gl.glDeleteBuffers( 1, ints( verticesHandle ), 0 );
+            gl.glDeleteTextures( 1, ints( sectionsTextureHandle ), 0 );
         }
     }
 
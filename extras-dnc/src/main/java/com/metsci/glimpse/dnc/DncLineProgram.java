@@ -46,16 +46,16 @@ public class DncLineProgram
         public final int AXIS_RECT;
         public final int VIEWPORT_SIZE_PX;
 
-        public final int RGBA;
-        public final int STIPPLE_ENABLE;
-        public final int STIPPLE_FACTOR;
-        public final int STIPPLE_PATTERN;
-        public final int LINE_THICKNESS_PX;
         public final int FEATHER_THICKNESS_PX;
 
         public final int HIGHLIGHT_SET;
         public final int HIGHLIGHT_EXTRA_THICKNESS_PX;
 
+        public final int STYLE_TABLE;
+        public final int SECTION_TABLE;
+        public final int SECTION_COUNT;
+        public final int COORD_OFFSET;
+
         public final int inLineVertex;
 
         public DncLineProgramHandles( GL2ES2 gl )
@@ -65,16 +65,16 @@ public class DncLineProgram
             this.AXIS_RECT = gl.glGetUniformLocation( program, "AXIS_RECT" );
             this.VIEWPORT_SIZE_PX = gl.glGetUniformLocation( program, "VIEWPORT_SIZE_PX" );
 
-            this.RGBA = gl.glGetUniformLocation( program, "RGBA" );
-            this.STIPPLE_ENABLE = gl.glGetUniformLocation( program, "STIPPLE_ENABLE" );
-            this.STIPPLE_FACTOR = gl.glGetUniformLocation( program, "STIPPLE_FACTOR" );
-            this.STIPPLE_PATTERN = gl.glGetUniformLocation( program, "STIPPLE_PATTERN" );
-            this.LINE_THICKNESS_PX = gl.glGetUniformLocation( program, "LINE_THICKNESS_PX" );
             this.FEATHER_THICKNESS_PX = gl.glGetUniformLocation( program, "FEATHER_THICKNESS_PX" );
 
             this.HIGHLIGHT_SET = gl.glGetUniformLocation( program, "HIGHLIGHT_SET" );
             this.HIGHLIGHT_EXTRA_THICKNESS_PX = gl.glGetUniformLocation( program, "HIGHLIGHT_EXTRA_THICKNESS_PX" );
 
+            this.STYLE_TABLE = gl.glGetUniformLocation( program, "STYLE_TABLE" );
+            this.SECTION_TABLE = gl.glGetUniformLocation( program, "SECTION_TABLE" );
+            this.SECTION_COUNT = gl.glGetUniformLocation( program, "SECTION_COUNT" );
+            this.COORD_OFFSET = gl.glGetUniformLocation( program, "COORD_OFFSET" );
+
             this.inLineVertex = gl.glGetAttribLocation( program, "inLineVertex" );
         }
     }
@@ -37,6 +37,7 @@ import static com.metsci.glimpse.dnc.DncLabelAtlases.coordsPerLabelAtlasBounds;
 import static com.metsci.glimpse.dnc.DncLabelAtlases.createHostLabelAtlas;
 import static com.metsci.glimpse.dnc.DncLabelAtlases.xferLabelAtlasToDevice;
 import static com.metsci.glimpse.dnc.DncPainterUtils.coverageSignificanceComparator;
+import static com.metsci.glimpse.dnc.DncPainterUtils.groupBatchingOrder;
 import static com.metsci.glimpse.dnc.DncPainterUtils.groupRenderingOrder;
 import static com.metsci.glimpse.dnc.DncShaderUtils.setUniformAxisRect;
 import static com.metsci.glimpse.dnc.DncShaderUtils.setUniformViewport;
@@ -79,8 +80,10 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
@@ -101,6 +104,7 @@ import com.metsci.glimpse.dnc.DncChunks.DncChunkKey;
 import com.metsci.glimpse.dnc.DncChunks.DncDeviceChunk;
 import com.metsci.glimpse.dnc.DncChunks.DncGroup;
 import com.metsci.glimpse.dnc.DncChunks.DncHostChunk;
+import com.metsci.glimpse.dnc.DncChunks.DncMultiDraw;
 import com.metsci.glimpse.dnc.DncIconAtlases.DncDeviceIconAtlas;
 import com.metsci.glimpse.dnc.DncIconAtlases.DncHostIconAtlas;
 import com.metsci.glimpse.dnc.DncIconProgram.DncIconProgramHandles;
@@ -124,6 +128,19 @@ import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.ints.IntCollection;
 
+/**
+ * Paints DNC charts from a {@link RenderCache}.
+ * <p>
+ * Groups are drawn in library order, then display-priority order. Groups that share a library
+ * and a display priority are drawn as one batch: all their areas, then all their lines, then all
+ * their icons, then all their labels. Within a batch this differs from drawing group by group
+ * (each group's areas, lines, icons, and labels before the next group's), so where features of
+ * the same priority overlap, e.g. a line over a neighbouring group's area, the stacking can differ
+ * from older versions. Areas and lines of a batch are drawn with one multi-draw per chunk.
+ * <p>
+ * Requires a GL3 context: the multi-draws take a {@link javax.media.opengl.GL3}, in addition to
+ * the vertex-array binding and GLSL 150 shaders this painter already used.
+ */
 public class DncPainter implements GlimpsePainter
 {
 
@@ -195,6 +212,13 @@ public class DncPainter implements GlimpsePainter
     protected final DncLineProgram lineProgram;
     protected final DncIconProgram iconProgram;
     protected final DncLabelProgram labelProgram;
+    protected final DncStyleTable styleTable;
+
+    // Accessed only while painting -- reused across batches and frames, to avoid per-frame allocation
+    protected final Map<DncChunkKey,List<DncGroup>> batch;
+    protected final List<List<DncGroup>> spareBatchLists;
+    protected final DncMultiDraw areaDraws;
+    protected final DncMultiDraw lineDraws;
 
     protected final Set<Axis2D> axes;
     protected final AxisListener1D axisListener;
@@ -249,6 +273,12 @@ public class DncPainter implements GlimpsePainter
         this.lineProgram = new DncLineProgram( );
         this.iconProgram = new DncIconProgram( );
         this.labelProgram = new DncLabelProgram( );
+        this.styleTable = new DncStyleTable( );
+
+        this.batch = new LinkedHashMap<>( );
+        this.spareBatchLists = new ArrayList<>( );
+        this.areaDraws = new DncMultiDraw( coordsPerRenderTriangleVertex, 0 );
+        this.lineDraws = new DncMultiDraw( coordsPerRenderLineVertex, 0 );
 
         this.axes = new HashSet<>( );
         this.axisListener = new RateLimitedAxisLimitsListener1D( )
@@ -579,7 +609,7 @@ public class DncPainter implements GlimpsePainter
                                         // Load and put chunk vertices
                                         int featureCount = renderChunk.featureCount;
                                         IntBuffer groupsBuf = cache.sliceChunkGroups( renderChunk );
-                                        FloatBuffer verticesBuf = cache.memmapChunkVertices( renderChunk );
+                                        FloatBuffer verticesBuf = cache.readChunkVertices( renderChunk );
                                         final DncHostChunk hChunk = createHostChunk( chunkKey, featureCount, groupsBuf, verticesBuf, cache.geosymAssignments );
                                         synchronized ( mutex )
                                         {
@@ -797,6 +827,7 @@ public class DncPainter implements GlimpsePainter
             lineProgram.dispose( gl );
             iconProgram.dispose( gl );
             labelProgram.dispose( gl );
+            styleTable.freeDeviceResources( gl );
 
             // Axis listeners
             for ( Axis2D axis : axes )
@@ -857,6 +888,19 @@ public class DncPainter implements GlimpsePainter
         }
     }
 
+    /**
+     * Empties {@link #batch}, keeping its group lists for reuse.
+     */
+    protected void clearBatch( )
+    {
+        for ( List<DncGroup> chunkGroups : batch.values( ) )
+        {
+            chunkGroups.clear( );
+            spareBatchLists.add( chunkGroups );
+        }
+        batch.clear( );
+    }
+
     @Override
     public void paintTo( GlimpseContext context )
     {
@@ -977,7 +1021,7 @@ public class DncPainter implements GlimpsePainter
                     if ( allowXfer )
                     {
                         DncHostChunk hChunk = hChunks.remove( chunkKey );
-                        DncDeviceChunk dChunk = xferChunkToDevice( hChunk, gl );
+                        DncDeviceChunk dChunk = xferChunkToDevice( hChunk, gl, rasterizeArgs.maxTextureDim );
                         dChunks.put( chunkKey, dChunk );
                         chunkXferCount++;
                     }
@@ -1050,147 +1094,279 @@ public class DncPainter implements GlimpsePainter
                 float labelHighlightScale = ( float ) ( 1.0 + 0.75*pulsateScale );
 
 
-                for ( DncGroup group : groupsToDraw )
+                int iconAtlasTextureUnit = 0;
+                int labelAtlasTextureUnit = 0;
+                int highlightSetTextureUnit = 1;
+                int styleTableTextureUnit = 2;
+                int sectionsTextureUnit = 3;
+
+                gl.glActiveTexture( GL_TEXTURE0 + styleTableTextureUnit );
+                styleTable.bind( gl, cache.geosymAssignments, lineAreaStyles, rasterizeArgs.maxTextureDim );
+
+                // Groups with the same library type and display priority form a batch. Each batch
+                // draws all its areas, then all its lines, icons, and labels. Area and line styles
+                // come from the style table, so a chunk's areas (or lines) in a batch are merged
+                // into a single multi-draw, regardless of how many groups they belong to.
+                for ( int batchStart = 0; batchStart < groupsToDraw.size( ); )
                 {
-                    DncDeviceChunk dChunk = dChunks.get( group.chunkKey );
-                    DncDeviceIconAtlas dIconAtlas = dIconAtlases.get( group.chunkKey );
-                    DncDeviceLabelAtlas dLabelAtlas = dLabelAtlases.get( group.chunkKey );
-                    IndexSetTexture highlightSet = highlightSets.get( group.chunkKey );
-                    DncGeosymAssignment geosymAssignment = group.geosymAssignment;
-
-                    boolean drawGroupAreas = ( areasVisible && geosymAssignment.hasAreaSymbol( ) );
-                    boolean drawGroupLines = ( linesVisible && geosymAssignment.hasLineSymbol( ) );
-                    boolean drawGroupIcons = ( dIconAtlas != null && iconsVisible && geosymAssignment.hasPointSymbol( ) );
-                    boolean drawGroupLabels = ( dLabelAtlas != null && labelsVisible && !geosymAssignment.labelMakers.isEmpty( ) );
-
-                    if ( dChunk != null && highlightSet != null && ( drawGroupAreas || drawGroupLines || drawGroupIcons || drawGroupLabels ) )
+                    DncGroup batchFirst = groupsToDraw.get( batchStart );
+                    int batchEnd = batchStart + 1;
+                    while ( batchEnd < groupsToDraw.size( ) && groupBatchingOrder.compare( batchFirst, groupsToDraw.get( batchEnd ) ) == 0 )
                     {
-                        int highlightSetTextureUnit = 1;
-                        gl.glActiveTexture( GL_TEXTURE0 + highlightSetTextureUnit );
-                        highlightSet.bind( gl, dChunk.featureCount, rasterizeArgs.maxTextureDim );
+                        batchEnd++;
+                    }
 
-                        if ( drawGroupAreas )
+                    clearBatch( );
+                    for ( DncGroup group : groupsToDraw.subList( batchStart, batchEnd ) )
+                    {
+                        List<DncGroup> chunkGroups = batch.get( group.chunkKey );
+                        if ( chunkGroups == null )
                         {
-                            DncGeosymLineAreaStyle style = lineAreaStyles.get( geosymAssignment.areaSymbolId );
-                            if ( style != null && style.symbolType.equals( "AreaPlain" ) )
+                            chunkGroups = ( spareBatchLists.isEmpty( ) ? new ArrayList<>( ) : spareBatchLists.remove( spareBatchLists.size( ) - 1 ) );
+                            batch.put( group.chunkKey, chunkGroups );
+                        }
+                        chunkGroups.add( group );
+                    }
+                    batchStart = batchEnd;
+
+
+                    if ( areasVisible )
+                    {
+                        DncAreaProgramHandles handles = null;
+                        for ( Entry<DncChunkKey,List<DncGroup>> en : batch.entrySet( ) )
+                        {
+                            DncDeviceChunk dChunk = dChunks.get( en.getKey( ) );
+                            IndexSetTexture highlightSet = highlightSets.get( en.getKey( ) );
+                            if ( dChunk == null || highlightSet == null ) continue;
+
+                            areaDraws.reset( en.getValue( ).size( ) );
+                            for ( DncGroup group : en.getValue( ) )
+                            {
+                                DncGeosymAssignment geosymAssignment = group.geosymAssignment;
+                                if ( group.trianglesCoordCount > 0 && geosymAssignment.hasAreaSymbol( ) )
+                                {
+                                    DncGeosymLineAreaStyle style = lineAreaStyles.get( geosymAssignment.areaSymbolId );
+                                    if ( style != null && style.symbolType.equals( "AreaPlain" ) )
+                                    {
+                                        areaDraws.add( group.trianglesCoordFirst, group.trianglesCoordCount );
+                                    }
+                                }
+                            }
+                            if ( areaDraws.isEmpty( ) ) continue;
+
+                            if ( handles == null )
                             {
-                                DncAreaProgramHandles handles = areaProgram.handles( gl );
+                                handles = areaProgram.handles( gl );
                                 gl.glUseProgram( handles.program );
 
                                 setUniformAxisRect( gl, handles.AXIS_RECT, axis );
-                                gl.glUniform4fv( handles.RGBA, 1, style.fillRgba, 0 );
                                 gl.glUniform1i( handles.HIGHLIGHT_SET, highlightSetTextureUnit );
+                                gl.glUniform1i( handles.STYLE_TABLE, styleTableTextureUnit );
+                                gl.glUniform1i( handles.SECTION_TABLE, sectionsTextureUnit );
 
                                 gl.glEnableVertexAttribArray( handles.inAreaVertex );
-                                gl.glBindBuffer( GL_ARRAY_BUFFER, dChunk.verticesHandle );
-                                gl.glVertexAttribPointer( handles.inAreaVertex, coordsPerRenderTriangleVertex, GL_FLOAT, false, 0, group.trianglesCoordFirst * SIZEOF_FLOAT );
+                            }
 
-                                gl.glDrawArrays( GL_TRIANGLES, 0, group.trianglesCoordCount / coordsPerRenderTriangleVertex );
+                            gl.glActiveTexture( GL_TEXTURE0 + highlightSetTextureUnit );
+                            highlightSet.bind( gl, dChunk.featureCount, rasterizeArgs.maxTextureDim );
 
-                                gl.glDisableVertexAttribArray( handles.inAreaVertex );
-                            }
+                            gl.glActiveTexture( GL_TEXTURE0 + sectionsTextureUnit );
+                            gl.glBindTexture( GL_TEXTURE_2D, dChunk.sectionsTextureHandle );
+                            gl.glUniform1i( handles.SECTION_COUNT, dChunk.sectionCount );
+
+                            gl.glBindBuffer( GL_ARRAY_BUFFER, dChunk.verticesHandle );
+                            areaDraws.draw( gl.getGL3( ), GL_TRIANGLES, handles.inAreaVertex, handles.COORD_OFFSET );
                         }
 
-                        if ( drawGroupLines )
+                        if ( handles != null )
                         {
-                            DncGeosymLineAreaStyle style = lineAreaStyles.get( geosymAssignment.lineSymbolId );
-                            if ( style != null )
+                            gl.glDisableVertexAttribArray( handles.inAreaVertex );
+                        }
+                    }
+
+
+                    if ( linesVisible )
+                    {
+                        DncLineProgramHandles handles = null;
+                        for ( Entry<DncChunkKey,List<DncGroup>> en : batch.entrySet( ) )
+                        {
+                            DncDeviceChunk dChunk = dChunks.get( en.getKey( ) );
+                            IndexSetTexture highlightSet = highlightSets.get( en.getKey( ) );
+                            if ( dChunk == null || highlightSet == null ) continue;
+
+                            lineDraws.reset( en.getValue( ).size( ) );
+                            for ( DncGroup group : en.getValue( ) )
                             {
-                                DncLineProgramHandles handles = lineProgram.handles( gl );
+                                DncGeosymAssignment geosymAssignment = group.geosymAssignment;
+                                if ( group.linesCoordCount > 0 && geosymAssignment.hasLineSymbol( ) && lineAreaStyles.containsKey( geosymAssignment.lineSymbolId ) )
+                                {
+                                    lineDraws.add( group.linesCoordFirst, group.linesCoordCount );
+                                }
+                            }
+                            if ( lineDraws.isEmpty( ) ) continue;
+
+                            if ( handles == null )
+                            {
+                                handles = lineProgram.handles( gl );
                                 gl.glUseProgram( handles.program );
 
                                 setUniformAxisRect( gl, handles.AXIS_RECT, axis );
                                 setUniformViewport( gl, handles.VIEWPORT_SIZE_PX, bounds );
-
-                                gl.glUniform4fv( handles.RGBA, 1, style.lineRgba, 0 );
-                                gl.glUniform1i( handles.STIPPLE_ENABLE, style.hasLineStipple ? 1 : 0 );
-                                gl.glUniform1f( handles.STIPPLE_FACTOR, style.lineStippleFactor );
-                                gl.glUniform1i( handles.STIPPLE_PATTERN, style.lineStipplePattern );
-                                gl.glUniform1f( handles.LINE_THICKNESS_PX, style.lineWidth );
                                 gl.glUniform1f( handles.FEATHER_THICKNESS_PX, 1f );
 
                                 gl.glUniform1i( handles.HIGHLIGHT_SET, highlightSetTextureUnit );
                                 gl.glUniform1f( handles.HIGHLIGHT_EXTRA_THICKNESS_PX, lineHighlightExtraThickness_PX );
+                                gl.glUniform1i( handles.STYLE_TABLE, styleTableTextureUnit );
+                                gl.glUniform1i( handles.SECTION_TABLE, sectionsTextureUnit );
 
                                 gl.glEnableVertexAttribArray( handles.inLineVertex );
-                                gl.glBindBuffer( GL_ARRAY_BUFFER, dChunk.verticesHandle );
-                                gl.glVertexAttribPointer( handles.inLineVertex, coordsPerRenderLineVertex, GL_FLOAT, false, 0, group.linesCoordFirst * SIZEOF_FLOAT );
+                            }
 
-                                gl.glDrawArrays( GL_LINE_STRIP, 0, group.linesCoordCount / coordsPerRenderLineVertex );
+                            gl.glActiveTexture( GL_TEXTURE0 + highlightSetTextureUnit );
+                            highlightSet.bind( gl, dChunk.featureCount, rasterizeArgs.maxTextureDim );
 
-                                gl.glDisableVertexAttribArray( handles.inLineVertex );
-                            }
+                            gl.glActiveTexture( GL_TEXTURE0 + sectionsTextureUnit );
+                            gl.glBindTexture( GL_TEXTURE_2D, dChunk.sectionsTextureHandle );
+                            gl.glUniform1i( handles.SECTION_COUNT, dChunk.sectionCount );
+
+                            gl.glBindBuffer( GL_ARRAY_BUFFER, dChunk.verticesHandle );
+                            lineDraws.draw( gl.getGL3( ), GL_LINE_STRIP, handles.inLineVertex, handles.COORD_OFFSET );
+                        }
+
+                        if ( handles != null )
+                        {
+                            gl.glDisableVertexAttribArray( handles.inLineVertex );
                         }
+                    }
+
 
-                        if ( drawGroupIcons )
+                    if ( iconsVisible )
+                    {
+                        DncIconProgramHandles handles = null;
+                        for ( Entry<DncChunkKey,List<DncGroup>> en : batch.entrySet( ) )
                         {
-                            DncAtlasEntry atlasEntry = dIconAtlas.entries.get( geosymAssignment.pointSymbolId );
-                            if ( atlasEntry != null )
+                            DncDeviceChunk dChunk = dChunks.get( en.getKey( ) );
+                            DncDeviceIconAtlas dIconAtlas = dIconAtlases.get( en.getKey( ) );
+                            IndexSetTexture highlightSet = highlightSets.get( en.getKey( ) );
+                            if ( dChunk == null || dIconAtlas == null || highlightSet == null ) continue;
+
+                            boolean chunkBound = false;
+                            for ( DncGroup group : en.getValue( ) )
                             {
-                                DncIconProgramHandles handles = iconProgram.handles( gl );
-                                gl.glUseProgram( handles.program );
+                                DncGeosymAssignment geosymAssignment = group.geosymAssignment;
+                                if ( group.iconsCoordCount == 0 || !geosymAssignment.hasPointSymbol( ) ) continue;
 
-                                setUniformAxisRect( gl, handles.AXIS_RECT, axis );
-                                setUniformViewport( gl, handles.VIEWPORT_SIZE_PX, bounds );
+                                DncAtlasEntry atlasEntry = dIconAtlas.entries.get( geosymAssignment.pointSymbolId );
+                                if ( atlasEntry == null ) continue;
+
+                                if ( handles == null )
+                                {
+                                    handles = iconProgram.handles( gl );
+                                    gl.glUseProgram( handles.program );
+
+                                    setUniformAxisRect( gl, handles.AXIS_RECT, axis );
+                                    setUniformViewport( gl, handles.VIEWPORT_SIZE_PX, bounds );
+
+                                    gl.glUniform1i( handles.ATLAS, iconAtlasTextureUnit );
+                                    gl.glUniform1i( handles.HIGHLIGHT_SET, highlightSetTextureUnit );
+                                    gl.glUniform1f( handles.HIGHLIGHT_SCALE, iconHighlightScale );
+
+                                    gl.glEnableVertexAttribArray( handles.inIconVertex );
+                                }
+
+                                if ( !chunkBound )
+                                {
+                                    gl.glActiveTexture( GL_TEXTURE0 + highlightSetTextureUnit );
+                                    highlightSet.bind( gl, dChunk.featureCount, rasterizeArgs.maxTextureDim );
+
+                                    gl.glActiveTexture( GL_TEXTURE0 + iconAtlasTextureUnit );
+                                    gl.glBindTexture( GL_TEXTURE_2D, dIconAtlas.textureHandle );
+
+                                    gl.glBindBuffer( GL_ARRAY_BUFFER, dChunk.verticesHandle );
+                                    chunkBound = true;
+                                }
 
-                                int iconAtlasTextureUnit = 0;
-                                gl.glActiveTexture( GL_TEXTURE0 + iconAtlasTextureUnit );
-                                gl.glBindTexture( GL_TEXTURE_2D, dIconAtlas.textureHandle );
-                                gl.glUniform1i( handles.ATLAS, iconAtlasTextureUnit );
                                 gl.glUniform4f( handles.IMAGE_BOUNDS, atlasEntry.sMin, atlasEntry.tMin, atlasEntry.sMax, atlasEntry.tMax );
                                 gl.glUniform2f( handles.IMAGE_SIZE_PX, iconScale * atlasEntry.w, iconScale * atlasEntry.h );
                                 gl.glUniform2f( handles.IMAGE_ALIGN, atlasEntry.xAlign, atlasEntry.yAlign );
 
-                                gl.glUniform1i( handles.HIGHLIGHT_SET, highlightSetTextureUnit );
-                                gl.glUniform1f( handles.HIGHLIGHT_SCALE, iconHighlightScale );
-
-                                gl.glEnableVertexAttribArray( handles.inIconVertex );
-                                gl.glBindBuffer( GL_ARRAY_BUFFER, dChunk.verticesHandle );
                                 gl.glVertexAttribPointer( handles.inIconVertex, coordsPerRenderIconVertex, GL_FLOAT, false, 0, group.iconsCoordFirst * SIZEOF_FLOAT );
-
                                 gl.glDrawArrays( GL_POINTS, 0, group.iconsCoordCount / coordsPerRenderIconVertex );
-
-                                gl.glDisableVertexAttribArray( handles.inIconVertex );
                             }
                         }
 
-                        if ( drawGroupLabels )
+                        if ( handles != null )
                         {
-                            DncLabelProgramHandles handles = labelProgram.handles( gl );
-                            gl.glUseProgram( handles.program );
+                            gl.glDisableVertexAttribArray( handles.inIconVertex );
+                        }
+                    }
 
-                            setUniformAxisRect( gl, handles.AXIS_RECT, axis );
-                            setUniformViewport( gl, handles.VIEWPORT_SIZE_PX, bounds );
 
-                            int labelAtlasTextureUnit = 0;
-                            gl.glActiveTexture( GL_TEXTURE0 + labelAtlasTextureUnit );
-                            gl.glBindTexture( GL_TEXTURE_2D, dLabelAtlas.textureHandle );
-                            gl.glUniform1i( handles.ATLAS, labelAtlasTextureUnit );
-                            gl.glUniform2f( handles.ATLAS_SIZE_PX, dLabelAtlas.textureWidth, dLabelAtlas.textureHeight );
+                    if ( labelsVisible )
+                    {
+                        DncLabelProgramHandles handles = null;
+                        for ( Entry<DncChunkKey,List<DncGroup>> en : batch.entrySet( ) )
+                        {
+                            DncDeviceChunk dChunk = dChunks.get( en.getKey( ) );
+                            DncDeviceLabelAtlas dLabelAtlas = dLabelAtlases.get( en.getKey( ) );
+                            IndexSetTexture highlightSet = highlightSets.get( en.getKey( ) );
+                            if ( dChunk == null || dLabelAtlas == null || highlightSet == null ) continue;
 
-                            gl.glUniform1i( handles.HIGHLIGHT_SET, highlightSetTextureUnit );
-                            gl.glUniform1f( handles.HIGHLIGHT_SCALE, labelHighlightScale );
+                            boolean chunkBound = false;
+                            for ( DncGroup group : en.getValue( ) )
+                            {
+                                if ( group.labelsCoordCount == 0 || group.geosymAssignment.labelMakers.isEmpty( ) ) continue;
 
-                            gl.glEnableVertexAttribArray( handles.inLabelVertex );
-                            gl.glBindBuffer( GL_ARRAY_BUFFER, dChunk.verticesHandle );
-                            gl.glVertexAttribPointer( handles.inLabelVertex, coordsPerRenderLabelVertex, GL_FLOAT, false, 0, group.labelsCoordFirst * SIZEOF_FLOAT );
+                                if ( handles == null )
+                                {
+                                    handles = labelProgram.handles( gl );
+                                    gl.glUseProgram( handles.program );
 
-                            gl.glEnableVertexAttribArray( handles.inImageAlign );
-                            gl.glBindBuffer( GL_ARRAY_BUFFER, dLabelAtlas.entriesAlignHandle );
-                            gl.glVertexAttribPointer( handles.inImageAlign, coordsPerLabelAtlasAlign, GL_FLOAT, false, 0, group.labelFirst * coordsPerLabelAtlasAlign * SIZEOF_FLOAT );
+                                    setUniformAxisRect( gl, handles.AXIS_RECT, axis );
+                                    setUniformViewport( gl, handles.VIEWPORT_SIZE_PX, bounds );
 
-                            gl.glEnableVertexAttribArray( handles.inImageBounds );
-                            gl.glBindBuffer( GL_ARRAY_BUFFER, dLabelAtlas.entriesBoundsHandle );
-                            gl.glVertexAttribPointer( handles.inImageBounds, coordsPerLabelAtlasBounds, GL_FLOAT, false, 0, group.labelFirst * coordsPerLabelAtlasBounds * SIZEOF_FLOAT );
+                                    gl.glUniform1i( handles.ATLAS, labelAtlasTextureUnit );
+                                    gl.glUniform1i( handles.HIGHLIGHT_SET, highlightSetTextureUnit );
+                                    gl.glUniform1f( handles.HIGHLIGHT_SCALE, labelHighlightScale );
 
-                            gl.glDrawArrays( GL_POINTS, 0, group.labelsCoordCount / coordsPerRenderLabelVertex );
+                                    gl.glEnableVertexAttribArray( handles.inLabelVertex );
+                                    gl.glEnableVertexAttribArray( handles.inImageAlign );
+                                    gl.glEnableVertexAttribArray( handles.inImageBounds );
+                                }
 
+                                if ( !chunkBound )
+                                {
+                                    gl.glActiveTexture( GL_TEXTURE0 + highlightSetTextureUnit );
+                                    highlightSet.bind( gl, dChunk.featureCount, rasterizeArgs.maxTextureDim );
+
+                                    gl.glActiveTexture( GL_TEXTURE0 + labelAtlasTextureUnit );
+                                    gl.glBindTexture( GL_TEXTURE_2D, dLabelAtlas.textureHandle );
+                                    gl.glUniform2f( handles.ATLAS_SIZE_PX, dLabelAtlas.textureWidth, dLabelAtlas.textureHeight );
+                                    chunkBound = true;
+                                }
+
+                                gl.glBindBuffer( GL_ARRAY_BUFFER, dChunk.verticesHandle );
+                                gl.glVertexAttribPointer( handles.inLabelVertex, coordsPerRenderLabelVertex, GL_FLOAT, false, 0, group.labelsCoordFirst * SIZEOF_FLOAT );
+
+                                gl.glBindBuffer( GL_ARRAY_BUFFER, dLabelAtlas.entriesAlignHandle );
+                                gl.glVertexAttribPointer( handles.inImageAlign, coordsPerLabelAtlasAlign, GL_FLOAT, false, 0, group.labelFirst * coordsPerLabelAtlasAlign * SIZEOF_FLOAT );
+
+                                gl.glBindBuffer( GL_ARRAY_BUFFER, dLabelAtlas.entriesBoundsHandle );
+                                gl.glVertexAttribPointer( handles.inImageBounds, coordsPerLabelAtlasBounds, GL_FLOAT, false, 0, group.labelFirst * coordsPerLabelAtlasBounds * SIZEOF_FLOAT );
+
+                                gl.glDrawArrays( GL_POINTS, 0, group.labelsCoordCount / coordsPerRenderLabelVertex );
+                            }
+                        }
+
+                        if ( handles != null )
+                        {
                             gl.glDisableVertexAttribArray( handles.inLabelVertex );
                             gl.glDisableVertexAttribArray( handles.inImageAlign );
                             gl.glDisableVertexAttribArray( handles.inImageBounds );
                         }
                     }
                 }
+                clearBatch( );
 
 
                 gl.glUseProgram( 0 );
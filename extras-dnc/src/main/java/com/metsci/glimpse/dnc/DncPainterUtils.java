@@ -62,6 +62,23 @@ public class DncPainterUtils
     };
 
 
+    /**
+     * Groups that compare as equal can be drawn in the same batch -- i.e. all their areas first,
+     * then all their lines, and so on -- without violating {@link #groupRenderingOrder}'s
+     * library and display-priority ordering.
+     */
+    public static final Comparator<DncGroup> groupBatchingOrder = new Comparator<DncGroup>( )
+    {
+        public int compare( DncGroup a, DncGroup b )
+        {
+            int libraryComparison = libraryRenderingOrder.compare( a.chunkKey.library, b.chunkKey.library );
+            if ( libraryComparison != 0 ) return libraryComparison;
+
+            return compareInts( a.geosymAssignment.displayPriority, b.geosymAssignment.displayPriority );
+        }
+    };
+
+
     public static final Comparator<DncLibrary> libraryRenderingOrder = new Comparator<DncLibrary>( )
     {
         private final Char2IntMap typePriorities = new Char2IntOpenHashMap( )
@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2016, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.dnc;
+
+import static com.jogamp.common.nio.Buffers.newDirectFloatBuffer;
+import static com.metsci.glimpse.dnc.util.DncMiscUtils.nextPowerOfTwo;
+import static com.metsci.glimpse.gl.util.GLUtils.genTexture;
+import static com.metsci.glimpse.util.GeneralUtils.ints;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static javax.media.opengl.GL.GL_CLAMP_TO_EDGE;
+import static javax.media.opengl.GL.GL_FLOAT;
+import static javax.media.opengl.GL.GL_NEAREST;
+import static javax.media.opengl.GL.GL_RGBA;
+import static javax.media.opengl.GL.GL_TEXTURE_2D;
+import static javax.media.opengl.GL.GL_TEXTURE_MAG_FILTER;
+import static javax.media.opengl.GL.GL_TEXTURE_MIN_FILTER;
+import static javax.media.opengl.GL.GL_TEXTURE_WRAP_S;
+import static javax.media.opengl.GL.GL_TEXTURE_WRAP_T;
+import static javax.media.opengl.GL.GL_UNPACK_ALIGNMENT;
+import static javax.media.opengl.GL3.GL_RGBA32F;
+
+import java.nio.FloatBuffer;
+import java.util.Map;
+
+import javax.media.opengl.GL;
+
+import com.metsci.glimpse.dnc.geosym.DncGeosymAssignment;
+import com.metsci.glimpse.dnc.geosym.DncGeosymLineAreaStyle;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+
+/**
+ * Device-side lookup table of line and area styles, indexed by geosym-assignment id. Lets the
+ * area and line shaders pick up per-group colors and stipples without a uniform update (and a
+ * separate draw call) for every group.
+ * <p>
+ * Each assignment gets {@link #texelsPerAssignment} RGBA texels: fill-rgba, line-rgba, and
+ * ( line-width, stipple-enable, stipple-factor, stipple-pattern ). Texels are laid out row-major
+ * in a 2D texture, so that the table can grow past the max texture width.
+ */
+public class DncStyleTable
+{
+
+    public static final int texelsPerAssignment = 3;
+    public static final int floatsPerTexel = 4;
+
+    protected static final float[] transparentRgba = { 0, 0, 0, 0 };
+
+
+    protected Int2ObjectMap<DncGeosymAssignment> hAssignments;
+    protected Map<String,DncGeosymLineAreaStyle> hStyles;
+
+    protected FloatBuffer dBuffer;
+    protected int dRowLength;
+    protected int dRowCount;
+    protected int dTextureHandle;
+
+
+    public DncStyleTable( )
+    {
+        this.hAssignments = null;
+        this.hStyles = null;
+
+        this.dBuffer = null;
+        this.dRowLength = 0;
+        this.dRowCount = 0;
+        this.dTextureHandle = 0;
+    }
+
+    /**
+     * Binds the table's texture to the currently active texture unit, first rebuilding it if
+     * either the assignments or the styles have changed (by identity) since the last call.
+     */
+    public void bind( GL gl, Int2ObjectMap<DncGeosymAssignment> assignments, Map<String,DncGeosymLineAreaStyle> styles, int textureMaxRowLength )
+    {
+
+        // Prepare dBuffer
+        boolean dBufferChanged = false;
+        if ( dBuffer == null || assignments != hAssignments || styles != hStyles || dRowLength > textureMaxRowLength )
+        {
+            int maxAssignmentId = -1;
+            for ( int id : assignments.keySet( ) )
+            {
+                maxAssignmentId = max( maxAssignmentId, id );
+            }
+
+            int texelCount = max( 1, texelsPerAssignment * ( maxAssignmentId + 1 ) );
+            dRowLength = min( textureMaxRowLength, nextPowerOfTwo( texelCount ) );
+            dRowCount = ( texelCount + dRowLength - 1 ) / dRowLength;
+
+            dBuffer = newDirectFloatBuffer( floatsPerTexel * dRowLength * dRowCount );
+            for ( DncGeosymAssignment assignment : assignments.values( ) )
+            {
+                dBuffer.position( floatsPerTexel * texelsPerAssignment * assignment.id );
+
+                DncGeosymLineAreaStyle areaStyle = ( assignment.hasAreaSymbol( ) ? styles.get( assignment.areaSymbolId ) : null );
+                boolean hasAreaFill = ( areaStyle != null && areaStyle.symbolType.equals( "AreaPlain" ) );
+                dBuffer.put( hasAreaFill ? areaStyle.fillRgba : transparentRgba );
+
+                DncGeosymLineAreaStyle lineStyle = ( assignment.hasLineSymbol( ) ? styles.get( assignment.lineSymbolId ) : null );
+                if ( lineStyle != null )
+                {
+                    dBuffer.put( lineStyle.lineRgba );
+                    dBuffer.put( lineStyle.lineWidth );
+                    dBuffer.put( lineStyle.hasLineStipple ? 1 : 0 );
+                    dBuffer.put( lineStyle.lineStippleFactor );
+                    dBuffer.put( lineStyle.lineStipplePattern & 0xFFFF );
+                }
+                else
+                {
+                    dBuffer.put( transparentRgba );
+                    dBuffer.put( transparentRgba );
+                }
+            }
+            dBuffer.rewind( );
+            dBufferChanged = true;
+
+            hAssignments = assignments;
+            hStyles = styles;
+        }
+
+
+        // Prepare dTextureHandle
+        boolean dTextureHandleChanged = false;
+        if ( dTextureHandle == 0 )
+        {
+            dTextureHandle = genTexture( gl );
+            gl.glBindTexture( GL_TEXTURE_2D, dTextureHandle );
+            gl.glTexParameteri( GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_NEAREST );
+            gl.glTexParameteri( GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_NEAREST );
+            gl.glTexParameteri( GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_CLAMP_TO_EDGE );
+            gl.glTexParameteri( GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_CLAMP_TO_EDGE );
+
+            dTextureHandleChanged = true;
+        }
+        else
+        {
+            gl.glBindTexture( GL_TEXTURE_2D, dTextureHandle );
+        }
+
+
+        // Push data to the device
+        if ( dBufferChanged || dTextureHandleChanged )
+        {
+            gl.glPixelStorei( GL_UNPACK_ALIGNMENT, 4 );
+            gl.glTexImage2D( GL_TEXTURE_2D, 0, GL_RGBA32F, dRowLength, dRowCount, 0, GL_RGBA, GL_FLOAT, dBuffer );
+        }
+
+    }
+
+    public void freeDeviceResources( GL gl )
+    {
+        if ( dTextureHandle != 0 )
+        {
+            gl.glDeleteTextures( 1, ints( dTextureHandle ), 0 );
+        }
+
+        hAssignments = null;
+        hStyles = null;
+
+        dBuffer = null;
+        dRowLength = 0;
+        dRowCount = 0;
+        dTextureHandle = 0;
+    }
+
+}
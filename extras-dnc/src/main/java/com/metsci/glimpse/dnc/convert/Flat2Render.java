@@ -29,9 +29,11 @@ package com.metsci.glimpse.dnc.convert;
 import static com.google.common.base.Charsets.US_ASCII;
 import static com.google.common.base.Charsets.UTF_8;
 import static com.google.common.base.Objects.equal;
+import static com.jogamp.common.nio.Buffers.SIZEOF_CHAR;
 import static com.jogamp.common.nio.Buffers.SIZEOF_FLOAT;
 import static com.jogamp.common.nio.Buffers.SIZEOF_INT;
 import static com.jogamp.common.nio.Buffers.SIZEOF_LONG;
+import static com.jogamp.common.nio.Buffers.newDirectFloatBuffer;
 import static com.metsci.glimpse.dnc.DncDataPaths.glimpseDncFlatDir;
 import static com.metsci.glimpse.dnc.DncDataPaths.glimpseDncRenderDir;
 import static com.metsci.glimpse.dnc.DncPainterUtils.coverageSignificanceComparator;
@@ -59,7 +61,10 @@ import static com.metsci.glimpse.dnc.convert.Flat.readFlatLibraryNames;
 import static com.metsci.glimpse.dnc.convert.Flat.FlatFeatureType.FLAT_AREA_FEATURE;
 import static com.metsci.glimpse.dnc.convert.Flat.FlatFeatureType.FLAT_LINE_FEATURE;
 import static com.metsci.glimpse.dnc.convert.Flat.FlatFeatureType.FLAT_POINT_FEATURE;
+import static com.metsci.glimpse.dnc.convert.Render.coordsPerRenderIconVertex;
 import static com.metsci.glimpse.dnc.convert.Render.coordsPerRenderLabelVertex;
+import static com.metsci.glimpse.dnc.convert.Render.coordsPerRenderLineVertex;
+import static com.metsci.glimpse.dnc.convert.Render.coordsPerRenderTriangleVertex;
 import static com.metsci.glimpse.dnc.convert.Render.intsPerRenderGroup;
 import static com.metsci.glimpse.dnc.convert.Render.longsPerRenderChunk;
 import static com.metsci.glimpse.dnc.convert.Render.readRenderCharset;
@@ -79,18 +84,23 @@ import static com.metsci.glimpse.dnc.convert.Render.renderMutexFilename;
 import static com.metsci.glimpse.dnc.convert.Render.renderVerticesFilename;
 import static com.metsci.glimpse.dnc.convert.Render.writeRenderCharset;
 import static com.metsci.glimpse.dnc.convert.Render.writeRenderConfig;
+import static com.metsci.glimpse.dnc.convert.RenderVertexCodec.decodeRenderVertices;
+import static com.metsci.glimpse.dnc.convert.RenderVertexCodec.encodeRenderVertices;
+import static com.metsci.glimpse.dnc.convert.RenderVertexCodec.fullMantissaBits;
+import static com.metsci.glimpse.dnc.convert.RenderVertexCodec.renderVertexEncodingDelta;
+import static com.metsci.glimpse.dnc.convert.RenderVertexCodec.renderVertexEncodingRaw;
 import static com.metsci.glimpse.dnc.geosym.DncGeosymIo.geosymFullAssignmentsFile;
 import static com.metsci.glimpse.dnc.geosym.DncGeosymIo.readDncSymbolAssignments;
-import static com.metsci.glimpse.dnc.util.DncMiscUtils.GiB;
-import static com.metsci.glimpse.dnc.util.DncMiscUtils.MiB;
 import static com.metsci.glimpse.dnc.util.DncMiscUtils.constFunc;
 import static com.metsci.glimpse.dnc.util.DncMiscUtils.invertIdsMap;
 import static com.metsci.glimpse.dnc.util.DncMiscUtils.invertList;
+import static com.metsci.glimpse.dnc.util.DncMiscUtils.memmapRegion;
 import static com.metsci.glimpse.dnc.util.DncMiscUtils.memmapReadWrite;
 import static com.metsci.glimpse.dnc.util.DncMiscUtils.newAttrsFunc;
 import static com.metsci.glimpse.dnc.util.DncMiscUtils.newAttrsMap;
 import static com.metsci.glimpse.dnc.util.DncMiscUtils.newThreadFactory;
 import static com.metsci.glimpse.dnc.util.DncMiscUtils.poslim;
+import static com.metsci.glimpse.dnc.util.DncMiscUtils.readRegion;
 import static com.metsci.glimpse.dnc.util.DncMiscUtils.sorted;
 import static com.metsci.glimpse.dnc.util.FileSync.lockFile;
 import static com.metsci.glimpse.dnc.util.FileSync.unlockFile;
@@ -104,9 +114,12 @@ import static java.lang.Float.POSITIVE_INFINITY;
 import static java.lang.Math.max;
 import static java.lang.Math.min;
 import static java.lang.Math.sqrt;
-import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
 import static java.nio.channels.FileChannel.MapMode.READ_WRITE;
+import static java.nio.ByteOrder.nativeOrder;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardOpenOption.CREATE;
 import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
 import static java.nio.file.StandardOpenOption.WRITE;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.unmodifiableCollection;
@@ -119,7 +132,6 @@ import java.io.IOException;
 import java.io.PrintStream;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 import java.nio.CharBuffer;
 import java.nio.DoubleBuffer;
 import java.nio.FloatBuffer;
@@ -128,6 +140,7 @@ import java.nio.LongBuffer;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.file.Files;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -196,10 +209,19 @@ public class Flat2Render
                                                                "msdc", 30,
                                                                "mssc", 2 );
 
-        public long groupsFileSize = 25 * MiB;
-        public long labelCharsFileSize = 100 * MiB;
-        public long labelLengthsFileSize = 100 * MiB;
-        public long verticesFileSize = 20 * GiB;
+        /**
+         * Whether newly converted chunks store their vertices with {@link RenderVertexCodec}'s
+         * delta encoding, instead of as raw floats. Existing chunks can be re-encoded later, with
+         * {@link Flat2Render#compactRenderCache(RenderCacheConfig)}.
+         */
+        public boolean compressVertices = true;
+
+        /**
+         * Mantissa bits to keep for x and y when compressing vertices. The default keeps all bits,
+         * which is lossless. Affects the cache dir, since it affects what gets rendered.
+         */
+        public int vertexMantissaBits = fullMantissaBits;
+
         public boolean reloadChunksTableBeforeConverting = false;
         public Charset charset = UTF_8;
     }
@@ -221,25 +243,23 @@ public class Flat2Render
         protected final File renderDir;
 
         protected final boolean reloadChunksTableBeforeConverting;
+        protected final boolean compressVertices;
+        protected final int vertexMantissaBits;
 
         protected final File mutexFile;
 
         // Safe only for calling force()
         protected final MappedByteBuffer cursorMapped;
         protected final MappedByteBuffer chunksMapped;
-        protected final MappedByteBuffer groupsMapped;
-        protected final MappedByteBuffer labelCharsMapped;
-        protected final MappedByteBuffer labelLengthsMapped;
 
         // Safe to access while holding mutexFile
         protected final IntBuffer cursorBuf;
         protected final LongBuffer chunksBuf;
 
-        // Safe to duplicate while synced (on master buffer itself)
-        protected final IntBuffer groupsBufMaster;
-        protected final CharBuffer labelCharsBufMaster;
-        protected final IntBuffer labelLengthsBufMaster;
-
+        // Data files grow as chunks get appended, so they are memmapped one chunk at a time
+        protected final FileChannel groupsChannel;
+        protected final FileChannel labelCharsChannel;
+        protected final FileChannel labelLengthsChannel;
         protected final FileChannel verticesChannel;
 
 
@@ -247,10 +267,6 @@ public class Flat2Render
         {
             File flatParentDir = config.flatParentDir;
             File renderParentDir = config.renderParentDir;
-            long groupsFileSize = config.groupsFileSize;
-            long labelCharsFileSize = config.labelCharsFileSize;
-            long labelLengthsFileSize = config.labelLengthsFileSize;
-            long verticesFileSize = config.verticesFileSize;
 
 
             this.conversionExec = newChunkJobsExec( "DncRenderCache", numConverterThreads );
@@ -291,11 +307,15 @@ public class Flat2Render
 
 
             this.reloadChunksTableBeforeConverting = config.reloadChunksTableBeforeConverting;
+            this.compressVertices = config.compressVertices;
+            this.vertexMantissaBits = config.vertexMantissaBits;
 
             mutexFile.createNewFile( );
             lockFile( mutexFile );
             try
             {
+                finishCompaction( renderDir );
+
                 if ( !cursorFile.exists( ) )
                 {
                     Charset charset = config.charset;
@@ -315,17 +335,18 @@ public class Flat2Render
                         chunksRaf = new RandomAccessFile( chunksFile, "rw" );
                         chunksRaf.setLength( libraryCount * coverageCount * longsPerRenderChunk * SIZEOF_LONG );
 
+                        // Data files start empty, and grow as chunks get converted
                         groupsRaf = new RandomAccessFile( groupsFile, "rw" );
-                        groupsRaf.setLength( groupsFileSize );
+                        groupsRaf.setLength( 0 );
 
                         labelCharsRaf = new RandomAccessFile( labelCharsFile, "rw" );
-                        labelCharsRaf.setLength( labelCharsFileSize );
+                        labelCharsRaf.setLength( 0 );
 
                         labelLengthsRaf = new RandomAccessFile( labelLengthsFile, "rw" );
-                        labelLengthsRaf.setLength( labelLengthsFileSize );
+                        labelLengthsRaf.setLength( 0 );
 
                         verticesRaf = new RandomAccessFile( verticesFile, "rw" );
-                        verticesRaf.setLength( verticesFileSize );
+                        verticesRaf.setLength( 0 );
 
                         chunksRaf.getFD( ).sync( );
                         groupsRaf.getFD( ).sync( );
@@ -363,15 +384,9 @@ public class Flat2Render
                 this.chunksMapped = memmapReadWrite( chunksFile );
                 this.chunksBuf = chunksMapped.asLongBuffer( );
 
-                this.groupsMapped = memmapReadWrite( groupsFile );
-                this.groupsBufMaster = groupsMapped.asIntBuffer( );
-
-                this.labelCharsMapped = memmapReadWrite( labelCharsFile );
-                this.labelCharsBufMaster = labelCharsMapped.asCharBuffer( );
-
-                this.labelLengthsMapped = memmapReadWrite( labelLengthsFile );
-                this.labelLengthsBufMaster = labelLengthsMapped.asIntBuffer( );
-
+                this.groupsChannel = FileChannel.open( groupsFile.toPath( ), READ, WRITE );
+                this.labelCharsChannel = FileChannel.open( labelCharsFile.toPath( ), READ, WRITE );
+                this.labelLengthsChannel = FileChannel.open( labelLengthsFile.toPath( ), READ, WRITE );
                 this.verticesChannel = FileChannel.open( verticesFile.toPath( ), READ, WRITE );
 
                 this.cursorMapped = memmapReadWrite( cursorFile );
@@ -396,44 +411,56 @@ public class Flat2Render
             }
         }
 
-        public IntBuffer sliceChunkGroups( RenderChunk chunk )
+        public IntBuffer sliceChunkGroups( RenderChunk chunk ) throws IOException
         {
-            IntBuffer groupsBuf;
-            synchronized ( groupsBufMaster )
-            {
-                groupsBuf = groupsBufMaster.duplicate( );
-            }
-            poslim( groupsBuf, chunk.groupFirst, chunk.groupCount, intsPerRenderGroup );
-            return groupsBuf.slice( );
+            long byteFirst = ( ( long ) chunk.groupFirst ) * intsPerRenderGroup * SIZEOF_INT;
+            long byteCount = ( ( long ) chunk.groupCount ) * intsPerRenderGroup * SIZEOF_INT;
+            return readRegion( groupsChannel, byteFirst, ( int ) byteCount ).asIntBuffer( );
         }
 
-        public FloatBuffer memmapChunkVertices( RenderChunk chunk ) throws IOException
+        /**
+         * Returns a chunk's vertex coords, in a new direct buffer, ready to be sent to the device.
+         * Raw chunks are read straight into it. Compressed chunks are read into a heap buffer, and
+         * decoded from there.
+         */
+        public FloatBuffer readChunkVertices( RenderChunk chunk ) throws IOException
         {
-            MappedByteBuffer verticesMapped = verticesChannel.map( READ_ONLY, chunk.vertexCoordFirst * SIZEOF_FLOAT, chunk.vertexCoordCount * SIZEOF_FLOAT );
-            verticesMapped.order( ByteOrder.nativeOrder( ) );
-            return verticesMapped.asFloatBuffer( );
+            switch ( chunk.vertexEncoding )
+            {
+                case renderVertexEncodingRaw:
+                {
+                    ByteBuffer verticesBytes = ByteBuffer.allocateDirect( chunk.vertexByteCount );
+                    return readRegion( verticesChannel, chunk.vertexByteFirst, verticesBytes ).asFloatBuffer( );
+                }
+
+                case renderVertexEncodingDelta:
+                {
+                    ByteBuffer encodedBytes = readRegion( verticesChannel, chunk.vertexByteFirst, chunk.vertexByteCount );
+                    FloatBuffer verticesBuf = newDirectFloatBuffer( chunk.vertexCoordCount );
+                    decodeRenderVertices( encodedBytes, vertexMantissaBits, verticesBuf );
+                    verticesBuf.flip( );
+                    return verticesBuf;
+                }
+
+                default:
+                {
+                    throw new IOException( "Unrecognized vertex encoding: encoding = " + chunk.vertexEncoding + ", database = " + chunk.chunkKey.library.databaseNum + ", library = " + chunk.chunkKey.library.libraryName + ", coverage = " + chunk.chunkKey.coverage.coverageName );
+                }
+            }
         }
 
-        public CharBuffer sliceChunkLabelChars( RenderChunk chunk )
+        public CharBuffer sliceChunkLabelChars( RenderChunk chunk ) throws IOException
         {
-            CharBuffer labelCharsBuf;
-            synchronized ( labelCharsBufMaster )
-            {
-                labelCharsBuf = labelCharsBufMaster.duplicate( );
-            }
-            poslim( labelCharsBuf, chunk.labelCharFirst, chunk.labelCharCount, 1 );
-            return labelCharsBuf.slice( );
+            long byteFirst = ( ( long ) chunk.labelCharFirst ) * SIZEOF_CHAR;
+            long byteCount = ( ( long ) chunk.labelCharCount ) * SIZEOF_CHAR;
+            return readRegion( labelCharsChannel, byteFirst, ( int ) byteCount ).asCharBuffer( );
         }
 
-        public IntBuffer sliceChunkLabelLengths( RenderChunk chunk )
+        public IntBuffer sliceChunkLabelLengths( RenderChunk chunk ) throws IOException
         {
-            IntBuffer labelLengthsBuf;
-            synchronized ( labelLengthsBufMaster )
-            {
-                labelLengthsBuf = labelLengthsBufMaster.duplicate( );
-            }
-            poslim( labelLengthsBuf, chunk.labelLengthFirst, chunk.labelLengthCount, 1 );
-            return labelLengthsBuf.slice( );
+            long byteFirst = ( ( long ) chunk.labelLengthFirst ) * SIZEOF_INT;
+            long byteCount = ( ( long ) chunk.labelLengthCount ) * SIZEOF_INT;
+            return readRegion( labelLengthsChannel, byteFirst, ( int ) byteCount ).asIntBuffer( );
         }
 
         public void getChunk( DncChunkKey chunkKey, Function<DncChunkKey,DncChunkPriority> priorityFunc, Consumer<RenderChunk> callback )
@@ -584,26 +611,31 @@ public class Flat2Render
 
 
 
-            // Write to cache files
+            // Encode vertices
+            //
+            // Done before taking the file lock, since it doesn't depend on where the chunk
+            // ends up in the cache files
             //
 
-            IntBuffer groupsBuf;
-            synchronized ( groupsBufMaster )
+            FloatBuffer verticesBuf = FloatBuffer.allocate( vertexCoordCount );
+            IntsArray vertexSections = new IntsArray( );
+            for ( TransitionalGroup group : groups )
             {
-                groupsBuf = groupsBufMaster.duplicate( );
+                appendVertexSection( verticesBuf, vertexSections, group.triangleCoords, coordsPerRenderTriangleVertex );
+                appendVertexSection( verticesBuf, vertexSections, group.lineCoords, coordsPerRenderLineVertex );
+                appendVertexSection( verticesBuf, vertexSections, group.iconCoords, coordsPerRenderIconVertex );
+                appendVertexSection( verticesBuf, vertexSections, group.labelCoords, coordsPerRenderLabelVertex );
             }
+            verticesBuf.flip( );
+
+            int vertexEncoding = ( compressVertices ? renderVertexEncodingDelta : renderVertexEncodingRaw );
+            ByteBuffer vertexBytes = encodeChunkVertices( verticesBuf, vertexSections, vertexEncoding, vertexMantissaBits );
+            int vertexByteCount = vertexBytes.remaining( );
 
-            CharBuffer labelCharsBuf;
-            synchronized ( labelCharsBufMaster )
-            {
-                labelCharsBuf = labelCharsBufMaster.duplicate( );
-            }
 
-            IntBuffer labelLengthsBuf;
-            synchronized ( labelLengthsBufMaster )
-            {
-                labelLengthsBuf = labelLengthsBufMaster.duplicate( );
-            }
+
+            // Write to cache files
+            //
 
             lockFile( mutexFile );
             try
@@ -644,7 +676,7 @@ public class Flat2Render
                 int groupNext = 0;
                 int labelCharNext = 0;
                 int labelLengthNext = 0;
-                long vertexCoordNext = 0;
+                long vertexByteNext = 0;
 
                 if ( chunkNext > 0 )
                 {
@@ -658,47 +690,46 @@ public class Flat2Render
                     int lastChunkLabelCharCount = ( int ) chunksBuf.get( );
                     int lastChunkLabelLengthFirst = ( int ) chunksBuf.get( );
                     int lastChunkLabelLengthCount = ( int ) chunksBuf.get( );
-                    long lastChunkVertexCoordFirst = chunksBuf.get( );
-                    int lastChunkVertexCoordCount = ( int ) chunksBuf.get( );
+                    chunksBuf.get( ); // lastChunkVertexCoordCount
+                    long lastChunkVertexByteFirst = chunksBuf.get( );
+                    int lastChunkVertexByteCount = ( int ) chunksBuf.get( );
 
                     groupNext = lastChunkGroupFirst + lastChunkGroupCount;
                     labelCharNext = lastChunkLabelCharFirst + lastChunkLabelCharCount;
                     labelLengthNext = lastChunkLabelLengthFirst + lastChunkLabelLengthCount;
-                    vertexCoordNext = lastChunkVertexCoordFirst + lastChunkVertexCoordCount;
+                    vertexByteNext = lastChunkVertexByteFirst + lastChunkVertexByteCount;
                 }
 
                 chunksBuf.limit( chunksBuf.capacity( ) );
                 chunksBuf.position( chunkNext * longsPerRenderChunk );
 
-                groupsBuf.limit( groupsBuf.capacity( ) );
-                groupsBuf.position( groupNext * intsPerRenderGroup );
-
-                labelCharsBuf.limit( labelCharsBuf.capacity( ) );
-                labelCharsBuf.position( labelCharNext );
-
-                labelLengthsBuf.limit( labelLengthsBuf.capacity( ) );
-                labelLengthsBuf.position( labelLengthNext );
-
 
+                int groupFirst = groupNext;
+                int groupCount = groups.size( );
                 int labelCharFirst = labelCharNext;
                 int labelLengthFirst = labelLengthNext;
-                long vertexCoordFirst = vertexCoordNext;
+                long vertexByteFirst = vertexByteNext;
 
 
-                // Memmap a section of the vertex file
+                // Memmap sections of the data files -- mapping past the end of a file grows it
                 //
 
-                MappedByteBuffer verticesMapped = verticesChannel.map( READ_WRITE, vertexCoordFirst * SIZEOF_FLOAT, vertexCoordCount * SIZEOF_FLOAT );
-                verticesMapped.order( ByteOrder.nativeOrder( ) );
-                FloatBuffer verticesBuf = verticesMapped.asFloatBuffer( );
+                MappedByteBuffer groupsMapped = memmapRegion( groupsChannel, READ_WRITE, ( ( long ) groupFirst ) * intsPerRenderGroup * SIZEOF_INT, ( ( long ) groupCount ) * intsPerRenderGroup * SIZEOF_INT );
+                IntBuffer groupsBuf = groupsMapped.asIntBuffer( );
 
+                MappedByteBuffer labelCharsMapped = memmapRegion( labelCharsChannel, READ_WRITE, ( ( long ) labelCharFirst ) * SIZEOF_CHAR, ( ( long ) labelCharCount ) * SIZEOF_CHAR );
+                CharBuffer labelCharsBuf = labelCharsMapped.asCharBuffer( );
 
+                MappedByteBuffer labelLengthsMapped = memmapRegion( labelLengthsChannel, READ_WRITE, ( ( long ) labelLengthFirst ) * SIZEOF_INT, ( ( long ) labelLengthCount ) * SIZEOF_INT );
+                IntBuffer labelLengthsBuf = labelLengthsMapped.asIntBuffer( );
 
-                // Write group and vertex data to buffers
-                //
+                MappedByteBuffer verticesMapped = memmapRegion( verticesChannel, READ_WRITE, vertexByteFirst, vertexByteCount );
+                verticesMapped.put( vertexBytes );
 
-                int groupFirst = groupNext;
-                int groupCount = groups.size( );
+
+
+                // Write group and label data to buffers
+                //
 
                 int nextGroupLabelFirst = 0;
                 int nextGroupLabelCharFirst = 0;
@@ -715,11 +746,6 @@ public class Flat2Render
 
                     labelLengthsBuf.put( group.labelLengths.a, 0, group.labelLengths.n );
 
-                    verticesBuf.put( group.triangleCoords.a, 0, group.triangleCoords.n );
-                    verticesBuf.put( group.lineCoords.a, 0, group.lineCoords.n );
-                    verticesBuf.put( group.iconCoords.a, 0, group.iconCoords.n );
-                    verticesBuf.put( group.labelCoords.a, 0, group.labelCoords.n );
-
                     groupsBuf.put( group.geosymAssignment.id )
                              .put( groupLabelFirst )
                              .put( groupLabelCharFirst )
@@ -755,10 +781,12 @@ public class Flat2Render
                          .put( labelCharCount )
                          .put( labelLengthFirst )
                          .put( labelLengthCount )
-                         .put( vertexCoordFirst )
-                         .put( vertexCoordCount );
+                         .put( vertexCoordCount )
+                         .put( vertexByteFirst )
+                         .put( vertexByteCount )
+                         .put( vertexEncoding );
 
-                chunk = new RenderChunk( chunkKey, featureCount, groupFirst, groupCount, labelCharFirst, labelCharCount, labelLengthFirst, labelLengthCount, vertexCoordFirst, vertexCoordCount );
+                chunk = new RenderChunk( chunkKey, featureCount, groupFirst, groupCount, labelCharFirst, labelCharCount, labelLengthFirst, labelLengthCount, vertexCoordCount, vertexByteFirst, vertexByteCount, vertexEncoding );
                 synchronized ( chunks )
                 {
                     logger.finer( "Finished converting chunk: database = " + library.databaseNum + ", library = " + library.libraryName + ", coverage = " + coverage.coverageName );
@@ -972,6 +1000,235 @@ public class Flat2Render
         return map;
     }
 
+    protected static void appendVertexSection( FloatBuffer verticesBuf, IntsArray vertexSections, FloatsArray coords, int coordsPerVertex )
+    {
+        if ( coords.n > 0 )
+        {
+            verticesBuf.put( coords.a, 0, coords.n );
+            vertexSections.append( coords.n );
+            vertexSections.append( coordsPerVertex );
+        }
+    }
+
+
+    public static ByteBuffer encodeChunkVertices( FloatBuffer verticesBuf, IntsArray vertexSections, int vertexEncoding, int vertexMantissaBits )
+    {
+        switch ( vertexEncoding )
+        {
+            case renderVertexEncodingRaw:
+            {
+                ByteBuffer vertexBytes = ByteBuffer.allocate( verticesBuf.remaining( ) * SIZEOF_FLOAT ).order( nativeOrder( ) );
+                vertexBytes.asFloatBuffer( ).put( verticesBuf.duplicate( ) );
+                return vertexBytes;
+            }
+
+            case renderVertexEncodingDelta:
+            {
+                return encodeRenderVertices( verticesBuf.duplicate( ), vertexSections, vertexMantissaBits );
+            }
+
+            default:
+            {
+                throw new IllegalArgumentException( "Unrecognized vertex encoding: " + vertexEncoding );
+            }
+        }
+    }
+
+
+    /**
+     * Rewrites the render cache for the given config, so that every chunk's vertices are
+     * delta-encoded, and so that the data files contain nothing past the end of the last chunk.
+     * <p>
+     * Chunks converted with {@link RenderCacheConfig#compressVertices} disabled are quick to write,
+     * but take more disk space and more reads to load. This pass can be run later -- e.g. overnight,
+     * or once a region has been fully viewed -- to get the best of both.
+     * <p>
+     * The new vertices file and chunks table are written alongside the old ones. Once both are
+     * complete and synced, a commit marker is created, and then both are renamed into place. If the
+     * pass is interrupted before the marker exists, the old files are untouched, and the partial new
+     * files are deleted the next time the cache is opened. If it is interrupted after, the renames
+     * are finished the next time the cache is opened. Other processes must not have the cache open
+     * while this runs.
+     *
+     * @return number of chunks that were re-encoded
+     */
+    public static int compactRenderCache( RenderCacheConfig config ) throws IOException
+    {
+        String configHash = Hashing.md5( ).newHasher( ).putString( renderConfigString( config ), US_ASCII ).hash( ).toString( );
+        File renderDir = new File( config.renderParentDir, "dncRenderCache_" + configHash );
+
+        File mutexFile = new File( renderDir, renderMutexFilename );
+        File cursorFile = new File( renderDir, renderCursorFilename );
+        File chunksFile = new File( renderDir, renderChunksFilename );
+        File groupsFile = new File( renderDir, renderGroupsFilename );
+        File labelCharsFile = new File( renderDir, renderLabelCharsFilename );
+        File labelLengthsFile = new File( renderDir, renderLabelLengthsFilename );
+        File verticesFile = new File( renderDir, renderVerticesFilename );
+        File newVerticesFile = new File( renderDir, renderVerticesFilename + compactingSuffix );
+        File newChunksFile = new File( renderDir, renderChunksFilename + compactingSuffix );
+        File commitFile = new File( renderDir, compactingCommitFilename );
+
+        if ( !cursorFile.exists( ) ) return 0;
+
+        lockFile( mutexFile );
+        try
+        {
+            finishCompaction( renderDir );
+
+            MappedByteBuffer cursorMapped = memmapReadWrite( cursorFile );
+            int chunkCount = cursorMapped.asIntBuffer( ).get( 0 );
+
+            // Edit a copy of the chunks table, leaving the original untouched until the swap
+            ByteBuffer chunksBytes;
+            try ( FileChannel chunksChannel = FileChannel.open( chunksFile.toPath( ), READ ) )
+            {
+                chunksBytes = readRegion( chunksChannel, 0, ( int ) chunksChannel.size( ) );
+            }
+            LongBuffer chunksBuf = chunksBytes.asLongBuffer( );
+
+            int reencodedCount = 0;
+            long groupsEnd = 0;
+            long labelCharsEnd = 0;
+            long labelLengthsEnd = 0;
+            try ( FileChannel groupsChannel = FileChannel.open( groupsFile.toPath( ), READ );
+                  FileChannel verticesChannel = FileChannel.open( verticesFile.toPath( ), READ );
+                  FileChannel newVerticesChannel = FileChannel.open( newVerticesFile.toPath( ), READ, WRITE, CREATE, TRUNCATE_EXISTING ) )
+            {
+                long newVertexByteNext = 0;
+                for ( int c = 0; c < chunkCount; c++ )
+                {
+                    int rowFirst = c * longsPerRenderChunk;
+                    int groupFirst = ( int ) chunksBuf.get( rowFirst + 3 );
+                    int groupCount = ( int ) chunksBuf.get( rowFirst + 4 );
+                    int labelCharFirst = ( int ) chunksBuf.get( rowFirst + 5 );
+                    int labelCharCount = ( int ) chunksBuf.get( rowFirst + 6 );
+                    int labelLengthFirst = ( int ) chunksBuf.get( rowFirst + 7 );
+                    int labelLengthCount = ( int ) chunksBuf.get( rowFirst + 8 );
+                    int vertexCoordCount = ( int ) chunksBuf.get( rowFirst + 9 );
+                    long vertexByteFirst = chunksBuf.get( rowFirst + 10 );
+                    int vertexByteCount = ( int ) chunksBuf.get( rowFirst + 11 );
+                    int vertexEncoding = ( int ) chunksBuf.get( rowFirst + 12 );
+
+                    groupsEnd = max( groupsEnd, ( ( long ) groupFirst + groupCount ) * intsPerRenderGroup * SIZEOF_INT );
+                    labelCharsEnd = max( labelCharsEnd, ( ( long ) labelCharFirst + labelCharCount ) * SIZEOF_CHAR );
+                    labelLengthsEnd = max( labelLengthsEnd, ( ( long ) labelLengthFirst + labelLengthCount ) * SIZEOF_INT );
+
+                    ByteBuffer vertexBytes = readRegion( verticesChannel, vertexByteFirst, vertexByteCount );
+                    if ( vertexEncoding == renderVertexEncodingRaw )
+                    {
+                        // Sections follow the group layout: triangles, lines, icons, labels
+                        IntBuffer groupsBuf = readRegion( groupsChannel, ( ( long ) groupFirst ) * intsPerRenderGroup * SIZEOF_INT, groupCount * intsPerRenderGroup * SIZEOF_INT ).asIntBuffer( );
+                        IntsArray vertexSections = new IntsArray( );
+                        int[] sectionStrides = { coordsPerRenderTriangleVertex, coordsPerRenderLineVertex, coordsPerRenderIconVertex, coordsPerRenderLabelVertex };
+                        for ( int g = 0; g < groupCount; g++ )
+                        {
+                            int sectionCountsFirst = g * intsPerRenderGroup + 7;
+                            for ( int k = 0; k < sectionStrides.length; k++ )
+                            {
+                                int sectionCoordCount = groupsBuf.get( sectionCountsFirst + k );
+                                if ( sectionCoordCount > 0 )
+                                {
+                                    vertexSections.append( sectionCoordCount );
+                                    vertexSections.append( sectionStrides[ k ] );
+                                }
+                            }
+                        }
+
+                        vertexBytes = encodeChunkVertices( vertexBytes.asFloatBuffer( ), vertexSections, renderVertexEncodingDelta, config.vertexMantissaBits );
+                        vertexEncoding = renderVertexEncodingDelta;
+                        reencodedCount++;
+                    }
+
+                    long newVertexByteFirst = newVertexByteNext;
+                    int newVertexByteCount = vertexBytes.remaining( );
+                    while ( vertexBytes.hasRemaining( ) )
+                    {
+                        newVerticesChannel.write( vertexBytes, newVertexByteNext + ( newVertexByteCount - vertexBytes.remaining( ) ) );
+                    }
+                    newVertexByteNext += newVertexByteCount;
+
+                    chunksBuf.put( rowFirst +  9, vertexCoordCount );
+                    chunksBuf.put( rowFirst + 10, newVertexByteFirst );
+                    chunksBuf.put( rowFirst + 11, newVertexByteCount );
+                    chunksBuf.put( rowFirst + 12, vertexEncoding );
+                }
+
+                newVerticesChannel.force( true );
+            }
+
+            try ( FileChannel newChunksChannel = FileChannel.open( newChunksFile.toPath( ), WRITE, CREATE, TRUNCATE_EXISTING ) )
+            {
+                chunksBytes.rewind( );
+                while ( chunksBytes.hasRemaining( ) )
+                {
+                    newChunksChannel.write( chunksBytes, chunksBytes.position( ) );
+                }
+                newChunksChannel.force( true );
+            }
+
+            // Both new files are complete -- from here on, the swap gets rolled forward
+            commitFile.createNewFile( );
+            finishCompaction( renderDir );
+
+            // Drop anything written past the last chunk, e.g. by an interrupted conversion
+            truncateFile( groupsFile, groupsEnd );
+            truncateFile( labelCharsFile, labelCharsEnd );
+            truncateFile( labelLengthsFile, labelLengthsEnd );
+
+            logger.info( "Compacted DNC render cache: chunks = " + chunkCount + ", re-encoded = " + reencodedCount + ", cache-dir = " + renderDir );
+            return reencodedCount;
+        }
+        finally
+        {
+            unlockFile( mutexFile );
+        }
+    }
+
+
+    protected static void truncateFile( File file, long size ) throws IOException
+    {
+        try ( FileChannel channel = FileChannel.open( file.toPath( ), WRITE ) )
+        {
+            if ( channel.size( ) > size ) channel.truncate( size );
+        }
+    }
+
+
+    protected static final String compactingSuffix = ".compacting";
+    protected static final String compactingCommitFilename = "compacting.commit";
+
+    /**
+     * Completes or discards an interrupted {@link #compactRenderCache(RenderCacheConfig)}. If the
+     * commit marker exists, the new files are renamed into place (skipping any already renamed).
+     * Otherwise, any partial new files are deleted. The caller must hold the cache's file lock.
+     */
+    protected static void finishCompaction( File renderDir ) throws IOException
+    {
+        File commitFile = new File( renderDir, compactingCommitFilename );
+        File[][] swaps = { { new File( renderDir, renderVerticesFilename + compactingSuffix ), new File( renderDir, renderVerticesFilename ) },
+                           { new File( renderDir, renderChunksFilename + compactingSuffix ), new File( renderDir, renderChunksFilename ) } };
+
+        if ( commitFile.exists( ) )
+        {
+            for ( File[] swap : swaps )
+            {
+                if ( swap[0].exists( ) )
+                {
+                    Files.move( swap[0].toPath( ), swap[1].toPath( ), ATOMIC_MOVE );
+                }
+            }
+            Files.delete( commitFile.toPath( ) );
+        }
+        else
+        {
+            for ( File[] swap : swaps )
+            {
+                Files.deleteIfExists( swap[0].toPath( ) );
+            }
+        }
+    }
+
+
     public static String renderConfigString( RenderCacheConfig config ) throws IOException
     {
         StringBuilder configString = new StringBuilder( );
@@ -988,6 +1245,7 @@ public class Flat2Render
 
         configString.append( "proj = " ).append( config.proj.configString( ) ).append( "\n" );
         configString.append( "geosymAssignments = " ).append( config.geosymAssignmentsFilename ).append( "\n" );
+        configString.append( "vertexMantissaBits = " ).append( config.vertexMantissaBits ).append( "\n" );
         configString.append( "\n" );
 
         for ( Entry<String,Object> en : config.externalAttrs.entrySet( ) )
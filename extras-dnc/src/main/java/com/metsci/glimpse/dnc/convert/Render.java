@@ -48,7 +48,7 @@ import com.metsci.glimpse.dnc.DncChunks.DncChunkKey;
 public class Render
 {
 
-    public static final String renderFormatVersion = "13";
+    public static final String renderFormatVersion = "14";
 
 
     public static final String renderCharsetFilename = "charset";
@@ -68,7 +68,7 @@ public class Render
     public static final String renderVerticesFilename = "vertices";
 
 
-    public static final int longsPerRenderChunk = 11;
+    public static final int longsPerRenderChunk = 13;
     public static final int intsPerRenderGroup = 11;
     public static final int floatsPerRenderLibrary = 4;
 
@@ -191,9 +191,13 @@ public class Render
         public final int labelLengthFirst;
         public final int labelLengthCount;
 
-        public final long vertexCoordFirst;
         public final int vertexCoordCount;
 
+        // Location of the encoded vertices in the vertices file
+        public final long vertexByteFirst;
+        public final int vertexByteCount;
+        public final int vertexEncoding;
+
         public RenderChunk( DncChunkKey chunkKey,
 
                             int featureCount,
@@ -207,8 +211,11 @@ public class Render
                             int labelLengthFirst,
                             int labelLengthCount,
 
-                            long vertexCoordFirst,
-                            int vertexCoordCount )
+                            int vertexCoordCount,
+
+                            long vertexByteFirst,
+                            int vertexByteCount,
+                            int vertexEncoding )
         {
             this.chunkKey = chunkKey;
 
@@ -223,8 +230,11 @@ public class Render
             this.labelLengthFirst = labelLengthFirst;
             this.labelLengthCount = labelLengthCount;
 
-            this.vertexCoordFirst = vertexCoordFirst;
             this.vertexCoordCount = vertexCoordCount;
+
+            this.vertexByteFirst = vertexByteFirst;
+            this.vertexByteCount = vertexByteCount;
+            this.vertexEncoding = vertexEncoding;
         }
     }
 
@@ -248,13 +258,16 @@ public class Render
             int labelLengthFirst = ( int ) chunksBuf.get( );
             int labelLengthCount = ( int ) chunksBuf.get( );
 
-            long vertexCoordFirst = chunksBuf.get( );
             int vertexCoordCount = ( int ) chunksBuf.get( );
 
+            long vertexByteFirst = chunksBuf.get( );
+            int vertexByteCount = ( int ) chunksBuf.get( );
+            int vertexEncoding = ( int ) chunksBuf.get( );
+
             DncLibrary library = libraries.get( libraryNum );
             DncCoverage coverage = coverages.get( coverageNum );
             DncChunkKey chunkKey = new DncChunkKey( library, coverage );
-            chunks.add( new RenderChunk( chunkKey, featureCount, groupFirst, groupCount, labelCharFirst, labelCharCount, labelLengthFirst, labelLengthCount, vertexCoordFirst, vertexCoordCount ) );
+            chunks.add( new RenderChunk( chunkKey, featureCount, groupFirst, groupCount, labelCharFirst, labelCharCount, labelLengthFirst, labelLengthCount, vertexCoordCount, vertexByteFirst, vertexByteCount, vertexEncoding ) );
         }
         return chunks;
     }
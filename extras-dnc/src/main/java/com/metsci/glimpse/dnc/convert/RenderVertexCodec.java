@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2016, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.dnc.convert;
+
+import static java.lang.Float.floatToRawIntBits;
+import static java.lang.Float.intBitsToFloat;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+import com.metsci.glimpse.util.primitives.IntsArray;
+
+/**
+ * Compact encoding for a chunk's render vertices.
+ * <p>
+ * A chunk's vertex coords are a sequence of sections (the triangles, lines, icons, and labels of
+ * each group), and each section has a fixed stride (coords per vertex). Within a section, each
+ * coord is stored as the zigzag-varint difference between its float bits and the float bits of
+ * the same component of the previous vertex. Neighboring vertices are close together, and feature
+ * numbers repeat, so most differences fit in one or two bytes.
+ * <p>
+ * Optionally, the x and y components can be quantized by keeping fewer than the full 23 mantissa
+ * bits. The dropped bits are shifted out before differencing, so they cost nothing. Keeping all 23
+ * bits makes the encoding lossless. A NaN in x or y stays NaN as long as at least one mantissa bit
+ * is kept.
+ * <p>
+ * Encoded layout: section-count, then ( coord-count, stride ) for each section, then the coord
+ * differences of each section in order -- all as varints.
+ */
+public class RenderVertexCodec
+{
+
+    public static final int renderVertexEncodingRaw = 0;
+    public static final int renderVertexEncodingDelta = 1;
+
+    public static final int fullMantissaBits = 23;
+
+    protected static final int exponentMask = 0x7F800000;
+
+    // Only x and y get quantized -- feature numbers, distances, and rotations must stay exact
+    protected static final int quantizedCoordsPerVertex = 2;
+
+
+    /**
+     * @param coords vertex coords, from position to limit
+     * @param sections ( coord-count, stride ) pairs, covering all of {@code coords}
+     * @param mantissaBits number of mantissa bits to keep for x and y, between 0 and 23
+     */
+    public static ByteBuffer encodeRenderVertices( FloatBuffer coords, IntsArray sections, int mantissaBits )
+    {
+        if ( mantissaBits < 0 || mantissaBits > fullMantissaBits ) throw new IllegalArgumentException( "Mantissa bits must be between 0 and " + fullMantissaBits + ": mantissa-bits = " + mantissaBits );
+        if ( sections.n % 2 != 0 ) throw new IllegalArgumentException( "Sections array must contain ( coord-count, stride ) pairs" );
+
+        int sectionCount = sections.n / 2;
+        int maxVarintBytes = 5;
+        ByteBuffer out = ByteBuffer.allocate( maxVarintBytes * ( 1 + 2*sectionCount + coords.remaining( ) ) );
+
+        putVarint( out, sectionCount );
+        for ( int s = 0; s < sectionCount; s++ )
+        {
+            putVarint( out, sections.a[ 2*s + 0 ] );
+            putVarint( out, sections.a[ 2*s + 1 ] );
+        }
+
+        int dropBits = fullMantissaBits - mantissaBits;
+        int[] prevBits = new int[ 0 ];
+        int c = coords.position( );
+        for ( int s = 0; s < sectionCount; s++ )
+        {
+            int coordCount = sections.a[ 2*s + 0 ];
+            int stride = sections.a[ 2*s + 1 ];
+            if ( prevBits.length < stride ) prevBits = new int[ stride ];
+            for ( int k = 0; k < stride; k++ ) prevBits[ k ] = 0;
+
+            for ( int i = 0; i < coordCount; i++ )
+            {
+                int k = i % stride;
+                int bits = floatToRawIntBits( coords.get( c++ ) );
+                if ( k < quantizedCoordsPerVertex && dropBits > 0 )
+                {
+                    // Round to nearest, then shift out the dropped bits -- a carry into the
+                    // exponent is still the correctly rounded float. Infinities and NaNs are
+                    // truncated instead, since rounding a NaN can carry into the sign bit
+                    boolean finite = ( ( bits & exponentMask ) != exponentMask );
+                    bits = ( finite ? bits + ( 1 << ( dropBits - 1 ) ) : bits ) >> dropBits;
+                }
+                putVarint( out, zigzag( bits - prevBits[ k ] ) );
+                prevBits[ k ] = bits;
+            }
+        }
+
+        out.flip( );
+        return out;
+    }
+
+    /**
+     * Decodes from position to limit of {@code encoded}, writing coords into {@code out} starting
+     * at its position. Advances the positions of both buffers.
+     *
+     * @param mantissaBits must match the value used for encoding
+     */
+    public static void decodeRenderVertices( ByteBuffer encoded, int mantissaBits, FloatBuffer out )
+    {
+        int dropBits = fullMantissaBits - mantissaBits;
+
+        int sectionCount = getVarint( encoded );
+        int[] sections = new int[ 2*sectionCount ];
+        for ( int s = 0; s < sectionCount; s++ )
+        {
+            sections[ 2*s + 0 ] = getVarint( encoded );
+            sections[ 2*s + 1 ] = getVarint( encoded );
+        }
+
+        int[] prevBits = new int[ 0 ];
+        for ( int s = 0; s < sectionCount; s++ )
+        {
+            int coordCount = sections[ 2*s + 0 ];
+            int stride = sections[ 2*s + 1 ];
+            if ( prevBits.length < stride ) prevBits = new int[ stride ];
+            for ( int k = 0; k < stride; k++ ) prevBits[ k ] = 0;
+
+            for ( int i = 0; i < coordCount; i++ )
+            {
+                int k = i % stride;
+                int bits = prevBits[ k ] + unzigzag( getVarint( encoded ) );
+                prevBits[ k ] = bits;
+                if ( k < quantizedCoordsPerVertex && dropBits > 0 )
+                {
+                    bits = bits << dropBits;
+                }
+                out.put( intBitsToFloat( bits ) );
+            }
+        }
+    }
+
+    protected static int zigzag( int x )
+    {
+        return ( x << 1 ) ^ ( x >> 31 );
+    }
+
+    protected static int unzigzag( int x )
+    {
+        return ( x >>> 1 ) ^ -( x & 1 );
+    }
+
+    protected static void putVarint( ByteBuffer buf, int x )
+    {
+        while ( ( x & ~0x7F ) != 0 )
+        {
+            buf.put( ( byte ) ( ( x & 0x7F ) | 0x80 ) );
+            x >>>= 7;
+        }
+        buf.put( ( byte ) x );
+    }
+
+    protected static int getVarint( ByteBuffer buf )
+    {
+        int x = 0;
+        for ( int shift = 0; true; shift += 7 )
+        {
+            byte b = buf.get( );
+            x |= ( b & 0x7F ) << shift;
+            if ( ( b & 0x80 ) == 0 ) return x;
+        }
+    }
+
+}
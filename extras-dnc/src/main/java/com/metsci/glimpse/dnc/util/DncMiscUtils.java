@@ -36,6 +36,7 @@ import static java.util.Collections.sort;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
 import java.io.BufferedReader;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -43,8 +44,11 @@ import java.io.InputStreamReader;
 import java.io.PrintStream;
 import java.io.RandomAccessFile;
 import java.nio.Buffer;
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -281,6 +285,49 @@ public class DncMiscUtils
         }
     }
 
+    /**
+     * Maps a region of an already-open channel. For a READ_WRITE mapping, the file grows as
+     * needed to contain the region. The channel may be closed afterwards without invalidating
+     * the mapping.
+     */
+    public static MappedByteBuffer memmapRegion( FileChannel channel, MapMode mode, long byteFirst, long byteCount ) throws IOException
+    {
+        MappedByteBuffer mapped = channel.map( mode, byteFirst, byteCount );
+        mapped.order( ByteOrder.nativeOrder( ) );
+        return mapped;
+    }
+
+    /**
+     * Fills {@code dest} from a region of an already-open channel, starting at {@code byteFirst},
+     * then flips it and sets native byte order. Uses positional reads, so the channel's position
+     * is not touched, and concurrent reads of the same channel are safe.
+     * <p>
+     * Unlike a memmap, this holds no OS mapping that has to wait for garbage collection to be
+     * released, which matters when many small regions are read.
+     */
+    public static ByteBuffer readRegion( FileChannel channel, long byteFirst, ByteBuffer dest ) throws IOException
+    {
+        long position = byteFirst;
+        while ( dest.hasRemaining( ) )
+        {
+            int n = channel.read( dest, position );
+            if ( n < 0 ) throw new EOFException( "Unexpected end of file: position = " + position + ", remaining = " + dest.remaining( ) );
+            position += n;
+        }
+
+        dest.flip( );
+        dest.order( ByteOrder.nativeOrder( ) );
+        return dest;
+    }
+
+    /**
+     * Reads a region of an already-open channel into a new heap buffer, in native byte order.
+     */
+    public static ByteBuffer readRegion( FileChannel channel, long byteFirst, int byteCount ) throws IOException
+    {
+        return readRegion( channel, byteFirst, ByteBuffer.allocate( byteCount ) );
+    }
+
     public static MappedByteBuffer createAndMemmapReadWrite( File file, int newFileSize ) throws IOException
     {
         RandomAccessFile raf = null;
@@ -27,12 +27,12 @@
 
 #version 150
 
-uniform vec4 RGBA;
+flat in vec4 vRgba;
 
 out vec4 outRgba;
 
 void main( )
 {
-    outRgba.rgb = RGBA.rgb * RGBA.a;
-    outRgba.a = RGBA.a;
+    outRgba.rgb = vRgba.rgb * vRgba.a;
+    outRgba.a = vRgba.a;
 }
@@ -60,18 +60,61 @@ bool setContains( isampler2D setTexture, float index )
     }
 }
 
+vec4 texelAt( sampler2D table, int index )
+{
+    int rowLength = textureSize( table, 0 ).x;
+    return texelFetch( table, ivec2( index % rowLength, index / rowLength ), 0 );
+}
+
+ivec4 texelAt( isampler2D table, int index )
+{
+    int rowLength = textureSize( table, 0 ).x;
+    return texelFetch( table, ivec2( index % rowLength, index / rowLength ), 0 );
+}
+
+// Each section-table entry is ( coordFirst, geosymAssignmentId ), sorted by coordFirst
+int findAssignmentId( isampler2D sectionTable, int sectionCount, int coordIndex )
+{
+    int lo = 0;
+    int hi = sectionCount - 1;
+    while ( lo < hi )
+    {
+        int mid = ( lo + hi + 1 ) / 2;
+        if ( texelAt( sectionTable, mid ).r <= coordIndex )
+        {
+            lo = mid;
+        }
+        else
+        {
+            hi = mid - 1;
+        }
+    }
+    return texelAt( sectionTable, lo ).g;
+}
+
+const int COORDS_PER_VERTEX = 3;
+
 uniform vec4 AXIS_RECT;
 uniform isampler2D HIGHLIGHT_SET;
+uniform sampler2D STYLE_TABLE;
+uniform isampler2D SECTION_TABLE;
+uniform int SECTION_COUNT;
+uniform int COORD_OFFSET;
 
 in vec3 inAreaVertex;
 
 out float vHighlight;
+flat out vec4 vRgba;
 
 void main( )
 {
     float featureNum = inAreaVertex.z;
     vHighlight = ( setContains( HIGHLIGHT_SET, featureNum ) ? 1.0 : 0.0 );
 
+    int coordIndex = COORD_OFFSET + gl_VertexID*COORDS_PER_VERTEX;
+    int assignmentId = findAssignmentId( SECTION_TABLE, SECTION_COUNT, coordIndex );
+    vRgba = texelAt( STYLE_TABLE, 3*assignmentId + 0 );
+
     vec2 xy_AXIS = inAreaVertex.xy;
     gl_Position = axisXyToNdc( xy_AXIS, AXIS_RECT );
 }
@@ -40,9 +40,13 @@ uniform float FEATHER_THICKNESS_PX;
 
 in float vLineThickness_PX[];
 in float vCumulativeDistance_PX[];
+flat in vec4 vRgba[];
+flat in vec3 vStipple[];
 
 out float gLineThickness_PX;
 out vec2 gPosInQuad_PX;
+flat out vec4 gRgba;
+flat out vec3 gStipple;
 
 void main( )
 {
@@ -68,24 +72,32 @@ void main( )
         gl_Position.xy = posA + edgeDelta;
         gl_Position.zw = vec2( 0.0, 1.0 );
         gLineThickness_PX = lineThickness_PX;
+        gRgba = vRgba[ 0 ];
+        gStipple = vStipple[ 0 ];
         gPosInQuad_PX = vec2( cumulativeDistanceA_PX, quadHalfHeight_PX );
         EmitVertex( );
 
         gl_Position.xy = posA - edgeDelta;
         gl_Position.zw = vec2( 0.0, 1.0 );
         gLineThickness_PX = lineThickness_PX;
+        gRgba = vRgba[ 0 ];
+        gStipple = vStipple[ 0 ];
         gPosInQuad_PX = vec2( cumulativeDistanceA_PX, -quadHalfHeight_PX );
         EmitVertex( );
 
         gl_Position.xy = posB + edgeDelta;
         gl_Position.zw = vec2( 0.0, 1.0 );
         gLineThickness_PX = lineThickness_PX;
+        gRgba = vRgba[ 0 ];
+        gStipple = vStipple[ 0 ];
         gPosInQuad_PX = vec2( cumulativeDistanceB_PX, quadHalfHeight_PX );
         EmitVertex( );
 
         gl_Position.xy = posB - edgeDelta;
         gl_Position.zw = vec2( 0.0, 1.0 );
         gLineThickness_PX = lineThickness_PX;
+        gRgba = vRgba[ 0 ];
+        gStipple = vStipple[ 0 ];
         gPosInQuad_PX = vec2( cumulativeDistanceB_PX, -quadHalfHeight_PX );
         EmitVertex( );
 
@@ -60,22 +60,68 @@ bool setContains( isampler2D setTexture, float index )
     }
 }
 
+vec4 texelAt( sampler2D table, int index )
+{
+    int rowLength = textureSize( table, 0 ).x;
+    return texelFetch( table, ivec2( index % rowLength, index / rowLength ), 0 );
+}
+
+ivec4 texelAt( isampler2D table, int index )
+{
+    int rowLength = textureSize( table, 0 ).x;
+    return texelFetch( table, ivec2( index % rowLength, index / rowLength ), 0 );
+}
+
+// Each section-table entry is ( coordFirst, geosymAssignmentId ), sorted by coordFirst
+int findAssignmentId( isampler2D sectionTable, int sectionCount, int coordIndex )
+{
+    int lo = 0;
+    int hi = sectionCount - 1;
+    while ( lo < hi )
+    {
+        int mid = ( lo + hi + 1 ) / 2;
+        if ( texelAt( sectionTable, mid ).r <= coordIndex )
+        {
+            lo = mid;
+        }
+        else
+        {
+            hi = mid - 1;
+        }
+    }
+    return texelAt( sectionTable, lo ).g;
+}
+
+const int COORDS_PER_VERTEX = 4;
+
 uniform vec4 AXIS_RECT;
 uniform vec2 VIEWPORT_SIZE_PX;
-uniform float LINE_THICKNESS_PX;
 uniform isampler2D HIGHLIGHT_SET;
 uniform float HIGHLIGHT_EXTRA_THICKNESS_PX;
+uniform sampler2D STYLE_TABLE;
+uniform isampler2D SECTION_TABLE;
+uniform int SECTION_COUNT;
+uniform int COORD_OFFSET;
 
 in vec4 inLineVertex;
 
 out float vLineThickness_PX;
 out float vCumulativeDistance_PX;
+flat out vec4 vRgba;
+flat out vec3 vStipple;
 
 void main( )
 {
+    // Style-table row: fill-rgba, line-rgba, ( thickness, stipple-enable, stipple-factor, stipple-pattern )
+    int coordIndex = COORD_OFFSET + gl_VertexID*COORDS_PER_VERTEX;
+    int assignmentId = findAssignmentId( SECTION_TABLE, SECTION_COUNT, coordIndex );
+    vRgba = texelAt( STYLE_TABLE, 3*assignmentId + 1 );
+    vec4 lineParams = texelAt( STYLE_TABLE, 3*assignmentId + 2 );
+    vStipple = lineParams.yzw;
+
     float featureNum = inLineVertex.z;
     bool highlight = setContains( HIGHLIGHT_SET, featureNum );
-    vLineThickness_PX = LINE_THICKNESS_PX + ( highlight ? HIGHLIGHT_EXTRA_THICKNESS_PX : 0.0 );
+    vLineThickness_PX = lineParams.x + ( highlight ? HIGHLIGHT_EXTRA_THICKNESS_PX : 0.0 );
 
     // Assume that ppv-aspect-ratio is 1.0 -- handling variable
     // ppv-aspect-ratio would be difficult, and not very useful
@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2016, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.dnc.convert;
+
+import static com.metsci.glimpse.dnc.convert.RenderVertexCodec.decodeRenderVertices;
+import static com.metsci.glimpse.dnc.convert.RenderVertexCodec.encodeRenderVertices;
+import static com.metsci.glimpse.dnc.convert.RenderVertexCodec.fullMantissaBits;
+import static com.metsci.glimpse.dnc.convert.RenderVertexCodec.getVarint;
+import static com.metsci.glimpse.dnc.convert.RenderVertexCodec.putVarint;
+import static com.metsci.glimpse.dnc.convert.RenderVertexCodec.unzigzag;
+import static com.metsci.glimpse.dnc.convert.RenderVertexCodec.zigzag;
+import static java.lang.Float.floatToRawIntBits;
+import static java.lang.Float.intBitsToFloat;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.Random;
+
+import com.metsci.glimpse.util.primitives.IntsArray;
+
+/**
+ * Checks that {@link RenderVertexCodec} round-trips: zigzag and varint on their own, including
+ * the extreme ints, then whole chunks of vertices with several sections and strides. With all
+ * mantissa bits kept, every coord must come back bit-for-bit (NaNs and negative zero included);
+ * with fewer, x and y must come back within half a unit of the last kept bit (NaNs as NaNs), and
+ * the other components exactly. Run as an application; throws an AssertionError on the first mismatch.
+ */
+public class RenderVertexCodecTest
+{
+    public static void main( String[] args )
+    {
+        Random random = new Random( 9012 );
+
+        checkZigzagAndVarint( random );
+
+        for ( int trial = 0; trial < 200; trial++ )
+        {
+            Chunk chunk = randomChunk( random );
+            checkRoundTrip( chunk, fullMantissaBits );
+            checkRoundTrip( chunk, random.nextInt( fullMantissaBits ) );
+        }
+
+        // Smooth vertices should compress well below the raw 4 bytes per coord
+        Chunk smooth = smoothChunk( random, 10000 );
+        ByteBuffer encoded = encodeRenderVertices( smooth.coords.duplicate( ), smooth.sections, fullMantissaBits );
+        check( encoded.remaining( ) < 3 * smooth.coords.remaining( ), "smooth vertices encoded to " + encoded.remaining( ) + " bytes" );
+
+        System.out.println( "RenderVertexCodecTest passed" );
+    }
+
+    protected static void checkZigzagAndVarint( Random random )
+    {
+        int[] xs = new int[1000];
+        int[] special = { 0, 1, -1, 63, -64, 64, -65, Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE - 1, Integer.MIN_VALUE + 1 };
+        System.arraycopy( special, 0, xs, 0, special.length );
+        for ( int i = special.length; i < xs.length; i++ )
+        {
+            // Mix of small and large magnitudes, so every varint length gets used
+            xs[i] = random.nextInt( ) >> random.nextInt( 32 );
+        }
+
+        ByteBuffer buf = ByteBuffer.allocate( 5 * xs.length );
+        for ( int x : xs )
+        {
+            int z = zigzag( x );
+            check( unzigzag( z ) == x, "zigzag failed to round-trip " + x );
+            if ( -64 <= x && x < 64 ) check( ( z & ~0x7F ) == 0, "zigzag of small value " + x + " needs more than one varint byte" );
+            putVarint( buf, z );
+        }
+
+        buf.flip( );
+        for ( int x : xs )
+        {
+            check( unzigzag( getVarint( buf ) ) == x, "varint failed to round-trip " + x );
+        }
+        check( !buf.hasRemaining( ), "varints left bytes unread" );
+    }
+
+    protected static void checkRoundTrip( Chunk chunk, int mantissaBits )
+    {
+        ByteBuffer encoded = encodeRenderVertices( chunk.coords.duplicate( ), chunk.sections, mantissaBits );
+
+        // Decode after some leading garbage, to check that positions are honored
+        FloatBuffer decoded = FloatBuffer.allocate( 3 + chunk.coords.remaining( ) );
+        decoded.position( 3 );
+        decodeRenderVertices( encoded, mantissaBits, decoded );
+        check( !encoded.hasRemaining( ), "decode did not consume all bytes" );
+        check( !decoded.hasRemaining( ), "decode wrote the wrong number of coords" );
+
+        int dropBits = fullMantissaBits - mantissaBits;
+        int c = chunk.coords.position( );
+        int d = 3;
+        for ( int s = 0; s < chunk.sections.n / 2; s++ )
+        {
+            int coordCount = chunk.sections.a[2 * s + 0];
+            int stride = chunk.sections.a[2 * s + 1];
+            for ( int i = 0; i < coordCount; i++ )
+            {
+                float expected = chunk.coords.get( c++ );
+                float actual = decoded.get( d++ );
+                if ( dropBits == 0 || i % stride >= 2 )
+                {
+                    check( floatToRawIntBits( actual ) == floatToRawIntBits( expected ), "coord " + i + " of section " + s + ": expected " + expected + ", got " + actual );
+                }
+                else if ( Float.isNaN( expected ) )
+                {
+                    // With no mantissa bits left, a NaN can only come back as an infinity
+                    boolean ok = ( mantissaBits > 0 ? Float.isNaN( actual ) : Float.isInfinite( actual ) );
+                    check( ok, "quantized NaN came back as " + actual + ", mantissa-bits = " + mantissaBits );
+                }
+                else
+                {
+                    float tolerance = Math.ulp( expected ) * ( 1 << dropBits ) / 2;
+                    check( Math.abs( actual - expected ) <= tolerance, "quantized coord " + i + " of section " + s + ": expected " + expected + ", got " + actual + ", mantissa-bits = " + mantissaBits );
+                }
+            }
+        }
+    }
+
+    protected static class Chunk
+    {
+        public final FloatBuffer coords;
+        public final IntsArray sections;
+
+        public Chunk( FloatBuffer coords, IntsArray sections )
+        {
+            this.coords = coords;
+            this.sections = sections;
+        }
+    }
+
+    /**
+     * Random sections of random strides, with coords that are mostly plausible x/y/feature values
+     * plus the occasional special float. The coords start at a nonzero buffer position.
+     */
+    protected static Chunk randomChunk( Random random )
+    {
+        int sectionCount = random.nextInt( 6 );
+        IntsArray sections = new IntsArray( );
+        int total = 0;
+        for ( int s = 0; s < sectionCount; s++ )
+        {
+            int stride = 1 + random.nextInt( 5 );
+            int coordCount = stride * random.nextInt( 300 );
+            sections.append( coordCount );
+            sections.append( stride );
+            total += coordCount;
+        }
+
+        float[] special = { 0f, -0f, Float.NaN, intBitsToFloat( 0x7FC01234 ), Float.MIN_VALUE, -Float.MIN_NORMAL, 1e30f, -1e30f };
+        int offset = random.nextInt( 4 );
+        FloatBuffer coords = FloatBuffer.allocate( offset + total );
+        coords.position( offset );
+        for ( int i = 0; i < total; i++ )
+        {
+            if ( random.nextInt( 50 ) == 0 )
+            {
+                coords.put( special[random.nextInt( special.length )] );
+            }
+            else
+            {
+                coords.put( ( float ) ( ( random.nextDouble( ) - 0.5 ) * Math.pow( 10, random.nextInt( 8 ) - 3 ) ) );
+            }
+        }
+        coords.position( offset );
+        return new Chunk( coords, sections );
+    }
+
+    /**
+     * A single stride-3 section tracing a random walk, with a slowly changing feature number in
+     * the third component -- roughly what a line section looks like.
+     */
+    protected static Chunk smoothChunk( Random random, int vertexCount )
+    {
+        FloatBuffer coords = FloatBuffer.allocate( 3 * vertexCount );
+        float x = 0.3f;
+        float y = -0.2f;
+        int feature = 0;
+        for ( int v = 0; v < vertexCount; v++ )
+        {
+            x += 1e-5f * ( float ) random.nextGaussian( );
+            y += 1e-5f * ( float ) random.nextGaussian( );
+            if ( random.nextInt( 20 ) == 0 ) feature++;
+            coords.put( x ).put( y ).put( feature );
+        }
+        coords.flip( );
+        return new Chunk( coords, new IntsArray( new int[] { 3 * vertexCount, 3 } ) );
+    }
+
+    protected static void check( boolean condition, String message )
+    {
+        if ( !condition ) throw new AssertionError( message );
+    }
+}
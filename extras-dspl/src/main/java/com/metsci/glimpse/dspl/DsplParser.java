@@ -30,6 +30,8 @@ import java.io.File;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 
 import javax.xml.bind.JAXBException;
 import javax.xml.namespace.QName;
@@ -37,6 +39,7 @@ import javax.xml.namespace.QName;
 import com.metsci.glimpse.dspl.parser.ColumnBinaryParser;
 import com.metsci.glimpse.dspl.parser.CsvParser;
 import com.metsci.glimpse.dspl.parser.ExtendedCsvParser;
+import com.metsci.glimpse.dspl.parser.MappedColumnBinaryParser;
 import com.metsci.glimpse.dspl.parser.TableParser;
 import com.metsci.glimpse.dspl.parser.WildcardCsvParser;
 import com.metsci.glimpse.dspl.schema.Concept;
@@ -56,9 +59,13 @@ public class DsplParser
     protected boolean failOnError = true;
     protected boolean noNetworkMode = true;
     protected boolean cacheMode = false;
+    protected boolean cacheSampledHash = false;
+    protected boolean cacheIncremental = false;
 
     protected File cacheLocation = null;
 
+    protected ExecutorService parseExecutor = ForkJoinPool.commonPool( );
+
     public DsplParser( )
     {
         datasetCache = new HashMap<String, DataSet>( );
@@ -67,6 +74,7 @@ public class DsplParser
         parsers.put( "csvx", new ExtendedCsvParser( this ) );
         parsers.put( "csv*", new WildcardCsvParser( this ) );
         parsers.put( "bin", new ColumnBinaryParser( ) );
+        parsers.put( "binm", new MappedColumnBinaryParser( ) );
     }
 
     public boolean isFailOnErrorMode( )
@@ -89,6 +97,35 @@ public class DsplParser
         cacheMode = mode;
     }
 
+    /**
+     * If true, cache fingerprints include a hash of evenly spaced samples of each source file, which
+     * detects most modifications which preserve file size and modification time. Otherwise only
+     * size, modification time, file identity, and the final bytes of the file are compared.
+     */
+    public void setCacheSampledHash( boolean sampledHash )
+    {
+        cacheSampledHash = sampledHash;
+    }
+
+    public boolean isCacheSampledHash( )
+    {
+        return cacheSampledHash;
+    }
+
+    /**
+     * If true, and a single-file csv table has only had rows appended since it was cached, only the
+     * new rows are parsed and they are appended to the cached columns.
+     */
+    public void setCacheIncremental( boolean incremental )
+    {
+        cacheIncremental = incremental;
+    }
+
+    public boolean isCacheIncremental( )
+    {
+        return cacheIncremental;
+    }
+
     public void setCacheDirectory( String directory )
     {
         cacheLocation = new File( directory );
@@ -114,6 +151,20 @@ public class DsplParser
         return !noNetworkMode;
     }
 
+    /**
+     * Sets the executor used by table parsers to parse large tables (or tables split across
+     * several files) concurrently. If null, tables are parsed on the calling thread.
+     */
+    public void setParseExecutor( ExecutorService executor )
+    {
+        parseExecutor = executor;
+    }
+
+    public ExecutorService getParseExecutor( )
+    {
+        return parseExecutor;
+    }
+
     public void addTableParser( String format, TableParser parser )
     {
         parsers.put( format, parser );
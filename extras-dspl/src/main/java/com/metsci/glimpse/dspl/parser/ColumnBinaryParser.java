@@ -40,7 +40,6 @@ import java.nio.channels.Channels;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -99,61 +98,19 @@ public class ColumnBinaryParser implements TableParser, TableWriter
             // each .bin file must start with the correct magic number identifier
             dataChannel.writeInt( MAGIC );
 
-            Collection<String> dimensionConceptIds = data.getDimensionColumnIds( );
-            Collection<String> metricConceptIds = data.getMetricColumnIds( );
-
-            // count the number of columns to write out
-            // constant columns have their value specified in the dspl metadata, so they are not counted
-            int numColumns = 0;
+            // constant columns have their value specified in the dspl metadata, so they are not written
+            List<TableColumn> columnList = getNonConstantColumns( data );
+            int numColumns = columnList.size( );
             int numRows = data.getNumRows( );
 
-            List<TableColumn> columnList = new ArrayList<TableColumn>( );
-
-            for ( String dimensionConceptId : dimensionConceptIds )
-            {
-                TableColumn column = data.getDimensionColumn( dimensionConceptId );
-
-                if ( !column.isConstant( ) )
-                {
-                    columnList.add( column );
-                    numColumns++;
-                }
-            }
-
-            for ( String metricConceptId : metricConceptIds )
-            {
-                TableColumn column = data.getMetricColumn( metricConceptId );
-
-                if ( !column.isConstant( ) )
-                {
-                    columnList.add( column );
-                    numColumns++;
-                }
-            }
-
             // write the number of rows and columns in the data set
             dataChannel.writeInt( numColumns );
             dataChannel.writeInt( numRows );
 
             // write the header information for non-constant columns
-            for ( String dimensionConceptId : dimensionConceptIds )
+            for ( TableColumn column : columnList )
             {
-                TableColumn column = data.getDimensionColumn( dimensionConceptId );
-
-                if ( !column.isConstant( ) )
-                {
-                    dataChannel.writeString( column.getColumn( ).getId( ) );
-                }
-            }
-
-            for ( String metricConceptId : metricConceptIds )
-            {
-                TableColumn column = data.getMetricColumn( metricConceptId );
-
-                if ( !column.isConstant( ) )
-                {
-                    dataChannel.writeString( column.getColumn( ).getId( ) );
-                }
+                dataChannel.writeString( column.getColumn( ).getId( ) );
             }
 
             for ( int j = 0; j < numColumns; j++ )
@@ -184,39 +141,19 @@ public class ColumnBinaryParser implements TableParser, TableWriter
             // each .bin file must start with the correct magic number identifier
             dataChannel.writeInt( MAGIC );
 
-            Collection<String> conceptIds = data.getColumnIds( );
-
-            // count the number of columns to write out
-            // constant columns have their value specified in the dspl metadata, so they are not counted
-            int numColumns = 0;
+            // constant columns have their value specified in the dspl metadata, so they are not written
+            List<TableColumn> columnList = getNonConstantColumns( data );
+            int numColumns = columnList.size( );
             int numRows = data.getNumRows( );
 
-            List<TableColumn> columnList = new ArrayList<TableColumn>( );
-
-            for ( String conceptId : conceptIds )
-            {
-                TableColumn column = data.getColumn( conceptId );
-
-                if ( !column.isConstant( ) )
-                {
-                    columnList.add( column );
-                    numColumns++;
-                }
-            }
-
             // write the number of rows and columns in the data set
             dataChannel.writeInt( numColumns );
             dataChannel.writeInt( numRows );
 
             // write the header information for non-constant columns
-            for ( String conceptId : conceptIds )
+            for ( TableColumn column : columnList )
             {
-                TableColumn column = data.getColumn( conceptId );
-
-                if ( !column.isConstant( ) )
-                {
-                    dataChannel.writeString( column.getColumn( ).getId( ) );
-                }
+                dataChannel.writeString( column.getColumn( ).getId( ) );
             }
 
             for ( int j = 0; j < numColumns; j++ )
@@ -239,6 +176,42 @@ public class ColumnBinaryParser implements TableParser, TableWriter
 
     }
 
+    /**
+     * The columns written to a binary table, in file order: non-constant dimension columns, then
+     * non-constant metric columns.
+     */
+    protected List<TableColumn> getNonConstantColumns( SliceTableData data )
+    {
+        List<TableColumn> columnList = new ArrayList<TableColumn>( );
+
+        for ( String dimensionConceptId : data.getDimensionColumnIds( ) )
+        {
+            TableColumn column = data.getDimensionColumn( dimensionConceptId );
+            if ( !column.isConstant( ) ) columnList.add( column );
+        }
+
+        for ( String metricConceptId : data.getMetricColumnIds( ) )
+        {
+            TableColumn column = data.getMetricColumn( metricConceptId );
+            if ( !column.isConstant( ) ) columnList.add( column );
+        }
+
+        return columnList;
+    }
+
+    protected List<TableColumn> getNonConstantColumns( PropertyTableData data )
+    {
+        List<TableColumn> columnList = new ArrayList<TableColumn>( );
+
+        for ( String conceptId : data.getColumnIds( ) )
+        {
+            TableColumn column = data.getColumn( conceptId );
+            if ( !column.isConstant( ) ) columnList.add( column );
+        }
+
+        return columnList;
+    }
+
     protected void write( TableColumn column, WritableDataChannel dataChannel ) throws DsplException, IOException
     {
         String columnFormat = column.getColumn( ).getFormat( );
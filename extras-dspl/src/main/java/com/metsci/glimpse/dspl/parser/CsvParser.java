@@ -35,11 +35,19 @@ import static com.metsci.glimpse.dspl.parser.util.QuoteAwareStringSplitter.split
 import static com.metsci.glimpse.util.logging.LoggerUtils.logWarning;
 
 import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.nio.channels.Channels;
 import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
 
 import javax.xml.bind.JAXBException;
@@ -48,6 +56,9 @@ import com.metsci.glimpse.dspl.DsplParser;
 import com.metsci.glimpse.dspl.parser.column.SliceColumnType;
 import com.metsci.glimpse.dspl.parser.table.PropertyTableData;
 import com.metsci.glimpse.dspl.parser.table.SliceTableData;
+import com.metsci.glimpse.dspl.parser.util.CsvChunkReader;
+import com.metsci.glimpse.dspl.parser.util.CsvChunkReader.Chunk;
+import com.metsci.glimpse.dspl.parser.util.CsvChunkReader.LineHandler;
 import com.metsci.glimpse.dspl.parser.util.ParserUtils.BooleanColumnParser;
 import com.metsci.glimpse.dspl.parser.util.ParserUtils.DateColumnParser;
 import com.metsci.glimpse.dspl.parser.util.ParserUtils.FloatColumnParser;
@@ -74,8 +85,11 @@ public class CsvParser implements TableParser
 {
     public static final Logger logger = Logger.getLogger( CsvParser.class.getName( ) );
 
+    public static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+
     protected ParserFactory factory;
     protected DsplParser dsplParser;
+    protected int chunkSize = DEFAULT_CHUNK_SIZE;
 
     public CsvParser( DsplParser dsplParser )
     {
@@ -88,6 +102,20 @@ public class CsvParser implements TableParser
         return new CSVParserFactory( );
     }
 
+    /**
+     * Sets the approximate number of bytes of CSV text parsed as one unit of work when
+     * parsing on the {@link DsplParser#getParseExecutor( )}.
+     */
+    public void setChunkSize( int chunkSize )
+    {
+        this.chunkSize = chunkSize;
+    }
+
+    public int getChunkSize( )
+    {
+        return chunkSize;
+    }
+
     @Override
     public boolean isCachable( )
     {
@@ -109,11 +137,11 @@ public class CsvParser implements TableParser
     @Override
     public SliceTableData parse( Slice slice, InputStream stream ) throws IOException, JAXBException, DsplException
     {
-        BufferedReader in = new BufferedReader( new InputStreamReader( stream ) );
+        CsvChunkReader in = newChunkReader( stream );
 
         try
         {
-            TableParserInfo info = newParserInfo( slice, in );
+            TableParserInfo info = newParserInfo( slice, parseFirstLine( in.readLine( ) ) );
 
             parse( in, info );
 
@@ -140,12 +168,58 @@ public class CsvParser implements TableParser
     @Override
     public PropertyTableData parse( Concept concept, InputStream stream ) throws IOException, JAXBException, DsplException
     {
-        BufferedReader in = new BufferedReader( new InputStreamReader( stream ) );
+        CsvChunkReader in = newChunkReader( stream );
+
+        try
+        {
+            TableParserInfo info = newParserInfo( concept, parseFirstLine( in.readLine( ) ) );
+
+            parse( in, info );
+
+            return buildPropertyTableData( concept, info, factory );
+        }
+        finally
+        {
+            in.close( );
+        }
+    }
+
+    /**
+     * Parses only the rows of a local csv file which start at or after byte offset {@code start},
+     * using the header line at the beginning of the file. {@code start} must be at a line boundary.
+     * Used to bring a cache up to date when rows have been appended to the file.
+     */
+    public SliceTableData parseTail( Slice slice, File file, long start ) throws IOException, JAXBException, DsplException
+    {
+        CsvChunkReader in = newChunkReader( new FileInputStream( file ) );
 
         try
         {
-            TableParserInfo info = newParserInfo( concept, in );
+            TableParserInfo info = newParserInfo( slice, parseFirstLine( in.readLine( ) ) );
 
+            skipTo( in, start );
+            parse( in, info );
+
+            return buildSliceTableData( slice, info, factory );
+        }
+        finally
+        {
+            in.close( );
+        }
+    }
+
+    /**
+     * @see #parseTail(Slice, File, long)
+     */
+    public PropertyTableData parseTail( Concept concept, File file, long start ) throws IOException, JAXBException, DsplException
+    {
+        CsvChunkReader in = newChunkReader( new FileInputStream( file ) );
+
+        try
+        {
+            TableParserInfo info = newParserInfo( concept, parseFirstLine( in.readLine( ) ) );
+
+            skipTo( in, start );
             parse( in, info );
 
             return buildPropertyTableData( concept, info, factory );
@@ -156,43 +230,184 @@ public class CsvParser implements TableParser
         }
     }
 
+    protected void skipTo( CsvChunkReader in, long start ) throws IOException
+    {
+        if ( in.getPosition( ) < start )
+        {
+            in.skip( start - in.getPosition( ) );
+        }
+    }
+
+    protected CsvChunkReader newChunkReader( InputStream stream )
+    {
+        // match the charset of the InputStreamReader used for line-by-line parsing
+        return new CsvChunkReader( stream, Charset.defaultCharset( ), chunkSize );
+    }
+
+    /**
+     * Parses the remaining lines of the stream into the parsers of the provided TableParserInfo.<p>
+     *
+     * If the DsplParser has a parse executor, chunks of lines are parsed concurrently into
+     * separate sets of column parsers, which are then appended to the parsers of the
+     * TableParserInfo in file order.
+     */
+    protected void parse( CsvChunkReader in, TableParserInfo info ) throws IOException, DsplException
+    {
+        CSVTableColumnParser[] parsers = ( CSVTableColumnParser[] ) info.getParsers( );
+        ExecutorService exec = dsplParser.getParseExecutor( );
+
+        Chunk first = in.nextChunk( );
+        if ( first == null ) return;
+
+        Chunk second = in.nextChunk( );
+        if ( exec == null || second == null )
+        {
+            // small file, or no executor: parse on this thread
+            for ( Chunk chunk = first; chunk != null; chunk = ( chunk == first ? second : in.nextChunk( ) ) )
+            {
+                parse( chunk, in.getCharset( ), info, parsers );
+            }
+            return;
+        }
+
+        // bound the number of chunks in memory at once
+        int maxPending = 2 * Runtime.getRuntime( ).availableProcessors( );
+        Deque<Future<CSVTableColumnParser[]>> pending = new ArrayDeque<Future<CSVTableColumnParser[]>>( );
+
+        try
+        {
+            pending.add( submit( exec, first, in.getCharset( ), info ) );
+            for ( Chunk chunk = second; chunk != null; chunk = in.nextChunk( ) )
+            {
+                if ( pending.size( ) >= maxPending )
+                {
+                    append( parsers, getResult( pending.removeFirst( ) ) );
+                }
+
+                pending.add( submit( exec, chunk, in.getCharset( ), info ) );
+            }
+
+            while ( !pending.isEmpty( ) )
+            {
+                append( parsers, getResult( pending.removeFirst( ) ) );
+            }
+        }
+        finally
+        {
+            for ( Future<CSVTableColumnParser[]> future : pending )
+            {
+                future.cancel( true );
+            }
+        }
+    }
+
+    protected Future<CSVTableColumnParser[]> submit( ExecutorService exec, final Chunk chunk, final Charset charset, final TableParserInfo info )
+    {
+        return exec.submit( new Callable<CSVTableColumnParser[]>( )
+        {
+            @Override
+            public CSVTableColumnParser[] call( ) throws Exception
+            {
+                CSVTableColumnParser[] chunkParsers = getParsers( factory, info.getColumns( ), info.getDataTypes( ) );
+                parse( chunk, charset, info, chunkParsers );
+                return chunkParsers;
+            }
+        } );
+    }
+
+    protected void parse( Chunk chunk, Charset charset, final TableParserInfo info, final CSVTableColumnParser[] parsers ) throws IOException, DsplException
+    {
+        CsvChunkReader.forEachLine( chunk, charset, new LineHandler( )
+        {
+            @Override
+            public void handleLine( String line ) throws IOException, DsplException
+            {
+                parseLine( line, info, parsers );
+            }
+        } );
+    }
+
+    protected static void append( CSVTableColumnParser[] parsers, CSVTableColumnParser[] chunkParsers )
+    {
+        for ( int i = 0; i < parsers.length; i++ )
+        {
+            parsers[i].append( chunkParsers[i] );
+        }
+    }
+
+    protected static <T> T getResult( Future<T> future ) throws IOException, DsplException
+    {
+        try
+        {
+            return future.get( );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+            throw new DsplException( "Interrupted while parsing.", e );
+        }
+        catch ( ExecutionException e )
+        {
+            Throwable cause = e.getCause( );
+            if ( cause instanceof DsplException ) throw ( DsplException ) cause;
+            if ( cause instanceof IOException ) throw ( IOException ) cause;
+            if ( cause instanceof RuntimeException ) throw ( RuntimeException ) cause;
+            if ( cause instanceof Error ) throw ( Error ) cause;
+            throw new DsplException( "Problem parsing.", cause );
+        }
+    }
+
     protected void parse( BufferedReader in, TableParserInfo info ) throws IOException, DsplException
     {
         CSVTableColumnParser[] parsers = ( CSVTableColumnParser[] ) info.getParsers( );
 
-        int size = parsers.length;
         String line = null;
 
         while ( ( line = in.readLine( ) ) != null )
         {
             if ( line.isEmpty( ) ) continue;
 
-            String[] tokens = splitLine( line );
+            parseLine( line, info, parsers );
+        }
+    }
+
+    /**
+     * Parses a single non-empty line into the provided parsers, which may be either the parsers
+     * of the TableParserInfo or a set of parsers for one chunk of the file.
+     */
+    protected void parseLine( String line, TableParserInfo info, CSVTableColumnParser[] parsers ) throws IOException, DsplException
+    {
+        int size = parsers.length;
+
+        String[] tokens = splitLine( line );
 
-            if ( tokens.length == size )
+        if ( tokens.length == size )
+        {
+            for ( int i = 0; i < size; i++ )
             {
-                for ( int i = 0; i < size; i++ )
-                {
-                    parsers[i].addData( tokens[i] );
-                }
+                parsers[i].addData( tokens[i] );
+            }
+        }
+        else
+        {
+            if ( dsplParser.isFailOnErrorMode( ) )
+            {
+                throw new DsplException( "Encountered row of incorrect size (expected %d found %d): [%s]", size, tokens.length, line );
             }
             else
             {
-                if ( dsplParser.isFailOnErrorMode( ) )
-                {
-                    throw new DsplException( "Encountered row of incorrect size (expected %d found %d): [%s]", size, tokens.length, line );
-                }
-                else
-                {
-                    logWarning( logger, "Skipping row of incorrect size (expected %d found %d): [%s]", size, tokens.length, line );
-                }
+                logWarning( logger, "Skipping row of incorrect size (expected %d found %d): [%s]", size, tokens.length, line );
             }
         }
     }
 
     protected String[] parseFirstLine( BufferedReader in ) throws IOException, JAXBException
     {
-        String line = in.readLine( );
+        return parseFirstLine( in.readLine( ) );
+    }
+
+    protected String[] parseFirstLine( String line ) throws IOException, JAXBException
+    {
         String[] tokens = splitLine( line );
 
         int size = tokens.length;
@@ -226,6 +441,12 @@ public class CsvParser implements TableParser
         public void addData( String data ) throws DsplException;
 
         public void addGap( );
+
+        /**
+         * Appends the rows of another parser, created by the same factory for the same column,
+         * after the rows of this parser.
+         */
+        public void append( CSVTableColumnParser other );
     }
 
     public class CSVParserFactory extends SimpleParserFactory
@@ -280,6 +501,12 @@ public class CsvParser implements TableParser
         {
             data.add( null );
         }
+
+        @Override
+        public void append( CSVTableColumnParser other )
+        {
+            data.addAll( ( ( CSVStringColumnParser ) other ).data );
+        }
     }
 
     protected class CSVIntegerColumnParser extends IntegerColumnParser implements CSVTableColumnParser
@@ -318,6 +545,12 @@ public class CsvParser implements TableParser
         {
             data.append( -1 );
         }
+
+        @Override
+        public void append( CSVTableColumnParser other )
+        {
+            data.append( ( ( CSVIntegerColumnParser ) other ).data );
+        }
     }
 
     protected class CSVFloatColumnParser extends FloatColumnParser implements CSVTableColumnParser
@@ -356,6 +589,12 @@ public class CsvParser implements TableParser
         {
             data.append( -1 );
         }
+
+        @Override
+        public void append( CSVTableColumnParser other )
+        {
+            data.append( ( ( CSVFloatColumnParser ) other ).data );
+        }
     }
 
     protected class CSVBooleanColumnParser extends BooleanColumnParser implements CSVTableColumnParser
@@ -394,6 +633,12 @@ public class CsvParser implements TableParser
         {
             data.append( false );
         }
+
+        @Override
+        public void append( CSVTableColumnParser other )
+        {
+            data.append( ( ( CSVBooleanColumnParser ) other ).data );
+        }
     }
 
     protected class CSVDateColumnParser extends DateColumnParser implements CSVTableColumnParser
@@ -437,11 +682,21 @@ public class CsvParser implements TableParser
         {
             data.append( -1 );
         }
+
+        @Override
+        public void append( CSVTableColumnParser other )
+        {
+            data.append( ( ( CSVDateColumnParser ) other ).data );
+        }
     }
 
     protected TableParserInfo newParserInfo( Concept concept, BufferedReader in ) throws IOException, JAXBException, DsplException
     {
-        String[] columnIds = parseFirstLine( in );
+        return newParserInfo( concept, parseFirstLine( in ) );
+    }
+
+    protected TableParserInfo newParserInfo( Concept concept, String[] columnIds ) throws IOException, JAXBException, DsplException
+    {
         Concept[] concepts = getConcepts( columnIds, concept );
         Column[] columns = getColumns( columnIds, concept.getTable( ) );
         DataType[] types = getTypes( concepts, columns );
@@ -452,7 +707,11 @@ public class CsvParser implements TableParser
 
     protected TableParserInfo newParserInfo( Slice slice, BufferedReader in ) throws IOException, JAXBException, DsplException
     {
-        String[] columnIds = parseFirstLine( in );
+        return newParserInfo( slice, parseFirstLine( in ) );
+    }
+
+    protected TableParserInfo newParserInfo( Slice slice, String[] columnIds ) throws IOException, JAXBException, DsplException
+    {
         Concept[] concepts = new Concept[columnIds.length];
         SliceColumnType[] sliceColumnTypes = new SliceColumnType[columnIds.length];
         getConcepts( columnIds, slice, concepts, sliceColumnTypes );
@@ -31,9 +31,7 @@ import static com.metsci.glimpse.dspl.parser.util.ParserUtils.buildSliceTableDat
 import static com.metsci.glimpse.dspl.parser.util.QuoteAwareStringSplitter.splitLine;
 import static com.metsci.glimpse.util.logging.LoggerUtils.logWarning;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.text.DateFormat;
@@ -43,6 +41,9 @@ import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.regex.Pattern;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
@@ -55,6 +56,8 @@ import com.metsci.glimpse.dspl.parser.column.CompactStringTableColumn;
 import com.metsci.glimpse.dspl.parser.column.TableColumn;
 import com.metsci.glimpse.dspl.parser.table.PropertyTableData;
 import com.metsci.glimpse.dspl.parser.table.SliceTableData;
+import com.metsci.glimpse.dspl.parser.util.CsvChunkReader;
+import com.metsci.glimpse.dspl.parser.util.CsvChunkReader.Chunk;
 import com.metsci.glimpse.dspl.parser.util.ParserUtils.DateColumnParser;
 import com.metsci.glimpse.dspl.parser.util.ParserUtils.ParserFactory;
 import com.metsci.glimpse.dspl.parser.util.ParserUtils.TableParserInfo;
@@ -89,13 +92,11 @@ public class ExtendedCsvParser extends CsvParser implements MultipleFileTablePar
     }
 
     @Override
-    protected void parse( BufferedReader in, TableParserInfo info ) throws IOException, DsplException
+    protected void parseLine( String line, TableParserInfo info, CSVTableColumnParser[] parsers ) throws IOException, DsplException
     {
-        CSVTableColumnParser[] parsers = ( CSVTableColumnParser[] ) info.getParsers( );
         Column[] columns = info.getColumns( );
 
         int size = parsers.length;
-        String line = null;
 
         // extends the default parsing semantics to include a possible "remainder" format
         // for the last column, indicating that that column should get all extra tokens as one string
@@ -103,19 +104,14 @@ public class ExtendedCsvParser extends CsvParser implements MultipleFileTablePar
         boolean allowExtraTrailingTokens = ( trailingFormat != null && trailingFormat.equals( "remainder" ) );
         int splitLimit = allowExtraTrailingTokens ? size : Integer.MAX_VALUE;
 
-        while ( ( line = in.readLine( ) ) != null )
-        {
-            if ( line.isEmpty( ) ) continue;
-
-            String[] tokens = splitLine( line, splitLimit );
+        String[] tokens = splitLine( line, splitLimit );
 
-            for ( int i = 0; i < size; i++ )
-            {
-                if ( i < tokens.length )
-                    parsers[i].addData( tokens[i] );
-                else
-                    parsers[i].addGap( );
-            }
+        for ( int i = 0; i < size; i++ )
+        {
+            if ( i < tokens.length )
+                parsers[i].addData( tokens[i] );
+            else
+                parsers[i].addGap( );
         }
     }
 
@@ -124,33 +120,20 @@ public class ExtendedCsvParser extends CsvParser implements MultipleFileTablePar
     {
         List<URL> files = getDataFiles( slice );
 
-        BufferedReader in = new BufferedReader( new InputStreamReader( files.get( 0 ).openStream( ) ) );
+        CsvChunkReader in = newChunkReader( files.get( 0 ).openStream( ) );
 
         TableParserInfo info = null;
 
         try
         {
-            info = newParserInfo( slice, in );
+            info = newParserInfo( slice, parseFirstLine( in.readLine( ) ) );
         }
         finally
         {
             in.close( );
         }
 
-        for ( URL f : files )
-        {
-            in = new BufferedReader( new InputStreamReader( f.openStream( ) ) );
-
-            try
-            {
-                in.readLine( ); // read the header line, which must be the same in all the files
-                parse( in, info );
-            }
-            finally
-            {
-                in.close( );
-            }
-        }
+        parse( files, info );
 
         return buildSliceTableData( slice, info, factory );
     }
@@ -160,35 +143,106 @@ public class ExtendedCsvParser extends CsvParser implements MultipleFileTablePar
     {
         List<URL> files = getDataFiles( concept );
 
-        BufferedReader in = new BufferedReader( new InputStreamReader( files.get( 0 ).openStream( ) ) );
+        CsvChunkReader in = newChunkReader( files.get( 0 ).openStream( ) );
 
         TableParserInfo info = null;
 
         try
         {
-            info = newParserInfo( concept, in );
+            info = newParserInfo( concept, parseFirstLine( in.readLine( ) ) );
         }
         finally
         {
             in.close( );
         }
 
-        for ( URL f : files )
+        parse( files, info );
+
+        return buildPropertyTableData( concept, info, factory );
+    }
+
+    /**
+     * Parses the data files into the parsers of the provided TableParserInfo, in file order. If the
+     * DsplParser has a parse executor, multiple files are parsed concurrently (each into its own set
+     * of column parsers), and a single file is parsed in concurrent chunks.
+     */
+    protected void parse( List<URL> files, TableParserInfo info ) throws IOException, DsplException
+    {
+        ExecutorService exec = dsplParser.getParseExecutor( );
+
+        if ( exec == null || files.size( ) == 1 )
         {
-            in = new BufferedReader( new InputStreamReader( f.openStream( ) ) );
+            for ( URL f : files )
+            {
+                CsvChunkReader in = newChunkReader( f.openStream( ) );
 
-            try
+                try
+                {
+                    in.readLine( ); // read the header line, which must be the same in all the files
+                    parse( in, info );
+                }
+                finally
+                {
+                    in.close( );
+                }
+            }
+
+            return;
+        }
+
+        CSVTableColumnParser[] parsers = ( CSVTableColumnParser[] ) info.getParsers( );
+        List<Future<CSVTableColumnParser[]>> futures = new ArrayList<Future<CSVTableColumnParser[]>>( files.size( ) );
+
+        try
+        {
+            for ( URL f : files )
+            {
+                futures.add( submit( exec, f, info ) );
+            }
+
+            for ( Future<CSVTableColumnParser[]> future : futures )
             {
-                in.readLine( ); // read the header line, which must be the same in all the files
-                parse( in, info );
+                append( parsers, getResult( future ) );
             }
-            finally
+        }
+        finally
+        {
+            for ( Future<CSVTableColumnParser[]> future : futures )
             {
-                in.close( );
+                future.cancel( true );
             }
         }
+    }
 
-        return buildPropertyTableData( concept, info, factory );
+    protected Future<CSVTableColumnParser[]> submit( ExecutorService exec, final URL file, final TableParserInfo info )
+    {
+        return exec.submit( new Callable<CSVTableColumnParser[]>( )
+        {
+            @Override
+            public CSVTableColumnParser[] call( ) throws Exception
+            {
+                CSVTableColumnParser[] fileParsers = getParsers( factory, info.getColumns( ), info.getDataTypes( ) );
+
+                CsvChunkReader in = newChunkReader( file.openStream( ) );
+
+                try
+                {
+                    in.readLine( ); // read the header line, which must be the same in all the files
+
+                    Chunk chunk;
+                    while ( ( chunk = in.nextChunk( ) ) != null )
+                    {
+                        parse( chunk, in.getCharset( ), info, fileParsers );
+                    }
+                }
+                finally
+                {
+                    in.close( );
+                }
+
+                return fileParsers;
+            }
+        } );
     }
 
     @Override
@@ -378,6 +432,21 @@ public class ExtendedCsvParser extends CsvParser implements MultipleFileTablePar
         {
             addData( null );
         }
+
+        @Override
+        public void append( CSVTableColumnParser other )
+        {
+            CSVCompactStringColumnParser otherParser = ( CSVCompactStringColumnParser ) other;
+
+            int shift = allStrings.n;
+            int[] otherOffsets = otherParser.offsets.a;
+            for ( int i = 0; i < otherParser.offsets.n; i++ )
+            {
+                offsets.append( otherOffsets[i] + shift );
+            }
+
+            allStrings.append( otherParser.allStrings );
+        }
     }
 
     protected static class CSVCompactInternStringColumnParser implements CSVTableColumnParser
@@ -416,6 +485,35 @@ public class ExtendedCsvParser extends CsvParser implements MultipleFileTablePar
             indexByRow.append( -1 );
         }
 
+        @Override
+        public void append( CSVTableColumnParser other )
+        {
+            CSVCompactInternStringColumnParser otherParser = ( CSVCompactInternStringColumnParser ) other;
+
+            // map the other parser's string indices into this parser's index space
+            int[] remap = new int[otherParser.indexByString.size( )];
+            for ( Object2IntMap.Entry<String> entry : otherParser.indexByString.object2IntEntrySet( ) )
+            {
+                String value = entry.getKey( );
+
+                int index = indexByString.getInt( value );
+                if ( index == -1 )
+                {
+                    index = indexByString.size( );
+                    indexByString.put( value, index );
+                }
+
+                remap[entry.getIntValue( )] = index;
+            }
+
+            int[] otherIndices = otherParser.indexByRow.a;
+            for ( int i = 0; i < otherParser.indexByRow.n; i++ )
+            {
+                int index = otherIndices[i];
+                indexByRow.append( index == -1 ? -1 : remap[index] );
+            }
+        }
+
         @Override
         public TableColumn createTableColumn( Column column, Concept concept, DataType type )
         {
@@ -484,6 +582,12 @@ public class ExtendedCsvParser extends CsvParser implements MultipleFileTablePar
             data.append( -1 );
         }
 
+        @Override
+        public void append( CSVTableColumnParser other )
+        {
+            data.append( ( ( ExtendedCSVDateColumnParser ) other ).data );
+        }
+
         @Override
         public Long parse( String data ) throws DsplException
         {
@@ -0,0 +1,463 @@
+/*
+ * Copyright (c) 2016, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.dspl.parser;
+
+import static com.metsci.glimpse.dspl.parser.util.ParserUtils.getConstantTableColumns;
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.bind.JAXBException;
+
+import com.metsci.glimpse.dspl.parser.SimpleBinaryParser.HeaderInformation;
+import com.metsci.glimpse.dspl.parser.column.MappedTableColumn;
+import com.metsci.glimpse.dspl.parser.column.SliceColumnType;
+import com.metsci.glimpse.dspl.parser.column.TableColumn;
+import com.metsci.glimpse.dspl.parser.table.PropertyTableData;
+import com.metsci.glimpse.dspl.parser.table.SimplePropertyTableData;
+import com.metsci.glimpse.dspl.parser.table.SimpleSliceTableData;
+import com.metsci.glimpse.dspl.parser.table.SliceTableData;
+import com.metsci.glimpse.dspl.schema.Concept;
+import com.metsci.glimpse.dspl.schema.DataType;
+import com.metsci.glimpse.dspl.schema.Slice;
+import com.metsci.glimpse.dspl.schema.Table.Column;
+import com.metsci.glimpse.dspl.util.DsplException;
+import com.metsci.glimpse.util.io.datapipe.ReadableDataChannel;
+import com.metsci.glimpse.util.io.datapipe.WritableDataChannel;
+
+/**
+ * A variant of the {@link ColumnBinaryParser} format whose numeric columns can be memory-mapped
+ * instead of read onto the heap. Used for the .dspl cache (see
+ * {@link com.metsci.glimpse.dspl.parser.util.DsplCacheHelper}).<p>
+ *
+ * The file starts with a magic number, a format version, and the same column count, row count,
+ * and column ids as the .bin format. Each column's data follows, starting on an 8-byte boundary
+ * and laid out as in the .bin format. The file ends with a directory holding the byte offset and
+ * length of each column, followed by the offset of the directory itself.<p>
+ *
+ * When parsing from a FileChannel, FLOAT, INTEGER, BOOLEAN, and DATE columns are returned as
+ * {@link MappedTableColumn}s, so parsing only reads the header and directory. String columns are
+ * still read onto the heap. Other channels are read fully into memory first.
+ */
+public class MappedColumnBinaryParser extends ColumnBinaryParser
+{
+    public static final int MAPPED_MAGIC = 0x1234CDF0;
+    public static final int VERSION = 1;
+
+    protected static final int ALIGNMENT = 8;
+
+    @Override
+    public void write( Slice slice, SliceTableData data, WritableByteChannel byteChannel ) throws IOException, DsplException, JAXBException
+    {
+        write( getNonConstantColumns( data ), data.getNumRows( ), byteChannel );
+    }
+
+    @Override
+    public void write( Slice slice, SliceTableData data, OutputStream stream ) throws IOException, DsplException, JAXBException
+    {
+        write( slice, data, Channels.newChannel( stream ) );
+    }
+
+    @Override
+    public void write( Concept concept, PropertyTableData data, WritableByteChannel byteChannel ) throws IOException, DsplException, JAXBException
+    {
+        write( getNonConstantColumns( data ), data.getNumRows( ), byteChannel );
+    }
+
+    @Override
+    public void write( Concept concept, PropertyTableData data, OutputStream stream ) throws IOException, DsplException, JAXBException
+    {
+        write( concept, data, Channels.newChannel( stream ) );
+    }
+
+    protected void write( List<TableColumn> columnList, int numRows, WritableByteChannel byteChannel ) throws IOException, DsplException
+    {
+        CountingChannel countingChannel = new CountingChannel( byteChannel );
+        WritableDataChannel dataChannel = new WritableDataChannel( countingChannel );
+
+        try
+        {
+            int numColumns = columnList.size( );
+
+            dataChannel.writeInt( MAPPED_MAGIC );
+            dataChannel.writeInt( VERSION );
+            dataChannel.writeInt( numColumns );
+            dataChannel.writeInt( numRows );
+
+            for ( TableColumn column : columnList )
+            {
+                dataChannel.writeString( column.getColumn( ).getId( ) );
+            }
+
+            long[] columnOffsets = new long[numColumns];
+            long[] columnLengths = new long[numColumns];
+
+            for ( int j = 0; j < numColumns; j++ )
+            {
+                columnOffsets[j] = align( dataChannel, countingChannel );
+                write( columnList.get( j ), dataChannel );
+                dataChannel.flushBuffer( );
+                columnLengths[j] = countingChannel.getCount( ) - columnOffsets[j];
+            }
+
+            long directoryOffset = align( dataChannel, countingChannel );
+            for ( int j = 0; j < numColumns; j++ )
+            {
+                dataChannel.writeLong( columnOffsets[j] );
+                dataChannel.writeLong( columnLengths[j] );
+            }
+            dataChannel.writeLong( directoryOffset );
+        }
+        finally
+        {
+            dataChannel.flushBuffer( );
+            dataChannel.close( );
+        }
+    }
+
+    /**
+     * Pads the output to the next {@link #ALIGNMENT} boundary and returns the resulting file offset.
+     */
+    protected long align( WritableDataChannel dataChannel, CountingChannel countingChannel ) throws IOException
+    {
+        dataChannel.flushBuffer( );
+
+        long offset = countingChannel.getCount( );
+        while ( offset % ALIGNMENT != 0 )
+        {
+            dataChannel.writeByte( ( byte ) 0 );
+            offset++;
+        }
+
+        dataChannel.flushBuffer( );
+        return offset;
+    }
+
+    @Override
+    public PropertyTableData parse( Concept concept, InputStream stream ) throws IOException, JAXBException, DsplException
+    {
+        return parse( concept, Channels.newChannel( stream ) );
+    }
+
+    @Override
+    public PropertyTableData parse( Concept concept, ReadableByteChannel byteChannel ) throws IOException, JAXBException, DsplException
+    {
+        MappedFile file = MappedFile.open( byteChannel );
+        ReadableDataChannel dataChannel = file.newHeaderChannel( );
+
+        try
+        {
+            BinaryTableParserInfo info = newParserInfo( concept, dataChannel );
+
+            Map<String, TableColumn> map = new HashMap<String, TableColumn>( );
+            readColumns( file, info, map, map );
+            map.putAll( getConstantTableColumns( concept, info, factory, info.getNumRows( ) ) );
+
+            return new SimplePropertyTableData( concept, map );
+        }
+        finally
+        {
+            dataChannel.close( );
+        }
+    }
+
+    @Override
+    public SliceTableData parse( Slice slice, InputStream stream ) throws IOException, JAXBException, DsplException
+    {
+        return parse( slice, Channels.newChannel( stream ) );
+    }
+
+    @Override
+    public SliceTableData parse( Slice slice, ReadableByteChannel byteChannel ) throws IOException, JAXBException, DsplException
+    {
+        MappedFile file = MappedFile.open( byteChannel );
+        ReadableDataChannel dataChannel = file.newHeaderChannel( );
+
+        try
+        {
+            BinaryTableParserInfo info = newParserInfo( slice, dataChannel );
+
+            Map<String, TableColumn> dimensionMap = new HashMap<String, TableColumn>( );
+            Map<String, TableColumn> metricMap = new HashMap<String, TableColumn>( );
+            readColumns( file, info, dimensionMap, metricMap );
+
+            int numRows = info.getNumRows( );
+            dimensionMap.putAll( getConstantTableColumns( slice, info, factory, SliceColumnType.Dimension, numRows ) );
+            metricMap.putAll( getConstantTableColumns( slice, info, factory, SliceColumnType.Metric, numRows ) );
+
+            return new SimpleSliceTableData( slice, dimensionMap, metricMap );
+        }
+        finally
+        {
+            dataChannel.close( );
+        }
+    }
+
+    protected void readColumns( MappedFile file, BinaryTableParserInfo info, Map<String, TableColumn> dimensionMap, Map<String, TableColumn> metricMap ) throws IOException, DsplException
+    {
+        Concept[] concepts = info.getConcepts( );
+        Column[] columns = info.getColumns( );
+        DataType[] types = info.getDataTypes( );
+        SliceColumnType[] sliceColumnTypes = info.getSliceColumnTypes( );
+        int numColumns = info.getNumColumns( );
+        int numRows = info.getNumRows( );
+
+        // the directory is at the end of the file, and the last long is its offset
+        long directoryOffset = file.map( file.size( ) - 8, 8 ).getLong( 0 );
+        ByteBuffer directory = file.map( directoryOffset, 16L * numColumns );
+
+        for ( int i = 0; i < numColumns; i++ )
+        {
+            DataType type = types[i];
+            Column column = columns[i];
+            Concept columnConcept = concepts[i];
+            String columnFormat = column.getFormat( );
+
+            ByteBuffer data = file.map( directory.getLong( 16 * i ), directory.getLong( 16 * i + 8 ) );
+
+            TableColumn columnData = null;
+
+            switch ( type )
+            {
+                case STRING:
+                    if ( columnFormat != null && columnFormat.contentEquals( "intern" ) )
+                        columnData = readInternStringArray( newDataChannel( data ), column, columnConcept, new String[numRows] );
+                    else
+                        columnData = readStringArray( newDataChannel( data ), column, columnConcept, new String[numRows] );
+                    break;
+
+                case FLOAT:
+                case INTEGER:
+                case BOOLEAN:
+                case DATE:
+                    columnData = new MappedTableColumn( column, columnConcept, type, data, numRows );
+                    break;
+                case CONCEPT:
+                    columnData = readStringArray( newDataChannel( data ), column, columnConcept, new String[numRows] );
+                    break;
+                default:
+                    throw new DsplException( "Unknown Type %s provided for Column %s.", type, info.getColumnIds( )[i] );
+            }
+
+            boolean isMetric = sliceColumnTypes != null && sliceColumnTypes[i] == SliceColumnType.Metric;
+            ( isMetric ? metricMap : dimensionMap ).put( column.getId( ), columnData );
+        }
+    }
+
+    protected ReadableDataChannel newDataChannel( ByteBuffer data ) throws IOException
+    {
+        return new ReadableDataChannel( new ByteBufferChannel( data ) );
+    }
+
+    @Override
+    protected HeaderInformation parseFirstLine( ReadableDataChannel dataChannel ) throws IOException, JAXBException, DsplException
+    {
+        int magic = dataChannel.readInt( );
+
+        if ( magic != MAPPED_MAGIC )
+        {
+            throw new DsplException( "File does not contain proper header code: %s", Integer.toHexString( MAPPED_MAGIC ) );
+        }
+
+        int version = dataChannel.readInt( );
+
+        if ( version != VERSION )
+        {
+            throw new DsplException( "Unsupported file version: %d (expected %d)", version, VERSION );
+        }
+
+        int numColumns = dataChannel.readInt( );
+        int numRowsPerColumn = dataChannel.readInt( );
+
+        String[] headerStrings = new String[numColumns];
+
+        for ( int i = 0; i < numColumns; i++ )
+        {
+            headerStrings[i] = dataChannel.readString( );
+        }
+
+        return new HeaderInformation( numColumns, numRowsPerColumn, headerStrings );
+    }
+
+    /**
+     * Random access to the bytes of a file: memory-mapped when backed by a FileChannel, otherwise
+     * read fully into a heap buffer.
+     */
+    protected static class MappedFile
+    {
+        protected final FileChannel fileChannel;
+        protected final ByteBuffer heapBuffer;
+
+        protected MappedFile( FileChannel fileChannel, ByteBuffer heapBuffer )
+        {
+            this.fileChannel = fileChannel;
+            this.heapBuffer = heapBuffer;
+        }
+
+        public static MappedFile open( ReadableByteChannel channel ) throws IOException
+        {
+            if ( channel instanceof FileChannel )
+            {
+                return new MappedFile( ( FileChannel ) channel, null );
+            }
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream( );
+            ByteBuffer chunk = ByteBuffer.allocate( 1 << 16 );
+            while ( channel.read( chunk ) >= 0 )
+            {
+                bytes.write( chunk.array( ), 0, chunk.position( ) );
+                chunk.clear( );
+            }
+            return new MappedFile( null, ByteBuffer.wrap( bytes.toByteArray( ) ) );
+        }
+
+        public long size( ) throws IOException
+        {
+            return ( fileChannel != null ? fileChannel.size( ) : heapBuffer.capacity( ) );
+        }
+
+        public ByteBuffer map( long offset, long length ) throws IOException
+        {
+            if ( offset < 0 || length < 0 || offset + length > size( ) )
+            {
+                throw new IOException( String.format( "Region [%d, %d) is outside of file of size %d", offset, offset + length, size( ) ) );
+            }
+
+            if ( fileChannel != null )
+            {
+                return fileChannel.map( READ_ONLY, offset, length );
+            }
+            else
+            {
+                ByteBuffer region = heapBuffer.duplicate( );
+                region.limit( ( int ) ( offset + length ) ).position( ( int ) offset );
+                return region.slice( );
+            }
+        }
+
+        /**
+         * Returns a channel positioned at the start of the file, for reading the header.
+         */
+        public ReadableDataChannel newHeaderChannel( ) throws IOException
+        {
+            if ( fileChannel != null )
+            {
+                fileChannel.position( 0 );
+                return new ReadableDataChannel( fileChannel );
+            }
+            else
+            {
+                return new ReadableDataChannel( new ByteBufferChannel( heapBuffer.duplicate( ) ) );
+            }
+        }
+    }
+
+    protected static class ByteBufferChannel implements ReadableByteChannel
+    {
+        protected final ByteBuffer buffer;
+        protected boolean open;
+
+        public ByteBufferChannel( ByteBuffer buffer )
+        {
+            this.buffer = buffer;
+            this.open = true;
+        }
+
+        @Override
+        public int read( ByteBuffer dst ) throws IOException
+        {
+            if ( !buffer.hasRemaining( ) ) return -1;
+
+            int n = Math.min( dst.remaining( ), buffer.remaining( ) );
+            ByteBuffer src = buffer.duplicate( );
+            src.limit( src.position( ) + n );
+            dst.put( src );
+            buffer.position( buffer.position( ) + n );
+            return n;
+        }
+
+        @Override
+        public boolean isOpen( )
+        {
+            return open;
+        }
+
+        @Override
+        public void close( ) throws IOException
+        {
+            open = false;
+        }
+    }
+
+    protected static class CountingChannel implements WritableByteChannel
+    {
+        protected final WritableByteChannel channel;
+        protected long count;
+
+        public CountingChannel( WritableByteChannel channel )
+        {
+            this.channel = channel;
+            this.count = 0;
+        }
+
+        public long getCount( )
+        {
+            return count;
+        }
+
+        @Override
+        public int write( ByteBuffer src ) throws IOException
+        {
+            int n = channel.write( src );
+            count += n;
+            return n;
+        }
+
+        @Override
+        public boolean isOpen( )
+        {
+            return channel.isOpen( );
+        }
+
+        @Override
+        public void close( ) throws IOException
+        {
+            channel.close( );
+        }
+    }
+}
@@ -43,6 +43,22 @@ public class CompactInternStringTableColumn extends AbstractTableColumn
         this.indexByRow = indexByRow;
     }
 
+    /**
+     * @return the distinct values of this column, indexed by the values of {@link #getIndexByRow( )}
+     */
+    public String[] getUniqueStrings( )
+    {
+        return uniqueStrings;
+    }
+
+    /**
+     * @return the index into {@link #getUniqueStrings( )} of the value of each row, or -1 for null values
+     */
+    public int[] getIndexByRow( )
+    {
+        return indexByRow;
+    }
+
     @Override
     public boolean isConstant( )
     {
@@ -41,6 +41,11 @@ public class ConstantTableColumn extends AbstractTableColumn
         this.value = value;
     }
 
+    public Object getValue( )
+    {
+        return value;
+    }
+
     @Override
     public boolean isConstant( )
     {
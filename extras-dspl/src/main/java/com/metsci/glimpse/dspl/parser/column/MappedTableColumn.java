@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2016, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.dspl.parser.column;
+
+import java.nio.ByteBuffer;
+
+import com.metsci.glimpse.dspl.schema.Concept;
+import com.metsci.glimpse.dspl.schema.DataType;
+import com.metsci.glimpse.dspl.schema.Table.Column;
+
+/**
+ * A numeric TableColumn backed by a ByteBuffer, usually a region of a memory-mapped cache file
+ * written by {@link com.metsci.glimpse.dspl.parser.MappedColumnBinaryParser}.<p>
+ *
+ * Single-element getters read directly from the buffer, so pages are only loaded for the rows
+ * actually touched. The whole-array getters copy the column onto the heap the first time they
+ * are called and return the same array afterwards.
+ */
+public class MappedTableColumn extends AbstractTableColumn
+{
+    protected ByteBuffer buffer;
+    protected Object data;
+
+    public MappedTableColumn( Column column, Concept concept, DataType type, ByteBuffer buffer, int size )
+    {
+        super( column, concept, type, size );
+
+        this.buffer = buffer;
+    }
+
+    /**
+     * Returns a read-only view of the column's bytes (big-endian, starting at position zero).
+     */
+    public ByteBuffer getBuffer( )
+    {
+        return buffer.asReadOnlyBuffer( );
+    }
+
+    @Override
+    public boolean isConstant( )
+    {
+        return false;
+    }
+
+    @Override
+    public synchronized int[] getIntegerData( )
+    {
+        checkType( DataType.INTEGER );
+        if ( data == null )
+        {
+            int[] array = new int[size];
+            buffer.duplicate( ).asIntBuffer( ).get( array );
+            data = array;
+        }
+        return ( int[] ) data;
+    }
+
+    @Override
+    public synchronized float[] getFloatData( )
+    {
+        checkType( DataType.FLOAT );
+        if ( data == null )
+        {
+            float[] array = new float[size];
+            buffer.duplicate( ).asFloatBuffer( ).get( array );
+            data = array;
+        }
+        return ( float[] ) data;
+    }
+
+    @Override
+    public synchronized boolean[] getBooleanData( )
+    {
+        checkType( DataType.BOOLEAN );
+        if ( data == null )
+        {
+            boolean[] array = new boolean[size];
+            for ( int i = 0; i < size; i++ )
+            {
+                array[i] = buffer.get( i ) != 0;
+            }
+            data = array;
+        }
+        return ( boolean[] ) data;
+    }
+
+    @Override
+    public synchronized long[] getDateData( )
+    {
+        checkType( DataType.DATE );
+        if ( data == null )
+        {
+            long[] array = new long[size];
+            buffer.duplicate( ).asLongBuffer( ).get( array );
+            data = array;
+        }
+        return ( long[] ) data;
+    }
+
+    @Override
+    public int getIntegerData( int i )
+    {
+        checkType( DataType.INTEGER );
+        return buffer.getInt( i << 2 );
+    }
+
+    @Override
+    public float getFloatData( int i )
+    {
+        checkType( DataType.FLOAT );
+        return buffer.getFloat( i << 2 );
+    }
+
+    @Override
+    public boolean getBooleanData( int i )
+    {
+        checkType( DataType.BOOLEAN );
+        return buffer.get( i ) != 0;
+    }
+
+    @Override
+    public long getDateData( int i )
+    {
+        checkType( DataType.DATE );
+        return buffer.getLong( i << 3 );
+    }
+
+    protected void checkType( DataType requested )
+    {
+        if ( type != requested )
+        {
+            throw new UnsupportedOperationException( String.format( "%s DataType is not supported by this %s TableColumn.", requested, type ) );
+        }
+    }
+
+    @Override
+    public int hashCode( )
+    {
+        return 31 + ( ( column.getId( ) == null ) ? 0 : column.getId( ).hashCode( ) );
+    }
+
+    @Override
+    public boolean equals( Object obj )
+    {
+        if ( this == obj ) return true;
+        if ( obj == null ) return false;
+        if ( getClass( ) != obj.getClass( ) ) return false;
+        MappedTableColumn other = ( MappedTableColumn ) obj;
+        if ( column.getId( ) == null ) return other.column.getId( ) == null;
+        return column.getId( ).equals( other.column.getId( ) );
+    }
+}
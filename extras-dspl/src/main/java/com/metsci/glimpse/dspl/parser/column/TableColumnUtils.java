@@ -125,4 +125,73 @@ public class TableColumnUtils
 
         return data;
     }
+
+    /**
+     * Builds a column containing the rows of first followed by the rows of second. Both columns
+     * must be for the same Column and of the same type.
+     */
+    public static TableColumn buildConcatenatedTableColumn( TableColumn first, TableColumn second )
+    {
+        int size = first.getSize( ) + second.getSize( );
+
+        if ( first instanceof ConstantTableColumn )
+        {
+            return new ConstantTableColumn( first.getColumn( ), first.getConcept( ), first.getType( ), ( ( ConstantTableColumn ) first ).getValue( ), size );
+        }
+
+        int n = first.getSize( );
+        int m = second.getSize( );
+
+        switch ( first.getType( ) )
+        {
+            case STRING:
+            case CONCEPT:
+            {
+                String[] data = new String[size];
+                for ( int i = 0; i < n; i++ )
+                    data[i] = first.getStringData( i );
+                for ( int i = 0; i < m; i++ )
+                    data[n + i] = second.getStringData( i );
+                return buildTableColumn( first, data, size );
+            }
+            case FLOAT:
+            {
+                float[] data = new float[size];
+                for ( int i = 0; i < n; i++ )
+                    data[i] = first.getFloatData( i );
+                for ( int i = 0; i < m; i++ )
+                    data[n + i] = second.getFloatData( i );
+                return buildTableColumn( first, data, size );
+            }
+            case INTEGER:
+            {
+                int[] data = new int[size];
+                for ( int i = 0; i < n; i++ )
+                    data[i] = first.getIntegerData( i );
+                for ( int i = 0; i < m; i++ )
+                    data[n + i] = second.getIntegerData( i );
+                return buildTableColumn( first, data, size );
+            }
+            case BOOLEAN:
+            {
+                boolean[] data = new boolean[size];
+                for ( int i = 0; i < n; i++ )
+                    data[i] = first.getBooleanData( i );
+                for ( int i = 0; i < m; i++ )
+                    data[n + i] = second.getBooleanData( i );
+                return buildTableColumn( first, data, size );
+            }
+            case DATE:
+            {
+                long[] data = new long[size];
+                for ( int i = 0; i < n; i++ )
+                    data[i] = first.getDateData( i );
+                for ( int i = 0; i < m; i++ )
+                    data[n + i] = second.getDateData( i );
+                return buildTableColumn( first, data, size );
+            }
+            default:
+                throw new UnsupportedOperationException( "Unknown Type: " + first.getType( ) );
+        }
+    }
 }
@@ -0,0 +1,279 @@
+/*
+ * Copyright (c) 2016, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.dspl.parser.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import com.metsci.glimpse.dspl.util.DsplException;
+
+/**
+ * Reads a CSV stream as large blocks of bytes which always end on a line boundary, so that
+ * the blocks can be parsed independently (and concurrently). The CSV parsers treat every
+ * line as one record, so a line boundary is always a record boundary.
+ */
+public class CsvChunkReader implements Closeable
+{
+    public static class Chunk
+    {
+        public final byte[] data;
+        public final int length;
+
+        public Chunk( byte[] data, int length )
+        {
+            this.data = data;
+            this.length = length;
+        }
+    }
+
+    protected final InputStream in;
+    protected final Charset charset;
+    protected final int chunkSize;
+
+    protected byte[] buffer;
+    protected int start;
+    protected int end;
+    protected boolean eof;
+    protected long totalRead;
+
+    public CsvChunkReader( InputStream in, Charset charset, int chunkSize )
+    {
+        this.in = in;
+        this.charset = charset;
+        this.chunkSize = chunkSize;
+
+        this.buffer = new byte[chunkSize];
+        this.start = 0;
+        this.end = 0;
+        this.eof = false;
+        this.totalRead = 0;
+    }
+
+    public Charset getCharset( )
+    {
+        return charset;
+    }
+
+    /**
+     * Returns the number of bytes of the stream consumed by {@link #readLine()} and {@link #nextChunk()}.
+     */
+    public long getPosition( )
+    {
+        return totalRead - ( end - start );
+    }
+
+    /**
+     * Reads a single line, with the same semantics as {@link java.io.BufferedReader#readLine()}.
+     * Used for the header line, before any calls to {@link #nextChunk()}.
+     */
+    public String readLine( ) throws IOException
+    {
+        // offset from start of the first byte not yet searched (fill may move start)
+        int searched = 0;
+        while ( true )
+        {
+            for ( int i = start + searched; i < end; i++ )
+            {
+                byte b = buffer[i];
+                if ( b == '\n' || b == '\r' )
+                {
+                    // make sure we can see the '\n' of a "\r\n" pair
+                    if ( b == '\r' && i + 1 == end && !eof )
+                    {
+                        break;
+                    }
+
+                    String line = new String( buffer, start, i - start, charset );
+                    start = ( b == '\r' && i + 1 < end && buffer[i + 1] == '\n' ) ? i + 2 : i + 1;
+                    return line;
+                }
+                searched = i + 1 - start;
+            }
+
+            if ( eof )
+            {
+                if ( start == end ) return null;
+
+                String line = new String( buffer, start, end - start, charset );
+                start = end;
+                return line;
+            }
+
+            fill( );
+        }
+    }
+
+    /**
+     * Returns the next block of whole lines, or null when the stream is exhausted. Blocks are
+     * about chunkSize bytes, but may be larger if a single line is longer than that.
+     */
+    public Chunk nextChunk( ) throws IOException
+    {
+        while ( !eof && end - start < chunkSize )
+        {
+            fill( );
+        }
+
+        if ( start == end ) return null;
+
+        int cut = eof ? end : lastLineEnd( );
+        while ( cut < 0 )
+        {
+            // a single line longer than the chunk size
+            fill( );
+            cut = eof ? end : lastLineEnd( );
+        }
+
+        // hand the current buffer to the caller, and move the remainder to a fresh buffer
+        byte[] chunkData = buffer;
+        int chunkStart = start;
+        int chunkEnd = cut;
+
+        buffer = new byte[Math.max( chunkSize, end - cut )];
+        System.arraycopy( chunkData, cut, buffer, 0, end - cut );
+        end = end - cut;
+        start = 0;
+
+        if ( chunkStart != 0 )
+        {
+            chunkData = Arrays.copyOfRange( chunkData, chunkStart, chunkEnd );
+            chunkEnd -= chunkStart;
+        }
+
+        return new Chunk( chunkData, chunkEnd );
+    }
+
+    /**
+     * Discards the next {@code n} bytes of the stream.
+     */
+    public void skip( long n ) throws IOException
+    {
+        long buffered = end - start;
+        if ( n <= buffered )
+        {
+            start += ( int ) n;
+            return;
+        }
+
+        start = end;
+        long remaining = n - buffered;
+        while ( remaining > 0 )
+        {
+            long skipped = in.skip( remaining );
+            if ( skipped <= 0 )
+            {
+                // skip may return 0 without reaching the end, so fall back to read
+                if ( in.read( ) < 0 )
+                {
+                    eof = true;
+                    break;
+                }
+                skipped = 1;
+            }
+            remaining -= skipped;
+            totalRead += skipped;
+        }
+    }
+
+    /**
+     * Returns the index just past the last line terminator in the buffered data, or -1.
+     */
+    protected int lastLineEnd( )
+    {
+        for ( int i = end - 1; i >= start; i-- )
+        {
+            byte b = buffer[i];
+            if ( b == '\n' || b == '\r' ) return i + 1;
+        }
+        return -1;
+    }
+
+    protected void fill( ) throws IOException
+    {
+        if ( end == buffer.length )
+        {
+            if ( start > 0 )
+            {
+                System.arraycopy( buffer, start, buffer, 0, end - start );
+                end -= start;
+                start = 0;
+            }
+            else
+            {
+                buffer = Arrays.copyOf( buffer, 2 * buffer.length );
+            }
+        }
+
+        int n = in.read( buffer, end, buffer.length - end );
+        if ( n < 0 )
+        {
+            eof = true;
+        }
+        else
+        {
+            end += n;
+            totalRead += n;
+        }
+    }
+
+    /**
+     * Splits a chunk into lines, skipping empty lines (which includes the empty line between
+     * the '\r' and '\n' of a "\r\n" pair).
+     */
+    public static void forEachLine( Chunk chunk, Charset charset, LineHandler handler ) throws IOException, DsplException
+    {
+        byte[] data = chunk.data;
+        int length = chunk.length;
+
+        int lineStart = 0;
+        for ( int i = 0; i <= length; i++ )
+        {
+            if ( i == length || data[i] == '\n' || data[i] == '\r' )
+            {
+                if ( i > lineStart )
+                {
+                    handler.handleLine( new String( data, lineStart, i - lineStart, charset ) );
+                }
+                lineStart = i + 1;
+            }
+        }
+    }
+
+    public static interface LineHandler
+    {
+        public void handleLine( String line ) throws IOException, DsplException;
+    }
+
+    @Override
+    public void close( ) throws IOException
+    {
+        in.close( );
+    }
+}
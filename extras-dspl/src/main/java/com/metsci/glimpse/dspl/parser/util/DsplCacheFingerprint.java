@@ -0,0 +1,318 @@
+/*
+ * Copyright (c) 2016, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.dspl.parser.util;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.metsci.glimpse.dspl.util.MD5Checksum;
+
+/**
+ * A cheap description of the source files of a cached table, used instead of hashing their full
+ * contents to decide whether the cache is stale.<p>
+ *
+ * For each file the fingerprint records the path, size, modification time, file identity (the
+ * inode on most unix file systems) and an MD5 hash of the final {@link #SAMPLE_BYTES} bytes.
+ * Optionally it also records an MD5 hash of {@link #SAMPLE_COUNT} evenly spaced samples of the file.
+ * The hash of the final bytes also allows detecting files which have only had data appended to them
+ * (see {@link #getAppendOffset(DsplCacheFingerprint)}).
+ */
+public class DsplCacheFingerprint
+{
+    public static final String VERSION = "fingerprint-1";
+
+    public static final int SAMPLE_BYTES = 64 * 1024;
+    public static final int SAMPLE_COUNT = 16;
+
+    protected static final Charset UTF8 = Charset.forName( "UTF-8" );
+    protected static final String NONE = "-";
+
+    public static class Entry
+    {
+        public final String path;
+        public final long size;
+        public final long modified;
+        public final String fileKey;
+        public final String sampleHash;
+        public final String tailHash;
+
+        public Entry( String path, long size, long modified, String fileKey, String sampleHash, String tailHash )
+        {
+            this.path = path;
+            this.size = size;
+            this.modified = modified;
+            this.fileKey = fileKey;
+            this.sampleHash = sampleHash;
+            this.tailHash = tailHash;
+        }
+
+        public static Entry fromString( String line )
+        {
+            String[] tokens = line.split( "\t", -1 );
+            if ( tokens.length != 6 ) return null;
+
+            try
+            {
+                return new Entry( tokens[0], Long.parseLong( tokens[1] ), Long.parseLong( tokens[2] ), tokens[3], tokens[4], tokens[5] );
+            }
+            catch ( NumberFormatException e )
+            {
+                return null;
+            }
+        }
+
+        @Override
+        public String toString( )
+        {
+            return path + "\t" + size + "\t" + modified + "\t" + fileKey + "\t" + sampleHash + "\t" + tailHash;
+        }
+
+        @Override
+        public int hashCode( )
+        {
+            return toString( ).hashCode( );
+        }
+
+        @Override
+        public boolean equals( Object obj )
+        {
+            if ( this == obj ) return true;
+            if ( obj == null || getClass( ) != obj.getClass( ) ) return false;
+            return toString( ).equals( obj.toString( ) );
+        }
+    }
+
+    protected final List<Entry> entries;
+
+    public DsplCacheFingerprint( List<Entry> entries )
+    {
+        this.entries = Collections.unmodifiableList( new ArrayList<Entry>( entries ) );
+    }
+
+    public List<Entry> getEntries( )
+    {
+        return entries;
+    }
+
+    public static DsplCacheFingerprint compute( List<File> files, boolean sampled ) throws IOException
+    {
+        List<Entry> entries = new ArrayList<Entry>( files.size( ) );
+
+        for ( File file : files )
+        {
+            BasicFileAttributes attributes = Files.readAttributes( file.toPath( ), BasicFileAttributes.class );
+
+            long size = attributes.size( );
+            long modified = attributes.lastModifiedTime( ).toMillis( );
+            Object fileKey = attributes.fileKey( );
+
+            String sampleHash = sampled ? hashSamples( file, size ) : NONE;
+            String tailHash = hashRange( file, Math.max( 0, size - SAMPLE_BYTES ), size );
+
+            entries.add( new Entry( file.getAbsolutePath( ), size, modified, fileKey == null ? NONE : fileKey.toString( ), sampleHash, tailHash ) );
+        }
+
+        return new DsplCacheFingerprint( entries );
+    }
+
+    /**
+     * Returns the fingerprint stored in the provided file, or null if it does not exist or
+     * cannot be read.
+     */
+    public static DsplCacheFingerprint read( File file )
+    {
+        if ( !file.isFile( ) ) return null;
+
+        try
+        {
+            BufferedReader in = new BufferedReader( new InputStreamReader( new FileInputStream( file ), UTF8 ) );
+            try
+            {
+                if ( !VERSION.equals( in.readLine( ) ) ) return null;
+
+                List<Entry> entries = new ArrayList<Entry>( );
+                String line;
+                while ( ( line = in.readLine( ) ) != null )
+                {
+                    Entry entry = Entry.fromString( line );
+                    if ( entry == null ) return null;
+                    entries.add( entry );
+                }
+
+                return new DsplCacheFingerprint( entries );
+            }
+            finally
+            {
+                in.close( );
+            }
+        }
+        catch ( IOException e )
+        {
+            return null;
+        }
+    }
+
+    public void write( File file ) throws IOException
+    {
+        BufferedWriter out = new BufferedWriter( new OutputStreamWriter( new FileOutputStream( file ), UTF8 ) );
+        try
+        {
+            out.write( VERSION );
+            out.newLine( );
+            for ( Entry entry : entries )
+            {
+                out.write( entry.toString( ) );
+                out.newLine( );
+            }
+        }
+        finally
+        {
+            out.close( );
+        }
+    }
+
+    /**
+     * If this fingerprint describes a single file, and the current fingerprint describes the same file
+     * with data appended after a line break, returns the size of the file when this fingerprint was
+     * taken (the offset at which the appended data starts). Otherwise returns -1.
+     */
+    public long getAppendOffset( DsplCacheFingerprint current ) throws IOException
+    {
+        if ( entries.size( ) != 1 || current.entries.size( ) != 1 ) return -1;
+
+        Entry before = entries.get( 0 );
+        Entry after = current.entries.get( 0 );
+
+        if ( !before.path.equals( after.path ) || !before.fileKey.equals( after.fileKey ) ) return -1;
+        if ( before.size <= 0 || after.size <= before.size ) return -1;
+
+        File file = new File( after.path );
+
+        // the previously cached content must still be there, ending in a line break
+        String tailHash = hashRange( file, Math.max( 0, before.size - SAMPLE_BYTES ), before.size );
+        if ( !tailHash.equals( before.tailHash ) ) return -1;
+
+        RandomAccessFile raf = new RandomAccessFile( file, "r" );
+        try
+        {
+            raf.seek( before.size - 1 );
+            int last = raf.read( );
+            if ( last != '\n' && last != '\r' ) return -1;
+        }
+        finally
+        {
+            raf.close( );
+        }
+
+        return before.size;
+    }
+
+    protected static String hashSamples( File file, long size ) throws IOException
+    {
+        MessageDigest digest = newDigest( );
+        byte[] buffer = new byte[SAMPLE_BYTES];
+
+        RandomAccessFile raf = new RandomAccessFile( file, "r" );
+        try
+        {
+            long stride = Math.max( SAMPLE_BYTES, size / SAMPLE_COUNT );
+            for ( long position = 0; position < size; position += stride )
+            {
+                raf.seek( position );
+                int n = raf.read( buffer, 0, ( int ) Math.min( SAMPLE_BYTES, size - position ) );
+                if ( n > 0 ) digest.update( buffer, 0, n );
+            }
+        }
+        finally
+        {
+            raf.close( );
+        }
+
+        return MD5Checksum.getMD5Checksum( digest.digest( ) );
+    }
+
+    protected static String hashRange( File file, long from, long to ) throws IOException
+    {
+        MessageDigest digest = newDigest( );
+        byte[] buffer = new byte[( int ) Math.min( SAMPLE_BYTES, to - from )];
+
+        RandomAccessFile raf = new RandomAccessFile( file, "r" );
+        try
+        {
+            raf.seek( from );
+            raf.readFully( buffer );
+            digest.update( buffer );
+        }
+        finally
+        {
+            raf.close( );
+        }
+
+        return MD5Checksum.getMD5Checksum( digest.digest( ) );
+    }
+
+    protected static MessageDigest newDigest( )
+    {
+        try
+        {
+            return MessageDigest.getInstance( "MD5" );
+        }
+        catch ( NoSuchAlgorithmException e )
+        {
+            throw new RuntimeException( e );
+        }
+    }
+
+    @Override
+    public int hashCode( )
+    {
+        return entries.hashCode( );
+    }
+
+    @Override
+    public boolean equals( Object obj )
+    {
+        if ( this == obj ) return true;
+        if ( obj == null || getClass( ) != obj.getClass( ) ) return false;
+        return entries.equals( ( ( DsplCacheFingerprint ) obj ).entries );
+    }
+}
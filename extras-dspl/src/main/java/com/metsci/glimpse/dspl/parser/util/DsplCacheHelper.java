@@ -26,6 +26,9 @@
  */
 package com.metsci.glimpse.dspl.parser.util;
 
+import static com.metsci.glimpse.dspl.parser.column.TableColumnUtils.buildConcatenatedTableColumn;
+import static com.metsci.glimpse.util.logging.LoggerUtils.logWarning;
+
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
@@ -34,21 +37,32 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.BufferUnderflowException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Logger;
 
 import javax.xml.bind.JAXBException;
 
 import com.metsci.glimpse.dspl.DsplParser;
+import com.metsci.glimpse.dspl.parser.CsvParser;
 import com.metsci.glimpse.dspl.parser.MultipleFileTableParser;
 import com.metsci.glimpse.dspl.parser.TableParser;
 import com.metsci.glimpse.dspl.parser.TableWriter;
+import com.metsci.glimpse.dspl.parser.column.TableColumn;
 import com.metsci.glimpse.dspl.parser.table.PropertyTableData;
+import com.metsci.glimpse.dspl.parser.table.SimplePropertyTableData;
+import com.metsci.glimpse.dspl.parser.table.SimpleSliceTableData;
 import com.metsci.glimpse.dspl.parser.table.SliceTableData;
 import com.metsci.glimpse.dspl.schema.Concept;
 import com.metsci.glimpse.dspl.schema.DataSet;
@@ -67,8 +81,9 @@ public class DsplCacheHelper
 
     public static final String CACHE_FILE = "cache_data";
 
-    public static final String CACHE_FORMAT = "bin";
+    public static final String CACHE_FORMAT = "binm";
     public static final String HASH_FILE = ".md5";
+    public static final String FINGERPRINT_FILE = ".fingerprint";
 
     public static PropertyTableData getTableData( Concept concept ) throws DsplException, JAXBException, IOException
     {
@@ -82,9 +97,6 @@ public class DsplCacheHelper
             DsplParser dsplParser = dataset.getParser( );
             if ( dsplParser == null ) return null;
 
-            String calculatedHash = getCalculatedHash( concept );
-            if ( calculatedHash == null ) return null;
-
             Table table = concept.getTable( );
             if ( table == null ) return null;
 
@@ -98,40 +110,66 @@ public class DsplCacheHelper
                 return parser.parse( concept );
             }
 
-            String cachedHash = getCachedHash( concept );
+            File cacheFile = getCacheFile( concept );
+            TableParser cacheParser = dsplParser.getTableParser( getExtension( cacheFile ) );
 
-            // the cache has not been created or the csv data has changed, load the data from the csv file and recreate the hash
-            if ( cachedHash == null || !cachedHash.equals( calculatedHash ) )
+            // for local source files, compare cheap fingerprints instead of hashing the file contents
+            List<File> sourceFiles = getLocalSourceFiles( concept, parser );
+            if ( sourceFiles != null )
             {
-                PropertyTableData tableData = parser.parse( concept );
-
-                File cacheFile = getCacheFile( concept );
-                FileOutputStream cacheFileStream = new FileOutputStream( cacheFile );
+                File fingerprintFile = new File( getCacheDirectory( concept ), FINGERPRINT_FILE );
+                DsplCacheFingerprint calculatedFingerprint = DsplCacheFingerprint.compute( sourceFiles, dsplParser.isCacheSampledHash( ) );
+                DsplCacheFingerprint cachedFingerprint = DsplCacheFingerprint.read( fingerprintFile );
 
-                String cacheFormat = getExtension( cacheFile );
-
-                TableParser cacheParser = dsplParser.getTableParser( cacheFormat );
-
-                if ( cacheParser instanceof TableWriter )
-                {
-                    ( ( TableWriter ) cacheParser ).write( concept, tableData, cacheFileStream.getChannel( ) );
-                    writeHash( concept, calculatedHash );
-                }
-                else
+                if ( cachedFingerprint != null && cacheFile.isFile( ) )
                 {
-                    throw new DsplException( "Invalid cache format: %s. TableParser %s is not a TableWriter.", cacheFormat, cacheParser.getClass( ) );
+                    if ( cachedFingerprint.equals( calculatedFingerprint ) )
+                    {
+                        PropertyTableData tableData = readCache( concept, cacheParser, cacheFile );
+                        if ( tableData != null ) return tableData;
+                    }
+                    else if ( dsplParser.isCacheIncremental( ) && parser instanceof CsvParser && !( parser instanceof MultipleFileTableParser ) )
+                    {
+                        // rows have only been appended to the csv file: parse them and append them to the cached columns
+                        long appendOffset = cachedFingerprint.getAppendOffset( calculatedFingerprint );
+                        PropertyTableData cachedData = appendOffset > 0 ? readCache( concept, cacheParser, cacheFile ) : null;
+                        if ( cachedData != null )
+                        {
+                            PropertyTableData appendedData = ( ( CsvParser ) parser ).parseTail( concept, sourceFiles.get( 0 ), appendOffset );
+                            PropertyTableData tableData = concatenate( concept, cachedData, appendedData );
+                            if ( tableData != null )
+                            {
+                                writeCache( concept, tableData, cacheParser, cacheFile );
+                                calculatedFingerprint.write( fingerprintFile );
+                                return tableData;
+                            }
+                        }
+                    }
                 }
 
+                PropertyTableData tableData = parser.parse( concept );
+                writeCache( concept, tableData, cacheParser, cacheFile );
+                calculatedFingerprint.write( fingerprintFile );
                 return tableData;
             }
-            // load the data from the cache
-            else
+
+            String calculatedHash = getCalculatedHash( concept );
+            if ( calculatedHash == null ) return null;
+
+            String cachedHash = getCachedHash( concept );
+
+            // the cache exists and the csv data has not changed, load the data from the cache
+            if ( cachedHash != null && cachedHash.equals( calculatedHash ) && cacheFile.isFile( ) )
             {
-                File cacheFile = getCacheFile( concept );
-                FileInputStream cacheFileStream = new FileInputStream( cacheFile );
-                TableParser cacheParser = dsplParser.getTableParser( getExtension( cacheFile ) );
-                return cacheParser.parse( concept, cacheFileStream.getChannel( ) );
+                PropertyTableData tableData = readCache( concept, cacheParser, cacheFile );
+                if ( tableData != null ) return tableData;
             }
+
+            // the cache has not been created or the csv data has changed, load the data from the csv file and recreate the hash
+            PropertyTableData tableData = parser.parse( concept );
+            writeCache( concept, tableData, cacheParser, cacheFile );
+            writeHash( concept, calculatedHash );
+            return tableData;
         }
         catch ( NoSuchAlgorithmException e )
         {
@@ -139,6 +177,54 @@ public class DsplCacheHelper
         }
     }
 
+    /**
+     * Returns the cached table data, or null if the cache could not be read (because it was written
+     * in an older format version, or is truncated or corrupt) and should be rebuilt.
+     */
+    protected static PropertyTableData readCache( Concept concept, TableParser cacheParser, File cacheFile ) throws IOException, JAXBException
+    {
+        // Closing the stream once parsed is fine: mapped columns stay valid after their channel is closed
+        try ( FileInputStream cacheFileStream = new FileInputStream( cacheFile ) )
+        {
+            return cacheParser.parse( concept, cacheFileStream.getChannel( ) );
+        }
+        catch ( DsplException | IOException | BufferUnderflowException | IllegalArgumentException e )
+        {
+            logWarning( logger, "Unable to read cache file %s, rebuilding it.", e, cacheFile );
+            return null;
+        }
+    }
+
+    protected static void writeCache( Concept concept, PropertyTableData tableData, TableParser cacheParser, File cacheFile ) throws IOException, DsplException, JAXBException
+    {
+        if ( !( cacheParser instanceof TableWriter ) )
+        {
+            throw new DsplException( "Invalid cache format: %s. TableParser %s is not a TableWriter.", getExtension( cacheFile ), cacheParser.getClass( ) );
+        }
+
+        // write to a temporary file and move it into place, so that existing mappings of the
+        // previous cache file remain valid
+        File tempFile = new File( cacheFile.getPath( ) + ".tmp" );
+        FileOutputStream tempFileStream = new FileOutputStream( tempFile );
+        ( ( TableWriter ) cacheParser ).write( concept, tableData, tempFileStream.getChannel( ) );
+        replaceFile( tempFile, cacheFile );
+    }
+
+    protected static PropertyTableData concatenate( Concept concept, PropertyTableData first, PropertyTableData second ) throws DsplException
+    {
+        Map<String, TableColumn> map = new HashMap<String, TableColumn>( );
+
+        for ( String id : first.getColumnIds( ) )
+        {
+            TableColumn secondColumn = second.getColumn( id );
+            if ( secondColumn == null ) return null;
+
+            map.put( id, buildConcatenatedTableColumn( first.getColumn( id ), secondColumn ) );
+        }
+
+        return new SimplePropertyTableData( concept, map );
+    }
+
     public static SliceTableData getTableData( Slice slice ) throws DsplException, JAXBException, IOException
     {
         try
@@ -151,9 +237,6 @@ public class DsplCacheHelper
             DsplParser dsplParser = dataset.getParser( );
             if ( dsplParser == null ) return null;
 
-            String calculatedHash = getCalculatedHash( slice );
-            if ( calculatedHash == null ) return null;
-
             Table table = slice.getTable( );
             if ( table == null ) return null;
 
@@ -167,40 +250,66 @@ public class DsplCacheHelper
                 return parser.parse( slice );
             }
 
-            String cachedHash = getCachedHash( slice );
+            File cacheFile = getCacheFile( slice );
+            TableParser cacheParser = dsplParser.getTableParser( getExtension( cacheFile ) );
 
-            // the cache has not been created or the csv data has changed, load the data from the csv file and recreate the hash
-            if ( cachedHash == null || !cachedHash.equals( calculatedHash ) )
+            // for local source files, compare cheap fingerprints instead of hashing the file contents
+            List<File> sourceFiles = getLocalSourceFiles( slice, parser );
+            if ( sourceFiles != null )
             {
-                SliceTableData tableData = parser.parse( slice );
+                File fingerprintFile = new File( getCacheDirectory( slice ), FINGERPRINT_FILE );
+                DsplCacheFingerprint calculatedFingerprint = DsplCacheFingerprint.compute( sourceFiles, dsplParser.isCacheSampledHash( ) );
+                DsplCacheFingerprint cachedFingerprint = DsplCacheFingerprint.read( fingerprintFile );
 
-                File cacheFile = getCacheFile( slice );
-                OutputStream cacheFileStream = new FileOutputStream( cacheFile );
-
-                String cacheFormat = getExtension( cacheFile );
-
-                TableParser cacheParser = dsplParser.getTableParser( cacheFormat );
-
-                if ( cacheParser instanceof TableWriter )
-                {
-                    ( ( TableWriter ) cacheParser ).write( slice, tableData, cacheFileStream );
-                    writeHash( slice, calculatedHash );
-                }
-                else
+                if ( cachedFingerprint != null && cacheFile.isFile( ) )
                 {
-                    throw new DsplException( "Invalid cache format: %s. TableParser %s is not a TableWriter.", cacheFormat, cacheParser.getClass( ) );
+                    if ( cachedFingerprint.equals( calculatedFingerprint ) )
+                    {
+                        SliceTableData tableData = readCache( slice, cacheParser, cacheFile );
+                        if ( tableData != null ) return tableData;
+                    }
+                    else if ( dsplParser.isCacheIncremental( ) && parser instanceof CsvParser && !( parser instanceof MultipleFileTableParser ) )
+                    {
+                        // rows have only been appended to the csv file: parse them and append them to the cached columns
+                        long appendOffset = cachedFingerprint.getAppendOffset( calculatedFingerprint );
+                        SliceTableData cachedData = appendOffset > 0 ? readCache( slice, cacheParser, cacheFile ) : null;
+                        if ( cachedData != null )
+                        {
+                            SliceTableData appendedData = ( ( CsvParser ) parser ).parseTail( slice, sourceFiles.get( 0 ), appendOffset );
+                            SliceTableData tableData = concatenate( slice, cachedData, appendedData );
+                            if ( tableData != null )
+                            {
+                                writeCache( slice, tableData, cacheParser, cacheFile );
+                                calculatedFingerprint.write( fingerprintFile );
+                                return tableData;
+                            }
+                        }
+                    }
                 }
 
+                SliceTableData tableData = parser.parse( slice );
+                writeCache( slice, tableData, cacheParser, cacheFile );
+                calculatedFingerprint.write( fingerprintFile );
                 return tableData;
             }
-            // load the data from the cache
-            else
+
+            String calculatedHash = getCalculatedHash( slice );
+            if ( calculatedHash == null ) return null;
+
+            String cachedHash = getCachedHash( slice );
+
+            // the cache exists and the csv data has not changed, load the data from the cache
+            if ( cachedHash != null && cachedHash.equals( calculatedHash ) && cacheFile.isFile( ) )
             {
-                File cacheFile = getCacheFile( slice );
-                InputStream cacheFileStream = new FileInputStream( cacheFile );
-                TableParser cacheParser = dsplParser.getTableParser( getExtension( cacheFile ) );
-                return cacheParser.parse( slice, cacheFileStream );
+                SliceTableData tableData = readCache( slice, cacheParser, cacheFile );
+                if ( tableData != null ) return tableData;
             }
+
+            // the cache has not been created or the csv data has changed, load the data from the csv file and recreate the hash
+            SliceTableData tableData = parser.parse( slice );
+            writeCache( slice, tableData, cacheParser, cacheFile );
+            writeHash( slice, calculatedHash );
+            return tableData;
         }
         catch ( NoSuchAlgorithmException e )
         {
@@ -208,6 +317,126 @@ public class DsplCacheHelper
         }
     }
 
+    /**
+     * Returns the cached table data, or null if the cache could not be read (because it was written
+     * in an older format version, or is truncated or corrupt) and should be rebuilt.
+     */
+    protected static SliceTableData readCache( Slice slice, TableParser cacheParser, File cacheFile ) throws IOException, JAXBException
+    {
+        // Closing the stream once parsed is fine: mapped columns stay valid after their channel is closed
+        try ( FileInputStream cacheFileStream = new FileInputStream( cacheFile ) )
+        {
+            return cacheParser.parse( slice, cacheFileStream.getChannel( ) );
+        }
+        catch ( DsplException | IOException | BufferUnderflowException | IllegalArgumentException e )
+        {
+            logWarning( logger, "Unable to read cache file %s, rebuilding it.", e, cacheFile );
+            return null;
+        }
+    }
+
+    protected static void writeCache( Slice slice, SliceTableData tableData, TableParser cacheParser, File cacheFile ) throws IOException, DsplException, JAXBException
+    {
+        if ( !( cacheParser instanceof TableWriter ) )
+        {
+            throw new DsplException( "Invalid cache format: %s. TableParser %s is not a TableWriter.", getExtension( cacheFile ), cacheParser.getClass( ) );
+        }
+
+        // write to a temporary file and move it into place, so that existing mappings of the
+        // previous cache file remain valid
+        File tempFile = new File( cacheFile.getPath( ) + ".tmp" );
+        FileOutputStream tempFileStream = new FileOutputStream( tempFile );
+        ( ( TableWriter ) cacheParser ).write( slice, tableData, tempFileStream.getChannel( ) );
+        replaceFile( tempFile, cacheFile );
+    }
+
+    protected static SliceTableData concatenate( Slice slice, SliceTableData first, SliceTableData second ) throws DsplException
+    {
+        Map<String, TableColumn> dimensionMap = new HashMap<String, TableColumn>( );
+        Map<String, TableColumn> metricMap = new HashMap<String, TableColumn>( );
+
+        for ( String id : first.getDimensionColumnIds( ) )
+        {
+            TableColumn secondColumn = second.getDimensionColumn( id );
+            if ( secondColumn == null ) return null;
+
+            dimensionMap.put( id, buildConcatenatedTableColumn( first.getDimensionColumn( id ), secondColumn ) );
+        }
+
+        for ( String id : first.getMetricColumnIds( ) )
+        {
+            TableColumn secondColumn = second.getMetricColumn( id );
+            if ( secondColumn == null ) return null;
+
+            metricMap.put( id, buildConcatenatedTableColumn( first.getMetricColumn( id ), secondColumn ) );
+        }
+
+        return new SimpleSliceTableData( slice, dimensionMap, metricMap );
+    }
+
+    /**
+     * Returns the source files of the table if they are all plain local files, or null if any of them
+     * are read from a classpath resource, a zip archive, or over the network.
+     */
+    protected static List<File> getLocalSourceFiles( Slice slice, TableParser parser ) throws JAXBException, IOException, DsplException
+    {
+        if ( parser instanceof MultipleFileTableParser )
+        {
+            return toLocalFiles( ( ( MultipleFileTableParser ) parser ).getDataFiles( slice ) );
+        }
+        else
+        {
+            File file = DsplHelper.getLocalTableFile( slice.getTable( ) );
+            return file == null ? null : Collections.singletonList( file );
+        }
+    }
+
+    protected static List<File> getLocalSourceFiles( Concept concept, TableParser parser ) throws JAXBException, IOException, DsplException
+    {
+        if ( parser instanceof MultipleFileTableParser )
+        {
+            return toLocalFiles( ( ( MultipleFileTableParser ) parser ).getDataFiles( concept ) );
+        }
+        else
+        {
+            File file = DsplHelper.getLocalTableFile( concept.getTable( ) );
+            return file == null ? null : Collections.singletonList( file );
+        }
+    }
+
+    protected static List<File> toLocalFiles( List<URL> urls )
+    {
+        List<File> files = new ArrayList<File>( urls.size( ) );
+
+        for ( URL url : urls )
+        {
+            if ( !"file".equals( url.getProtocol( ) ) ) return null;
+
+            try
+            {
+                files.add( new File( url.toURI( ) ) );
+            }
+            catch ( URISyntaxException e )
+            {
+                return null;
+            }
+        }
+
+        return files;
+    }
+
+    protected static void replaceFile( File source, File target ) throws IOException
+    {
+        try
+        {
+            Files.move( source.toPath( ), target.toPath( ), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+        }
+        catch ( AtomicMoveNotSupportedException e )
+        {
+            Files.move( source.toPath( ), target.toPath( ), StandardCopyOption.REPLACE_EXISTING );
+        }
+    }
+
     public static File getCacheDirectory( Concept concept ) throws DsplException, JAXBException, IOException
     {
         return getCacheDirectory( concept.getDataSet( ), concept.getTable( ), concept.getId( ) );
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2016, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.dspl.query;
+
+import java.util.Arrays;
+
+import com.metsci.glimpse.dspl.parser.column.TableColumn;
+import com.metsci.glimpse.util.primitives.algorithms.Sorting;
+
+/**
+ * A sorted index over a date column, used to turn date range filters into binary searches.<p>
+ *
+ * Date columns are very often already in sorted order (time series are usually written
+ * chronologically), in which case the index is just the column itself and a date range maps
+ * to a contiguous range of rows. Otherwise the index keeps a sorted copy of the dates along with
+ * the row each one came from.
+ */
+public class DateIndex
+{
+    protected long[] dates;
+    protected long[] sortedDates;
+    protected int[] sortedRows;
+
+    public DateIndex( long[] dates )
+    {
+        this.dates = dates;
+
+        if ( Sorting.isSorted( dates ) )
+        {
+            this.sortedDates = dates;
+            this.sortedRows = null;
+        }
+        else
+        {
+            this.sortedDates = Arrays.copyOf( dates, dates.length );
+            this.sortedRows = new int[dates.length];
+            for ( int i = 0; i < sortedRows.length; i++ )
+            {
+                this.sortedRows[i] = i;
+            }
+
+            Sorting.quicksort( sortedDates, sortedRows, 0, sortedDates.length );
+        }
+    }
+
+    public static DateIndex build( TableColumn column )
+    {
+        return new DateIndex( column.getDateData( ) );
+    }
+
+    /**
+     * @return true if the underlying column is in sorted order, so that positions in the index are also row indices
+     */
+    public boolean isSorted( )
+    {
+        return sortedRows == null;
+    }
+
+    public int getSize( )
+    {
+        return dates.length;
+    }
+
+    /**
+     * @return the date of each row, in row order
+     */
+    public long[] getDates( )
+    {
+        return dates;
+    }
+
+    public long getMin( )
+    {
+        return sortedDates[0];
+    }
+
+    public long getMax( )
+    {
+        return sortedDates[sortedDates.length - 1];
+    }
+
+    /**
+     * @return the first position in the index whose date is greater than or equal to the provided time
+     */
+    public int lowerBound( long time )
+    {
+        int low = 0;
+        int high = sortedDates.length;
+
+        while ( low < high )
+        {
+            int mid = ( low + high ) >>> 1;
+
+            if ( sortedDates[mid] < time )
+                low = mid + 1;
+            else
+                high = mid;
+        }
+
+        return low;
+    }
+
+    /**
+     * @return the date at the provided position in the index
+     */
+    public long getDate( int position )
+    {
+        return sortedDates[position];
+    }
+
+    /**
+     * @return the row at the provided position in the index
+     */
+    public int getRow( int position )
+    {
+        return sortedRows == null ? position : sortedRows[position];
+    }
+
+    /**
+     * @return the rows at positions [from,to) of the index, in ascending date order
+     */
+    public int[] getRows( int from, int to )
+    {
+        if ( sortedRows == null )
+        {
+            int[] rows = new int[to - from];
+            for ( int i = 0; i < rows.length; i++ )
+            {
+                rows[i] = from + i;
+            }
+            return rows;
+        }
+        else
+        {
+            return Arrays.copyOfRange( sortedRows, from, to );
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2016, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.dspl.query;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.metsci.glimpse.dspl.parser.column.CompactInternStringTableColumn;
+import com.metsci.glimpse.dspl.parser.column.TableColumn;
+
+/**
+ * A dictionary encoded view of a dimension column. Each row holds an index into an array of
+ * distinct values, so filters and group-bys compare ints instead of Strings.<p>
+ *
+ * {@link CompactInternStringTableColumn} is already stored this way and is wrapped without copying.
+ * Other columns are encoded once, using their String representation.
+ */
+public class DictionaryColumn
+{
+    protected String[] values;
+    protected int[] codes;
+    protected Map<String, Integer> codeByValue;
+
+    public DictionaryColumn( String[] values, int[] codes )
+    {
+        this.values = values;
+        this.codes = codes;
+
+        this.codeByValue = new HashMap<String, Integer>( values.length * 2 );
+        for ( int i = 0; i < values.length; i++ )
+        {
+            this.codeByValue.put( values[i], i );
+        }
+    }
+
+    public static DictionaryColumn encode( TableColumn column )
+    {
+        if ( column instanceof CompactInternStringTableColumn )
+        {
+            CompactInternStringTableColumn compactColumn = ( CompactInternStringTableColumn ) column;
+            return new DictionaryColumn( compactColumn.getUniqueStrings( ), compactColumn.getIndexByRow( ) );
+        }
+
+        int size = column.getSize( );
+        int[] codes = new int[size];
+        Map<String, Integer> codeByValue = new HashMap<String, Integer>( );
+
+        for ( int i = 0; i < size; i++ )
+        {
+            String value = column.getStringData( i );
+
+            if ( value == null )
+            {
+                codes[i] = -1;
+                continue;
+            }
+
+            Integer code = codeByValue.get( value );
+            if ( code == null )
+            {
+                code = codeByValue.size( );
+                codeByValue.put( value, code );
+            }
+
+            codes[i] = code;
+        }
+
+        String[] values = new String[codeByValue.size( )];
+        for ( Map.Entry<String, Integer> entry : codeByValue.entrySet( ) )
+        {
+            values[entry.getValue( )] = entry.getKey( );
+        }
+
+        return new DictionaryColumn( values, codes );
+    }
+
+    /**
+     * @return the number of distinct non-null values
+     */
+    public int getValueCount( )
+    {
+        return values.length;
+    }
+
+    public String getValue( int code )
+    {
+        return code < 0 ? null : values[code];
+    }
+
+    /**
+     * @return the code of the provided value, or -1 if it is null or does not appear in the column
+     */
+    public int getCode( String value )
+    {
+        Integer code = codeByValue.get( value );
+        return code == null ? -1 : code;
+    }
+
+    /**
+     * @return the code of each row, or -1 for rows with null values
+     */
+    public int[] getCodes( )
+    {
+        return codes;
+    }
+
+    public int getSize( )
+    {
+        return codes.length;
+    }
+}
@@ -0,0 +1,901 @@
+/*
+ * Copyright (c) 2016, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.dspl.query;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.metsci.glimpse.dspl.parser.column.TableColumn;
+import com.metsci.glimpse.dspl.schema.Concept;
+import com.metsci.glimpse.dspl.schema.DataType;
+import com.metsci.glimpse.dspl.util.DsplException;
+
+/**
+ * A filter / group-by / time bucketing query over the columns of a slice, created with
+ * {@link SliceQueryEngine#newQuery( )}. For example, the daily mean and maximum of a metric
+ * for two countries:
+ *
+ * <pre>
+ * SliceQueryResult result = engine.newQuery( )
+ *                                 .whereIn( "country", "US", "CA" )
+ *                                 .whereDateRange( "date", start, end )
+ *                                 .groupBy( "country" )
+ *                                 .bucketTime( "date", 24 * 60 * 60 * 1000L )
+ *                                 .aggregate( "population", Aggregate.MEAN )
+ *                                 .aggregate( "population", Aggregate.MAX )
+ *                                 .execute( );
+ * </pre>
+ *
+ * Rows are processed in blocks, one column at a time: the filters, group and bucket first compute the
+ * result cell of each row in the block (or -1 if the row is filtered out), then each metric column is
+ * accumulated into its cell. Dimension filters and groups compare dictionary codes rather than Strings,
+ * and date range filters use the engine's {@link DateIndex} to skip rows outside the range entirely.
+ * Each task accumulates into one slot per result cell that its rows actually land in, so a query
+ * with many more cells than rows per task does not allocate a full grid per task.
+ */
+public class SliceQuery
+{
+    protected static final int BLOCK_SIZE = 4096;
+
+    // a date range filter on an unsorted column uses the index when it selects
+    // less than this fraction of the rows, and a plain scan otherwise
+    protected static final double INDEX_SELECTIVITY = 0.125;
+
+    // the largest number of result cells (groups times time buckets) a query may produce
+    protected static final int MAX_RESULT_CELLS = 1 << 24;
+
+    // the CSV parsers write this for blank or unparseable dates, so it is not bucketed
+    protected static final long MISSING_DATE = -1;
+
+    protected SliceQueryEngine engine;
+
+    protected List<DimensionFilter> dimensionFilters;
+
+    protected TableColumn dateColumn;
+    protected long dateMin;
+    protected long dateMax;
+
+    protected TableColumn groupColumn;
+
+    protected TableColumn bucketColumn;
+    protected long bucketWidth;
+
+    protected List<TableColumn> metricColumns;
+    protected List<Aggregate> aggregates;
+
+    public SliceQuery( SliceQueryEngine engine )
+    {
+        this.engine = engine;
+        this.dimensionFilters = new ArrayList<DimensionFilter>( );
+        this.metricColumns = new ArrayList<TableColumn>( );
+        this.aggregates = new ArrayList<Aggregate>( );
+    }
+
+    /**
+     * Keeps only rows whose value in the provided dimension column is one of the provided values.
+     */
+    public SliceQuery whereIn( String dimensionId, String... values ) throws DsplException
+    {
+        return whereIn( engine.getColumn( dimensionId ), values );
+    }
+
+    public SliceQuery whereIn( Concept dimension, String... values ) throws DsplException
+    {
+        return whereIn( engine.getColumn( dimension ), values );
+    }
+
+    protected SliceQuery whereIn( TableColumn column, String... values ) throws DsplException
+    {
+        checkDimensionColumn( column );
+
+        DictionaryColumn dictionary = engine.getDictionary( column );
+
+        // the last entry accepts or rejects null values
+        boolean[] accept = new boolean[dictionary.getValueCount( ) + 1];
+        for ( String value : values )
+        {
+            int code = value == null ? accept.length - 1 : dictionary.getCode( value );
+            if ( code >= 0 ) accept[code] = true;
+        }
+
+        dimensionFilters.add( new DimensionFilter( dictionary.getCodes( ), accept ) );
+        return this;
+    }
+
+    /**
+     * Keeps only rows whose value in the provided date column is in the range [min,max). Replaces any
+     * previous date range filter.
+     */
+    public SliceQuery whereDateRange( String dateId, long min, long max ) throws DsplException
+    {
+        return whereDateRange( engine.getColumn( dateId ), min, max );
+    }
+
+    public SliceQuery whereDateRange( Concept date, long min, long max ) throws DsplException
+    {
+        return whereDateRange( engine.getColumn( date ), min, max );
+    }
+
+    protected SliceQuery whereDateRange( TableColumn column, long min, long max ) throws DsplException
+    {
+        checkDateColumn( column );
+
+        this.dateColumn = column;
+        this.dateMin = min;
+        this.dateMax = max;
+        return this;
+    }
+
+    /**
+     * Groups rows by their value in the provided dimension column.
+     */
+    public SliceQuery groupBy( String dimensionId ) throws DsplException
+    {
+        return groupBy( engine.getColumn( dimensionId ) );
+    }
+
+    public SliceQuery groupBy( Concept dimension ) throws DsplException
+    {
+        return groupBy( engine.getColumn( dimension ) );
+    }
+
+    protected SliceQuery groupBy( TableColumn column ) throws DsplException
+    {
+        checkDimensionColumn( column );
+
+        this.groupColumn = column;
+        return this;
+    }
+
+    /**
+     * Splits each group into time buckets of the provided width (in milliseconds), aligned to
+     * multiples of the width since the epoch, using the provided date column.
+     */
+    public SliceQuery bucketTime( String dateId, long width ) throws DsplException
+    {
+        return bucketTime( engine.getColumn( dateId ), width );
+    }
+
+    public SliceQuery bucketTime( Concept date, long width ) throws DsplException
+    {
+        return bucketTime( engine.getColumn( date ), width );
+    }
+
+    protected SliceQuery bucketTime( TableColumn column, long width ) throws DsplException
+    {
+        if ( width <= 0 ) throw new IllegalArgumentException( "Bucket width must be positive: " + width );
+
+        checkDateColumn( column );
+
+        this.bucketColumn = column;
+        this.bucketWidth = width;
+        return this;
+    }
+
+    /**
+     * Adds an aggregate of the provided metric column (which must have type INTEGER or FLOAT) to the result.
+     */
+    public SliceQuery aggregate( String metricId, Aggregate aggregate ) throws DsplException
+    {
+        return aggregate( engine.getColumn( metricId ), aggregate );
+    }
+
+    public SliceQuery aggregate( Concept metric, Aggregate aggregate ) throws DsplException
+    {
+        return aggregate( engine.getColumn( metric ), aggregate );
+    }
+
+    protected SliceQuery aggregate( TableColumn column, Aggregate aggregate ) throws DsplException
+    {
+        DataType type = column.getType( );
+        if ( type != DataType.INTEGER && type != DataType.FLOAT )
+        {
+            throw new DsplException( "Column %s has type %s, expected INTEGER or FLOAT.", SliceQueryEngine.getColumnId( column ), type );
+        }
+
+        this.metricColumns.add( column );
+        this.aggregates.add( aggregate );
+        return this;
+    }
+
+    protected void checkDimensionColumn( TableColumn column ) throws DsplException
+    {
+        if ( column.getType( ) != DataType.STRING )
+        {
+            throw new DsplException( "Column %s has type %s, expected STRING.", SliceQueryEngine.getColumnId( column ), column.getType( ) );
+        }
+    }
+
+    protected void checkDateColumn( TableColumn column ) throws DsplException
+    {
+        // builds (and caches) the index now, so that a bad column fails here rather than in execute( )
+        engine.getDateIndex( column );
+    }
+
+    public SliceQueryResult execute( ) throws DsplException
+    {
+        int numRows = engine.getData( ).getNumRows( );
+
+        // choose the rows to scan: a contiguous range, or an explicit list of rows from a date index
+        int from = 0;
+        int to = numRows;
+        int[] rows = null;
+        long[] dateFilter = null;
+
+        if ( dateColumn != null )
+        {
+            DateIndex index = engine.getDateIndex( dateColumn );
+            int low = index.lowerBound( dateMin );
+            int high = Math.max( low, index.lowerBound( dateMax ) );
+
+            if ( index.isSorted( ) )
+            {
+                from = low;
+                to = high;
+            }
+            else if ( high - low < numRows * INDEX_SELECTIVITY )
+            {
+                rows = index.getRows( low, high );
+                from = 0;
+                to = rows.length;
+            }
+            else
+            {
+                dateFilter = index.getDates( );
+            }
+        }
+
+        // groups
+        int[] groupCodes = null;
+        String[] groupValues = new String[] { null };
+
+        if ( groupColumn != null )
+        {
+            DictionaryColumn dictionary = engine.getDictionary( groupColumn );
+            groupCodes = dictionary.getCodes( );
+
+            // the last group holds null values
+            groupValues = new String[dictionary.getValueCount( ) + 1];
+            for ( int i = 0; i < groupValues.length - 1; i++ )
+            {
+                groupValues[i] = dictionary.getValue( i );
+            }
+        }
+
+        // time buckets
+        long[] bucketDates = null;
+        long bucketStart = 0;
+        int bucketCount = 1;
+
+        if ( bucketColumn != null )
+        {
+            DateIndex index = engine.getDateIndex( bucketColumn );
+            bucketDates = index.getDates( );
+
+            // bucket only the dates that can pass the filters, leaving out missing dates
+            int low = 0;
+            int high = index.getSize( );
+
+            if ( bucketColumn == dateColumn )
+            {
+                low = index.lowerBound( dateMin );
+                high = Math.max( low, index.lowerBound( dateMax ) );
+            }
+
+            if ( low < high && index.getDate( low ) == MISSING_DATE ) low = Math.min( high, index.lowerBound( MISSING_DATE + 1 ) );
+            if ( low < high && index.getDate( high - 1 ) == MISSING_DATE ) high = Math.max( low, index.lowerBound( MISSING_DATE ) );
+
+            if ( low >= high )
+            {
+                bucketCount = 0;
+            }
+            else
+            {
+                long min = index.getDate( low );
+                long max = index.getDate( high - 1 );
+
+                bucketStart = Math.floorDiv( min, bucketWidth ) * bucketWidth;
+                long count = Math.floorDiv( max - bucketStart, bucketWidth ) + 1;
+                if ( count > MAX_RESULT_CELLS / groupValues.length )
+                {
+                    throw new DsplException( "Too many result cells: %d groups by %d time buckets. Use a wider bucket or a narrower date range.", groupValues.length, count );
+                }
+
+                bucketCount = ( int ) count;
+            }
+        }
+
+        int cellCount = groupValues.length * bucketCount;
+
+        // metric data, shared between columns which appear in more than one aggregate
+        List<TableColumn> distinctMetrics = new ArrayList<TableColumn>( );
+        int[] metricIndex = new int[metricColumns.size( )];
+        for ( int i = 0; i < metricColumns.size( ); i++ )
+        {
+            TableColumn column = metricColumns.get( i );
+            int index = indexOfIdentity( distinctMetrics, column );
+            if ( index < 0 )
+            {
+                index = distinctMetrics.size( );
+                distinctMetrics.add( column );
+            }
+
+            metricIndex[i] = index;
+        }
+
+        MetricData[] metrics = new MetricData[distinctMetrics.size( )];
+        for ( int i = 0; i < metrics.length; i++ )
+        {
+            metrics[i] = new MetricData( distinctMetrics.get( i ) );
+        }
+
+        for ( int i = 0; i < aggregates.size( ); i++ )
+        {
+            metrics[metricIndex[i]].require( aggregates.get( i ) );
+        }
+
+        Plan plan = new Plan( rows, dimensionFilters.toArray( new DimensionFilter[dimensionFilters.size( )] ), dateFilter, dateMin, dateMax, groupCodes, groupValues.length - 1, bucketDates, bucketStart, bucketWidth, bucketCount, metrics, cellCount );
+
+        Partial partial = run( plan, from, to );
+
+        // assemble the result
+        double[][] values = new double[aggregates.size( )][];
+        for ( int i = 0; i < aggregates.size( ); i++ )
+        {
+            values[i] = partial.metrics[metricIndex[i]].getValues( aggregates.get( i ) );
+        }
+
+        return new SliceQueryResult( groupValues, bucketStart, bucketColumn == null ? 0 : bucketWidth, bucketCount, partial.rowCounts, new ArrayList<Aggregate>( aggregates ), values );
+    }
+
+    protected Partial run( final Plan plan, int from, int to ) throws DsplException
+    {
+        ExecutorService executor = engine.getExecutor( );
+        int rowsPerTask = engine.getRowsPerTask( );
+
+        // one partial per task, so memory grows with parallelism rather than with row count
+        long rangeCount = ( ( long ) to - from + rowsPerTask - 1 ) / rowsPerTask;
+        int taskCount = ( int ) Math.min( engine.getParallelism( ), rangeCount );
+
+        if ( executor == null || taskCount <= 1 )
+        {
+            Partial partial = new Partial( plan, true );
+            partial.accumulate( from, to );
+            return partial;
+        }
+
+        List<Future<Partial>> futures = new ArrayList<Future<Partial>>( taskCount );
+        for ( int t = 0; t < taskCount; t++ )
+        {
+            final int taskFrom = ( int ) ( from + ( ( long ) to - from ) * t / taskCount );
+            final int taskTo = ( int ) ( from + ( ( long ) to - from ) * ( t + 1 ) / taskCount );
+
+            futures.add( executor.submit( new Callable<Partial>( )
+            {
+                @Override
+                public Partial call( ) throws Exception
+                {
+                    // a task's rows land in at most one cell each, so use compact slots when
+                    // there are more cells than rows
+                    Partial partial = new Partial( plan, plan.cellCount <= taskTo - taskFrom );
+                    partial.accumulate( taskFrom, taskTo );
+                    return partial;
+                }
+            } ) );
+        }
+
+        // merge in row order, so that results do not depend on task scheduling, dropping each
+        // partial as soon as it has been merged
+        Partial result = new Partial( plan, true );
+        for ( int i = 0; i < futures.size( ); i++ )
+        {
+            result.merge( getResult( futures.set( i, null ) ) );
+        }
+
+        return result;
+    }
+
+    protected static <T> T getResult( Future<T> future ) throws DsplException
+    {
+        try
+        {
+            return future.get( );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+            throw new DsplException( "Interrupted while querying.", e );
+        }
+        catch ( ExecutionException e )
+        {
+            Throwable cause = e.getCause( );
+            if ( cause instanceof DsplException ) throw ( DsplException ) cause;
+            if ( cause instanceof RuntimeException ) throw ( RuntimeException ) cause;
+            if ( cause instanceof Error ) throw ( Error ) cause;
+            throw new DsplException( "Problem querying.", cause );
+        }
+    }
+
+    protected static int indexOfIdentity( List<TableColumn> list, TableColumn column )
+    {
+        for ( int i = 0; i < list.size( ); i++ )
+        {
+            if ( list.get( i ) == column ) return i;
+        }
+
+        return -1;
+    }
+
+    protected static class DimensionFilter
+    {
+        protected final int[] codes;
+        protected final boolean[] accept;
+
+        public DimensionFilter( int[] codes, boolean[] accept )
+        {
+            this.codes = codes;
+            this.accept = accept;
+        }
+    }
+
+    protected static class MetricData
+    {
+        protected final float[] floats;
+        protected final int[] ints;
+
+        protected boolean needSum;
+        protected boolean needMin;
+        protected boolean needMax;
+
+        public MetricData( TableColumn column )
+        {
+            if ( column.getType( ) == DataType.FLOAT )
+            {
+                this.floats = column.getFloatData( );
+                this.ints = null;
+            }
+            else
+            {
+                this.floats = null;
+                this.ints = column.getIntegerData( );
+            }
+        }
+
+        public void require( Aggregate aggregate )
+        {
+            switch ( aggregate )
+            {
+                case SUM:
+                case MEAN:
+                    needSum = true;
+                    break;
+                case MIN:
+                    needMin = true;
+                    break;
+                case MAX:
+                    needMax = true;
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Everything a task needs to accumulate a range of rows, resolved to primitive arrays up front.
+     */
+    protected static class Plan
+    {
+        protected final int[] rows;
+
+        protected final DimensionFilter[] dimensionFilters;
+
+        protected final long[] dateFilter;
+        protected final long dateMin;
+        protected final long dateMax;
+
+        protected final int[] groupCodes;
+        protected final int nullGroup;
+
+        protected final long[] bucketDates;
+        protected final long bucketStart;
+        protected final long bucketWidth;
+        protected final int bucketCount;
+
+        protected final MetricData[] metrics;
+        protected final int cellCount;
+
+        public Plan( int[] rows, DimensionFilter[] dimensionFilters, long[] dateFilter, long dateMin, long dateMax, int[] groupCodes, int nullGroup, long[] bucketDates, long bucketStart, long bucketWidth, int bucketCount, MetricData[] metrics, int cellCount )
+        {
+            this.rows = rows;
+            this.dimensionFilters = dimensionFilters;
+            this.dateFilter = dateFilter;
+            this.dateMin = dateMin;
+            this.dateMax = dateMax;
+            this.groupCodes = groupCodes;
+            this.nullGroup = nullGroup;
+            this.bucketDates = bucketDates;
+            this.bucketStart = bucketStart;
+            this.bucketWidth = bucketWidth;
+            this.bucketCount = bucketCount;
+            this.metrics = metrics;
+            this.cellCount = cellCount;
+        }
+    }
+
+    protected static class MetricPartial
+    {
+        protected long[] counts;
+        protected double[] sums;
+        protected double[] mins;
+        protected double[] maxs;
+
+        public MetricPartial( MetricData metric, int slotCount )
+        {
+            this.counts = new long[slotCount];
+            this.sums = metric.needSum ? new double[slotCount] : null;
+            this.mins = metric.needMin ? filled( slotCount, Double.POSITIVE_INFINITY ) : null;
+            this.maxs = metric.needMax ? filled( slotCount, Double.NEGATIVE_INFINITY ) : null;
+        }
+
+        public void grow( int slotCount )
+        {
+            int oldCount = counts.length;
+
+            counts = Arrays.copyOf( counts, slotCount );
+            if ( sums != null ) sums = Arrays.copyOf( sums, slotCount );
+            if ( mins != null )
+            {
+                mins = Arrays.copyOf( mins, slotCount );
+                Arrays.fill( mins, oldCount, slotCount, Double.POSITIVE_INFINITY );
+            }
+            if ( maxs != null )
+            {
+                maxs = Arrays.copyOf( maxs, slotCount );
+                Arrays.fill( maxs, oldCount, slotCount, Double.NEGATIVE_INFINITY );
+            }
+        }
+
+        public void accumulate( int[] cells, int[] blockRows, int n, float[] floats, int[] ints )
+        {
+            for ( int k = 0; k < n; k++ )
+            {
+                int cell = cells[k];
+                if ( cell < 0 ) continue;
+
+                double value = floats != null ? floats[blockRows[k]] : ints[blockRows[k]];
+                if ( Double.isNaN( value ) ) continue;
+
+                counts[cell]++;
+                if ( sums != null ) sums[cell] += value;
+                if ( mins != null && value < mins[cell] ) mins[cell] = value;
+                if ( maxs != null && value > maxs[cell] ) maxs[cell] = value;
+            }
+        }
+
+        /**
+         * Merges the first {@code n} slots of {@code other} into this dense partial, where slot j of
+         * {@code other} is for cell {@code otherCells[j]}, or for cell j if {@code otherCells} is null.
+         */
+        public void merge( MetricPartial other, int[] otherCells, int n )
+        {
+            for ( int j = 0; j < n; j++ )
+            {
+                int i = otherCells == null ? j : otherCells[j];
+
+                counts[i] += other.counts[j];
+                if ( sums != null ) sums[i] += other.sums[j];
+                if ( mins != null ) mins[i] = Math.min( mins[i], other.mins[j] );
+                if ( maxs != null ) maxs[i] = Math.max( maxs[i], other.maxs[j] );
+            }
+        }
+
+        public double[] getValues( Aggregate aggregate )
+        {
+            double[] values = new double[counts.length];
+            for ( int i = 0; i < values.length; i++ )
+            {
+                long count = counts[i];
+
+                switch ( aggregate )
+                {
+                    case COUNT:
+                        values[i] = count;
+                        break;
+                    case SUM:
+                        values[i] = sums[i];
+                        break;
+                    case MEAN:
+                        values[i] = count == 0 ? Double.NaN : sums[i] / count;
+                        break;
+                    case MIN:
+                        values[i] = count == 0 ? Double.NaN : mins[i];
+                        break;
+                    case MAX:
+                        values[i] = count == 0 ? Double.NaN : maxs[i];
+                        break;
+                }
+            }
+
+            return values;
+        }
+
+        protected static double[] filled( int n, double value )
+        {
+            double[] array = new double[n];
+            Arrays.fill( array, value );
+            return array;
+        }
+    }
+
+    /**
+     * Assigns slots to result cells in the order they are first seen, for partials which only
+     * hold the cells their rows land in.
+     */
+    protected static class CellSlots
+    {
+        // open addressing from ( cell + 1 ) to slot, with 0 marking an empty entry
+        protected int[] keys;
+        protected int[] slots;
+
+        // the cell of each slot
+        protected int[] cells;
+        protected int size;
+
+        public CellSlots( )
+        {
+            this.keys = new int[64];
+            this.slots = new int[64];
+            this.cells = new int[32];
+            this.size = 0;
+        }
+
+        public int getSize( )
+        {
+            return size;
+        }
+
+        public int[] getCells( )
+        {
+            return cells;
+        }
+
+        public int slot( int cell )
+        {
+            int mask = keys.length - 1;
+            int key = cell + 1;
+
+            for ( int i = hash( key ) & mask;; i = ( i + 1 ) & mask )
+            {
+                if ( keys[i] == key ) return slots[i];
+
+                if ( keys[i] == 0 )
+                {
+                    if ( size == cells.length ) cells = Arrays.copyOf( cells, 2 * size );
+                    cells[size] = cell;
+
+                    keys[i] = key;
+                    slots[i] = size;
+                    size++;
+
+                    if ( 2 * size > keys.length ) rehash( 2 * keys.length );
+                    return size - 1;
+                }
+            }
+        }
+
+        protected void rehash( int capacity )
+        {
+            int[] oldKeys = keys;
+            int[] oldSlots = slots;
+
+            keys = new int[capacity];
+            slots = new int[capacity];
+
+            int mask = capacity - 1;
+            for ( int j = 0; j < oldKeys.length; j++ )
+            {
+                if ( oldKeys[j] == 0 ) continue;
+
+                int i = hash( oldKeys[j] ) & mask;
+                while ( keys[i] != 0 )
+                    i = ( i + 1 ) & mask;
+
+                keys[i] = oldKeys[j];
+                slots[i] = oldSlots[j];
+            }
+        }
+
+        protected static int hash( int key )
+        {
+            int h = key * 0x9E3779B9;
+            return h ^ ( h >>> 16 );
+        }
+    }
+
+    protected static class Partial
+    {
+        protected final Plan plan;
+
+        // null if this partial has a slot for every result cell, in cell order
+        protected final CellSlots cellSlots;
+
+        protected long[] rowCounts;
+        protected final MetricPartial[] metrics;
+
+        public Partial( Plan plan, boolean dense )
+        {
+            this.plan = plan;
+            this.cellSlots = dense ? null : new CellSlots( );
+
+            int slotCount = dense ? plan.cellCount : Math.min( plan.cellCount, 64 );
+            this.rowCounts = new long[slotCount];
+            this.metrics = new MetricPartial[plan.metrics.length];
+            for ( int i = 0; i < metrics.length; i++ )
+            {
+                this.metrics[i] = new MetricPartial( plan.metrics[i], slotCount );
+            }
+        }
+
+        protected void ensureSlots( int slotCount )
+        {
+            if ( slotCount <= rowCounts.length ) return;
+
+            int newCount = ( int ) Math.min( plan.cellCount, Math.max( slotCount, 2L * rowCounts.length ) );
+            rowCounts = Arrays.copyOf( rowCounts, newCount );
+            for ( MetricPartial metric : metrics )
+            {
+                metric.grow( newCount );
+            }
+        }
+
+        public void accumulate( int from, int to )
+        {
+            Plan p = plan;
+
+            int[] blockRows = new int[BLOCK_SIZE];
+            int[] cells = new int[BLOCK_SIZE];
+
+            for ( int blockStart = from; blockStart < to; blockStart += BLOCK_SIZE )
+            {
+                int n = Math.min( BLOCK_SIZE, to - blockStart );
+
+                if ( p.rows == null )
+                {
+                    for ( int k = 0; k < n; k++ )
+                        blockRows[k] = blockStart + k;
+                }
+                else
+                {
+                    System.arraycopy( p.rows, blockStart, blockRows, 0, n );
+                }
+
+                if ( p.cellCount == 0 )
+                {
+                    Arrays.fill( cells, 0, n, -1 );
+                }
+                else
+                {
+                    Arrays.fill( cells, 0, n, 0 );
+                }
+
+                if ( p.dateFilter != null )
+                {
+                    for ( int k = 0; k < n; k++ )
+                    {
+                        long date = p.dateFilter[blockRows[k]];
+                        if ( date < p.dateMin || date >= p.dateMax ) cells[k] = -1;
+                    }
+                }
+
+                for ( DimensionFilter filter : p.dimensionFilters )
+                {
+                    int[] codes = filter.codes;
+                    boolean[] accept = filter.accept;
+                    int nullCode = accept.length - 1;
+
+                    for ( int k = 0; k < n; k++ )
+                    {
+                        int code = codes[blockRows[k]];
+                        if ( !accept[code < 0 ? nullCode : code] ) cells[k] = -1;
+                    }
+                }
+
+                if ( p.groupCodes != null )
+                {
+                    for ( int k = 0; k < n; k++ )
+                    {
+                        if ( cells[k] < 0 ) continue;
+
+                        int code = p.groupCodes[blockRows[k]];
+                        cells[k] = ( code < 0 ? p.nullGroup : code ) * p.bucketCount;
+                    }
+                }
+
+                if ( p.bucketDates != null )
+                {
+                    for ( int k = 0; k < n; k++ )
+                    {
+                        if ( cells[k] < 0 ) continue;
+
+                        long date = p.bucketDates[blockRows[k]];
+                        long bucket = Math.floorDiv( date - p.bucketStart, p.bucketWidth );
+                        if ( date == MISSING_DATE || bucket < 0 || bucket >= p.bucketCount )
+                            cells[k] = -1;
+                        else
+                            cells[k] += ( int ) bucket;
+                    }
+                }
+
+                if ( cellSlots != null )
+                {
+                    for ( int k = 0; k < n; k++ )
+                    {
+                        if ( cells[k] >= 0 ) cells[k] = cellSlots.slot( cells[k] );
+                    }
+
+                    ensureSlots( cellSlots.getSize( ) );
+                }
+
+                for ( int k = 0; k < n; k++ )
+                {
+                    if ( cells[k] >= 0 ) rowCounts[cells[k]]++;
+                }
+
+                for ( int i = 0; i < metrics.length; i++ )
+                {
+                    MetricData metric = p.metrics[i];
+                    metrics[i].accumulate( cells, blockRows, n, metric.floats, metric.ints );
+                }
+            }
+        }
+
+        /**
+         * Merges another partial, dense or not, into this one, which must be dense.
+         */
+        public void merge( Partial other )
+        {
+            int[] otherCells = other.cellSlots == null ? null : other.cellSlots.getCells( );
+            int n = other.cellSlots == null ? other.rowCounts.length : other.cellSlots.getSize( );
+
+            for ( int j = 0; j < n; j++ )
+            {
+                rowCounts[otherCells == null ? j : otherCells[j]] += other.rowCounts[j];
+            }
+
+            for ( int i = 0; i < metrics.length; i++ )
+            {
+                metrics[i].merge( other.metrics[i], otherCells, n );
+            }
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2016, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.dspl.query;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+
+import com.metsci.glimpse.dspl.parser.column.TableColumn;
+import com.metsci.glimpse.dspl.parser.table.SliceTableData;
+import com.metsci.glimpse.dspl.schema.Concept;
+import com.metsci.glimpse.dspl.schema.DataType;
+import com.metsci.glimpse.dspl.util.DsplException;
+
+/**
+ * Runs filter / group-by / time bucketing queries over a {@link SliceTableData}. The engine caches
+ * dictionary encodings of dimension columns and sorted indexes of date columns, so it should be
+ * kept around and reused for repeated queries against the same table.<p>
+ *
+ * Queries are split into at most {@link #getParallelism( )} contiguous ranges of rows, each at least
+ * {@link #getRowsPerTask( )} rows long, which are aggregated in parallel on the engine's executor.
+ */
+public class SliceQueryEngine
+{
+    public static final int DEFAULT_ROWS_PER_TASK = 1 << 20;
+
+    protected SliceTableData data;
+    protected ExecutorService executor;
+    protected int rowsPerTask;
+    protected int parallelism;
+
+    protected Map<TableColumn, DictionaryColumn> dictionaries;
+    protected Map<TableColumn, DateIndex> dateIndexes;
+
+    public SliceQueryEngine( SliceTableData data )
+    {
+        this( data, ForkJoinPool.commonPool( ) );
+    }
+
+    public SliceQueryEngine( SliceTableData data, ExecutorService executor )
+    {
+        this.data = data;
+        this.executor = executor;
+        this.rowsPerTask = DEFAULT_ROWS_PER_TASK;
+        this.parallelism = defaultParallelism( executor );
+
+        this.dictionaries = new IdentityHashMap<TableColumn, DictionaryColumn>( );
+        this.dateIndexes = new IdentityHashMap<TableColumn, DateIndex>( );
+    }
+
+    public SliceQuery newQuery( )
+    {
+        return new SliceQuery( this );
+    }
+
+    public SliceTableData getData( )
+    {
+        return data;
+    }
+
+    /**
+     * Sets the executor used to aggregate ranges of rows in parallel. If null, queries run on the calling thread.
+     */
+    public void setExecutor( ExecutorService executor )
+    {
+        this.executor = executor;
+        this.parallelism = defaultParallelism( executor );
+    }
+
+    public ExecutorService getExecutor( )
+    {
+        return executor;
+    }
+
+    public void setRowsPerTask( int rowsPerTask )
+    {
+        if ( rowsPerTask <= 0 ) throw new IllegalArgumentException( "Rows per task must be positive: " + rowsPerTask );
+
+        this.rowsPerTask = rowsPerTask;
+    }
+
+    public int getRowsPerTask( )
+    {
+        return rowsPerTask;
+    }
+
+    /**
+     * Sets the maximum number of tasks a query is split into. Defaults to the parallelism of the
+     * executor if it is a ForkJoinPool, and to the number of available processors otherwise.
+     */
+    public void setParallelism( int parallelism )
+    {
+        if ( parallelism <= 0 ) throw new IllegalArgumentException( "Parallelism must be positive: " + parallelism );
+
+        this.parallelism = parallelism;
+    }
+
+    public int getParallelism( )
+    {
+        return parallelism;
+    }
+
+    protected static int defaultParallelism( ExecutorService executor )
+    {
+        if ( executor instanceof ForkJoinPool ) return ( ( ForkJoinPool ) executor ).getParallelism( );
+
+        return Runtime.getRuntime( ).availableProcessors( );
+    }
+
+    public TableColumn getColumn( String id ) throws DsplException
+    {
+        TableColumn column = data.getDimensionColumn( id );
+        if ( column == null ) column = data.getMetricColumn( id );
+        if ( column == null ) throw new DsplException( "No column with id %s in slice data.", id );
+
+        return column;
+    }
+
+    public TableColumn getColumn( Concept concept ) throws DsplException
+    {
+        TableColumn column = data.getDimensionColumn( concept );
+        if ( column == null ) column = data.getMetricColumn( concept );
+        if ( column == null ) throw new DsplException( "No column for concept %s in slice data.", concept.getId( ) );
+
+        return column;
+    }
+
+    public synchronized DictionaryColumn getDictionary( TableColumn column )
+    {
+        DictionaryColumn dictionary = dictionaries.get( column );
+
+        if ( dictionary == null )
+        {
+            dictionary = DictionaryColumn.encode( column );
+            dictionaries.put( column, dictionary );
+        }
+
+        return dictionary;
+    }
+
+    public synchronized DateIndex getDateIndex( TableColumn column ) throws DsplException
+    {
+        DateIndex index = dateIndexes.get( column );
+
+        if ( index == null )
+        {
+            if ( column.getType( ) != DataType.DATE )
+            {
+                throw new DsplException( "Column %s has type %s, expected DATE.", getColumnId( column ), column.getType( ) );
+            }
+
+            index = DateIndex.build( column );
+            dateIndexes.put( column, index );
+        }
+
+        return index;
+    }
+
+    protected static String getColumnId( TableColumn column )
+    {
+        return column.getColumn( ) == null ? null : column.getColumn( ).getId( );
+    }
+}
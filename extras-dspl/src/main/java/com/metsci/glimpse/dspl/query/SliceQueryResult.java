@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2016, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.dspl.query;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The result of a {@link SliceQuery}: a dense grid of groups by time buckets, holding a row count
+ * and one value per requested aggregate in each cell.<p>
+ *
+ * If the query had no group-by, there is a single group with a null value. Otherwise there is one
+ * group per distinct value of the group-by column, followed by a final group for rows with a null value.
+ * Similarly, if the query had no time bucketing there is a single bucket.<p>
+ *
+ * Cells which no rows fell into have a row count of zero, zero for COUNT and SUM, and NaN for MEAN, MIN, and MAX.
+ */
+public class SliceQueryResult
+{
+    protected String[] groupValues;
+
+    protected long bucketStart;
+    protected long bucketWidth;
+    protected int bucketCount;
+
+    protected long[] rowCounts;
+
+    protected List<Aggregate> aggregates;
+    protected double[][] values;
+
+    public SliceQueryResult( String[] groupValues, long bucketStart, long bucketWidth, int bucketCount, long[] rowCounts, List<Aggregate> aggregates, double[][] values )
+    {
+        this.groupValues = groupValues;
+        this.bucketStart = bucketStart;
+        this.bucketWidth = bucketWidth;
+        this.bucketCount = bucketCount;
+        this.rowCounts = rowCounts;
+        this.aggregates = Collections.unmodifiableList( aggregates );
+        this.values = values;
+    }
+
+    public int getGroupCount( )
+    {
+        return groupValues.length;
+    }
+
+    public String getGroupValue( int group )
+    {
+        return groupValues[group];
+    }
+
+    /**
+     * @return the index of the group with the provided value, or -1 if there is no such group
+     */
+    public int getGroupIndex( String value )
+    {
+        for ( int i = 0; i < groupValues.length; i++ )
+        {
+            if ( value == null ? groupValues[i] == null : value.equals( groupValues[i] ) ) return i;
+        }
+
+        return -1;
+    }
+
+    public int getBucketCount( )
+    {
+        return bucketCount;
+    }
+
+    /**
+     * @return the start time (inclusive) of the provided bucket, or Long.MIN_VALUE if the query had no time bucketing
+     */
+    public long getBucketStart( int bucket )
+    {
+        return bucketWidth > 0 ? bucketStart + bucket * bucketWidth : Long.MIN_VALUE;
+    }
+
+    /**
+     * @return the width of each time bucket in milliseconds, or 0 if the query had no time bucketing
+     */
+    public long getBucketWidth( )
+    {
+        return bucketWidth;
+    }
+
+    public long getRowCount( int group, int bucket )
+    {
+        return rowCounts[group * bucketCount + bucket];
+    }
+
+    /**
+     * @return the aggregates in the order they were added to the query
+     */
+    public List<Aggregate> getAggregates( )
+    {
+        return aggregates;
+    }
+
+    public double getValue( int aggregate, int group, int bucket )
+    {
+        return values[aggregate][group * bucketCount + bucket];
+    }
+
+    /**
+     * @return the values of the provided aggregate, indexed by group * getBucketCount( ) + bucket
+     */
+    public double[] getValues( int aggregate )
+    {
+        return values[aggregate];
+    }
+}
@@ -448,6 +448,44 @@ public class DsplHelper
         }
     }
 
+    /**
+     * Returns the table's data file if {@link #getTableInputStream(Table)} would read it from a plain
+     * local file, or null if it would be read from a classpath resource, a zip archive, or a canonical
+     * dataset location.
+     */
+    public static java.io.File getLocalTableFile( Table table )
+    {
+        if ( table == null ) return null;
+
+        DataSet dataset = table.getDataSet( );
+
+        Data data = table.getData( );
+        if ( data == null ) return null;
+
+        String name = data.getFile( ).getValue( );
+
+        String namespace = dataset.getTargetNamespace( );
+        if ( namespace != null && ( namespace.startsWith( canonicalGoogleNamespace ) || namespace.startsWith( canonicalMetronNamespace ) ) )
+        {
+            return null;
+        }
+
+        // same search order as getLocalTableInputStream
+        java.io.File file = new java.io.File( name );
+        if ( file.isFile( ) ) return file;
+
+        if ( DsplHelper.class.getClassLoader( ).getResource( name ) != null ) return null;
+
+        java.io.File dataSetFile = dataset.getFile( );
+        if ( dataSetFile != null && !dataSetFile.getName( ).endsWith( ".zip" ) )
+        {
+            file = new java.io.File( dataSetFile.getParentFile( ), name );
+            if ( file.isFile( ) ) return file;
+        }
+
+        return null;
+    }
+
     public static InputStream getCanonicalTableInputStream( DsplParser parser, String file, String localBase, String urlBase ) throws IOException
     {
         if ( parser.isNetworkMode( ) )
@@ -29,6 +29,7 @@ package com.metsci.glimpse.worldwind.projection;
 import com.metsci.glimpse.util.geo.LatLonGeo;
 import com.metsci.glimpse.util.geo.projection.GeoProjection;
 import com.metsci.glimpse.util.geo.projection.KinematicVector2d;
+import com.metsci.glimpse.util.units.Angle;
 import com.metsci.glimpse.util.vector.Vector2d;
 
 public class PlateCarreeProjection implements GeoProjection
@@ -45,6 +46,26 @@ public class PlateCarreeProjection implements GeoProjection
         return LatLonGeo.fromDeg( y, x );
     }
 
+    @Override
+    public void project( double[] latDeg, double[] lonDeg, int offset, double[] xyOut, int xyOffset, int n )
+    {
+        for ( int i = 0; i < n; i++ )
+        {
+            xyOut[xyOffset + 2 * i] = Angle.radiansToDegrees( LatLonGeo.normalizeLon( Angle.degreesToRadians( lonDeg[offset + i] ) ) );
+            xyOut[xyOffset + 2 * i + 1] = Angle.radiansToDegrees( LatLonGeo.normalizeLat( Angle.degreesToRadians( latDeg[offset + i] ) ) );
+        }
+    }
+
+    @Override
+    public void unproject( double[] xy, int xyOffset, double[] latDegOut, double[] lonDegOut, int offset, int n )
+    {
+        for ( int i = 0; i < n; i++ )
+        {
+            latDegOut[offset + i] = Angle.radiansToDegrees( LatLonGeo.normalizeLat( Angle.degreesToRadians( xy[xyOffset + 2 * i + 1] ) ) );
+            lonDegOut[offset + i] = Angle.radiansToDegrees( LatLonGeo.normalizeLon( Angle.degreesToRadians( xy[xyOffset + 2 * i] ) ) );
+        }
+    }
+
     @Override
     public Vector2d reprojectFrom( double x, double y, GeoProjection fromProjection )
     {
@@ -38,12 +38,10 @@ import com.metsci.glimpse.layers.geo.GeoTrait;
 import com.metsci.glimpse.layers.geo.GeoView;
 import com.metsci.glimpse.layers.time.TimeTrait;
 import com.metsci.glimpse.plot.timeline.data.Epoch;
-import com.metsci.glimpse.util.geo.projection.GeoProjection;
 import com.metsci.glimpse.util.var.DisposableGroup;
 import com.metsci.glimpse.util.var.Listenable;
 import com.metsci.glimpse.util.var.ListenableGroup;
 import com.metsci.glimpse.util.var.VarEvent;
-import com.metsci.glimpse.util.vector.Vector2d;
 
 public class ExampleGeoFacet extends ExampleFacet
 {
@@ -54,6 +52,7 @@ public class ExampleGeoFacet extends ExampleFacet
     protected final GeoTrait geoTrait;
     protected final TimeTrait timeTrait;
 
+    protected final ExamplePointsBuffer points;
     protected final ExampleGeoPainter painter;
 
     protected final DisposableGroup disposables;
@@ -69,7 +68,8 @@ public class ExampleGeoFacet extends ExampleFacet
         this.geoTrait = requireGeoTrait( this.view );
         this.timeTrait = requireTimeTrait( this.view );
 
-        this.painter = new ExampleGeoPainter( style );
+        this.points = ExamplePointsBuffer.acquire( this.layer, this.view, this.timeTrait.epoch, this.geoTrait.proj );
+        this.painter = new ExampleGeoPainter( style, this.points.txyzBuffer );
         this.disposables.add( this.view.addDataPainter( this.painter ) );
 
         Axis2D geoAxis = this.geoTrait.axis;
@@ -101,23 +101,15 @@ public class ExampleGeoFacet extends ExampleFacet
         this.disposables.add( visibilityGroup.addListener( true, ( ) ->
         {
             this.painter.setVisible( this.layer.isVisible.v( ) && this.isVisible.v( ) );
+            this.view.requestRepaint( );
         } ) );
     }
 
     @Override
     public void addPoint( ExamplePoint point )
     {
-        Epoch epoch = this.timeTrait.epoch;
-        float t = ( float ) epoch.fromPosixMillis( point.time_PMILLIS );
-
-        GeoProjection geoProj = this.geoTrait.proj;
-        Vector2d xy_SU = geoProj.project( point.latlon );
-        float x = ( float ) xy_SU.getX( );
-        float y = ( float ) xy_SU.getY( );
-
-        float z = ( float ) point.z_SU;
-
-        this.painter.addPoint( t, x, y, z );
+        this.points.update( this.layer.points );
+        this.view.requestRepaint( );
     }
 
     @Override
@@ -130,6 +122,8 @@ public class ExampleGeoFacet extends ExampleFacet
             this.painter.dispose( context );
             return true;
         } );
+
+        this.points.release( this.view );
     }
 
 }
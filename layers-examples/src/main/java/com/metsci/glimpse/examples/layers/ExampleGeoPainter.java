@@ -29,7 +29,6 @@ package com.metsci.glimpse.examples.layers;
 import static com.metsci.glimpse.gl.util.GLUtils.disableBlending;
 import static com.metsci.glimpse.gl.util.GLUtils.enableStandardBlending;
 import static java.lang.System.currentTimeMillis;
-import static javax.media.opengl.GL.GL_STATIC_DRAW;
 
 import javax.media.opengl.GL2ES2;
 import javax.media.opengl.GL2ES3;
@@ -53,10 +52,11 @@ public class ExampleGeoPainter extends GlimpsePainterBase
     protected float yWindowMin;
     protected float yWindowMax;
 
+    // may be shared with other painters, so it is owned (and disposed) by the caller
     protected final GLEditableBuffer txyzBuffer;
 
 
-    public ExampleGeoPainter( ExampleStyle style )
+    public ExampleGeoPainter( ExampleStyle style, GLEditableBuffer txyzBuffer )
     {
         this.prog = new ExampleProgram( );
         this.style = new ExampleStyle( style );
@@ -68,12 +68,7 @@ public class ExampleGeoPainter extends GlimpsePainterBase
         this.yWindowMin = 0;
         this.yWindowMax = 0;
 
-        this.txyzBuffer = new GLEditableBuffer( GL_STATIC_DRAW, 0 );
-    }
-
-    public void addPoint( float t, float x, float y, float z )
-    {
-        this.txyzBuffer.grow4f( t, x, y, z );
+        this.txyzBuffer = txyzBuffer;
     }
 
     public void setTWindow( float tMin, float tMax )
@@ -122,7 +117,6 @@ public class ExampleGeoPainter extends GlimpsePainterBase
     protected void doDispose( GlimpseContext context )
     {
         GL2ES2 gl = context.getGL( ).getGL2ES2( );
-        this.txyzBuffer.dispose( gl );
         this.prog.dispose( gl );
     }
 
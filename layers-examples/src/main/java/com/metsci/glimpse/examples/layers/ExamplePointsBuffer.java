@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2016, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.examples.layers;
+
+import static java.util.Arrays.asList;
+import static javax.media.opengl.GL.GL_STATIC_DRAW;
+
+import java.util.List;
+
+import javax.media.opengl.GL;
+
+import com.metsci.glimpse.gl.GLEditableBuffer;
+import com.metsci.glimpse.layers.GlimpseCanvasView;
+import com.metsci.glimpse.layers.SharedGLResources;
+import com.metsci.glimpse.layers.StandardGuiOption;
+import com.metsci.glimpse.plot.timeline.data.Epoch;
+import com.metsci.glimpse.util.geo.projection.GeoProjection;
+import com.metsci.glimpse.util.vector.Vector2d;
+
+/**
+ * The points of an {@link ExampleLayer}, as t,x,y,z vertices for a given epoch and projection.
+ * <p>
+ * When views share a GL context (see {@link StandardGuiOption#SHARE_GL_CONTEXT}), the facets
+ * of a layer share one of these per epoch and projection, through {@link SharedGLResources} --
+ * so the layer's points are uploaded once, instead of once per view. Each facet still draws
+ * them with its own program, since vertex array objects can't be shared between contexts.
+ */
+public class ExamplePointsBuffer
+{
+
+    /**
+     * Returns the points buffer for the given layer and view -- the shared one, if the view has
+     * shared GL resources, or else a new one owned by the caller. Either way, call {@link #release(GlimpseCanvasView)}
+     * when done with it.
+     */
+    public static ExamplePointsBuffer acquire( ExampleLayer layer, GlimpseCanvasView view, Epoch epoch, GeoProjection proj )
+    {
+        SharedGLResources glShared = view.getGLSharedResources( );
+        if ( glShared == null )
+        {
+            return new ExamplePointsBuffer( epoch, proj, null, null );
+        }
+        else
+        {
+            Object key = asList( layer, epoch, proj );
+            return glShared.acquire( key, ( ) -> new ExamplePointsBuffer( epoch, proj, glShared, key ), ExamplePointsBuffer::dispose );
+        }
+    }
+
+
+    public final Epoch epoch;
+    public final GeoProjection proj;
+    public final GLEditableBuffer txyzBuffer;
+
+    protected final SharedGLResources glShared;
+    protected final Object sharedKey;
+    protected int numPoints;
+
+
+    protected ExamplePointsBuffer( Epoch epoch, GeoProjection proj, SharedGLResources glShared, Object sharedKey )
+    {
+        this.epoch = epoch;
+        this.proj = proj;
+        this.txyzBuffer = new GLEditableBuffer( GL_STATIC_DRAW, 0 );
+
+        this.glShared = glShared;
+        this.sharedKey = sharedKey;
+        this.numPoints = 0;
+    }
+
+    /**
+     * Appends any points that are not in the buffer yet. The buffer may be shared, so this is
+     * called by every facet, and only the first call for a given point does anything.
+     */
+    public void update( List<ExamplePoint> points )
+    {
+        for ( int i = this.numPoints; i < points.size( ); i++ )
+        {
+            ExamplePoint point = points.get( i );
+
+            float t = ( float ) this.epoch.fromPosixMillis( point.time_PMILLIS );
+
+            Vector2d xy_SU = this.proj.project( point.latlon );
+            float x = ( float ) xy_SU.getX( );
+            float y = ( float ) xy_SU.getY( );
+
+            float z = ( float ) point.z_SU;
+
+            this.txyzBuffer.grow4f( t, x, y, z );
+        }
+
+        this.numPoints = points.size( );
+    }
+
+    public void release( GlimpseCanvasView view )
+    {
+        if ( this.glShared != null )
+        {
+            this.glShared.release( this.sharedKey );
+        }
+        else
+        {
+            view.glimpseInvoke( ( context ) ->
+            {
+                this.dispose( context.getGL( ) );
+                return true;
+            } );
+        }
+    }
+
+    protected void dispose( GL gl )
+    {
+        this.txyzBuffer.dispose( gl );
+    }
+
+}
@@ -41,12 +41,10 @@ import com.metsci.glimpse.layers.time.TimeTrait;
 import com.metsci.glimpse.layers.time.TimelineView;
 import com.metsci.glimpse.plot.timeline.data.Epoch;
 import com.metsci.glimpse.plot.timeline.layout.TimePlotInfo;
-import com.metsci.glimpse.util.geo.projection.GeoProjection;
 import com.metsci.glimpse.util.var.DisposableGroup;
 import com.metsci.glimpse.util.var.Listenable;
 import com.metsci.glimpse.util.var.ListenableGroup;
 import com.metsci.glimpse.util.var.VarEvent;
-import com.metsci.glimpse.util.vector.Vector2d;
 
 public class ExampleTimelineFacet extends ExampleFacet
 {
@@ -62,6 +60,7 @@ public class ExampleTimelineFacet extends ExampleFacet
     protected final ExampleTrait exampleTrait;
 
     protected final TimePlotInfo row;
+    protected final ExamplePointsBuffer points;
     protected final ExampleTimelinePainter painter;
 
     protected final DisposableGroup disposables;
@@ -82,7 +81,8 @@ public class ExampleTimelineFacet extends ExampleFacet
             zAxis.setParent( this.exampleTrait.zAxis );
         } );
 
-        this.painter = new ExampleTimelinePainter( style );
+        this.points = ExamplePointsBuffer.acquire( this.layer, this.view, this.timeTrait.epoch, this.geoTrait.proj );
+        this.painter = new ExampleTimelinePainter( style, this.points.txyzBuffer );
         this.row.addPainter( this.painter );
 
         this.disposables = new DisposableGroup( );
@@ -116,23 +116,15 @@ public class ExampleTimelineFacet extends ExampleFacet
         this.disposables.add( visibilityGroup.addListener( true, ( ) ->
         {
             this.painter.setVisible( this.layer.isVisible.v( ) && this.isVisible.v( ) );
+            this.view.requestRepaint( );
         } ) );
     }
 
     @Override
     public void addPoint( ExamplePoint point )
     {
-        Epoch epoch = this.timeTrait.epoch;
-        float t = ( float ) epoch.fromPosixMillis( point.time_PMILLIS );
-
-        GeoProjection geoProj = this.geoTrait.proj;
-        Vector2d xy_SU = geoProj.project( point.latlon );
-        float x = ( float ) xy_SU.getX( );
-        float y = ( float ) xy_SU.getY( );
-
-        float z = ( float ) point.z_SU;
-
-        this.painter.addPoint( t, x, y, z );
+        this.points.update( this.layer.points );
+        this.view.requestRepaint( );
     }
 
     @Override
@@ -147,6 +139,8 @@ public class ExampleTimelineFacet extends ExampleFacet
             this.painter.dispose( context );
             return true;
         } );
+
+        this.points.release( this.view );
     }
 
 }
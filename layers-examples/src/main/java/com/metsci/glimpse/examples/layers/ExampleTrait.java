@@ -26,12 +26,15 @@
  */
 package com.metsci.glimpse.examples.layers;
 
+import static com.metsci.glimpse.layers.misc.AxisUtils.addAxisListener1D;
+
 import java.util.function.DoubleUnaryOperator;
 
 import com.metsci.glimpse.axis.Axis1D;
 import com.metsci.glimpse.layers.LayeredGui;
 import com.metsci.glimpse.layers.Trait;
 import com.metsci.glimpse.layers.View;
+import com.metsci.glimpse.util.var.Disposable;
 
 public class ExampleTrait extends Trait
 {
@@ -88,6 +91,15 @@ public class ExampleTrait extends Trait
         return copy;
     }
 
+    @Override
+    public Disposable addStateListener( Runnable listener )
+    {
+        return addAxisListener1D( this.zAxis, false, ( axis ) ->
+        {
+            listener.run( );
+        } );
+    }
+
     public void setZBounds( DoubleUnaryOperator unitsToSu, double zMin_UNITS, double zMax_UNITS )
     {
         this.zAxis.setMin( unitsToSu.applyAsDouble( zMin_UNITS ) );
@@ -28,7 +28,12 @@ package com.metsci.glimpse.layers;
 
 import java.util.Collection;
 
-public class FpsOption implements GuiOption
+/**
+ * As a {@link GuiOption}, sets the rate of the animator shared by all views. As a {@link ViewOption},
+ * caps the rate at which an individual view is repainted -- e.g. to keep a heavy view from
+ * taking frame time away from the others.
+ */
+public class FpsOption implements GuiOption, ViewOption
 {
 
     public static FpsOption FPS( double fps )
@@ -36,9 +41,9 @@ public class FpsOption implements GuiOption
         return new FpsOption( fps );
     }
 
-    public static double findFps( Collection<? extends GuiOption> guiOptions, double fpsDefault )
+    public static double findFps( Collection<?> options, double fpsDefault )
     {
-        for ( GuiOption option : guiOptions )
+        for ( Object option : options )
         {
             if ( option instanceof FpsOption )
             {
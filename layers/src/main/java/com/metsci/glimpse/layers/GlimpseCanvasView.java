@@ -30,6 +30,7 @@ import static com.google.common.base.MoreObjects.firstNonNull;
 import static com.google.common.base.Objects.equal;
 import static com.metsci.glimpse.gl.util.GLCapabilityUtils.getGLRendererString;
 import static com.metsci.glimpse.gl.util.GLCapabilityUtils.getGLVersionString;
+import static com.metsci.glimpse.layers.FpsOption.findFps;
 import static com.metsci.glimpse.layers.misc.UiUtils.ensureAnimating;
 import static com.metsci.glimpse.layers.misc.UiUtils.requireSwingThread;
 import static com.metsci.glimpse.support.DisposableUtils.onGLDispose;
@@ -39,16 +40,29 @@ import static com.metsci.glimpse.util.logging.LoggerUtils.logInfo;
 
 import java.awt.BorderLayout;
 import java.awt.Component;
+import java.awt.Frame;
+import java.awt.Window;
 import java.awt.image.BufferedImage;
 import java.util.Collection;
 import java.util.logging.Logger;
 
 import javax.media.opengl.GLAnimatorControl;
+import javax.media.opengl.GLAutoDrawable;
 import javax.media.opengl.GLProfile;
 import javax.swing.JPanel;
-
+import javax.swing.SwingUtilities;
+
+import com.jogamp.newt.event.MouseAdapter;
+import com.jogamp.newt.event.MouseEvent;
+import com.jogamp.newt.event.MouseListener;
+import com.jogamp.newt.event.WindowAdapter;
+import com.jogamp.newt.event.WindowEvent;
+import com.jogamp.newt.event.WindowListener;
+import com.jogamp.newt.event.WindowUpdateEvent;
 import com.metsci.glimpse.context.GlimpseContext;
 import com.metsci.glimpse.support.swing.NewtSwingEDTGlimpseCanvas;
+import com.metsci.glimpse.support.swing.SwingEDTFrameScheduler;
+import com.metsci.glimpse.util.var.DisposableGroup;
 
 public abstract class GlimpseCanvasView extends View
 {
@@ -68,11 +82,19 @@ public abstract class GlimpseCanvasView extends View
     public static final String glReparentingMethod = System.getProperty( "layers.glReparentingMethod" );
 
 
+    protected final GLProfile glProfile;
     protected GLAnimatorControl animator;
+    protected SharedGLResources glShared;
 
     protected boolean areTraitsSet;
     protected boolean isCanvasReady;
 
+    // repaint the canvas when one of the view's traits changes, or on input to the canvas --
+    // the canvas listeners are added once to each new canvas, and removed when it is torn down
+    protected final DisposableGroup traitListeners;
+    protected final MouseListener repaintOnMouse;
+    protected final WindowListener repaintOnWindow;
+
     public final JPanel canvasParent;
     protected NewtSwingEDTGlimpseCanvas canvas;
 
@@ -81,13 +103,67 @@ public abstract class GlimpseCanvasView extends View
     {
         super( options );
 
+        this.glProfile = glProfile;
         this.animator = null;
+        this.glShared = null;
 
         this.areTraitsSet = false;
         this.isCanvasReady = false;
 
         this.canvas = null;
 
+        // With a SwingEDTFrameScheduler, the canvas is only repainted on request -- so request a
+        // repaint whenever something that may change the picture changes
+        this.traitListeners = new DisposableGroup( );
+        this._traits.addListener( true, ( ) ->
+        {
+            this.traitListeners.dispose( );
+            this.traitListeners.clear( );
+            for ( Trait trait : this._traits.v( ).values( ) )
+            {
+                this.traitListeners.add( trait.addStateListener( this::requestRepaint ) );
+            }
+            this.requestRepaint( );
+        } );
+        this._facets.addListener( false, this::requestRepaint );
+
+        // Give priority to the view the user is interacting with
+        this.repaintOnMouse = new MouseAdapter( )
+        {
+            @Override
+            public void mouseMoved( MouseEvent ev )
+            {
+                requestRepaint( );
+            }
+
+            @Override
+            public void mouseDragged( MouseEvent ev )
+            {
+                requestRepaint( );
+            }
+
+            @Override
+            public void mouseWheelMoved( MouseEvent ev )
+            {
+                requestRepaint( );
+            }
+        };
+
+        this.repaintOnWindow = new WindowAdapter( )
+        {
+            @Override
+            public void windowResized( WindowEvent ev )
+            {
+                requestRepaint( );
+            }
+
+            @Override
+            public void windowRepaint( WindowUpdateEvent ev )
+            {
+                requestRepaint( );
+            }
+        };
+
         // XXX: Consider platform details when method is AUTO
         if ( equal( glReparentingMethod, "FAST" ) )
         {
@@ -123,7 +199,14 @@ public abstract class GlimpseCanvasView extends View
         if ( this.canvas == null )
         {
             // XXX: FAST reparenting might require a shared context on some platforms
-            this.canvas = new NewtSwingEDTGlimpseCanvas( glProfile );
+            if ( this.glShared != null )
+            {
+                this.canvas = new NewtSwingEDTGlimpseCanvas( this.glShared.getContext( ) );
+            }
+            else
+            {
+                this.canvas = new NewtSwingEDTGlimpseCanvas( glProfile );
+            }
 
             // Once canvas is ready, do view-specific setup and install facets
             onGLInit( this.canvas, ( drawable ) ->
@@ -163,12 +246,14 @@ public abstract class GlimpseCanvasView extends View
                 this.isCanvasReady = false;
             } );
 
+            this.canvas.getGLWindow( ).addMouseListener( this.repaintOnMouse );
+            this.canvas.getGLWindow( ).addWindowListener( this.repaintOnWindow );
+
             this.canvasParent.add( this.canvas );
 
             if ( this.animator != null )
             {
-                ensureAnimating( this.animator );
-                this.animator.add( this.canvas.getGLDrawable( ) );
+                this.addToAnimator( );
             }
         }
     }
@@ -177,7 +262,13 @@ public abstract class GlimpseCanvasView extends View
     {
         if ( this.canvas != null )
         {
-            this.animator.remove( this.canvas.getGLDrawable( ) );
+            if ( this.animator != null )
+            {
+                this.animator.remove( this.canvas.getGLDrawable( ) );
+            }
+
+            this.canvas.getGLWindow( ).removeMouseListener( this.repaintOnMouse );
+            this.canvas.getGLWindow( ).removeWindowListener( this.repaintOnWindow );
 
             this.canvas.getCanvas( ).setNEWTChild( null );
             this.canvasParent.remove( this.canvas );
@@ -203,9 +294,96 @@ public abstract class GlimpseCanvasView extends View
 
         if ( this.canvas != null )
         {
-            ensureAnimating( this.animator );
-            this.animator.add( this.canvas.getGLDrawable( ) );
+            this.addToAnimator( );
+        }
+    }
+
+    protected void addToAnimator( )
+    {
+        ensureAnimating( this.animator );
+
+        GLAutoDrawable drawable = this.canvas.getGLDrawable( );
+        this.animator.add( drawable );
+
+        if ( this.animator instanceof SwingEDTFrameScheduler )
+        {
+            SwingEDTFrameScheduler scheduler = ( SwingEDTFrameScheduler ) this.animator;
+            scheduler.setShowingFn( drawable, this::isCanvasShowing );
+            scheduler.setTargetFps( drawable, findFps( this.viewOptions, Double.NaN ) );
+
+            // Repaint on request, rather than on every tick
+            scheduler.setContinuous( drawable, false );
+        }
+    }
+
+    /**
+     * Asks for the canvas to be repainted soon. May be called from any thread.
+     * <p>
+     * With the {@link SwingEDTFrameScheduler} that {@link LayeredGui} uses, the canvas is only
+     * repainted on request (plus an occasional idle refresh). The view requests a repaint on
+     * mouse input, on changes to its traits (e.g. axis changes, including ones linked from other
+     * views), and when facets are added or removed. A facet whose drawing changes for any other
+     * reason -- e.g. new data, or a change in visibility -- should call this method.
+     */
+    public void requestRepaint( )
+    {
+        GLAnimatorControl animator = this.animator;
+        NewtSwingEDTGlimpseCanvas canvas = this.canvas;
+        if ( animator instanceof SwingEDTFrameScheduler && canvas != null )
+        {
+            ( ( SwingEDTFrameScheduler ) animator ).requestDisplay( canvas.getGLDrawable( ) );
+        }
+    }
+
+    /**
+     * Whether the canvas is currently visible to the user -- false if the view is hidden
+     * behind another docking tab, or its frame is minimized.
+     */
+    protected boolean isCanvasShowing( )
+    {
+        if ( !this.canvasParent.isShowing( ) )
+        {
+            return false;
+        }
+
+        Window window = SwingUtilities.getWindowAncestor( this.canvasParent );
+        if ( window instanceof Frame && ( ( ( Frame ) window ).getExtendedState( ) & Frame.ICONIFIED ) != 0 )
+        {
+            return false;
         }
+
+        return true;
+    }
+
+    /**
+     * If the canvas already exists (as it does with FAST reparenting, which creates it in the
+     * constructor), it is re-created with the new sharing. Ignored if {@code glShared} has an
+     * incompatible profile.
+     */
+    @Override
+    public void setGLSharedResources( SharedGLResources glShared )
+    {
+        SharedGLResources newShared = ( glShared != null && glShared.isCompatible( this.glProfile ) ? glShared : null );
+        if ( newShared != this.glShared )
+        {
+            this.glShared = newShared;
+
+            if ( this.canvas != null )
+            {
+                this.tearDownCanvas( );
+                this.setUpCanvas( this.glProfile );
+            }
+        }
+    }
+
+    /**
+     * Returns the GL resources that can be drawn in this view's context, or null if this view
+     * does not share a context with other views. Facets can use this to share buffers with the
+     * facets of the same layer on other views.
+     */
+    public SharedGLResources getGLSharedResources( )
+    {
+        return this.glShared;
     }
 
     @Override
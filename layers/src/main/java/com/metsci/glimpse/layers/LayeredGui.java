@@ -38,6 +38,7 @@ import static com.metsci.glimpse.docking.DockingUtils.saveDockingArrangement;
 import static com.metsci.glimpse.docking.Side.RIGHT;
 import static com.metsci.glimpse.layers.FpsOption.findFps;
 import static com.metsci.glimpse.layers.StandardGuiOption.HIDE_LAYERS_PANEL;
+import static com.metsci.glimpse.layers.StandardGuiOption.SHARE_GL_CONTEXT;
 import static com.metsci.glimpse.layers.StandardViewOption.HIDE_CLONE_BUTTON;
 import static com.metsci.glimpse.layers.StandardViewOption.HIDE_CLOSE_BUTTON;
 import static com.metsci.glimpse.layers.StandardViewOption.HIDE_FACETS_MENU;
@@ -52,6 +53,7 @@ import static com.metsci.glimpse.util.PredicateUtils.notNull;
 import static com.metsci.glimpse.util.var.VarUtils.addElementAddedListener;
 import static com.metsci.glimpse.util.var.VarUtils.addElementRemovedListener;
 import static com.metsci.glimpse.util.var.VarUtils.addEntryRemovedListener;
+import static javax.media.opengl.GLProfile.GL3;
 import static javax.swing.ScrollPaneConstants.HORIZONTAL_SCROLLBAR_AS_NEEDED;
 import static javax.swing.ScrollPaneConstants.VERTICAL_SCROLLBAR_AS_NEEDED;
 
@@ -68,6 +70,7 @@ import java.util.Set;
 import java.util.regex.Pattern;
 
 import javax.media.opengl.GLAnimatorControl;
+import javax.media.opengl.GLProfile;
 import javax.swing.Icon;
 import javax.swing.JButton;
 import javax.swing.JCheckBoxMenuItem;
@@ -90,7 +93,7 @@ import com.metsci.glimpse.docking.DockingTheme;
 import com.metsci.glimpse.docking.xml.DockerArrangementTile;
 import com.metsci.glimpse.docking.xml.GroupArrangement;
 import com.metsci.glimpse.layers.misc.LayerCardsPanel;
-import com.metsci.glimpse.support.swing.SwingEDTAnimator;
+import com.metsci.glimpse.support.swing.SwingEDTFrameScheduler;
 import com.metsci.glimpse.util.var.Disposable;
 import com.metsci.glimpse.util.var.DisposableGroup;
 import com.metsci.glimpse.util.var.Var;
@@ -166,6 +169,7 @@ public class LayeredGui
     protected final Map<View,Disposable> viewDisposables;
     protected final DockingGroup dockingGroup;
     protected final GLAnimatorControl animator;
+    protected final SharedGLResources glShared;
     protected String dockingAppName;
     protected final Map<String,Integer> dockingViewIdCounters;
     protected final BiMap<View,com.metsci.glimpse.docking.View> dockingViews;
@@ -202,8 +206,15 @@ public class LayeredGui
 
         // Don't start the animator here, since we might not ever get any views that
         // use it -- see the javadocs for {@link View#setGLAnimator(GLAnimatorControl)}
+        //
+        // The scheduler skips views that aren't showing, and spreads view repaints across
+        // frames, so that adding views doesn't slow down the ones the user is looking at
         double fps = findFps( guiOptions, 60 );
-        this.animator = new SwingEDTAnimator( fps );
+        this.animator = new SwingEDTFrameScheduler( fps );
+
+        // Optionally, views share GL resources through a common context, so that e.g. cloned views
+        // of a large layer can draw the same buffers instead of each uploading their own copy
+        this.glShared = ( guiOptions.contains( SHARE_GL_CONTEXT ) ? new SharedGLResources( GLProfile.get( GL3 ) ) : null );
 
         this.dockingViewIdCounters = new HashMap<>( );
 
@@ -222,6 +233,11 @@ public class LayeredGui
                 views.set( ImmutableSet.of( ) );
 
                 animator.stop( );
+
+                if ( glShared != null )
+                {
+                    glShared.dispose( );
+                }
             }
 
             @Override
@@ -262,6 +278,15 @@ public class LayeredGui
         return this.dockingGroup;
     }
 
+    /**
+     * Returns the GL resources shared by this gui's views, or null if context sharing was not
+     * enabled with {@link StandardGuiOption#SHARE_GL_CONTEXT}.
+     */
+    public SharedGLResources getGLSharedResources( )
+    {
+        return this.glShared;
+    }
+
     public void stopAnimator( )
     {
         animator.stop( );
@@ -497,6 +522,7 @@ public class LayeredGui
             view.addLayer( layer );
         }
 
+        view.setGLSharedResources( this.glShared );
         view.setGLAnimator( this.animator );
 
         if ( !view.viewOptions.contains( HIDE_CLONE_BUTTON ) )
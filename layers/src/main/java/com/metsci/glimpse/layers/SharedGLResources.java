@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2016, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.layers;
+
+import static com.metsci.glimpse.gl.util.GLUtils.newOffscreenDrawable;
+import static com.metsci.glimpse.layers.misc.UiUtils.requireSwingThread;
+import static java.util.Collections.singletonList;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+import javax.media.opengl.GL;
+import javax.media.opengl.GLContext;
+import javax.media.opengl.GLOffscreenAutoDrawable;
+import javax.media.opengl.GLProfile;
+
+/**
+ * GL resources shared by all the {@link GlimpseCanvasView}s in a {@link LayeredGui}.
+ * <p>
+ * The views' GL contexts all share with a hidden master context owned by this object, so a
+ * buffer or texture created in one view's context can be drawn in every other view. This lets
+ * the facets of a layer upload the layer's data once, and then draw it in each view with that
+ * view's own transform -- instead of each facet keeping its own copy in VRAM.
+ * <p>
+ * A facet calls {@link #acquire(Object, Supplier, BiConsumer)} with a key that identifies
+ * the data (typically the layer itself, or an object owned by the layer). The first call for
+ * a given key creates the resource; subsequent calls return the same instance. Each acquire
+ * must be balanced by a {@link #release(Object)}, and the resource is disposed when the last
+ * holder releases it.
+ * <p>
+ * Facets are uninstalled and reinstalled when their view's canvas is re-created (e.g. during
+ * re-docking), so a resource held only by the facets of that view is disposed and then created
+ * again. To keep a resource across re-docking, hold an extra reference on behalf of the layer,
+ * and release it when the layer is removed.
+ * <p>
+ * Only objects that hold data are shared between contexts: buffers, textures, renderbuffers,
+ * shaders and programs. Container objects -- vertex array objects and framebuffer objects --
+ * are per-context, and cannot be shared. Each view must create its own, even when they refer
+ * to shared buffers or textures. See {@code ExamplePointsBuffer} in the layers examples for a
+ * facet that shares its vertex buffer this way.
+ * <p>
+ * All methods must be called on the Swing EDT, which is also where the views render.
+ */
+public class SharedGLResources
+{
+
+    protected static class Entry
+    {
+        public final Object resource;
+        public final BiConsumer<Object,GL> disposeFn;
+        public int refCount;
+
+        public Entry( Object resource, BiConsumer<Object,GL> disposeFn )
+        {
+            this.resource = resource;
+            this.disposeFn = disposeFn;
+            this.refCount = 0;
+        }
+    }
+
+
+    public final GLProfile glProfile;
+
+    protected GLOffscreenAutoDrawable masterDrawable;
+    protected final Map<Object,Entry> entries;
+
+
+    public SharedGLResources( GLProfile glProfile )
+    {
+        this.glProfile = glProfile;
+        this.masterDrawable = null;
+        this.entries = new HashMap<>( );
+    }
+
+    /**
+     * @return true if a canvas with the given profile can share this object's context
+     */
+    public boolean isCompatible( GLProfile glProfile )
+    {
+        return this.glProfile.getName( ).equals( glProfile.getName( ) );
+    }
+
+    /**
+     * Returns the master context, creating it if necessary. Pass this to the constructor of
+     * a {@link com.metsci.glimpse.canvas.GlimpseCanvas} to make the canvas share resources
+     * with the other views.
+     */
+    public GLContext getContext( )
+    {
+        requireSwingThread( );
+
+        if ( this.masterDrawable == null )
+        {
+            this.masterDrawable = newOffscreenDrawable( this.glProfile );
+        }
+
+        return this.masterDrawable.getContext( );
+    }
+
+    /**
+     * Returns the resource for the given key, calling {@code createFn} if there is not one
+     * already. The resource must not be disposed by the caller -- instead, call {@link #release(Object)}
+     * when done with it, and {@code disposeFn} will be called (with a current GL context) once
+     * no holders remain.
+     * <p>
+     * The {@code createFn} and {@code disposeFn} args are ignored if the resource already exists.
+     */
+    @SuppressWarnings( "unchecked" )
+    public <T> T acquire( Object key, Supplier<? extends T> createFn, BiConsumer<? super T,GL> disposeFn )
+    {
+        requireSwingThread( );
+
+        Entry entry = this.entries.get( key );
+        if ( entry == null )
+        {
+            entry = new Entry( createFn.get( ), ( r, gl ) -> disposeFn.accept( ( T ) r, gl ) );
+            this.entries.put( key, entry );
+        }
+
+        entry.refCount++;
+        return ( T ) entry.resource;
+    }
+
+    public void release( Object key )
+    {
+        requireSwingThread( );
+
+        Entry entry = this.entries.get( key );
+        if ( entry != null )
+        {
+            entry.refCount--;
+            if ( entry.refCount <= 0 )
+            {
+                this.entries.remove( key );
+                this.disposeEntries( singletonList( entry ) );
+            }
+        }
+    }
+
+    /**
+     * Disposes all remaining resources, and destroys the master context.
+     */
+    public void dispose( )
+    {
+        requireSwingThread( );
+
+        this.disposeEntries( new ArrayList<>( this.entries.values( ) ) );
+        this.entries.clear( );
+
+        if ( this.masterDrawable != null )
+        {
+            this.masterDrawable.destroy( );
+            this.masterDrawable = null;
+        }
+    }
+
+    protected void disposeEntries( List<Entry> entries )
+    {
+        if ( this.masterDrawable != null && !entries.isEmpty( ) )
+        {
+            // The master drawable is never animated, so this runs immediately
+            this.masterDrawable.invoke( true, ( glDrawable ) ->
+            {
+                GL gl = glDrawable.getGL( );
+                for ( Entry entry : entries )
+                {
+                    entry.disposeFn.accept( entry.resource, gl );
+                }
+                return false;
+            } );
+        }
+    }
+
+}
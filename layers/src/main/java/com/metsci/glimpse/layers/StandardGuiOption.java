@@ -29,6 +29,13 @@ package com.metsci.glimpse.layers;
 public enum StandardGuiOption implements GuiOption
 {
 
-    HIDE_LAYERS_PANEL;
+    HIDE_LAYERS_PANEL,
+
+    /**
+     * Create the GL contexts of all views as shared contexts, so that facets can share GL
+     * resources through {@link LayeredGui#getGLSharedResources()}. By default, each view
+     * has its own unshared GL context.
+     */
+    SHARE_GL_CONTEXT;
 
 }
@@ -28,6 +28,7 @@ package com.metsci.glimpse.layers;
 
 import com.metsci.glimpse.layers.geo.GeoTrait;
 import com.metsci.glimpse.layers.time.TimeTrait;
+import com.metsci.glimpse.util.var.Disposable;
 import com.metsci.glimpse.util.var.Var;
 
 /**
@@ -122,4 +123,18 @@ public abstract class Trait
      */
     public abstract Trait copy( boolean isLinkage );
 
+    /**
+     * Adds a listener that is called whenever this trait's state changes -- e.g. so that a
+     * {@link View} can repaint when one of its traits changes. Returns a {@link Disposable}
+     * for removing the listener.
+     * <p>
+     * Traits whose state can change should override this. The default does nothing.
+     */
+    public Disposable addStateListener( Runnable listener )
+    {
+        return ( ) ->
+        {
+        };
+    }
+
 }
@@ -95,6 +95,18 @@ public abstract class View
         // Do nothing by default
     }
 
+    /**
+     * Called by LayeredGui to supply this View with the GL resources shared by all its views,
+     * or with null if context sharing is not enabled.
+     * <p>
+     * A view that renders with GL should create its GL context as a shared context of
+     * {@link SharedGLResources#getContext()}, so that facets can draw shared resources.
+     */
+    public void setGLSharedResources( SharedGLResources glShared )
+    {
+        // Do nothing by default
+    }
+
     public abstract Component getComponent( );
 
     public String getTooltip( )
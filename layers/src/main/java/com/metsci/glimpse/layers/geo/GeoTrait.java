@@ -28,6 +28,7 @@ package com.metsci.glimpse.layers.geo;
 
 import static com.google.common.primitives.Doubles.max;
 import static com.google.common.primitives.Doubles.min;
+import static com.metsci.glimpse.layers.misc.AxisUtils.addAxisListener2D;
 
 import java.util.function.DoubleUnaryOperator;
 
@@ -39,6 +40,7 @@ import com.metsci.glimpse.layers.View;
 import com.metsci.glimpse.util.geo.LatLonGeo;
 import com.metsci.glimpse.util.geo.projection.GeoProjection;
 import com.metsci.glimpse.util.units.Azimuth;
+import com.metsci.glimpse.util.var.Disposable;
 import com.metsci.glimpse.util.vector.Vector2d;
 
 public class GeoTrait extends Trait
@@ -106,6 +108,15 @@ public class GeoTrait extends Trait
         return copy;
     }
 
+    @Override
+    public Disposable addStateListener( Runnable listener )
+    {
+        return addAxisListener2D( this.axis, false, ( axis ) ->
+        {
+            listener.run( );
+        } );
+    }
+
     public void setBounds( LatLonGeo center, DoubleUnaryOperator unitsToSu, double ewExtent_UNITS, double nsExtent_UNITS )
     {
         double ewExtent_SU = unitsToSu.applyAsDouble( ewExtent_UNITS );
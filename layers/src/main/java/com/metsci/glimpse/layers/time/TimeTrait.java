@@ -26,6 +26,7 @@
  */
 package com.metsci.glimpse.layers.time;
 
+import static com.metsci.glimpse.layers.misc.AxisUtils.addAxisListener1D;
 import static com.metsci.glimpse.plot.timeline.StackedTimePlot2D.CURRENT_TIME;
 import static com.metsci.glimpse.plot.timeline.StackedTimePlot2D.MAX_TIME;
 import static com.metsci.glimpse.plot.timeline.StackedTimePlot2D.MIN_TIME;
@@ -41,6 +42,7 @@ import com.metsci.glimpse.layers.LayeredGui;
 import com.metsci.glimpse.layers.Trait;
 import com.metsci.glimpse.layers.View;
 import com.metsci.glimpse.plot.timeline.data.Epoch;
+import com.metsci.glimpse.util.var.Disposable;
 
 public class TimeTrait extends Trait
 {
@@ -117,6 +119,15 @@ public class TimeTrait extends Trait
         return copy;
     }
 
+    @Override
+    public Disposable addStateListener( Runnable listener )
+    {
+        return addAxisListener1D( this.axis, false, ( axis ) ->
+        {
+            listener.run( );
+        } );
+    }
+
     public void setRelativeBounds( DoubleUnaryOperator unitsToSeconds, double min_UNITS_SINCE_EPOCH, double max_UNITS_SINCE_EPOCH )
     {
         this.axis.setMin( unitsToSeconds.applyAsDouble( min_UNITS_SINCE_EPOCH ) );
@@ -33,6 +33,7 @@ import java.time.ZoneId;
 import com.metsci.glimpse.layers.LayeredGui;
 import com.metsci.glimpse.layers.Trait;
 import com.metsci.glimpse.layers.View;
+import com.metsci.glimpse.util.var.Disposable;
 import com.metsci.glimpse.util.var.Var;
 
 public class TimeZoneTrait extends Trait
@@ -99,4 +100,10 @@ public class TimeZoneTrait extends Trait
         return copy;
     }
 
+    @Override
+    public Disposable addStateListener( Runnable listener )
+    {
+        return this.timeZone.addListener( false, listener );
+    }
+
 }
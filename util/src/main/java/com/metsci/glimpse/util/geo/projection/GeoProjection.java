@@ -26,12 +26,20 @@
  */
 package com.metsci.glimpse.util.geo.projection;
 
+import java.nio.FloatBuffer;
+
 import com.metsci.glimpse.util.geo.LatLonGeo;
 import com.metsci.glimpse.util.vector.Vector2d;
 
 /**
  * Interface for projections from LatLonGeo to two coordinates (x, y).
  *
+ * <p>The bulk methods project many points at once without creating a LatLonGeo or Vector2d per
+ * point. Their default implementations fall back to the single point methods; the built-in
+ * projections override the two double array methods with allocation-free versions, and the
+ * float and buffer variants convert through those. See {@link GeoProjections} for parallel
+ * versions.</p>
+ *
  * @author  moskowitz
  */
 public interface GeoProjection
@@ -81,4 +89,79 @@ public interface GeoProjection
      */
     KinematicVector2d reprojectPosVelFrom( double x, double y, double vx, double vy, GeoProjection fromProjection );
 
+    /**
+     * Project n points, writing interleaved x, y pairs to xyOut.
+     *
+     * @param   latDeg    latitudes in degrees
+     * @param   lonDeg    longitudes in degrees
+     * @param   offset    index of the first point in latDeg and lonDeg
+     * @param   xyOut     output array for interleaved x, y pairs
+     * @param   xyOffset  index in xyOut of the x coordinate of the first point
+     * @param   n         number of points
+     */
+    default void project( double[] latDeg, double[] lonDeg, int offset, double[] xyOut, int xyOffset, int n )
+    {
+        for ( int i = 0; i < n; i++ )
+        {
+            Vector2d xy = project( LatLonGeo.fromDeg( latDeg[offset + i], lonDeg[offset + i] ) );
+            xyOut[xyOffset + 2 * i] = xy.getX( );
+            xyOut[xyOffset + 2 * i + 1] = xy.getY( );
+        }
+    }
+
+    /**
+     * Unproject n interleaved x, y pairs.
+     *
+     * @param   xy         interleaved x, y pairs
+     * @param   xyOffset   index in xy of the x coordinate of the first point
+     * @param   latDegOut  output array for latitudes in degrees
+     * @param   lonDegOut  output array for longitudes in degrees
+     * @param   offset     index of the first point in latDegOut and lonDegOut
+     * @param   n          number of points
+     */
+    default void unproject( double[] xy, int xyOffset, double[] latDegOut, double[] lonDegOut, int offset, int n )
+    {
+        for ( int i = 0; i < n; i++ )
+        {
+            LatLonGeo latLon = unproject( xy[xyOffset + 2 * i], xy[xyOffset + 2 * i + 1] );
+            latDegOut[offset + i] = latLon.getLatDeg( );
+            lonDegOut[offset + i] = latLon.getLonDeg( );
+        }
+    }
+
+    /**
+     * Project the first n points, writing interleaved x, y pairs to xyOut.
+     */
+    default void project( double[] latDeg, double[] lonDeg, float[] xyOut, int n )
+    {
+        GeoProjections.project( this, latDeg, lonDeg, 0, xyOut, 0, n );
+    }
+
+    /**
+     * Project the first n points, putting interleaved x, y pairs into xyOut starting at its
+     * current position. The position of xyOut is advanced by 2n.
+     */
+    default void project( double[] latDeg, double[] lonDeg, FloatBuffer xyOut, int n )
+    {
+        GeoProjections.project( this, latDeg, lonDeg, 0, xyOut, n );
+    }
+
+    /**
+     * Project n interleaved lat, lon pairs (in degrees) read from latLonDeg starting at its current
+     * position, putting interleaved x, y pairs into xyOut starting at its current position. The
+     * positions of both buffers are advanced by 2n.
+     */
+    default void project( FloatBuffer latLonDeg, FloatBuffer xyOut, int n )
+    {
+        GeoProjections.project( this, latLonDeg, xyOut, n );
+    }
+
+    /**
+     * Unproject the first n interleaved x, y pairs.
+     */
+    default void unproject( float[] xy, double[] latDegOut, double[] lonDegOut, int n )
+    {
+        GeoProjections.unproject( this, xy, 0, latDegOut, lonDegOut, 0, n );
+    }
+
 }
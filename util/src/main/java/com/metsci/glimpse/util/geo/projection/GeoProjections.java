@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2016, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.util.geo.projection;
+
+import java.nio.FloatBuffer;
+import java.util.concurrent.ForkJoinPool;
+
+import com.metsci.glimpse.util.primitives.algorithms.ParallelRanges;
+import com.metsci.glimpse.util.primitives.algorithms.ParallelRanges.RangeTask;
+
+/**
+ * Helpers for the bulk methods of {@link GeoProjection}: float and buffer conversions of the double
+ * array methods, and parallel versions which split large arrays across a ForkJoinPool.
+ *
+ * <p>Conversions go through small fixed-size scratch arrays, so the number of objects created
+ * does not depend on the number of points.</p>
+ */
+public class GeoProjections
+{
+    /**
+     * Number of points converted at a time by the float and buffer methods.
+     */
+    public static final int CHUNK_SIZE = 1024;
+
+    /**
+     * Arrays with fewer points than this are projected on the calling thread by the parallel methods.
+     */
+    public static final int PARALLEL_THRESHOLD = 1 << 16;
+
+    public static void project( GeoProjection projection, double[] latDeg, double[] lonDeg, int offset, float[] xyOut, int xyOffset, int n )
+    {
+        double[] xy = new double[2 * Math.min( n, CHUNK_SIZE )];
+
+        for ( int start = 0; start < n; start += CHUNK_SIZE )
+        {
+            int count = Math.min( CHUNK_SIZE, n - start );
+            projection.project( latDeg, lonDeg, offset + start, xy, 0, count );
+
+            int outStart = xyOffset + 2 * start;
+            for ( int i = 0; i < 2 * count; i++ )
+            {
+                xyOut[outStart + i] = ( float ) xy[i];
+            }
+        }
+    }
+
+    public static void project( GeoProjection projection, double[] latDeg, double[] lonDeg, int offset, FloatBuffer xyOut, int n )
+    {
+        double[] xy = new double[2 * Math.min( n, CHUNK_SIZE )];
+
+        for ( int start = 0; start < n; start += CHUNK_SIZE )
+        {
+            int count = Math.min( CHUNK_SIZE, n - start );
+            projection.project( latDeg, lonDeg, offset + start, xy, 0, count );
+
+            for ( int i = 0; i < 2 * count; i++ )
+            {
+                xyOut.put( ( float ) xy[i] );
+            }
+        }
+    }
+
+    public static void project( GeoProjection projection, FloatBuffer latLonDeg, FloatBuffer xyOut, int n )
+    {
+        int chunk = Math.min( n, CHUNK_SIZE );
+        double[] lat = new double[chunk];
+        double[] lon = new double[chunk];
+        double[] xy = new double[2 * chunk];
+
+        for ( int start = 0; start < n; start += CHUNK_SIZE )
+        {
+            int count = Math.min( CHUNK_SIZE, n - start );
+            for ( int i = 0; i < count; i++ )
+            {
+                lat[i] = latLonDeg.get( );
+                lon[i] = latLonDeg.get( );
+            }
+
+            projection.project( lat, lon, 0, xy, 0, count );
+
+            for ( int i = 0; i < 2 * count; i++ )
+            {
+                xyOut.put( ( float ) xy[i] );
+            }
+        }
+    }
+
+    public static void unproject( GeoProjection projection, float[] xy, int xyOffset, double[] latDegOut, double[] lonDegOut, int offset, int n )
+    {
+        double[] xyChunk = new double[2 * Math.min( n, CHUNK_SIZE )];
+
+        for ( int start = 0; start < n; start += CHUNK_SIZE )
+        {
+            int count = Math.min( CHUNK_SIZE, n - start );
+
+            int inStart = xyOffset + 2 * start;
+            for ( int i = 0; i < 2 * count; i++ )
+            {
+                xyChunk[i] = xy[inStart + i];
+            }
+
+            projection.unproject( xyChunk, 0, latDegOut, lonDegOut, offset + start, count );
+        }
+    }
+
+    /**
+     * Projects the first n points on the common ForkJoinPool, if n is at least {@link #PARALLEL_THRESHOLD}.
+     */
+    public static void projectParallel( GeoProjection projection, double[] latDeg, double[] lonDeg, double[] xyOut, int n )
+    {
+        projectParallel( projection, latDeg, lonDeg, xyOut, n, ForkJoinPool.commonPool( ) );
+    }
+
+    public static void projectParallel( final GeoProjection projection, final double[] latDeg, final double[] lonDeg, final double[] xyOut, int n, ForkJoinPool pool )
+    {
+        run( n, pool, new RangeTask( )
+        {
+            @Override
+            public void run( int from, int to )
+            {
+                projection.project( latDeg, lonDeg, from, xyOut, 2 * from, to - from );
+            }
+        } );
+    }
+
+    /**
+     * Projects the first n points on the common ForkJoinPool, if n is at least {@link #PARALLEL_THRESHOLD}.
+     */
+    public static void projectParallel( GeoProjection projection, double[] latDeg, double[] lonDeg, float[] xyOut, int n )
+    {
+        projectParallel( projection, latDeg, lonDeg, xyOut, n, ForkJoinPool.commonPool( ) );
+    }
+
+    public static void projectParallel( final GeoProjection projection, final double[] latDeg, final double[] lonDeg, final float[] xyOut, int n, ForkJoinPool pool )
+    {
+        run( n, pool, new RangeTask( )
+        {
+            @Override
+            public void run( int from, int to )
+            {
+                project( projection, latDeg, lonDeg, from, xyOut, 2 * from, to - from );
+            }
+        } );
+    }
+
+    /**
+     * Unprojects the first n points on the common ForkJoinPool, if n is at least {@link #PARALLEL_THRESHOLD}.
+     */
+    public static void unprojectParallel( GeoProjection projection, double[] xy, double[] latDegOut, double[] lonDegOut, int n )
+    {
+        unprojectParallel( projection, xy, latDegOut, lonDegOut, n, ForkJoinPool.commonPool( ) );
+    }
+
+    public static void unprojectParallel( final GeoProjection projection, final double[] xy, final double[] latDegOut, final double[] lonDegOut, int n, ForkJoinPool pool )
+    {
+        run( n, pool, new RangeTask( )
+        {
+            @Override
+            public void run( int from, int to )
+            {
+                projection.unproject( xy, 2 * from, latDegOut, lonDegOut, from, to - from );
+            }
+        } );
+    }
+
+    protected static void run( int n, ForkJoinPool pool, RangeTask task )
+    {
+        if ( pool == null || n < PARALLEL_THRESHOLD )
+        {
+            task.run( 0, n );
+        }
+        else
+        {
+            ParallelRanges.run( 0, n, PARALLEL_THRESHOLD / 4, pool, task );
+        }
+    }
+}
@@ -81,6 +81,32 @@ public class MercatorProjection implements GeoProjection, Serializable
         return LatLonGeo.fromRad( lat, lon );
     }
 
+    @Override
+    public void project( double[] latDeg, double[] lonDeg, int offset, double[] xyOut, int xyOffset, int n )
+    {
+        for ( int i = 0; i < n; i++ )
+        {
+            double lat = LatLonGeo.normalizeLat( Angle.degreesToRadians( latDeg[offset + i] ) );
+            double lon = LatLonGeo.normalizeLon( Angle.degreesToRadians( lonDeg[offset + i] ) );
+
+            xyOut[xyOffset + 2 * i] = Angle.normalizeAnglePi( lon - originLon );
+            xyOut[xyOffset + 2 * i + 1] = log( ( sin( lat ) + 1 ) / cos( lat ) );
+        }
+    }
+
+    @Override
+    public void unproject( double[] xy, int xyOffset, double[] latDegOut, double[] lonDegOut, int offset, int n )
+    {
+        for ( int i = 0; i < n; i++ )
+        {
+            double lat = 2 * atan( exp( xy[xyOffset + 2 * i + 1] ) ) - PI / 2;
+            double lon = xy[xyOffset + 2 * i] + originLon;
+
+            latDegOut[offset + i] = Angle.radiansToDegrees( LatLonGeo.normalizeLat( lat ) );
+            lonDegOut[offset + i] = Angle.radiansToDegrees( LatLonGeo.normalizeLon( lon ) );
+        }
+    }
+
     @Override
     public Vector2d reprojectFrom( double x, double y, GeoProjection fromProjection )
     {
@@ -117,6 +117,90 @@ public class TangentPlane implements GeoProjection, Serializable
         return ns;
     }
 
+    /**
+     * Same math as {@link #project(LatLonGeo)}, inlined so that no objects are created per point.
+     * Subclasses which override the per-point conversion methods should override this as well.
+     */
+    @Override
+    public void project( double[] latDeg, double[] lonDeg, int offset, double[] xyOut, int xyOffset, int n )
+    {
+        double refX = _refPointOnUnitSphere.getX( );
+        double refY = _refPointOnUnitSphere.getY( );
+        double refZ = _refPointOnUnitSphere.getZ( );
+
+        double eastX = _localEast.getX( );
+        double eastY = _localEast.getY( );
+        double eastZ = _localEast.getZ( );
+
+        double northX = _localNorth.getX( );
+        double northY = _localNorth.getY( );
+        double northZ = _localNorth.getZ( );
+
+        double tangentX = _tangentPointOnPlane.getX( );
+        double tangentY = _tangentPointOnPlane.getY( );
+
+        for ( int i = 0; i < n; i++ )
+        {
+            double latRad = LatLonGeo.normalizeLat( Angle.degreesToRadians( latDeg[offset + i] ) );
+            double lonRad = LatLonGeo.normalizeLon( Angle.degreesToRadians( lonDeg[offset + i] ) );
+
+            double cosLat = Math.cos( latRad );
+            double px = cosLat * Math.cos( lonRad );
+            double py = cosLat * Math.sin( lonRad );
+            double pz = Math.sin( latRad );
+
+            double div = 1 + ( px * refX + py * refY + pz * refZ );
+            double scale = 2 * earthRadius / div;
+
+            xyOut[xyOffset + 2 * i] = scale * ( px * eastX + py * eastY + pz * eastZ ) + tangentX;
+            xyOut[xyOffset + 2 * i + 1] = scale * ( px * northX + py * northY + pz * northZ ) + tangentY;
+        }
+    }
+
+    /**
+     * Same math as {@link #unproject(double, double)}, inlined so that no objects are created per point.
+     * Subclasses which override the per-point conversion methods (other than {@link #calcAtan2(double, double)})
+     * should override this as well.
+     */
+    @Override
+    public void unproject( double[] xy, int xyOffset, double[] latDegOut, double[] lonDegOut, int offset, int n )
+    {
+        double refX = _refPointOnUnitSphere.getX( );
+        double refY = _refPointOnUnitSphere.getY( );
+        double refZ = _refPointOnUnitSphere.getZ( );
+
+        double eastX = _localEast.getX( );
+        double eastY = _localEast.getY( );
+        double eastZ = _localEast.getZ( );
+
+        double northX = _localNorth.getX( );
+        double northY = _localNorth.getY( );
+        double northZ = _localNorth.getZ( );
+
+        double tangentX = _tangentPointOnPlane.getX( );
+        double tangentY = _tangentPointOnPlane.getY( );
+
+        for ( int i = 0; i < n; i++ )
+        {
+            double a = ( xy[xyOffset + 2 * i] - tangentX ) / earthRadius;
+            double b = ( xy[xyOffset + 2 * i + 1] - tangentY ) / earthRadius;
+
+            double beta = 4.0 / ( 4.0 + ( a * a ) + ( b * b ) );
+            double betaMinusOne = beta - 1.0;
+
+            // beta * ( ref + a * east + b * north ) + ( beta - 1 ) * ref
+            double px = beta * ( refX + a * eastX + b * northX ) + betaMinusOne * refX;
+            double py = beta * ( refY + a * eastY + b * northY ) + betaMinusOne * refY;
+            double pz = beta * ( refZ + a * eastZ + b * northZ ) + betaMinusOne * refZ;
+
+            double lonRad = calcAtan2( py, px );
+            double latRad = PolynomialApprox.asin( pz );
+
+            latDegOut[offset + i] = Angle.radiansToDegrees( LatLonGeo.normalizeLat( latRad ) );
+            lonDegOut[offset + i] = Angle.radiansToDegrees( LatLonGeo.normalizeLon( lonRad ) );
+        }
+    }
+
     // This is defined here as a member function so it can be overriden by subclasses to improve runtime.
     protected double calcAtan2( double y, double x )
     {
@@ -31,9 +31,12 @@ package com.metsci.glimpse.util.math.fast;
  */
 public class FastExp2 extends FastFunc
 {
+    private final boolean isPlainExp2;
+
     public FastExp2( int samples )
     {
         super( -1.0, 0.0, samples );
+        this.isPlainExp2 = isEvaluateDeclaredBy( getClass( ), FastExp2.class );
     }
 
     @Override
@@ -51,4 +54,50 @@ public class FastExp2 extends FastFunc
         return 1.0 / super.evaluate( -x / ( 1.0 + Math.abs( x ) ) );
     }
 
+    @Override
+    public void evaluate( double[] xs, int xOffset, double[] result, int resultOffset, int n )
+    {
+        if ( !isPlainExp2 )
+        {
+            super.evaluate( xs, xOffset, result, resultOffset, n );
+            return;
+        }
+
+        final double[] f = this.f;
+        final double invdx = this.invdx;
+        final double b = this.b;
+
+        for ( int k = 0; k < n; k++ )
+        {
+            double x = xs[xOffset + k];
+
+            // Both branches of evaluate( double ) look up -|x| / ( 1 + |x| ), which is always in [min,max]
+            double a = Math.abs( x );
+            double v = f[( int ) ( -a / ( 1.0 + a ) * invdx + b )];
+            result[resultOffset + k] = ( x <= 0.0 ? v : 1.0 / v );
+        }
+    }
+
+    @Override
+    public void evaluate( float[] xs, int xOffset, float[] result, int resultOffset, int n )
+    {
+        if ( !isPlainExp2 )
+        {
+            super.evaluate( xs, xOffset, result, resultOffset, n );
+            return;
+        }
+
+        final double[] f = this.f;
+        final double invdx = this.invdx;
+        final double b = this.b;
+
+        for ( int k = 0; k < n; k++ )
+        {
+            double x = xs[xOffset + k];
+            double a = Math.abs( x );
+            double v = f[( int ) ( -a / ( 1.0 + a ) * invdx + b )];
+            result[resultOffset + k] = ( float ) ( x <= 0.0 ? v : 1.0 / v );
+        }
+    }
+
 }
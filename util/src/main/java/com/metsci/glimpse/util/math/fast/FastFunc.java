@@ -26,6 +26,10 @@
  */
 package com.metsci.glimpse.util.math.fast;
 
+import java.nio.FloatBuffer;
+
+import com.metsci.glimpse.util.primitives.algorithms.ParallelRanges;
+
 /**
  * A function that precomputes its values for speed.  Intended
  * to accelerate the evaluation of transcendental functions in cases
@@ -50,14 +54,17 @@ public abstract class FastFunc
     private final double dx;
 
     /** 1 / dx */
-    private final double invdx;
+    protected final double invdx;
 
     /** - min * invdx + 0.5 */
-    private final double b;
+    protected final double b;
 
     /** computed samples of function */
     protected double[] f;
 
+    /** whether {@link #evaluate(double)} is the plain lookup defined here */
+    private final boolean isPlainLookup;
+
     /**
      * Main Constructor in which the values of this function are computed
      *
@@ -74,10 +81,27 @@ public abstract class FastFunc
         this.dx = ( max - min ) / ( nSamples - 1 );
         this.invdx = 1 / dx;
         this.b = -min * invdx + 0.5;
+        this.isPlainLookup = isEvaluateDeclaredBy( getClass( ), FastFunc.class );
 
         precompute( );
     }
 
+    /**
+     * Whether {@link #evaluate(double)}, as seen by class c, is the one declared in the given class.
+     * Lets a bulk override fall back to per-argument calls when a further subclass overrides it.
+     */
+    protected static boolean isEvaluateDeclaredBy( Class<?> c, Class<?> declarer )
+    {
+        try
+        {
+            return c.getMethod( "evaluate", double.class ).getDeclaringClass( ) == declarer;
+        }
+        catch ( NoSuchMethodException e )
+        {
+            return false;
+        }
+    }
+
     protected void precompute( )
     {
         f = new double[nSamples];
@@ -124,6 +148,62 @@ public abstract class FastFunc
         }
     }
 
+    /**
+     * Nearest neighbor lookup of n arguments starting at xs[xOffset], writing the
+     * values starting at result[resultOffset]. Like {@link #lookup(double)}, does
+     * no range checking.
+     */
+    public void lookup( double[] xs, int xOffset, double[] result, int resultOffset, int n )
+    {
+        final double[] f = this.f;
+        final double invdx = this.invdx;
+        final double b = this.b;
+
+        for ( int k = 0; k < n; k++ )
+        {
+            result[resultOffset + k] = f[( int ) ( xs[xOffset + k] * invdx + b )];
+        }
+    }
+
+    /**
+     * Bulk lookup for arguments that may be out of range: arguments below min give
+     * {@code below}, and arguments above max give {@code above}. Intended for subclasses
+     * whose {@link #evaluate(double)} differs from the default only in its out-of-range
+     * values.
+     */
+    protected void lookupRange( double[] xs, int xOffset, double[] result, int resultOffset, int n, double below, double above )
+    {
+        final double[] f = this.f;
+        final double invdx = this.invdx;
+        final double b = this.b;
+        final double min = this.min;
+        final double max = this.max;
+
+        for ( int k = 0; k < n; k++ )
+        {
+            double x = xs[xOffset + k];
+            result[resultOffset + k] = ( x < min ? below : ( x > max ? above : f[( int ) ( x * invdx + b )] ) );
+        }
+    }
+
+    /**
+     * Float version of {@link #lookupRange(double[], int, double[], int, int, double, double)}.
+     */
+    protected void lookupRange( float[] xs, int xOffset, float[] result, int resultOffset, int n, double below, double above )
+    {
+        final double[] f = this.f;
+        final double invdx = this.invdx;
+        final double b = this.b;
+        final double min = this.min;
+        final double max = this.max;
+
+        for ( int k = 0; k < n; k++ )
+        {
+            double x = xs[xOffset + k];
+            result[resultOffset + k] = ( float ) ( x < min ? below : ( x > max ? above : f[( int ) ( x * invdx + b )] ) );
+        }
+    }
+
     /**
      * Computes the actual value of the function at x.
      *
@@ -139,4 +219,117 @@ public abstract class FastFunc
         return lookup( x );
     }
 
+    /**
+     * Evaluates n arguments starting at xs[xOffset], writing the values starting at
+     * result[resultOffset]. Gives the same values as calling {@link #evaluate(double)}
+     * on each argument. The arrays may be the same.
+     * <p>
+     * If {@link #evaluate(double)} is not overridden, the table lookup runs in a tight
+     * loop with the table fields hoisted. Otherwise this falls back to calling the
+     * overridden method per argument, unless the subclass overrides this method too.
+     */
+    public void evaluate( double[] xs, int xOffset, double[] result, int resultOffset, int n )
+    {
+        if ( isPlainLookup )
+        {
+            lookupRange( xs, xOffset, result, resultOffset, n, Double.NaN, Double.NaN );
+        }
+        else
+        {
+            for ( int k = 0; k < n; k++ )
+            {
+                result[resultOffset + k] = evaluate( xs[xOffset + k] );
+            }
+        }
+    }
+
+    public void evaluate( double[] xs, double[] result )
+    {
+        evaluate( xs, 0, result, 0, xs.length );
+    }
+
+    /**
+     * Float version of {@link #evaluate(double[], int, double[], int, int)}.
+     */
+    public void evaluate( float[] xs, int xOffset, float[] result, int resultOffset, int n )
+    {
+        if ( isPlainLookup )
+        {
+            lookupRange( xs, xOffset, result, resultOffset, n, Double.NaN, Double.NaN );
+        }
+        else
+        {
+            for ( int k = 0; k < n; k++ )
+            {
+                result[resultOffset + k] = ( float ) evaluate( xs[xOffset + k] );
+            }
+        }
+    }
+
+    public void evaluate( float[] xs, float[] result )
+    {
+        evaluate( xs, 0, result, 0, xs.length );
+    }
+
+    /**
+     * Evaluates n arguments read from xs starting at its current position, putting the
+     * values into result starting at its current position. The positions of both
+     * buffers are advanced by n.
+     * <p>
+     * Goes through {@link #evaluate(float[], int, float[], int, int)}: directly on the
+     * backing arrays of heap buffers, and otherwise through scratch arrays of up to
+     * {@link #BUFFER_CHUNK_SIZE} values at a time.
+     */
+    public void evaluate( FloatBuffer xs, FloatBuffer result, int n )
+    {
+        int xPos = xs.position( );
+        int resultPos = result.position( );
+
+        if ( xs.hasArray( ) && result.hasArray( ) && !result.isReadOnly( ) )
+        {
+            evaluate( xs.array( ), xs.arrayOffset( ) + xPos, result.array( ), result.arrayOffset( ) + resultPos, n );
+        }
+        else
+        {
+            float[] chunk = new float[Math.min( n, BUFFER_CHUNK_SIZE )];
+            for ( int start = 0; start < n; start += chunk.length )
+            {
+                int count = Math.min( chunk.length, n - start );
+                xs.get( chunk, 0, count );
+                evaluate( chunk, 0, chunk, 0, count );
+                result.put( chunk, 0, count );
+            }
+        }
+
+        xs.position( xPos + n );
+        result.position( resultPos + n );
+    }
+
+    /** number of values evaluated at a time by {@link #evaluate(FloatBuffer, FloatBuffer, int)} */
+    public static final int BUFFER_CHUNK_SIZE = 1024;
+
+    /**
+     * Like {@link #evaluate(double[], int, double[], int, int)}, but splits large arrays
+     * across the common ForkJoinPool. The function tables are never modified after
+     * construction, so evaluation is safe from any number of threads.
+     */
+    public void evaluateParallel( double[] xs, int xOffset, double[] result, int resultOffset, int n )
+    {
+        ParallelRanges.run( 0, n, ( from, to ) ->
+        {
+            evaluate( xs, xOffset + from, result, resultOffset + from, to - from );
+        } );
+    }
+
+    /**
+     * Float version of {@link #evaluateParallel(double[], int, double[], int, int)}.
+     */
+    public void evaluateParallel( float[] xs, int xOffset, float[] result, int resultOffset, int n )
+    {
+        ParallelRanges.run( 0, n, ( from, to ) ->
+        {
+            evaluate( xs, xOffset + from, result, resultOffset + from, to - from );
+        } );
+    }
+
 }
@@ -75,4 +75,24 @@ public abstract class FastFuncUnboundedDomain extends FastFunc
      * lim[x->+inf] g(x)
      */
     protected abstract double gPositiveInfinity( );
+
+    @Override
+    public void evaluate( double[] xs, int xOffset, double[] result, int resultOffset, int n )
+    {
+        for ( int k = 0; k < n; k++ )
+        {
+            double x = xs[xOffset + k];
+            result[resultOffset + k] = super.evaluate( x / ( 1.0 + Math.abs( x ) ) );
+        }
+    }
+
+    @Override
+    public void evaluate( float[] xs, int xOffset, float[] result, int resultOffset, int n )
+    {
+        for ( int k = 0; k < n; k++ )
+        {
+            double x = xs[xOffset + k];
+            result[resultOffset + k] = ( float ) super.evaluate( x / ( 1.0 + Math.abs( x ) ) );
+        }
+    }
 }
@@ -110,4 +110,16 @@ public class FastGaussian extends FastFunc
         }
     }
 
+    @Override
+    public void evaluate( double[] xs, int xOffset, double[] result, int resultOffset, int n )
+    {
+        lookupRange( xs, xOffset, result, resultOffset, n, 0.0, 0.0 );
+    }
+
+    @Override
+    public void evaluate( float[] xs, int xOffset, float[] result, int resultOffset, int n )
+    {
+        lookupRange( xs, xOffset, result, resultOffset, n, 0.0, 0.0 );
+    }
+
 }
@@ -46,9 +46,12 @@ public class FastLog extends FastFunc
         return instance;
     }
 
+    private final boolean isPlainLog;
+
     public FastLog( int samples )
     {
         super( 1.0, 2.0, samples );
+        this.isPlainLog = isEvaluateDeclaredBy( getClass( ), FastLog.class );
     }
 
     @Override
@@ -94,4 +97,67 @@ public class FastLog extends FastFunc
     {
         return log2( x ) * LOG10_2;
     }
+
+    /**
+     * Bulk version of {@link #log2(double)}, with the table lookup inlined. The mantissa
+     * always falls in [1,2), so no range check is needed.
+     */
+    public void log2( double[] xs, int xOffset, double[] result, int resultOffset, int n, double scale )
+    {
+        final double[] f = this.f;
+        final double invdx = this.invdx;
+        final double b = this.b;
+
+        for ( int k = 0; k < n; k++ )
+        {
+            long bits = Double.doubleToLongBits( xs[xOffset + k] );
+            long exponent = ( ( bits & 0x7ff0000000000000L ) >> 52 ) - 1023;
+            double xx = Double.longBitsToDouble( ( bits & 0x000fffffffffffffL ) | 0x3ff0000000000000L );
+            result[resultOffset + k] = ( exponent + f[( int ) ( xx * invdx + b )] ) * scale;
+        }
+    }
+
+    /**
+     * Float version of {@link #log2(double[], int, double[], int, int, double)}.
+     */
+    public void log2( float[] xs, int xOffset, float[] result, int resultOffset, int n, double scale )
+    {
+        final double[] f = this.f;
+        final double invdx = this.invdx;
+        final double b = this.b;
+
+        for ( int k = 0; k < n; k++ )
+        {
+            long bits = Double.doubleToLongBits( xs[xOffset + k] );
+            long exponent = ( ( bits & 0x7ff0000000000000L ) >> 52 ) - 1023;
+            double xx = Double.longBitsToDouble( ( bits & 0x000fffffffffffffL ) | 0x3ff0000000000000L );
+            result[resultOffset + k] = ( float ) ( ( exponent + f[( int ) ( xx * invdx + b )] ) * scale );
+        }
+    }
+
+    @Override
+    public void evaluate( double[] xs, int xOffset, double[] result, int resultOffset, int n )
+    {
+        if ( isPlainLog )
+        {
+            log2( xs, xOffset, result, resultOffset, n, LN_2 );
+        }
+        else
+        {
+            super.evaluate( xs, xOffset, result, resultOffset, n );
+        }
+    }
+
+    @Override
+    public void evaluate( float[] xs, int xOffset, float[] result, int resultOffset, int n )
+    {
+        if ( isPlainLog )
+        {
+            log2( xs, xOffset, result, resultOffset, n, LN_2 );
+        }
+        else
+        {
+            super.evaluate( xs, xOffset, result, resultOffset, n );
+        }
+    }
 }
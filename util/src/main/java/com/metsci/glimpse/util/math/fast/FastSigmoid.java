@@ -61,4 +61,16 @@ public class FastSigmoid extends FastFunc
     {
         return new FastSigmoid( -18, 18, numSamples );
     }
+
+    @Override
+    public void evaluate( double[] xs, int xOffset, double[] result, int resultOffset, int n )
+    {
+        lookupRange( xs, xOffset, result, resultOffset, n, 0, 1 );
+    }
+
+    @Override
+    public void evaluate( float[] xs, int xOffset, float[] result, int resultOffset, int n )
+    {
+        lookupRange( xs, xOffset, result, resultOffset, n, 0, 1 );
+    }
 }
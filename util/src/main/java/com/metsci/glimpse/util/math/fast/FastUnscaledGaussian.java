@@ -59,4 +59,16 @@ public class FastUnscaledGaussian extends FastFunc
 
         return new FastUnscaledGaussian( -intervalSize, intervalSize, numSamples );
     }
+
+    @Override
+    public void evaluate( double[] xs, int xOffset, double[] result, int resultOffset, int n )
+    {
+        lookupRange( xs, xOffset, result, resultOffset, n, 0.0, 0.0 );
+    }
+
+    @Override
+    public void evaluate( float[] xs, int xOffset, float[] result, int resultOffset, int n )
+    {
+        lookupRange( xs, xOffset, result, resultOffset, n, 0.0, 0.0 );
+    }
 }
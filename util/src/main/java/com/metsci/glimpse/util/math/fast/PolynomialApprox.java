@@ -26,6 +26,8 @@
  */
 package com.metsci.glimpse.util.math.fast;
 
+import java.nio.FloatBuffer;
+
 /**
  * This class contains polynomial approximations to Trigonometric functions, which are much faster
  * than the Java built-in routines, but not as accurate.
@@ -152,4 +154,158 @@ public class PolynomialApprox
             }
         }
     }
+
+    // Bulk versions
+    //
+    // These give the same values as the scalar methods, except that the sign is applied
+    // with copySign instead of a branch, so the loop bodies are straight-line code. (As a
+    // result, an argument of -0.0 gives a negative result.) The arrays may be the same.
+
+    public static void asin_4( double[] xs, int xOffset, double[] result, int resultOffset, int n )
+    {
+        for ( int k = 0; k < n; k++ )
+        {
+            double x = xs[xOffset + k];
+            result[resultOffset + k] = signedAsin_4( Math.abs( x ), x );
+        }
+    }
+
+    public static void acos_4( double[] xs, int xOffset, double[] result, int resultOffset, int n )
+    {
+        for ( int k = 0; k < n; k++ )
+        {
+            double x = xs[xOffset + k];
+            result[resultOffset + k] = PI_OVER_2 - signedAsin_4( Math.abs( x ), x );
+        }
+    }
+
+    public static void asin( double[] xs, int xOffset, double[] result, int resultOffset, int n )
+    {
+        for ( int k = 0; k < n; k++ )
+        {
+            double x = xs[xOffset + k];
+            result[resultOffset + k] = signedAsin( Math.abs( x ), x );
+        }
+    }
+
+    public static void asin( float[] xs, int xOffset, float[] result, int resultOffset, int n )
+    {
+        for ( int k = 0; k < n; k++ )
+        {
+            double x = xs[xOffset + k];
+            result[resultOffset + k] = ( float ) signedAsin( Math.abs( x ), x );
+        }
+    }
+
+    /**
+     * Reads n arguments from xs starting at its current position, and puts the results into
+     * result starting at its current position. The positions of both buffers are advanced by n.
+     */
+    public static void asin( FloatBuffer xs, FloatBuffer result, int n )
+    {
+        int xPos = xs.position( );
+        int resultPos = result.position( );
+        for ( int k = 0; k < n; k++ )
+        {
+            double x = xs.get( xPos + k );
+            result.put( resultPos + k, ( float ) signedAsin( Math.abs( x ), x ) );
+        }
+        xs.position( xPos + n );
+        result.position( resultPos + n );
+    }
+
+    public static void acos( double[] xs, int xOffset, double[] result, int resultOffset, int n )
+    {
+        for ( int k = 0; k < n; k++ )
+        {
+            double x = xs[xOffset + k];
+            result[resultOffset + k] = PI_OVER_2 - signedAsin( Math.abs( x ), x );
+        }
+    }
+
+    public static void acos( float[] xs, int xOffset, float[] result, int resultOffset, int n )
+    {
+        for ( int k = 0; k < n; k++ )
+        {
+            double x = xs[xOffset + k];
+            result[resultOffset + k] = ( float ) ( PI_OVER_2 - signedAsin( Math.abs( x ), x ) );
+        }
+    }
+
+    /**
+     * Reads n arguments from xs starting at its current position, and puts the results into
+     * result starting at its current position. The positions of both buffers are advanced by n.
+     */
+    public static void acos( FloatBuffer xs, FloatBuffer result, int n )
+    {
+        int xPos = xs.position( );
+        int resultPos = result.position( );
+        for ( int k = 0; k < n; k++ )
+        {
+            double x = xs.get( xPos + k );
+            result.put( resultPos + k, ( float ) ( PI_OVER_2 - signedAsin( Math.abs( x ), x ) ) );
+        }
+        xs.position( xPos + n );
+        result.position( resultPos + n );
+    }
+
+    public static void atan( double[] xs, int xOffset, double[] result, int resultOffset, int n )
+    {
+        for ( int k = 0; k < n; k++ )
+        {
+            double x = xs[xOffset + k];
+            double s = x / Math.sqrt( x * x + 1 );
+            result[resultOffset + k] = signedAsin( Math.abs( s ), s );
+        }
+    }
+
+    public static void atan( float[] xs, int xOffset, float[] result, int resultOffset, int n )
+    {
+        for ( int k = 0; k < n; k++ )
+        {
+            double x = xs[xOffset + k];
+            double s = x / Math.sqrt( x * x + 1 );
+            result[resultOffset + k] = ( float ) signedAsin( Math.abs( s ), s );
+        }
+    }
+
+    /**
+     * Reads n arguments from xs starting at its current position, and puts the results into
+     * result starting at its current position. The positions of both buffers are advanced by n.
+     */
+    public static void atan( FloatBuffer xs, FloatBuffer result, int n )
+    {
+        int xPos = xs.position( );
+        int resultPos = result.position( );
+        for ( int k = 0; k < n; k++ )
+        {
+            double x = xs.get( xPos + k );
+            double s = x / Math.sqrt( x * x + 1 );
+            result.put( resultPos + k, ( float ) signedAsin( Math.abs( s ), s ) );
+        }
+        xs.position( xPos + n );
+        result.position( resultPos + n );
+    }
+
+    /**
+     * @param absX  absolute value of the argument
+     * @param sign  value whose sign is given to the result
+     */
+    private static double signedAsin_4( double absX, double sign )
+    {
+        double y = 1.5707288 + ( absX * ( -.2121144 + ( absX * ( .0742610 + ( absX * -.0187293 ) ) ) ) );
+        return Math.copySign( PI_OVER_2 - ( Math.sqrt( 1.0 - absX ) * y ), sign );
+    }
+
+    /**
+     * @param absX  absolute value of the argument
+     * @param sign  value whose sign is given to the result
+     */
+    private static double signedAsin( double absX, double sign )
+    {
+        double y1 = absX * ( -.0170881256 + ( absX * ( .0066700901 + ( absX * -.0012624911 ) ) ) );
+        double y2 = absX * ( -.0501743046 + ( absX * ( .0308918810 + y1 ) ) );
+        double y = 1.5707963050 + ( absX * ( -.2145988016 + ( absX * ( .0889789874 + y2 ) ) ) );
+        return Math.copySign( PI_OVER_2 - ( Math.sqrt( 1.0 - absX ) * y ), sign );
+    }
 }
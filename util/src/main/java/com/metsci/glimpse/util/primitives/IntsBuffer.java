@@ -0,0 +1,502 @@
+/*
+ * Copyright (c) 2016, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.util.primitives;
+
+import static java.lang.Math.abs;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ * Implementation of {@link IntsModifiable} backed by a {@link ByteBuffer} instead of a heap array,
+ * so that large sequences do not add to garbage-collection work.
+ *
+ * <p>By default the backing buffer is direct and in native byte order, which means {@link #b} can be
+ * handed to OpenGL (e.g. glBufferData) without copying. An existing buffer, including a memory-mapped
+ * one, can be wrapped instead; see {@link IntsMapped}. When an operation needs more capacity, the values
+ * are copied into a new, larger direct buffer with the same byte order.</p>
+ */
+public class IntsBuffer implements IntsModifiable
+{
+
+    /**
+     * Backing bytes, with position 0 and limit equal to capacity
+     */
+    public ByteBuffer bytes;
+
+    /**
+     * View of {@link #bytes}, with position 0 and limit equal to capacity
+     */
+    public IntBuffer b;
+
+    public int n;
+
+    // Instantiation
+
+    public IntsBuffer( )
+    {
+        this( 0 );
+    }
+
+    /**
+     * Allocates a direct buffer, in native byte order, with room for capacity values.
+     */
+    public IntsBuffer( int capacity )
+    {
+        this( allocate( capacity, ByteOrder.nativeOrder( ) ), 0 );
+    }
+
+    /**
+     * For efficiency, does <em>not</em> copy the buffer arg. Values are read starting at
+     * position 0 of the buffer, using its byte order.
+     */
+    public IntsBuffer( ByteBuffer bytes, int n )
+    {
+        this.bytes = bytes.duplicate( ).order( bytes.order( ) );
+        this.bytes.clear( );
+        this.b = this.bytes.asIntBuffer( );
+        this.n = n;
+    }
+
+    /**
+     * Copies the sequence arg into a new direct buffer.
+     */
+    public IntsBuffer( Ints xs )
+    {
+        this( xs.n( ) );
+        n = xs.n( );
+        xs.copyTo( 0, view( 0, n ), n );
+    }
+
+    public static ByteBuffer allocate( int capacity, ByteOrder order )
+    {
+        return ByteBuffer.allocateDirect( capacity * 4 ).order( order );
+    }
+
+    public int capacity( )
+    {
+        return b.capacity( );
+    }
+
+    /**
+     * Returns a new view of values [i,i+c), positioned at i.
+     */
+    protected IntBuffer view( int i, int c )
+    {
+        IntBuffer view = b.duplicate( );
+        view.limit( i + c );
+        view.position( i );
+        return view;
+    }
+
+    // Accessors
+
+    @Override
+    public int v( int i )
+    {
+        return b.get( i );
+    }
+
+    @Override
+    public int n( )
+    {
+        return n;
+    }
+
+    @Override
+    public void copyTo( int i, int[] dest, int iDest, int c )
+    {
+        view( i, c ).get( dest, iDest, c );
+    }
+
+    @Override
+    public void copyTo( int i, IntBuffer dest, int c )
+    {
+        dest.put( view( i, c ) );
+    }
+
+    @Override
+    public void copyTo( IntBuffer dest )
+    {
+        dest.put( view( 0, n ) );
+    }
+
+    @Override
+    public int[] copyOf( int i, int c )
+    {
+        int[] copy = new int[c];
+        copyTo( i, copy, 0, c );
+        return copy;
+    }
+
+    @Override
+    public int[] copyOf( )
+    {
+        return copyOf( 0, n );
+    }
+
+    @Override
+    public boolean isEmpty( )
+    {
+        return ( n == 0 );
+    }
+
+    @Override
+    public int first( )
+    {
+        return b.get( 0 );
+    }
+
+    @Override
+    public int last( )
+    {
+        return b.get( n - 1 );
+    }
+
+    // Mutators
+
+    @Override
+    public void set( int i, int v )
+    {
+        b.put( i, v );
+    }
+
+    @Override
+    public void set( int i, int[] vs )
+    {
+        set( i, vs, 0, vs.length );
+    }
+
+    @Override
+    public void set( int i, int[] vs, int from, int to )
+    {
+        int c = to - from;
+        ensureCapacity( i + c );
+        view( i, c ).put( vs, from, c );
+        n = i + c;
+    }
+
+    @Override
+    public void insert( int i, int v )
+    {
+        prepForInsert( i, 1 );
+        b.put( i, v );
+    }
+
+    @Override
+    public void insert( int i, Ints vs )
+    {
+        insert( i, vs, 0, vs.n( ) );
+    }
+
+    @Override
+    public void insert( int i, Ints vs, int from, int to )
+    {
+        int c = to - from;
+        prepForInsert( i, c );
+        vs.copyTo( from, view( i, c ), c );
+    }
+
+    @Override
+    public void insert( int i, int[] vs )
+    {
+        insert( i, vs, 0, vs.length );
+    }
+
+    @Override
+    public void insert( int i, int[] vs, int from, int to )
+    {
+        int c = to - from;
+        prepForInsert( i, c );
+        view( i, c ).put( vs, from, c );
+    }
+
+    @Override
+    public void insert( int i, IntBuffer vs )
+    {
+        insert( i, vs, vs.remaining( ) );
+    }
+
+    @Override
+    public void insert( int i, IntBuffer vs, int c )
+    {
+        prepForInsert( i, c );
+        putFrom( vs, i, c );
+    }
+
+    /**
+     * Makes room for new values to be inserted.
+     *
+     * When this call returns, the values on <code>[i,i+c)</code> are undefined. Writing
+     * meaningful values to these indices is up to the caller.
+     *
+     * @param i The index at which new values will be inserted
+     * @param c The count of new values that will be inserted
+     */
+    public void prepForInsert( int i, int c )
+    {
+        int n = this.n;
+
+        int nNew;
+        if ( i >= n )
+        {
+            nNew = i + c;
+            ensureCapacity( nNew );
+        }
+        else
+        {
+            nNew = n + c;
+            ensureCapacity( nNew );
+            move( i, i + c, n - i );
+        }
+        this.n = nNew;
+    }
+
+    @Override
+    public void prepend( int v )
+    {
+        prepForPrepend( 1 );
+        b.put( 0, v );
+    }
+
+    @Override
+    public void prepend( Ints vs )
+    {
+        prepend( vs, 0, vs.n( ) );
+    }
+
+    @Override
+    public void prepend( Ints vs, int from, int to )
+    {
+        int c = to - from;
+        prepForPrepend( c );
+        vs.copyTo( from, view( 0, c ), c );
+    }
+
+    @Override
+    public void prepend( int[] vs )
+    {
+        prepend( vs, 0, vs.length );
+    }
+
+    @Override
+    public void prepend( int[] vs, int from, int to )
+    {
+        int c = to - from;
+        prepForPrepend( c );
+        view( 0, c ).put( vs, from, c );
+    }
+
+    @Override
+    public void prepend( IntBuffer vs )
+    {
+        prepend( vs, vs.remaining( ) );
+    }
+
+    @Override
+    public void prepend( IntBuffer vs, int c )
+    {
+        prepForPrepend( c );
+        putFrom( vs, 0, c );
+    }
+
+    /**
+     * Makes room for new values to be prepended.
+     *
+     * When this call returns, the values on <code>[0,c)</code> are undefined. Writing
+     * meaningful values to these indices is up to the caller.
+     *
+     * @param c The count of new values that will be inserted
+     */
+    public void prepForPrepend( int c )
+    {
+        prepForInsert( 0, c );
+    }
+
+    @Override
+    public void append( int v )
+    {
+        prepForAppend( 1 );
+        b.put( n - 1, v );
+    }
+
+    @Override
+    public void append( Ints vs )
+    {
+        append( vs, 0, vs.n( ) );
+    }
+
+    @Override
+    public void append( Ints vs, int from, int to )
+    {
+        int c = to - from;
+        prepForAppend( c );
+        vs.copyTo( from, view( n - c, c ), c );
+    }
+
+    @Override
+    public void append( int[] vs )
+    {
+        append( vs, 0, vs.length );
+    }
+
+    @Override
+    public void append( int[] vs, int from, int to )
+    {
+        int c = to - from;
+        prepForAppend( c );
+        view( n - c, c ).put( vs, from, c );
+    }
+
+    @Override
+    public void append( IntBuffer vs )
+    {
+        append( vs, vs.remaining( ) );
+    }
+
+    @Override
+    public void append( IntBuffer vs, int c )
+    {
+        prepForAppend( c );
+        putFrom( vs, n - c, c );
+    }
+
+    /**
+     * Makes room for new values to be appended.
+     *
+     * When this call returns, the values on <code>[this.n-c,this.n)</code> are undefined.
+     * Writing meaningful values to these indices is up to the caller.
+     *
+     * @param c The count of new values that will be appended
+     */
+    public void prepForAppend( int c )
+    {
+        int nNew = n + c;
+        ensureCapacity( nNew );
+        this.n = nNew;
+    }
+
+    @Override
+    public void remove( int v )
+    {
+        for ( int i = 0; i < n; i++ )
+        {
+            if ( b.get( i ) == v )
+            {
+                removeIndex( i );
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void removeRange( int from, int to )
+    {
+        move( to, from, n - to );
+        n -= to - from;
+    }
+
+    @Override
+    public void removeIndex( int index )
+    {
+        removeRange( index, index + 1 );
+    }
+
+    @Override
+    public void clear( )
+    {
+        n = 0;
+    }
+
+    @Override
+    public void ensureCapacity( int minCapacity )
+    {
+        int capacity = b.capacity( );
+        if ( minCapacity > capacity )
+        {
+            int newCapacity = ( int ) max( minCapacity, min( Integer.MAX_VALUE / 4, ( 106039L * capacity ) >>> 16 ) );
+            reallocate( newCapacity );
+        }
+    }
+
+    @Override
+    public void compact( )
+    {
+        if ( b.capacity( ) > n ) reallocate( n );
+    }
+
+    /**
+     * Copies the values into a new direct buffer, with the same byte order as the current one.
+     */
+    protected void reallocate( int capacity )
+    {
+        ByteBuffer bytesNew = allocate( capacity, bytes.order( ) );
+        IntBuffer bNew = bytesNew.asIntBuffer( );
+        bNew.put( view( 0, min( n, capacity ) ) );
+        bNew.clear( );
+
+        this.bytes = bytesNew;
+        this.b = bNew;
+    }
+
+    /**
+     * Moves c values from index from to index to. The ranges may overlap.
+     * <p>
+     * Bulk put between two views of the same buffer is unspecified when the views overlap, so
+     * overlapping moves go through a temporary array.
+     */
+    protected void move( int from, int to, int c )
+    {
+        if ( c <= 0 || to == from ) return;
+
+        if ( abs( to - from ) >= c )
+        {
+            view( to, c ).put( view( from, c ) );
+        }
+        else
+        {
+            int[] temp = new int[c];
+            view( from, c ).get( temp );
+            view( to, c ).put( temp );
+        }
+    }
+
+    /**
+     * Relative bulk get of c values from vs, into indices [i,i+c).
+     */
+    protected void putFrom( IntBuffer vs, int i, int c )
+    {
+        IntBuffer src = vs.duplicate( );
+        src.limit( src.position( ) + c );
+        view( i, c ).put( src );
+        vs.position( vs.position( ) + c );
+    }
+
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2016, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.util.primitives;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * A {@link LongsBuffer} backed by a memory-mapped file, so that file-backed data can be opened
+ * without reading it onto the heap. Values are stored as raw longs, in the byte order given
+ * when the file is mapped.
+ *
+ * <p>Modifications write through to a read-write mapping, and throw {@link java.nio.ReadOnlyBufferException}
+ * for a read-only one, until an operation needs more capacity than the mapping has. From then on the
+ * values live in a copy in a direct buffer instead, and {@link #isMapped()} returns false.</p>
+ *
+ * <p>A single mapping is limited to 2 GB, i.e. {@value #MAX_VALUES} values.</p>
+ */
+public class LongsMapped extends LongsBuffer
+{
+
+    public static final int MAX_VALUES = Integer.MAX_VALUE / 8;
+
+    protected final MappedByteBuffer mapped;
+    protected boolean reallocated;
+
+    protected LongsMapped( MappedByteBuffer mapped, ByteOrder order, int n )
+    {
+        super( mapped.duplicate( ).order( order ), n );
+        this.mapped = mapped;
+        this.reallocated = false;
+    }
+
+    /**
+     * Maps the whole file, read-only.
+     */
+    public static LongsMapped map( File file, ByteOrder order ) throws IOException
+    {
+        RandomAccessFile raf = new RandomAccessFile( file, "r" );
+        try
+        {
+            long n = raf.length( ) / 8;
+            return map( raf.getChannel( ), MapMode.READ_ONLY, 0, checkCount( n ), order );
+        }
+        finally
+        {
+            // the mapping stays valid after the channel is closed
+            raf.close( );
+        }
+    }
+
+    /**
+     * Maps n values starting at the given byte position of the channel.
+     */
+    public static LongsMapped map( FileChannel channel, MapMode mode, long position, int n, ByteOrder order ) throws IOException
+    {
+        MappedByteBuffer mapped = channel.map( mode, position, ( long ) checkCount( n ) * 8 );
+        return new LongsMapped( mapped, order, n );
+    }
+
+    /**
+     * Writes the values of xs to the file, replacing its contents, in a format readable by {@link #map(File, ByteOrder)}.
+     */
+    public static void write( File file, Longs xs, ByteOrder order ) throws IOException
+    {
+        int n = checkCount( xs.n( ) );
+
+        RandomAccessFile raf = new RandomAccessFile( file, "rw" );
+        try
+        {
+            raf.setLength( ( long ) n * 8 );
+            MappedByteBuffer mapped = raf.getChannel( ).map( MapMode.READ_WRITE, 0, ( long ) n * 8 );
+            xs.copyTo( mapped.order( order ).asLongBuffer( ) );
+            mapped.force( );
+        }
+        finally
+        {
+            raf.close( );
+        }
+    }
+
+    protected static int checkCount( long n )
+    {
+        if ( n < 0 || n > MAX_VALUES ) throw new IllegalArgumentException( "Too many values for a single mapping: " + n );
+        return ( int ) n;
+    }
+
+    /**
+     * @return false if the values have been moved off the mapping into a direct buffer
+     */
+    public boolean isMapped( )
+    {
+        return !reallocated;
+    }
+
+    @Override
+    protected void reallocate( int capacity )
+    {
+        super.reallocate( capacity );
+        reallocated = true;
+    }
+
+    /**
+     * Forces changes made through a read-write mapping to be written to the file.
+     */
+    public void force( )
+    {
+        if ( !reallocated && !mapped.isReadOnly( ) ) mapped.force( );
+    }
+
+}
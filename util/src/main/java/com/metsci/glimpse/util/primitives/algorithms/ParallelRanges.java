@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2016, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.util.primitives.algorithms;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs a task over a range of indices on a ForkJoinPool (the common pool, unless another is given),
+ * splitting the range in half until the pieces are no larger than a given grain size.
+ */
+public class ParallelRanges
+{
+    /**
+     * Ranges at most this large are not worth splitting for simple per-element work.
+     */
+    public static final int DEFAULT_GRAIN = 1 << 16;
+
+    private ParallelRanges( )
+    {
+    }
+
+    public static interface RangeTask
+    {
+        void run( int fromIndex, int toIndex );
+    }
+
+    public static void run( int fromIndex, int toIndex, RangeTask task )
+    {
+        run( fromIndex, toIndex, DEFAULT_GRAIN, task );
+    }
+
+    public static void run( int fromIndex, int toIndex, int grain, RangeTask task )
+    {
+        run( fromIndex, toIndex, grain, ForkJoinPool.commonPool( ), task );
+    }
+
+    public static void run( int fromIndex, int toIndex, int grain, ForkJoinPool pool, RangeTask task )
+    {
+        if ( toIndex - fromIndex <= grain )
+        {
+            task.run( fromIndex, toIndex );
+        }
+        else
+        {
+            invoke( pool, new RangeAction( fromIndex, toIndex, grain, task ) );
+        }
+    }
+
+    /**
+     * Invokes the given task, running it directly if already on a fork/join worker thread.
+     */
+    public static void invoke( ForkJoinTask<?> task )
+    {
+        invoke( ForkJoinPool.commonPool( ), task );
+    }
+
+    /**
+     * Invokes the given task in the given pool, running it directly if already on one of its worker threads.
+     */
+    public static void invoke( ForkJoinPool pool, ForkJoinTask<?> task )
+    {
+        if ( ForkJoinTask.getPool( ) == pool )
+        {
+            task.invoke( );
+        }
+        else
+        {
+            pool.invoke( task );
+        }
+    }
+
+    protected static class RangeAction extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        protected final int fromIndex;
+        protected final int toIndex;
+        protected final int grain;
+        protected final RangeTask task;
+
+        public RangeAction( int fromIndex, int toIndex, int grain, RangeTask task )
+        {
+            this.fromIndex = fromIndex;
+            this.toIndex = toIndex;
+            this.grain = grain;
+            this.task = task;
+        }
+
+        @Override
+        protected void compute( )
+        {
+            if ( toIndex - fromIndex <= grain )
+            {
+                task.run( fromIndex, toIndex );
+            }
+            else
+            {
+                int mid = ( fromIndex + toIndex ) >>> 1;
+                invokeAll( new RangeAction( fromIndex, mid, grain, task ), new RangeAction( mid, toIndex, grain, task ) );
+            }
+        }
+    }
+}
@@ -216,6 +216,109 @@ public class Partitioning
     /////////////
     /////////////
 
+    // Parallel versions of extract and shuffle, which split the index range across the common ForkJoinPool.
+    // Worthwhile for large columns, e.g. when applying a sort permutation to each column of a recorded data set.
+
+    public static long[] parallelExtract( long[] src, int[] index, int len )
+    {
+        long[] result = new long[index.length];
+        ParallelRanges.run( 0, len, ( from, to ) ->
+        {
+            for ( int i = from; i < to; i++ )
+                result[i] = src[index[i]];
+        } );
+
+        return result;
+    }
+
+    public static float[] parallelExtract( float[] src, int[] index, int len )
+    {
+        float[] result = new float[index.length];
+        ParallelRanges.run( 0, len, ( from, to ) ->
+        {
+            for ( int i = from; i < to; i++ )
+                result[i] = src[index[i]];
+        } );
+
+        return result;
+    }
+
+    public static double[] parallelExtract( double[] src, int[] index, int len )
+    {
+        double[] result = new double[index.length];
+        ParallelRanges.run( 0, len, ( from, to ) ->
+        {
+            for ( int i = from; i < to; i++ )
+                result[i] = src[index[i]];
+        } );
+
+        return result;
+    }
+
+    public static int[] parallelExtract( int[] src, int[] index, int len )
+    {
+        int[] result = new int[index.length];
+        ParallelRanges.run( 0, len, ( from, to ) ->
+        {
+            for ( int i = from; i < to; i++ )
+                result[i] = src[index[i]];
+        } );
+
+        return result;
+    }
+
+    public static char[] parallelExtract( char[] src, int[] index, int len )
+    {
+        char[] result = new char[index.length];
+        ParallelRanges.run( 0, len, ( from, to ) ->
+        {
+            for ( int i = from; i < to; i++ )
+                result[i] = src[index[i]];
+        } );
+
+        return result;
+    }
+
+    public static boolean[] parallelExtract( boolean[] src, int[] index, int len )
+    {
+        boolean[] result = new boolean[index.length];
+        ParallelRanges.run( 0, len, ( from, to ) ->
+        {
+            for ( int i = from; i < to; i++ )
+                result[i] = src[index[i]];
+        } );
+
+        return result;
+    }
+
+    public static Object[] parallelExtract( Object[] src, int[] index, int len )
+    {
+        Object[] result = new Object[index.length];
+        ParallelRanges.run( 0, len, ( from, to ) ->
+        {
+            for ( int i = from; i < to; i++ )
+                result[i] = src[index[i]];
+        } );
+
+        return result;
+    }
+
+    public static String[] parallelExtract( String[] src, int[] index, int len )
+    {
+        String[] result = new String[index.length];
+        ParallelRanges.run( 0, len, ( from, to ) ->
+        {
+            for ( int i = from; i < to; i++ )
+                result[i] = src[index[i]];
+        } );
+
+        return result;
+    }
+
+    /////////////
+    /////////////
+    /////////////
+
     public static void shuffle( double[] src, double[] dst, int[] index )
     {
         for ( int i = 0; i < index.length; i++ )
@@ -258,4 +361,67 @@ public class Partitioning
             dst[i] = src[index[i]];
     }
 
+    public static void parallelShuffle( double[] src, double[] dst, int[] index )
+    {
+        ParallelRanges.run( 0, index.length, ( from, to ) ->
+        {
+            for ( int i = from; i < to; i++ )
+                dst[i] = src[index[i]];
+        } );
+    }
+
+    public static void parallelShuffle( float[] src, float[] dst, int[] index )
+    {
+        ParallelRanges.run( 0, index.length, ( from, to ) ->
+        {
+            for ( int i = from; i < to; i++ )
+                dst[i] = src[index[i]];
+        } );
+    }
+
+    public static void parallelShuffle( long[] src, long[] dst, int[] index )
+    {
+        ParallelRanges.run( 0, index.length, ( from, to ) ->
+        {
+            for ( int i = from; i < to; i++ )
+                dst[i] = src[index[i]];
+        } );
+    }
+
+    public static void parallelShuffle( int[] src, int[] dst, int[] index )
+    {
+        ParallelRanges.run( 0, index.length, ( from, to ) ->
+        {
+            for ( int i = from; i < to; i++ )
+                dst[i] = src[index[i]];
+        } );
+    }
+
+    public static void parallelShuffle( char[] src, char[] dst, int[] index )
+    {
+        ParallelRanges.run( 0, index.length, ( from, to ) ->
+        {
+            for ( int i = from; i < to; i++ )
+                dst[i] = src[index[i]];
+        } );
+    }
+
+    public static void parallelShuffle( Object[] src, Object[] dst, int[] index )
+    {
+        ParallelRanges.run( 0, index.length, ( from, to ) ->
+        {
+            for ( int i = from; i < to; i++ )
+                dst[i] = src[index[i]];
+        } );
+    }
+
+    public static void parallelShuffle( String[] src, String[] dst, int[] index )
+    {
+        ParallelRanges.run( 0, index.length, ( from, to ) ->
+        {
+            for ( int i = from; i < to; i++ )
+                dst[i] = src[index[i]];
+        } );
+    }
+
 }
@@ -0,0 +1,522 @@
+/*
+ * Copyright (c) 2016, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.util.primitives.algorithms;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Stable LSD radix sorts of primitive keys, carrying along an int[] (typically a permutation) in the
+ * same way as {@link Sorting#mergesort(long[], int[], int, int)}.
+ *
+ * <p>Keys are processed a byte at a time. Passes where every key has the same byte are skipped, which
+ * makes sorting timestamps (whose high bytes rarely vary) considerably cheaper than 8 full passes.
+ * Floating point keys are ordered as by {@link Double#compare(double, double)}: -0.0 sorts before 0.0,
+ * and NaNs sort last (NaN payloads are canonicalized).</p>
+ *
+ * <p>The parallel variants histogram and scatter contiguous chunks of the array on the common
+ * ForkJoinPool. Each pass is still stable, so they produce exactly the same result as the serial sorts.</p>
+ */
+public class RadixSorting
+{
+    protected static final int RADIX_BITS = 8;
+    protected static final int RADIX = 1 << RADIX_BITS;
+    protected static final int RADIX_MASK = RADIX - 1;
+
+    /**
+     * Below this size the parallel sorts fall back to the serial ones.
+     */
+    public static final int PARALLEL_THRESHOLD = 1 << 17;
+
+    private RadixSorting( )
+    {
+    }
+
+    /////////////
+    /////////////
+    /////////////
+
+    /**
+     * @return the permutation which sorts x: x[p[0]] <= x[p[1]] <= ... (x itself is not modified)
+     */
+    public static int[] sortedPermutation( long[] x )
+    {
+        int[] p = identity( x.length );
+        radixsort( x.clone( ), p, 0, x.length );
+        return p;
+    }
+
+    public static int[] sortedPermutation( int[] x )
+    {
+        int[] p = identity( x.length );
+        radixsort( x.clone( ), p, 0, x.length );
+        return p;
+    }
+
+    public static int[] sortedPermutation( float[] x )
+    {
+        int[] p = identity( x.length );
+        radixsort( x.clone( ), p, 0, x.length );
+        return p;
+    }
+
+    public static int[] sortedPermutation( double[] x )
+    {
+        int[] p = identity( x.length );
+        radixsort( x.clone( ), p, 0, x.length );
+        return p;
+    }
+
+    public static int[] parallelSortedPermutation( long[] x )
+    {
+        int[] p = identity( x.length );
+        parallelRadixsort( x.clone( ), p, 0, x.length );
+        return p;
+    }
+
+    public static int[] parallelSortedPermutation( int[] x )
+    {
+        int[] p = identity( x.length );
+        parallelRadixsort( x.clone( ), p, 0, x.length );
+        return p;
+    }
+
+    public static int[] parallelSortedPermutation( float[] x )
+    {
+        int[] p = identity( x.length );
+        parallelRadixsort( x.clone( ), p, 0, x.length );
+        return p;
+    }
+
+    public static int[] parallelSortedPermutation( double[] x )
+    {
+        int[] p = identity( x.length );
+        parallelRadixsort( x.clone( ), p, 0, x.length );
+        return p;
+    }
+
+    public static int[] identity( int n )
+    {
+        int[] p = new int[n];
+        for ( int i = 0; i < n; i++ )
+            p[i] = i;
+
+        return p;
+    }
+
+    /////////////
+    /////////////
+    /////////////
+
+    public static void radixsort( long[] x, int[] aux, int fromIndex, int toIndex )
+    {
+        sort( x, aux, fromIndex, toIndex, false );
+    }
+
+    public static void parallelRadixsort( long[] x, int[] aux, int fromIndex, int toIndex )
+    {
+        sort( x, aux, fromIndex, toIndex, true );
+    }
+
+    public static void radixsort( double[] x, int[] aux, int fromIndex, int toIndex )
+    {
+        sort( x, aux, fromIndex, toIndex, false );
+    }
+
+    public static void parallelRadixsort( double[] x, int[] aux, int fromIndex, int toIndex )
+    {
+        sort( x, aux, fromIndex, toIndex, true );
+    }
+
+    public static void radixsort( int[] x, int[] aux, int fromIndex, int toIndex )
+    {
+        sort( x, aux, fromIndex, toIndex, false );
+    }
+
+    public static void parallelRadixsort( int[] x, int[] aux, int fromIndex, int toIndex )
+    {
+        sort( x, aux, fromIndex, toIndex, true );
+    }
+
+    public static void radixsort( float[] x, int[] aux, int fromIndex, int toIndex )
+    {
+        sort( x, aux, fromIndex, toIndex, false );
+    }
+
+    public static void parallelRadixsort( float[] x, int[] aux, int fromIndex, int toIndex )
+    {
+        sort( x, aux, fromIndex, toIndex, true );
+    }
+
+    /////////////
+    /////////////
+    /////////////
+
+    // Keys are mapped to longs (or ints) whose unsigned order matches the order of the original values
+
+    protected static long sortableKey( long x )
+    {
+        return x ^ Long.MIN_VALUE;
+    }
+
+    protected static long sortableKey( double x )
+    {
+        long bits = Double.doubleToLongBits( x );
+        return bits ^ ( ( bits >> 63 ) | Long.MIN_VALUE );
+    }
+
+    protected static double doubleFromSortableKey( long key )
+    {
+        long bits = key < 0 ? key ^ Long.MIN_VALUE : ~key;
+        return Double.longBitsToDouble( bits );
+    }
+
+    protected static int sortableKey( int x )
+    {
+        return x ^ Integer.MIN_VALUE;
+    }
+
+    protected static int sortableKey( float x )
+    {
+        int bits = Float.floatToIntBits( x );
+        return bits ^ ( ( bits >> 31 ) | Integer.MIN_VALUE );
+    }
+
+    protected static float floatFromSortableKey( int key )
+    {
+        int bits = key < 0 ? key ^ Integer.MIN_VALUE : ~key;
+        return Float.intBitsToFloat( bits );
+    }
+
+    protected static void sort( long[] x, int[] aux, int fromIndex, int toIndex, boolean parallel )
+    {
+        int n = toIndex - fromIndex;
+        long[] keys = new long[n];
+        for ( int i = 0; i < n; i++ )
+            keys[i] = sortableKey( x[fromIndex + i] );
+
+        int[] values = copy( aux, fromIndex, n );
+        sortKeys( keys, values, parallel );
+
+        for ( int i = 0; i < n; i++ )
+            x[fromIndex + i] = sortableKey( keys[i] );
+
+        System.arraycopy( values, 0, aux, fromIndex, n );
+    }
+
+    protected static void sort( double[] x, int[] aux, int fromIndex, int toIndex, boolean parallel )
+    {
+        int n = toIndex - fromIndex;
+        long[] keys = new long[n];
+        for ( int i = 0; i < n; i++ )
+            keys[i] = sortableKey( x[fromIndex + i] );
+
+        int[] values = copy( aux, fromIndex, n );
+        sortKeys( keys, values, parallel );
+
+        for ( int i = 0; i < n; i++ )
+            x[fromIndex + i] = doubleFromSortableKey( keys[i] );
+
+        System.arraycopy( values, 0, aux, fromIndex, n );
+    }
+
+    protected static void sort( int[] x, int[] aux, int fromIndex, int toIndex, boolean parallel )
+    {
+        int n = toIndex - fromIndex;
+        int[] keys = new int[n];
+        for ( int i = 0; i < n; i++ )
+            keys[i] = sortableKey( x[fromIndex + i] );
+
+        int[] values = copy( aux, fromIndex, n );
+        sortKeys( keys, values, parallel );
+
+        for ( int i = 0; i < n; i++ )
+            x[fromIndex + i] = sortableKey( keys[i] );
+
+        System.arraycopy( values, 0, aux, fromIndex, n );
+    }
+
+    protected static void sort( float[] x, int[] aux, int fromIndex, int toIndex, boolean parallel )
+    {
+        int n = toIndex - fromIndex;
+        int[] keys = new int[n];
+        for ( int i = 0; i < n; i++ )
+            keys[i] = sortableKey( x[fromIndex + i] );
+
+        int[] values = copy( aux, fromIndex, n );
+        sortKeys( keys, values, parallel );
+
+        for ( int i = 0; i < n; i++ )
+            x[fromIndex + i] = floatFromSortableKey( keys[i] );
+
+        System.arraycopy( values, 0, aux, fromIndex, n );
+    }
+
+    protected static int[] copy( int[] a, int fromIndex, int n )
+    {
+        int[] copy = new int[n];
+        System.arraycopy( a, fromIndex, copy, 0, n );
+        return copy;
+    }
+
+    /////////////
+    /////////////
+    /////////////
+
+    /**
+     * Sorts keys by unsigned value, applying the same moves to values. Both arrays are fully used.
+     */
+    protected static void sortKeys( long[] keys, int[] values, boolean parallel )
+    {
+        int n = keys.length;
+        if ( n < 2 ) return;
+
+        int digits = Long.SIZE / RADIX_BITS;
+        int chunks = parallel && n >= PARALLEL_THRESHOLD ? chunkCount( n ) : 1;
+        int chunkSize = ( n + chunks - 1 ) / chunks;
+
+        // a first read pass finds the digits which actually vary
+        int[][][] histograms = new int[chunks][][];
+        ParallelRanges.run( 0, chunks, 1, ( c0, c1 ) ->
+        {
+            for ( int c = c0; c < c1; c++ )
+            {
+                int[][] h = new int[digits][RADIX];
+                int end = Math.min( n, ( c + 1 ) * chunkSize );
+                for ( int i = c * chunkSize; i < end; i++ )
+                {
+                    long key = keys[i];
+                    for ( int d = 0; d < digits; d++ )
+                        h[d][( int ) ( key >>> ( d * RADIX_BITS ) ) & RADIX_MASK]++;
+                }
+                histograms[c] = h;
+            }
+        } );
+
+        long[] srcKeys = keys;
+        int[] srcValues = values;
+        long[] dstKeys = new long[n];
+        int[] dstValues = new int[n];
+
+        boolean first = true;
+        for ( int d = 0; d < digits; d++ )
+        {
+            if ( isTrivial( histograms, d, n ) ) continue;
+
+            // after the first scatter, the per-chunk histograms of the remaining digits are stale
+            if ( !first ) histogram( srcKeys, d, histograms, chunkSize, n );
+            first = false;
+
+            int[][] offsets = offsets( histograms, d );
+            final long[] sk = srcKeys;
+            final int[] sv = srcValues;
+            final long[] dk = dstKeys;
+            final int[] dv = dstValues;
+            final int shift = d * RADIX_BITS;
+
+            ParallelRanges.run( 0, chunks, 1, ( c0, c1 ) ->
+            {
+                for ( int c = c0; c < c1; c++ )
+                {
+                    int[] offset = offsets[c];
+                    int end = Math.min( n, ( c + 1 ) * chunkSize );
+                    for ( int i = c * chunkSize; i < end; i++ )
+                    {
+                        int j = offset[( int ) ( sk[i] >>> shift ) & RADIX_MASK]++;
+                        dk[j] = sk[i];
+                        dv[j] = sv[i];
+                    }
+                }
+            } );
+
+            srcKeys = dk;
+            srcValues = dv;
+            dstKeys = sk;
+            dstValues = sv;
+        }
+
+        if ( srcKeys != keys )
+        {
+            System.arraycopy( srcKeys, 0, keys, 0, n );
+            System.arraycopy( srcValues, 0, values, 0, n );
+        }
+    }
+
+    /**
+     * Sorts keys by unsigned value, applying the same moves to values. Both arrays are fully used.
+     */
+    protected static void sortKeys( int[] keys, int[] values, boolean parallel )
+    {
+        int n = keys.length;
+        if ( n < 2 ) return;
+
+        int digits = Integer.SIZE / RADIX_BITS;
+        int chunks = parallel && n >= PARALLEL_THRESHOLD ? chunkCount( n ) : 1;
+        int chunkSize = ( n + chunks - 1 ) / chunks;
+
+        // a first read pass finds the digits which actually vary
+        int[][][] histograms = new int[chunks][][];
+        ParallelRanges.run( 0, chunks, 1, ( c0, c1 ) ->
+        {
+            for ( int c = c0; c < c1; c++ )
+            {
+                int[][] h = new int[digits][RADIX];
+                int end = Math.min( n, ( c + 1 ) * chunkSize );
+                for ( int i = c * chunkSize; i < end; i++ )
+                {
+                    int key = keys[i];
+                    for ( int d = 0; d < digits; d++ )
+                        h[d][( key >>> ( d * RADIX_BITS ) ) & RADIX_MASK]++;
+                }
+                histograms[c] = h;
+            }
+        } );
+
+        int[] srcKeys = keys;
+        int[] srcValues = values;
+        int[] dstKeys = new int[n];
+        int[] dstValues = new int[n];
+
+        boolean first = true;
+        for ( int d = 0; d < digits; d++ )
+        {
+            if ( isTrivial( histograms, d, n ) ) continue;
+
+            // after the first scatter, the per-chunk histograms of the remaining digits are stale
+            if ( !first ) histogram( srcKeys, d, histograms, chunkSize, n );
+            first = false;
+
+            int[][] offsets = offsets( histograms, d );
+            final int[] sk = srcKeys;
+            final int[] sv = srcValues;
+            final int[] dk = dstKeys;
+            final int[] dv = dstValues;
+            final int shift = d * RADIX_BITS;
+
+            ParallelRanges.run( 0, chunks, 1, ( c0, c1 ) ->
+            {
+                for ( int c = c0; c < c1; c++ )
+                {
+                    int[] offset = offsets[c];
+                    int end = Math.min( n, ( c + 1 ) * chunkSize );
+                    for ( int i = c * chunkSize; i < end; i++ )
+                    {
+                        int j = offset[( sk[i] >>> shift ) & RADIX_MASK]++;
+                        dk[j] = sk[i];
+                        dv[j] = sv[i];
+                    }
+                }
+            } );
+
+            srcKeys = dk;
+            srcValues = dv;
+            dstKeys = sk;
+            dstValues = sv;
+        }
+
+        if ( srcKeys != keys )
+        {
+            System.arraycopy( srcKeys, 0, keys, 0, n );
+            System.arraycopy( srcValues, 0, values, 0, n );
+        }
+    }
+
+    protected static int chunkCount( int n )
+    {
+        int parallelism = ForkJoinPool.getCommonPoolParallelism( );
+        return Math.max( 1, Math.min( 4 * parallelism, n / ( PARALLEL_THRESHOLD / 4 ) ) );
+    }
+
+    protected static boolean isTrivial( int[][][] histograms, int d, int n )
+    {
+        for ( int b = 0; b < RADIX; b++ )
+        {
+            int total = 0;
+            for ( int c = 0; c < histograms.length; c++ )
+                total += histograms[c][d][b];
+
+            if ( total == n ) return true;
+            if ( total != 0 ) return false;
+        }
+
+        return false;
+    }
+
+    protected static void histogram( long[] keys, int d, int[][][] histograms, int chunkSize, int n )
+    {
+        int shift = d * RADIX_BITS;
+        ParallelRanges.run( 0, histograms.length, 1, ( c0, c1 ) ->
+        {
+            for ( int c = c0; c < c1; c++ )
+            {
+                int[] h = histograms[c][d];
+                Arrays.fill( h, 0 );
+                int end = Math.min( n, ( c + 1 ) * chunkSize );
+                for ( int i = c * chunkSize; i < end; i++ )
+                    h[( int ) ( keys[i] >>> shift ) & RADIX_MASK]++;
+            }
+        } );
+    }
+
+    protected static void histogram( int[] keys, int d, int[][][] histograms, int chunkSize, int n )
+    {
+        int shift = d * RADIX_BITS;
+        ParallelRanges.run( 0, histograms.length, 1, ( c0, c1 ) ->
+        {
+            for ( int c = c0; c < c1; c++ )
+            {
+                int[] h = histograms[c][d];
+                Arrays.fill( h, 0 );
+                int end = Math.min( n, ( c + 1 ) * chunkSize );
+                for ( int i = c * chunkSize; i < end; i++ )
+                    h[( keys[i] >>> shift ) & RADIX_MASK]++;
+            }
+        } );
+    }
+
+    /**
+     * @return the first destination index of each bucket for each chunk: buckets in order, and within
+     *         a bucket, chunks in order (which keeps the scatter stable)
+     */
+    protected static int[][] offsets( int[][][] histograms, int d )
+    {
+        int chunks = histograms.length;
+        int[][] offsets = new int[chunks][RADIX];
+
+        int next = 0;
+        for ( int b = 0; b < RADIX; b++ )
+        {
+            for ( int c = 0; c < chunks; c++ )
+            {
+                offsets[c][b] = next;
+                next += histograms[c][d][b];
+            }
+        }
+
+        return offsets;
+    }
+}
@@ -26,6 +26,8 @@
  */
 package com.metsci.glimpse.util.primitives.algorithms;
 
+import java.util.concurrent.RecursiveAction;
+
 import com.metsci.glimpse.util.primitives.algorithms.GenericSorting.Comparator;
 import com.metsci.glimpse.util.primitives.algorithms.GenericSorting.Swapper;
 
@@ -34,6 +36,11 @@ import com.metsci.glimpse.util.primitives.algorithms.GenericSorting.Swapper;
  */
 public class Sorting
 {
+    /**
+     * Ranges at most this large are sorted and merged serially by {@link #parallelMergesort(long[], int[], int, int)}.
+     */
+    public static final int PARALLEL_MERGESORT_GRAIN = 1 << 14;
+
     public static boolean isSorted( long[] x )
     {
         return isSorted( x, 0, x.length );
@@ -99,6 +106,207 @@ public class Sorting
         GenericSorting.mergesort( fromIndex, toIndex, comp, swap );
     }
 
+    /**
+     * Parallel version of {@link #mergesort(long[], int[], int, int)}. Halves are sorted and merged
+     * recursively on the common ForkJoinPool, using temporary arrays the size of the range; ranges
+     * below {@link #PARALLEL_MERGESORT_GRAIN} are sorted serially. Like the serial version, the sort
+     * is stable.
+     */
+    public static void parallelMergesort( long[] x, int[] aux, int fromIndex, int toIndex )
+    {
+        if ( toIndex - fromIndex <= PARALLEL_MERGESORT_GRAIN )
+        {
+            mergesort( x, aux, fromIndex, toIndex );
+            return;
+        }
+
+        int n = toIndex - fromIndex;
+        long[] xTemp = new long[n];
+        int[] auxTemp = new int[n];
+        ParallelRanges.invoke( new MergesortAction( x, aux, xTemp, auxTemp, fromIndex, fromIndex, toIndex ) );
+    }
+
+    protected static class MergesortAction extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        protected final long[] x;
+        protected final int[] aux;
+        protected final long[] xTemp;
+        protected final int[] auxTemp;
+        protected final int tempOffset;
+        protected final int fromIndex;
+        protected final int toIndex;
+
+        public MergesortAction( long[] x, int[] aux, long[] xTemp, int[] auxTemp, int tempOffset, int fromIndex, int toIndex )
+        {
+            this.x = x;
+            this.aux = aux;
+            this.xTemp = xTemp;
+            this.auxTemp = auxTemp;
+            this.tempOffset = tempOffset;
+            this.fromIndex = fromIndex;
+            this.toIndex = toIndex;
+        }
+
+        @Override
+        protected void compute( )
+        {
+            if ( toIndex - fromIndex <= PARALLEL_MERGESORT_GRAIN )
+            {
+                mergesort( x, aux, fromIndex, toIndex );
+                return;
+            }
+
+            int mid = ( fromIndex + toIndex ) >>> 1;
+            invokeAll( new MergesortAction( x, aux, xTemp, auxTemp, tempOffset, fromIndex, mid ), new MergesortAction( x, aux, xTemp, auxTemp, tempOffset, mid, toIndex ) );
+
+            // already in order, as in the serial mergesort
+            if ( x[mid - 1] <= x[mid] ) return;
+
+            // merge into the temporary arrays, then copy back
+            new MergeAction( x, aux, fromIndex, mid, mid, toIndex, xTemp, auxTemp, fromIndex - tempOffset ).invoke( );
+
+            final int tempFrom = fromIndex - tempOffset;
+            ParallelRanges.run( 0, toIndex - fromIndex, ParallelRanges.DEFAULT_GRAIN, new ParallelRanges.RangeTask( )
+            {
+                @Override
+                public void run( int from, int to )
+                {
+                    System.arraycopy( xTemp, tempFrom + from, x, fromIndex + from, to - from );
+                    System.arraycopy( auxTemp, tempFrom + from, aux, fromIndex + from, to - from );
+                }
+            } );
+        }
+    }
+
+    /**
+     * Stable merge of two sorted runs into the destination arrays, splitting the larger run at its
+     * midpoint and the smaller run at the matching position so that both halves can be merged in parallel.
+     */
+    protected static class MergeAction extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        protected final long[] x;
+        protected final int[] aux;
+        protected final int from1;
+        protected final int to1;
+        protected final int from2;
+        protected final int to2;
+        protected final long[] xDst;
+        protected final int[] auxDst;
+        protected final int dstIndex;
+
+        public MergeAction( long[] x, int[] aux, int from1, int to1, int from2, int to2, long[] xDst, int[] auxDst, int dstIndex )
+        {
+            this.x = x;
+            this.aux = aux;
+            this.from1 = from1;
+            this.to1 = to1;
+            this.from2 = from2;
+            this.to2 = to2;
+            this.xDst = xDst;
+            this.auxDst = auxDst;
+            this.dstIndex = dstIndex;
+        }
+
+        @Override
+        protected void compute( )
+        {
+            int n1 = to1 - from1;
+            int n2 = to2 - from2;
+
+            if ( n1 + n2 <= PARALLEL_MERGESORT_GRAIN )
+            {
+                merge( );
+                return;
+            }
+
+            int split1;
+            int split2;
+            if ( n1 >= n2 )
+            {
+                // run 1 elements equal to the pivot stay ahead of run 2 elements equal to it
+                split1 = ( from1 + to1 ) >>> 1;
+                split2 = lowerBound( x, from2, to2, x[split1] );
+            }
+            else
+            {
+                split2 = ( from2 + to2 ) >>> 1;
+                split1 = upperBound( x, from1, to1, x[split2] );
+            }
+
+            int dstSplit = dstIndex + ( split1 - from1 ) + ( split2 - from2 );
+            invokeAll( new MergeAction( x, aux, from1, split1, from2, split2, xDst, auxDst, dstIndex ), new MergeAction( x, aux, split1, to1, split2, to2, xDst, auxDst, dstSplit ) );
+        }
+
+        protected void merge( )
+        {
+            int i = from1;
+            int j = from2;
+            int k = dstIndex;
+
+            while ( i < to1 && j < to2 )
+            {
+                if ( x[j] < x[i] )
+                {
+                    xDst[k] = x[j];
+                    auxDst[k++] = aux[j++];
+                }
+                else
+                {
+                    xDst[k] = x[i];
+                    auxDst[k++] = aux[i++];
+                }
+            }
+
+            while ( i < to1 )
+            {
+                xDst[k] = x[i];
+                auxDst[k++] = aux[i++];
+            }
+
+            while ( j < to2 )
+            {
+                xDst[k] = x[j];
+                auxDst[k++] = aux[j++];
+            }
+        }
+    }
+
+    // first index in [fromIndex,toIndex) with x[i] >= key
+    protected static int lowerBound( long[] x, int fromIndex, int toIndex, long key )
+    {
+        int low = fromIndex;
+        int high = toIndex;
+        while ( low < high )
+        {
+            int mid = ( low + high ) >>> 1;
+            if ( x[mid] < key )
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    // first index in [fromIndex,toIndex) with x[i] > key
+    protected static int upperBound( long[] x, int fromIndex, int toIndex, long key )
+    {
+        int low = fromIndex;
+        int high = toIndex;
+        while ( low < high )
+        {
+            int mid = ( low + high ) >>> 1;
+            if ( x[mid] <= key )
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
     public static void quicksort( final long[] x, final int[] aux, int fromIndex, int toIndex )
     {
         final Swapper s = new Swapper( )
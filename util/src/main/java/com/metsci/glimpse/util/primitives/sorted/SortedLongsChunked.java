@@ -0,0 +1,904 @@
+/*
+ * Copyright (c) 2016, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.util.primitives.sorted;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+import java.nio.LongBuffer;
+
+import com.metsci.glimpse.util.primitives.Longs;
+
+/**
+ * A {@link SortedLongsModifiable} that stores its values in fixed-size sorted chunks,
+ * held in a shallow tree whose branches record the value-count and the smallest value
+ * of each child.
+ * <p>
+ * {@link SortedLongsArray#add(long)} has to shift every later value, which makes
+ * sustained out-of-order inserts into a large index quadratic. Here an insert shifts
+ * at most one chunk, and finding the chunk (by value or by index) is logarithmic in
+ * the number of values. The price is that {@link #v(int)} is also logarithmic rather
+ * than constant, so bulk reads should go through {@link #copyTo(int, long[], int, int)},
+ * which walks whole chunks.
+ * <p>
+ * Removals drop emptied chunks and merge small adjacent chunks, but otherwise do not
+ * rebalance; {@link #compact()} repacks the tree.
+ */
+public class SortedLongsChunked implements SortedLongsModifiable
+{
+
+    protected static final int LEAF_CAPACITY = 512;
+    protected static final int BRANCH_CAPACITY = 64;
+
+    protected static abstract class Node
+    {
+        /**
+         * Number of values in this subtree
+         */
+        int count;
+
+        abstract long min( );
+    }
+
+    protected static class Leaf extends Node
+    {
+        // One extra slot, so that an insert can overflow before splitting
+        final long[] vs = new long[LEAF_CAPACITY + 1];
+
+        @Override
+        long min( )
+        {
+            return vs[0];
+        }
+    }
+
+    protected static class Branch extends Node
+    {
+        // One extra slot, so that an insert can overflow before splitting
+        final Node[] children = new Node[BRANCH_CAPACITY + 1];
+        final int[] counts = new int[BRANCH_CAPACITY + 1];
+        final long[] mins = new long[BRANCH_CAPACITY + 1];
+        int size;
+
+        @Override
+        long min( )
+        {
+            return mins[0];
+        }
+
+        void insertChild( int c, Node child )
+        {
+            System.arraycopy( children, c, children, c + 1, size - c );
+            System.arraycopy( counts, c, counts, c + 1, size - c );
+            System.arraycopy( mins, c, mins, c + 1, size - c );
+            children[c] = child;
+            counts[c] = child.count;
+            mins[c] = child.min( );
+            size++;
+        }
+
+        void removeChild( int c )
+        {
+            System.arraycopy( children, c + 1, children, c, size - ( c + 1 ) );
+            System.arraycopy( counts, c + 1, counts, c, size - ( c + 1 ) );
+            System.arraycopy( mins, c + 1, mins, c, size - ( c + 1 ) );
+            size--;
+            children[size] = null;
+        }
+    }
+
+    protected static interface RangeVisitor
+    {
+        void visit( long[] vs, int from, int to );
+    }
+
+    protected Node root;
+
+    // Instantiation
+
+    public SortedLongsChunked( )
+    {
+        this.root = new Leaf( );
+    }
+
+    /**
+     * If the values of {@code a} are not in ascending order, the behavior of
+     * this instance is undefined.
+     *
+     * Copies the array arg.
+     */
+    public SortedLongsChunked( long[] a )
+    {
+        this( a, a.length );
+    }
+
+    /**
+     * If the first {@code n} values of {@code a} are not in ascending order,
+     * the behavior of this instance is undefined.
+     *
+     * Copies the array arg.
+     */
+    public SortedLongsChunked( long[] a, int n )
+    {
+        this.root = build( a, n );
+    }
+
+    /**
+     * If the values of {@code xs} are not in ascending order, the behavior of
+     * this instance is undefined.
+     *
+     * Clones the sequence arg.
+     */
+    public SortedLongsChunked( Longs xs )
+    {
+        this( xs.copyOf( ) );
+    }
+
+    /**
+     * Bulk-loads a tree with full chunks.
+     */
+    protected static Node build( long[] a, int n )
+    {
+        if ( n <= LEAF_CAPACITY )
+        {
+            Leaf leaf = new Leaf( );
+            System.arraycopy( a, 0, leaf.vs, 0, n );
+            leaf.count = n;
+            return leaf;
+        }
+
+        int nLeaves = ( n + LEAF_CAPACITY - 1 ) / LEAF_CAPACITY;
+        Node[] level = new Node[nLeaves];
+        for ( int k = 0; k < nLeaves; k++ )
+        {
+            Leaf leaf = new Leaf( );
+            int from = k * LEAF_CAPACITY;
+            int c = min( LEAF_CAPACITY, n - from );
+            System.arraycopy( a, from, leaf.vs, 0, c );
+            leaf.count = c;
+            level[k] = leaf;
+        }
+
+        while ( level.length > 1 )
+        {
+            int nBranches = ( level.length + BRANCH_CAPACITY - 1 ) / BRANCH_CAPACITY;
+            Node[] parents = new Node[nBranches];
+            for ( int k = 0; k < nBranches; k++ )
+            {
+                Branch branch = new Branch( );
+                int from = k * BRANCH_CAPACITY;
+                int to = min( level.length, from + BRANCH_CAPACITY );
+                for ( int c = from; c < to; c++ )
+                {
+                    branch.insertChild( branch.size, level[c] );
+                    branch.count += level[c].count;
+                }
+                parents[k] = branch;
+            }
+            level = parents;
+        }
+        return level[0];
+    }
+
+    // Accessors
+
+    @Override
+    public long v( int i )
+    {
+        Node node = root;
+        while ( node instanceof Branch )
+        {
+            Branch b = ( Branch ) node;
+            int c = 0;
+            while ( i >= b.counts[c] )
+            {
+                i -= b.counts[c];
+                c++;
+            }
+            node = b.children[c];
+        }
+        return ( ( Leaf ) node ).vs[i];
+    }
+
+    @Override
+    public int n( )
+    {
+        return root.count;
+    }
+
+    @Override
+    public boolean isEmpty( )
+    {
+        return ( root.count == 0 );
+    }
+
+    @Override
+    public long first( )
+    {
+        return v( 0 );
+    }
+
+    @Override
+    public long last( )
+    {
+        return v( root.count - 1 );
+    }
+
+    @Override
+    public void copyTo( int i, final long[] dest, final int iDest, int c )
+    {
+        visitRange( root, i, i + c, new RangeVisitor( )
+        {
+            int k = iDest;
+
+            @Override
+            public void visit( long[] vs, int from, int to )
+            {
+                System.arraycopy( vs, from, dest, k, to - from );
+                k += to - from;
+            }
+        } );
+    }
+
+    @Override
+    public void copyTo( int i, final LongBuffer dest, int c )
+    {
+        visitRange( root, i, i + c, new RangeVisitor( )
+        {
+            @Override
+            public void visit( long[] vs, int from, int to )
+            {
+                dest.put( vs, from, to - from );
+            }
+        } );
+    }
+
+    @Override
+    public void copyTo( LongBuffer dest )
+    {
+        copyTo( 0, dest, root.count );
+    }
+
+    @Override
+    public long[] copyOf( int i, int c )
+    {
+        long[] copy = new long[c];
+        copyTo( i, copy, 0, c );
+        return copy;
+    }
+
+    @Override
+    public long[] copyOf( )
+    {
+        return copyOf( 0, root.count );
+    }
+
+    protected static void visitRange( Node node, int from, int to, RangeVisitor visitor )
+    {
+        if ( from >= to ) return;
+
+        if ( node instanceof Leaf )
+        {
+            visitor.visit( ( ( Leaf ) node ).vs, from, to );
+            return;
+        }
+
+        Branch b = ( Branch ) node;
+        int start = 0;
+        for ( int c = 0; c < b.size && start < to; c++ )
+        {
+            int end = start + b.counts[c];
+            if ( end > from )
+            {
+                visitRange( b.children[c], max( from, start ) - start, min( to, end ) - start, visitor );
+            }
+            start = end;
+        }
+    }
+
+    // Search
+
+    /**
+     * Index of the first value greater than or equal to {@code x}, or n if there is none.
+     */
+    protected int lowerBound( long x )
+    {
+        Node node = root;
+        int base = 0;
+        while ( node instanceof Branch )
+        {
+            Branch b = ( Branch ) node;
+            int c = 0;
+            while ( c + 1 < b.size && b.mins[c + 1] < x )
+            {
+                base += b.counts[c];
+                c++;
+            }
+            node = b.children[c];
+        }
+
+        Leaf leaf = ( Leaf ) node;
+        long[] vs = leaf.vs;
+        int lo = 0;
+        int hi = leaf.count;
+        while ( lo < hi )
+        {
+            int mid = ( lo + hi ) >>> 1;
+            if ( vs[mid] < x ) lo = mid + 1;
+            else hi = mid;
+        }
+        return base + lo;
+    }
+
+    /**
+     * Index of the first value strictly greater than {@code x}, or n if there is none.
+     */
+    protected int upperBound( long x )
+    {
+        Node node = root;
+        int base = 0;
+        while ( node instanceof Branch )
+        {
+            Branch b = ( Branch ) node;
+            int c = 0;
+            while ( c + 1 < b.size && b.mins[c + 1] <= x )
+            {
+                base += b.counts[c];
+                c++;
+            }
+            node = b.children[c];
+        }
+
+        Leaf leaf = ( Leaf ) node;
+        long[] vs = leaf.vs;
+        int lo = 0;
+        int hi = leaf.count;
+        while ( lo < hi )
+        {
+            int mid = ( lo + hi ) >>> 1;
+            if ( vs[mid] <= x ) lo = mid + 1;
+            else hi = mid;
+        }
+        return base + lo;
+    }
+
+    @Override
+    public int indexOf( long x )
+    {
+        int i = lowerBound( x );
+        if ( i < root.count && v( i ) == x ) return i;
+        return -( i + 1 );
+    }
+
+    @Override
+    public int indexNearest( long x )
+    {
+        int iAfter = lowerBound( x );
+        int iBefore = iAfter - 1;
+
+        if ( iAfter >= root.count ) return iBefore;
+        if ( iBefore < 0 ) return iAfter;
+
+        long vAfter = v( iAfter );
+        if ( vAfter == x ) return iAfter;
+
+        long diffAfter = vAfter - x;
+        long diffBefore = x - v( iBefore );
+        return ( diffAfter <= diffBefore ? iAfter : iBefore );
+    }
+
+    @Override
+    public int indexAfter( long x )
+    {
+        return upperBound( x );
+    }
+
+    @Override
+    public int indexAtOrAfter( long x )
+    {
+        return lowerBound( x );
+    }
+
+    @Override
+    public int indexBefore( long x )
+    {
+        return lowerBound( x ) - 1;
+    }
+
+    @Override
+    public int indexAtOrBefore( long x )
+    {
+        return upperBound( x ) - 1;
+    }
+
+    /**
+     * @throws RuntimeException if n is less than 2 and the exact value is not found
+     */
+    @Override
+    public void continuousIndexOf( long x, ContinuousIndex result )
+    {
+        int i = indexOf( x );
+        if ( i >= 0 )
+        {
+            // Exact value found
+            result.set( i, 0 );
+        }
+        else
+        {
+            // Find the continuous index between values
+            int n = root.count;
+            int iAfter = max( 1, min( n - 1, ( -i - 1 ) ) );
+            int iBefore = iAfter - 1;
+
+            long vBefore = v( iBefore );
+            long vAfter = v( iAfter );
+            float f = ( ( float ) ( x - vBefore ) ) / ( ( float ) ( vAfter - vBefore ) );
+
+            result.set( iBefore, f );
+        }
+    }
+
+    /**
+     * @throws RuntimeException if n is less than 2 and the exact value is not found
+     */
+    @Override
+    public ContinuousIndex continuousIndexOf( long x )
+    {
+        ContinuousIndex h = new ContinuousIndex( );
+        continuousIndexOf( x, h );
+        return h;
+    }
+
+    /**
+     * @throws RuntimeException if n is less than 2
+     */
+    @Override
+    public void continuousIndicesOf( Longs xs, ContinuousIndexArray result )
+    {
+        if ( root.count < 2 ) throw new RuntimeException( );
+
+        int nx = xs.n( );
+
+        ContinuousIndex h = new ContinuousIndex( );
+        for ( int ix = 0; ix < nx; ix++ )
+        {
+            long x = xs.v( ix );
+            continuousIndexOf( x, h );
+            result.put( ix, h );
+        }
+    }
+
+    /**
+     * @throws RuntimeException if n is less than 2
+     */
+    @Override
+    public ContinuousIndexArray continuousIndicesOf( Longs xs )
+    {
+        ContinuousIndexArray hs = new ContinuousIndexArray( xs.n( ) );
+        continuousIndicesOf( xs, hs );
+        return hs;
+    }
+
+    /**
+     * Each lookup is logarithmic, so there is no zipping advantage to be had from
+     * the sortedness of {@code xs}.
+     *
+     * @throws RuntimeException if n is less than 2
+     */
+    @Override
+    public void continuousIndicesOf( SortedLongs xs, ContinuousIndexArray result )
+    {
+        continuousIndicesOf( ( Longs ) xs, result );
+    }
+
+    /**
+     * @throws RuntimeException if n is less than 2
+     */
+    @Override
+    public ContinuousIndexArray continuousIndicesOf( SortedLongs xs )
+    {
+        ContinuousIndexArray hs = new ContinuousIndexArray( xs.n( ) );
+        continuousIndicesOf( xs, hs );
+        return hs;
+    }
+
+    // Mutators
+
+    @Override
+    public int add( long v )
+    {
+        int i = upperBound( v );
+        insert( i, v );
+        return i;
+    }
+
+    @Override
+    public void set( int i, long v )
+    {
+        if ( i < 0 || i >= root.count ) throw new IndexOutOfBoundsException( "Index: " + i + ", Size: " + root.count );
+        set( root, i, v );
+    }
+
+    protected static void set( Node node, int i, long v )
+    {
+        if ( node instanceof Leaf )
+        {
+            ( ( Leaf ) node ).vs[i] = v;
+            return;
+        }
+
+        Branch b = ( Branch ) node;
+        int c = 0;
+        while ( i >= b.counts[c] )
+        {
+            i -= b.counts[c];
+            c++;
+        }
+        set( b.children[c], i, v );
+        b.mins[c] = b.children[c].min( );
+    }
+
+    @Override
+    public void set( int i, long[] vs )
+    {
+        set( i, vs, 0, vs.length );
+    }
+
+    /**
+     * Like {@link com.metsci.glimpse.util.primitives.LongsArray#set(int, long[], int, int)},
+     * truncates the sequence to end after the last value set.
+     */
+    @Override
+    public void set( int i, long[] vs, int from, int to )
+    {
+        int n = root.count;
+        if ( i < 0 || i > n ) throw new IndexOutOfBoundsException( "Index: " + i + ", Size: " + n );
+
+        removeRange( i, n );
+        insert( i, vs, from, to );
+    }
+
+    @Override
+    public void insert( int i, long v )
+    {
+        if ( i < 0 || i > root.count ) throw new IndexOutOfBoundsException( "Index: " + i + ", Size: " + root.count );
+
+        Node sibling = insert( root, i, v );
+        if ( sibling != null )
+        {
+            Branch newRoot = new Branch( );
+            newRoot.insertChild( 0, root );
+            newRoot.insertChild( 1, sibling );
+            newRoot.count = root.count + sibling.count;
+            root = newRoot;
+        }
+    }
+
+    /**
+     * Inserts {@code v} at index {@code i} within the subtree. If the subtree had to
+     * split, returns the new right-hand sibling; otherwise returns null.
+     */
+    protected static Node insert( Node node, int i, long v )
+    {
+        if ( node instanceof Leaf )
+        {
+            Leaf leaf = ( Leaf ) node;
+            long[] vs = leaf.vs;
+            System.arraycopy( vs, i, vs, i + 1, leaf.count - i );
+            vs[i] = v;
+            leaf.count++;
+
+            if ( leaf.count <= LEAF_CAPACITY ) return null;
+
+            // Split -- when appending, keep the left chunk full, so that
+            // in-order inserts leave densely packed chunks behind
+            int nLeft = ( i == leaf.count - 1 ? LEAF_CAPACITY : leaf.count / 2 );
+            Leaf right = new Leaf( );
+            right.count = leaf.count - nLeft;
+            System.arraycopy( vs, nLeft, right.vs, 0, right.count );
+            leaf.count = nLeft;
+            return right;
+        }
+
+        Branch b = ( Branch ) node;
+        int c = 0;
+        while ( c < b.size - 1 && i > b.counts[c] )
+        {
+            i -= b.counts[c];
+            c++;
+        }
+
+        Node child = b.children[c];
+        Node sibling = insert( child, i, v );
+        b.counts[c] = child.count;
+        b.mins[c] = child.min( );
+        b.count++;
+        if ( sibling == null ) return null;
+
+        b.insertChild( c + 1, sibling );
+        if ( b.size <= BRANCH_CAPACITY ) return null;
+
+        // Split
+        int nLeft = b.size / 2;
+        Branch right = new Branch( );
+        for ( int k = nLeft; k < b.size; k++ )
+        {
+            right.insertChild( right.size, b.children[k] );
+            right.count += b.counts[k];
+        }
+        for ( int k = b.size - 1; k >= nLeft; k-- )
+        {
+            b.removeChild( k );
+        }
+        b.count -= right.count;
+        return right;
+    }
+
+    @Override
+    public void insert( int i, long[] vs )
+    {
+        insert( i, vs, 0, vs.length );
+    }
+
+    @Override
+    public void insert( int i, Longs vs )
+    {
+        insert( i, vs, 0, vs.n( ) );
+    }
+
+    @Override
+    public void insert( int i, LongBuffer vs )
+    {
+        insert( i, vs, vs.remaining( ) );
+    }
+
+    @Override
+    public void insert( int i, long[] vs, int from, int to )
+    {
+        for ( int k = from; k < to; k++ )
+        {
+            insert( i++, vs[k] );
+        }
+    }
+
+    @Override
+    public void insert( int i, Longs vs, int from, int to )
+    {
+        for ( int k = from; k < to; k++ )
+        {
+            insert( i++, vs.v( k ) );
+        }
+    }
+
+    @Override
+    public void insert( int i, LongBuffer vs, int c )
+    {
+        for ( int k = 0; k < c; k++ )
+        {
+            insert( i++, vs.get( ) );
+        }
+    }
+
+    @Override
+    public void append( long v )
+    {
+        insert( root.count, v );
+    }
+
+    @Override
+    public void append( long[] vs )
+    {
+        insert( root.count, vs );
+    }
+
+    @Override
+    public void append( Longs vs )
+    {
+        insert( root.count, vs );
+    }
+
+    @Override
+    public void append( LongBuffer vs )
+    {
+        insert( root.count, vs );
+    }
+
+    @Override
+    public void append( long[] vs, int from, int to )
+    {
+        insert( root.count, vs, from, to );
+    }
+
+    @Override
+    public void append( Longs vs, int from, int to )
+    {
+        insert( root.count, vs, from, to );
+    }
+
+    @Override
+    public void append( LongBuffer vs, int c )
+    {
+        insert( root.count, vs, c );
+    }
+
+    @Override
+    public void prepend( long v )
+    {
+        insert( 0, v );
+    }
+
+    @Override
+    public void prepend( long[] vs )
+    {
+        insert( 0, vs );
+    }
+
+    @Override
+    public void prepend( Longs vs )
+    {
+        insert( 0, vs );
+    }
+
+    @Override
+    public void prepend( LongBuffer vs )
+    {
+        insert( 0, vs );
+    }
+
+    @Override
+    public void prepend( long[] vs, int from, int to )
+    {
+        insert( 0, vs, from, to );
+    }
+
+    @Override
+    public void prepend( Longs vs, int from, int to )
+    {
+        insert( 0, vs, from, to );
+    }
+
+    @Override
+    public void prepend( LongBuffer vs, int c )
+    {
+        insert( 0, vs, c );
+    }
+
+    @Override
+    public void remove( long v )
+    {
+        int i = indexOf( v );
+        if ( i >= 0 ) removeIndex( i );
+    }
+
+    @Override
+    public void removeRange( int from, int to )
+    {
+        if ( from < 0 || to > root.count || from > to ) throw new IndexOutOfBoundsException( "From: " + from + ", To: " + to + ", Size: " + root.count );
+        if ( from == to ) return;
+
+        removeRange( root, from, to );
+
+        // Collapse single-child branches
+        while ( root instanceof Branch && ( ( Branch ) root ).size <= 1 )
+        {
+            Branch b = ( Branch ) root;
+            root = ( b.size == 0 ? new Leaf( ) : b.children[0] );
+        }
+    }
+
+    protected static void removeRange( Node node, int from, int to )
+    {
+        if ( node instanceof Leaf )
+        {
+            Leaf leaf = ( Leaf ) node;
+            System.arraycopy( leaf.vs, to, leaf.vs, from, leaf.count - to );
+            leaf.count -= ( to - from );
+            return;
+        }
+
+        Branch b = ( Branch ) node;
+        int start = 0;
+        for ( int c = 0; c < b.size && start < to; )
+        {
+            int end = start + b.counts[c];
+            if ( end > from )
+            {
+                if ( start >= from && end <= to )
+                {
+                    // Whole child is covered
+                    b.removeChild( c );
+                    start = end;
+                    continue;
+                }
+
+                Node child = b.children[c];
+                removeRange( child, max( from, start ) - start, min( to, end ) - start );
+                b.counts[c] = child.count;
+                if ( child.count > 0 ) b.mins[c] = child.min( );
+            }
+            start = end;
+            c++;
+        }
+        b.count -= ( to - from );
+
+        // Merge small neighboring leaves, and drop emptied children
+        for ( int c = 0; c < b.size; )
+        {
+            Node child = b.children[c];
+            if ( child.count == 0 )
+            {
+                b.removeChild( c );
+                continue;
+            }
+
+            if ( c + 1 < b.size && child instanceof Leaf && b.children[c + 1] instanceof Leaf )
+            {
+                Leaf left = ( Leaf ) child;
+                Leaf right = ( Leaf ) b.children[c + 1];
+                if ( left.count + right.count <= LEAF_CAPACITY / 2 )
+                {
+                    System.arraycopy( right.vs, 0, left.vs, left.count, right.count );
+                    left.count += right.count;
+                    b.counts[c] = left.count;
+                    b.removeChild( c + 1 );
+                    continue;
+                }
+            }
+            c++;
+        }
+    }
+
+    @Override
+    public void removeIndex( int index )
+    {
+        removeRange( index, index + 1 );
+    }
+
+    @Override
+    public void clear( )
+    {
+        root = new Leaf( );
+    }
+
+    /**
+     * Chunks are allocated as values arrive, so there is nothing to reserve up front.
+     */
+    @Override
+    public void ensureCapacity( int minCapacity )
+    {
+    }
+
+    /**
+     * Repacks the values into full chunks.
+     */
+    @Override
+    public void compact( )
+    {
+        root = build( copyOf( ), root.count );
+    }
+
+}
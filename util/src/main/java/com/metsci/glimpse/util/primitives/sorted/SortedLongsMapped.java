@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2016, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.util.primitives.sorted;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+import com.metsci.glimpse.util.primitives.LongsMapped;
+
+/**
+ * Memory-mapped counterpart of {@link SortedLongsArray}, e.g. for the timestamps of a file-backed
+ * data set. Files are in the same format as {@link LongsMapped}, which can also be used to write them.
+ *
+ * @see LongsMapped
+ */
+public class SortedLongsMapped extends SortedLongsBuffer
+{
+
+    protected final MappedByteBuffer mapped;
+    protected boolean reallocated;
+
+    /**
+     * If the mapped values are not in ascending order, the behavior of this instance is undefined.
+     */
+    protected SortedLongsMapped( MappedByteBuffer mapped, ByteOrder order, int n )
+    {
+        super( mapped.duplicate( ).order( order ), n );
+        this.mapped = mapped;
+        this.reallocated = false;
+    }
+
+    /**
+     * Maps the whole file, read-only.
+     */
+    public static SortedLongsMapped map( File file, ByteOrder order ) throws IOException
+    {
+        RandomAccessFile raf = new RandomAccessFile( file, "r" );
+        try
+        {
+            long n = raf.length( ) / 8;
+            return map( raf.getChannel( ), MapMode.READ_ONLY, 0, checkCount( n ), order );
+        }
+        finally
+        {
+            // the mapping stays valid after the channel is closed
+            raf.close( );
+        }
+    }
+
+    /**
+     * Maps n values starting at the given byte position of the channel.
+     */
+    public static SortedLongsMapped map( FileChannel channel, MapMode mode, long position, int n, ByteOrder order ) throws IOException
+    {
+        MappedByteBuffer mapped = channel.map( mode, position, ( long ) checkCount( n ) * 8 );
+        return new SortedLongsMapped( mapped, order, n );
+    }
+
+    protected static int checkCount( long n )
+    {
+        if ( n < 0 || n > LongsMapped.MAX_VALUES ) throw new IllegalArgumentException( "Too many values for a single mapping: " + n );
+        return ( int ) n;
+    }
+
+    /**
+     * @return false if the values have been moved off the mapping into a direct buffer
+     */
+    public boolean isMapped( )
+    {
+        return !reallocated;
+    }
+
+    @Override
+    protected void reallocate( int capacity )
+    {
+        super.reallocate( capacity );
+        reallocated = true;
+    }
+
+    /**
+     * Forces changes made through a read-write mapping to be written to the file.
+     */
+    public void force( )
+    {
+        if ( !reallocated && !mapped.isReadOnly( ) ) mapped.force( );
+    }
+
+}
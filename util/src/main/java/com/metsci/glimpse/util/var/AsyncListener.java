@@ -0,0 +1,293 @@
+/*
+ * Copyright (c) 2016, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.util.var;
+
+import static com.metsci.glimpse.util.concurrent.ConcurrencyUtils.newDaemonThreadFactory;
+import static com.metsci.glimpse.util.logging.LoggerUtils.getLogger;
+import static com.metsci.glimpse.util.logging.LoggerUtils.logWarning;
+import static java.util.concurrent.Executors.defaultThreadFactory;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.logging.Logger;
+
+/**
+ * A listener that hands events off to another listener, which runs asynchronously on a given
+ * executor. Adding an AsyncListener to a {@link Notifier} or {@link Var} opts that one listener
+ * into asynchronous dispatch -- the thread that fires the event returns without waiting for
+ * the wrapped listener.
+ * <p>
+ * Events are classified as intermediate or final. An intermediate event that is still pending
+ * when a newer event arrives is dropped, since the newer event supersedes it. Final events
+ * are never dropped. In addition, intermediate events are rate-limited: at most one is
+ * dispatched per {@code minIntermediateInterval}. Final events are not rate-limited.
+ * <p>
+ * For a {@link Var}, intermediate events are those with {@link VarEvent#ongoing} set, so e.g. a
+ * drag produces a limited number of listener calls while it is in progress, and then exactly
+ * one call when it is finished. See {@link VarUtils#addAsyncListener(Listenable, boolean, Executor, long, Consumer)}.
+ * Because {@link VarEvent}s carry no value, the wrapped listener should query the Var -- as
+ * any Var listener should -- and will see the latest value.
+ * <p>
+ * Also keeps metrics: the number of events dispatched and dropped, and the latency from an
+ * event being fired to the wrapped listener being called. For a coalesced event, latency is
+ * measured from the oldest of the events it replaced.
+ */
+public class AsyncListener<T> implements Consumer<T>
+{
+    private static final Logger logger = getLogger( AsyncListener.class );
+
+    protected static ScheduledExecutorService timer = null;
+
+    protected static synchronized ScheduledExecutorService timer( )
+    {
+        if ( timer == null )
+        {
+            timer = newSingleThreadScheduledExecutor( newDaemonThreadFactory( defaultThreadFactory( ) ) );
+        }
+        return timer;
+    }
+
+    protected static class Pending<T>
+    {
+        public final T ev;
+        public final boolean isIntermediate;
+        public final long firedNanos;
+
+        public Pending( T ev, boolean isIntermediate, long firedNanos )
+        {
+            this.ev = ev;
+            this.isIntermediate = isIntermediate;
+            this.firedNanos = firedNanos;
+        }
+    }
+
+
+    protected final Executor executor;
+    protected final Consumer<T> listener;
+    protected final Predicate<? super T> isIntermediateFn;
+    protected final long minIntermediateIntervalNanos;
+
+    // Guarded by this -- only the last pending event can be intermediate
+    protected final Deque<Pending<T>> pending;
+    protected boolean isDrainScheduled;
+    protected ScheduledFuture<?> delayedDrain;
+    protected boolean isCancelled;
+    protected boolean hasDispatchedIntermediate;
+    protected long lastIntermediateNanos;
+
+    protected final LongAdder dispatchedCount;
+    protected final LongAdder droppedCount;
+    protected final LongAdder totalLatencyNanos;
+    protected final LongAccumulator maxLatencyNanos;
+
+
+    /**
+     * @param executor where the wrapped listener runs -- e.g. {@code SwingUtilities::invokeLater}
+     * @param isIntermediateFn identifies intermediate events -- must accept null, which a {@link Notifier} passes to run a listener immediately
+     * @param minIntermediateIntervalMillis minimum time between dispatches of intermediate events, or zero for no rate limit
+     * @param listener the listener to run asynchronously
+     */
+    public AsyncListener( Executor executor, Predicate<? super T> isIntermediateFn, long minIntermediateIntervalMillis, Consumer<T> listener )
+    {
+        this.executor = executor;
+        this.listener = listener;
+        this.isIntermediateFn = isIntermediateFn;
+        this.minIntermediateIntervalNanos = MILLISECONDS.toNanos( minIntermediateIntervalMillis );
+
+        this.pending = new ArrayDeque<>( );
+        this.isDrainScheduled = false;
+        this.delayedDrain = null;
+        this.isCancelled = false;
+        this.hasDispatchedIntermediate = false;
+        this.lastIntermediateNanos = 0;
+
+        this.dispatchedCount = new LongAdder( );
+        this.droppedCount = new LongAdder( );
+        this.totalLatencyNanos = new LongAdder( );
+        this.maxLatencyNanos = new LongAccumulator( Long::max, 0 );
+    }
+
+    @Override
+    public void accept( T ev )
+    {
+        long firedNanos = System.nanoTime( );
+        boolean isIntermediate = this.isIntermediateFn.test( ev );
+
+        synchronized ( this )
+        {
+            if ( this.isCancelled ) return;
+
+            // A pending intermediate event is superseded by anything newer
+            Pending<T> last = this.pending.peekLast( );
+            if ( last != null && last.isIntermediate )
+            {
+                this.pending.pollLast( );
+                this.droppedCount.increment( );
+                firedNanos = last.firedNanos;
+            }
+
+            this.pending.addLast( new Pending<>( ev, isIntermediate, firedNanos ) );
+
+            if ( !this.isDrainScheduled )
+            {
+                this.isDrainScheduled = true;
+                this.executor.execute( this::drain );
+            }
+            else if ( !isIntermediate && this.delayedDrain != null && this.delayedDrain.cancel( false ) )
+            {
+                // Don't make a final event wait out the intermediate rate limit
+                this.delayedDrain = null;
+                this.executor.execute( this::drain );
+            }
+        }
+    }
+
+    protected void drain( )
+    {
+        while ( true )
+        {
+            Pending<T> p;
+            synchronized ( this )
+            {
+                p = this.pending.peekFirst( );
+                if ( p == null || this.isCancelled )
+                {
+                    this.pending.clear( );
+                    this.isDrainScheduled = false;
+                    return;
+                }
+
+                if ( p.isIntermediate && this.hasDispatchedIntermediate )
+                {
+                    long waitNanos = this.lastIntermediateNanos + this.minIntermediateIntervalNanos - System.nanoTime( );
+                    if ( waitNanos > 0 )
+                    {
+                        // Leave isDrainScheduled set, so that accept() doesn't start another drain
+                        this.delayedDrain = timer( ).schedule( this::drainAfterDelay, waitNanos, NANOSECONDS );
+                        return;
+                    }
+                }
+
+                this.pending.pollFirst( );
+
+                if ( p.isIntermediate )
+                {
+                    this.hasDispatchedIntermediate = true;
+                    this.lastIntermediateNanos = System.nanoTime( );
+                }
+            }
+
+            long latencyNanos = System.nanoTime( ) - p.firedNanos;
+            this.dispatchedCount.increment( );
+            this.totalLatencyNanos.add( latencyNanos );
+            this.maxLatencyNanos.accumulate( latencyNanos );
+
+            try
+            {
+                this.listener.accept( p.ev );
+            }
+            catch ( RuntimeException e )
+            {
+                logWarning( logger, "Exception in async listener", e );
+            }
+        }
+    }
+
+    protected void drainAfterDelay( )
+    {
+        synchronized ( this )
+        {
+            this.delayedDrain = null;
+        }
+        this.executor.execute( this::drain );
+    }
+
+    /**
+     * Discards pending events, and ignores any that arrive later. Does not interrupt a call
+     * to the wrapped listener that is already in progress.
+     */
+    public void cancel( )
+    {
+        synchronized ( this )
+        {
+            this.isCancelled = true;
+            this.pending.clear( );
+
+            if ( this.delayedDrain != null && this.delayedDrain.cancel( false ) )
+            {
+                this.delayedDrain = null;
+                this.isDrainScheduled = false;
+            }
+        }
+    }
+
+    /**
+     * @return number of events passed to the wrapped listener
+     */
+    public long getDispatchedCount( )
+    {
+        return this.dispatchedCount.sum( );
+    }
+
+    /**
+     * @return number of intermediate events dropped because a newer event arrived first
+     */
+    public long getDroppedCount( )
+    {
+        return this.droppedCount.sum( );
+    }
+
+    public double getMeanLatencyMillis( )
+    {
+        long n = this.dispatchedCount.sum( );
+        return ( n == 0 ? 0.0 : 1e-6 * this.totalLatencyNanos.sum( ) / n );
+    }
+
+    public double getMaxLatencyMillis( )
+    {
+        return 1e-6 * this.maxLatencyNanos.get( );
+    }
+
+    public void resetMetrics( )
+    {
+        this.dispatchedCount.reset( );
+        this.droppedCount.reset( );
+        this.totalLatencyNanos.reset( );
+        this.maxLatencyNanos.reset( );
+    }
+
+}
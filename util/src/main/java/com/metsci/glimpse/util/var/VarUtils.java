@@ -35,12 +35,37 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.Executor;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
 public class VarUtils
 {
 
+    /**
+     * Adds a listener that runs asynchronously on {@code executor}. Ongoing events are
+     * coalesced, and dispatched at most once per {@code minOngoingIntervalMillis}; non-ongoing
+     * events are always dispatched. See {@link AsyncListener}.
+     * <p>
+     * Use {@link #newAsyncListener(Executor, long, Consumer)} directly to get access to
+     * the listener's metrics.
+     */
+    public static Disposable addAsyncListener( Listenable<VarEvent> listenable, boolean runImmediately, Executor executor, long minOngoingIntervalMillis, Consumer<VarEvent> listener )
+    {
+        AsyncListener<VarEvent> asyncListener = newAsyncListener( executor, minOngoingIntervalMillis, listener );
+        Disposable disposable = listenable.addListener( runImmediately, asyncListener );
+        return ( ) ->
+        {
+            disposable.dispose( );
+            asyncListener.cancel( );
+        };
+    }
+
+    public static AsyncListener<VarEvent> newAsyncListener( Executor executor, long minOngoingIntervalMillis, Consumer<VarEvent> listener )
+    {
+        return new AsyncListener<>( executor, ( ev ) -> ( ev != null && ev.ongoing ), minOngoingIntervalMillis, listener );
+    }
+
     public static <V> Disposable addOldNewListener( ReadableVar<? extends V> var, boolean runImmediately, BiConsumer<? super V, ? super V> oldNewListener )
     {
         return var.addListener( runImmediately, new Runnable( )
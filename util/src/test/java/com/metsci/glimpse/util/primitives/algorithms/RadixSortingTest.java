@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 2016, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.util.primitives.algorithms;
+
+import static com.metsci.glimpse.util.primitives.algorithms.RadixSorting.identity;
+import static com.metsci.glimpse.util.primitives.algorithms.RadixSorting.parallelRadixsort;
+import static com.metsci.glimpse.util.primitives.algorithms.RadixSorting.radixsort;
+import static com.metsci.glimpse.util.primitives.algorithms.Sorting.mergesort;
+import static com.metsci.glimpse.util.primitives.algorithms.Sorting.parallelMergesort;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Checks the radix sorts, and the parallel sorts, against {@link Arrays#sort}. Each sort is run on
+ * random keys of several sizes (up to well past {@link RadixSorting#PARALLEL_THRESHOLD}) and
+ * distributions, over a sub-range of the array. The sorted keys must match Arrays.sort, the
+ * permutation carried along must be stable, and the parallel variants must match the serial ones
+ * exactly. Run as an application; throws an AssertionError on the first mismatch.
+ */
+public class RadixSortingTest
+{
+    protected static final int[] SIZES = { 0, 1, 2, 17, 1000, 65537, RadixSorting.PARALLEL_THRESHOLD + 12345 };
+
+    public static void main( String[] args )
+    {
+        Random random = new Random( 1234 );
+
+        for ( int size : SIZES )
+        {
+            for ( int distribution = 0; distribution < 4; distribution++ )
+            {
+                checkLongs( randomLongs( random, size, distribution ), random );
+                checkInts( randomInts( random, size, distribution ), random );
+                checkDoubles( randomDoubles( random, size, distribution ), random );
+                checkFloats( randomFloats( random, size, distribution ), random );
+            }
+        }
+
+        System.out.println( "RadixSortingTest passed" );
+    }
+
+    // distribution 0: full range, 1: few distinct values, 2: timestamp-like (high bytes shared), 3: already sorted
+
+    protected static long[] randomLongs( Random random, int size, int distribution )
+    {
+        long[] x = new long[size];
+        for ( int i = 0; i < size; i++ )
+        {
+            switch ( distribution )
+            {
+                case 0: x[i] = random.nextLong( ); break;
+                case 1: x[i] = random.nextInt( 5 ) - 2; break;
+                case 2: x[i] = 1_500_000_000_000L + random.nextInt( 1 << 20 ); break;
+                default: x[i] = i - size / 2; break;
+            }
+        }
+        return x;
+    }
+
+    protected static int[] randomInts( Random random, int size, int distribution )
+    {
+        int[] x = new int[size];
+        for ( int i = 0; i < size; i++ )
+        {
+            switch ( distribution )
+            {
+                case 0: x[i] = random.nextInt( ); break;
+                case 1: x[i] = random.nextInt( 5 ) - 2; break;
+                case 2: x[i] = 1_000_000_000 + random.nextInt( 1 << 12 ); break;
+                default: x[i] = i - size / 2; break;
+            }
+        }
+        return x;
+    }
+
+    protected static double[] randomDoubles( Random random, int size, int distribution )
+    {
+        double[] special = { 0.0, -0.0, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.MIN_VALUE, -Double.MAX_VALUE };
+
+        double[] x = new double[size];
+        for ( int i = 0; i < size; i++ )
+        {
+            switch ( distribution )
+            {
+                case 0: x[i] = ( random.nextInt( 50 ) == 0 ? special[random.nextInt( special.length )] : Double.longBitsToDouble( random.nextLong( ) ) ); break;
+                case 1: x[i] = special[random.nextInt( special.length )]; break;
+                case 2: x[i] = 1.5e9 + random.nextInt( 1 << 20 ) * 1e-3; break;
+                default: x[i] = 0.5 * ( i - size / 2 ); break;
+            }
+        }
+        return x;
+    }
+
+    protected static float[] randomFloats( Random random, int size, int distribution )
+    {
+        float[] special = { 0.0f, -0.0f, Float.NaN, Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.MIN_VALUE, -Float.MAX_VALUE };
+
+        float[] x = new float[size];
+        for ( int i = 0; i < size; i++ )
+        {
+            switch ( distribution )
+            {
+                case 0: x[i] = ( random.nextInt( 50 ) == 0 ? special[random.nextInt( special.length )] : Float.intBitsToFloat( random.nextInt( ) ) ); break;
+                case 1: x[i] = special[random.nextInt( special.length )]; break;
+                case 2: x[i] = 1e6f + random.nextInt( 1 << 10 ); break;
+                default: x[i] = 0.5f * ( i - size / 2 ); break;
+            }
+        }
+        return x;
+    }
+
+    protected static void checkLongs( long[] original, Random random )
+    {
+        int n = original.length;
+        int from = ( n < 4 ? 0 : random.nextInt( n / 4 ) );
+        int to = ( n < 4 ? n : n - random.nextInt( n / 4 ) );
+
+        long[] expected = original.clone( );
+        Arrays.sort( expected, from, to );
+
+        long[] serial = original.clone( );
+        int[] serialAux = identity( n );
+        radixsort( serial, serialAux, from, to );
+        check( Arrays.equals( expected, serial ), "radixsort( long[] ) does not match Arrays.sort" );
+        checkPermutation( serialAux, from, to, ( i, j ) -> Long.compare( original[i], original[j] ) );
+
+        long[] parallel = original.clone( );
+        int[] parallelAux = identity( n );
+        parallelRadixsort( parallel, parallelAux, from, to );
+        check( Arrays.equals( serial, parallel ) && Arrays.equals( serialAux, parallelAux ), "parallelRadixsort( long[] ) does not match radixsort" );
+
+        long[] merged = original.clone( );
+        int[] mergedAux = identity( n );
+        mergesort( merged, mergedAux, from, to );
+
+        long[] parallelMerged = original.clone( );
+        int[] parallelMergedAux = identity( n );
+        parallelMergesort( parallelMerged, parallelMergedAux, from, to );
+        check( Arrays.equals( expected, parallelMerged ), "parallelMergesort( long[] ) does not match Arrays.sort" );
+        check( Arrays.equals( mergedAux, parallelMergedAux ), "parallelMergesort( long[] ) does not match mergesort" );
+    }
+
+    protected static void checkInts( int[] original, Random random )
+    {
+        int n = original.length;
+        int from = ( n < 4 ? 0 : random.nextInt( n / 4 ) );
+        int to = ( n < 4 ? n : n - random.nextInt( n / 4 ) );
+
+        int[] expected = original.clone( );
+        Arrays.sort( expected, from, to );
+
+        int[] serial = original.clone( );
+        int[] serialAux = identity( n );
+        radixsort( serial, serialAux, from, to );
+        check( Arrays.equals( expected, serial ), "radixsort( int[] ) does not match Arrays.sort" );
+        checkPermutation( serialAux, from, to, ( i, j ) -> Integer.compare( original[i], original[j] ) );
+
+        int[] parallel = original.clone( );
+        int[] parallelAux = identity( n );
+        parallelRadixsort( parallel, parallelAux, from, to );
+        check( Arrays.equals( serial, parallel ) && Arrays.equals( serialAux, parallelAux ), "parallelRadixsort( int[] ) does not match radixsort" );
+    }
+
+    protected static void checkDoubles( double[] original, Random random )
+    {
+        int n = original.length;
+        int from = ( n < 4 ? 0 : random.nextInt( n / 4 ) );
+        int to = ( n < 4 ? n : n - random.nextInt( n / 4 ) );
+
+        // Arrays.equals on doubles compares as Double.equals does, so -0.0 != 0.0 and all NaNs are equal
+        double[] expected = original.clone( );
+        Arrays.sort( expected, from, to );
+
+        double[] serial = original.clone( );
+        int[] serialAux = identity( n );
+        radixsort( serial, serialAux, from, to );
+        check( Arrays.equals( expected, serial ), "radixsort( double[] ) does not match Arrays.sort" );
+        checkPermutation( serialAux, from, to, ( i, j ) -> Double.compare( original[i], original[j] ) );
+
+        double[] parallel = original.clone( );
+        int[] parallelAux = identity( n );
+        parallelRadixsort( parallel, parallelAux, from, to );
+        check( Arrays.equals( serial, parallel ) && Arrays.equals( serialAux, parallelAux ), "parallelRadixsort( double[] ) does not match radixsort" );
+    }
+
+    protected static void checkFloats( float[] original, Random random )
+    {
+        int n = original.length;
+        int from = ( n < 4 ? 0 : random.nextInt( n / 4 ) );
+        int to = ( n < 4 ? n : n - random.nextInt( n / 4 ) );
+
+        float[] expected = original.clone( );
+        Arrays.sort( expected, from, to );
+
+        float[] serial = original.clone( );
+        int[] serialAux = identity( n );
+        radixsort( serial, serialAux, from, to );
+        check( Arrays.equals( expected, serial ), "radixsort( float[] ) does not match Arrays.sort" );
+        checkPermutation( serialAux, from, to, ( i, j ) -> Float.compare( original[i], original[j] ) );
+
+        float[] parallel = original.clone( );
+        int[] parallelAux = identity( n );
+        parallelRadixsort( parallel, parallelAux, from, to );
+        check( Arrays.equals( serial, parallel ) && Arrays.equals( serialAux, parallelAux ), "parallelRadixsort( float[] ) does not match radixsort" );
+    }
+
+    protected static interface IndexComparator
+    {
+        int compare( int i, int j );
+    }
+
+    /**
+     * Checks that the permutation is untouched outside [from,to), and that inside it the original
+     * indices are in key order, with ties in their original order.
+     */
+    protected static void checkPermutation( int[] aux, int from, int to, IndexComparator originalOrder )
+    {
+        for ( int k = 0; k < from; k++ )
+            check( aux[k] == k, "sort touched the permutation before fromIndex" );
+
+        for ( int k = to; k < aux.length; k++ )
+            check( aux[k] == k, "sort touched the permutation after toIndex" );
+
+        for ( int k = from + 1; k < to; k++ )
+        {
+            int c = originalOrder.compare( aux[k - 1], aux[k] );
+            check( c < 0 || ( c == 0 && aux[k - 1] < aux[k] ), "sort is not stable" );
+        }
+    }
+
+    protected static void check( boolean condition, String message )
+    {
+        if ( !condition ) throw new AssertionError( message );
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2016, Metron, Inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Metron, Inc. nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL METRON, INC. BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.metsci.glimpse.util.primitives.sorted;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Checks {@link SortedLongsChunked} against a plain {@link SortedLongsArray}, applying the same
+ * random inserts, bulk inserts, and removals to both. Enough values go in to split leaves and
+ * branches several levels deep, and enough come out again to empty and merge chunks. After each
+ * round the contents, size, first/last, and search results of the two must agree. Run as an
+ * application; throws an AssertionError on the first mismatch.
+ */
+public class SortedLongsChunkedTest
+{
+    public static void main( String[] args )
+    {
+        Random random = new Random( 5678 );
+
+        SortedLongsChunked chunked = new SortedLongsChunked( );
+        SortedLongsArray plain = new SortedLongsArray( );
+
+        for ( int round = 0; round < 400; round++ )
+        {
+            // Grow for the first half, then shrink, so chunks split on the way up and merge on the way down
+            boolean growing = ( round < 200 );
+            int ops = 1 + random.nextInt( 100 );
+
+            for ( int op = 0; op < ops; op++ )
+            {
+                int n = plain.n( );
+                int choice = random.nextInt( 10 );
+
+                if ( choice < ( growing ? 6 : 2 ) )
+                {
+                    // Out-of-order add, often a duplicate of a nearby value
+                    long v = ( n > 0 && random.nextBoolean( ) ? plain.v( random.nextInt( n ) ) : random.nextInt( 1 << 20 ) );
+                    int i = chunked.add( v );
+                    int j = plain.add( v );
+                    check( chunked.v( i ) == v && plain.v( j ) == v, "add returned the wrong index" );
+                }
+                else if ( choice < ( growing ? 7 : 3 ) )
+                {
+                    // Bulk insert of a sorted run that fits between two neighbours
+                    int i = random.nextInt( n + 1 );
+                    long lo = ( i == 0 ? -( 1 << 20 ) : plain.v( i - 1 ) );
+                    long hi = ( i == n ? 2 << 20 : plain.v( i ) );
+                    long[] vs = new long[random.nextInt( growing ? 600 : 200 )];
+                    for ( int k = 0; k < vs.length; k++ )
+                    {
+                        vs[k] = lo + ( long ) ( random.nextDouble( ) * ( hi - lo ) );
+                    }
+                    Arrays.sort( vs );
+
+                    chunked.insert( i, vs );
+                    plain.insert( i, vs );
+                }
+                else if ( choice < 8 && n > 0 )
+                {
+                    int i = random.nextInt( n );
+                    chunked.removeIndex( i );
+                    plain.removeIndex( i );
+                }
+                else if ( choice < 9 && n > 0 )
+                {
+                    int from = random.nextInt( n );
+                    int to = Math.min( n, from + random.nextInt( growing ? 20 : 2000 ) );
+                    chunked.removeRange( from, to );
+                    plain.removeRange( from, to );
+                }
+                else if ( n > 0 )
+                {
+                    long v = plain.v( random.nextInt( n ) );
+                    chunked.remove( v );
+                    plain.remove( v );
+                }
+            }
+
+            if ( round % 50 == 49 ) chunked.compact( );
+
+            checkSame( chunked, plain, random );
+        }
+
+        chunked.clear( );
+        plain.clear( );
+        checkSame( chunked, plain, random );
+
+        // Bulk construction, which builds full chunks directly
+        long[] sorted = new long[100000];
+        for ( int i = 0; i < sorted.length; i++ )
+        {
+            sorted[i] = random.nextInt( 1 << 16 );
+        }
+        Arrays.sort( sorted );
+        checkSame( new SortedLongsChunked( sorted ), new SortedLongsArray( sorted ), random );
+
+        System.out.println( "SortedLongsChunkedTest passed" );
+    }
+
+    protected static void checkSame( SortedLongsChunked chunked, SortedLongsArray plain, Random random )
+    {
+        int n = plain.n( );
+        check( chunked.n( ) == n, "sizes differ" );
+        check( chunked.isEmpty( ) == plain.isEmpty( ), "isEmpty differs" );
+        check( Arrays.equals( chunked.copyOf( ), plain.copyOf( ) ), "contents differ" );
+
+        if ( n == 0 ) return;
+
+        check( chunked.first( ) == plain.first( ) && chunked.last( ) == plain.last( ), "first or last differs" );
+
+        for ( int k = 0; k < 100; k++ )
+        {
+            int i = random.nextInt( n );
+            check( chunked.v( i ) == plain.v( i ), "v( i ) differs" );
+
+            int c = random.nextInt( n - i + 1 );
+            check( Arrays.equals( chunked.copyOf( i, c ), plain.copyOf( i, c ) ), "copyOf( i, c ) differs" );
+
+            // Query existing values as well as values that fall between them
+            long x = ( random.nextBoolean( ) ? plain.v( i ) : random.nextInt( 1 << 20 ) );
+            check( chunked.indexAfter( x ) == plain.indexAfter( x ), "indexAfter differs" );
+            check( chunked.indexAtOrAfter( x ) == plain.indexAtOrAfter( x ), "indexAtOrAfter differs" );
+            check( chunked.indexBefore( x ) == plain.indexBefore( x ), "indexBefore differs" );
+            check( chunked.indexAtOrBefore( x ) == plain.indexAtOrBefore( x ), "indexAtOrBefore differs" );
+
+            // With duplicates, any matching index (or equally near index) is correct
+            int iChunked = chunked.indexOf( x );
+            int iPlain = plain.indexOf( x );
+            check( ( iChunked >= 0 ) == ( iPlain >= 0 ), "indexOf differs" );
+            if ( iChunked >= 0 ) check( chunked.v( iChunked ) == x, "indexOf found the wrong value" );
+
+            long dChunked = Math.abs( chunked.v( chunked.indexNearest( x ) ) - x );
+            long dPlain = Math.abs( plain.v( plain.indexNearest( x ) ) - x );
+            check( dChunked == dPlain, "indexNearest differs" );
+        }
+    }
+
+    protected static void check( boolean condition, String message )
+    {
+        if ( !condition ) throw new AssertionError( message );
+    }
+}